@@ -0,0 +1,137 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link Cache} for a skewed workload of mostly hits, at increasing numbers of threads.
+ * <p>
+ * Each benchmark method issues reads and, with probability <code>writeRatio</code>, writes on keys drawn from a
+ * skewed distribution over twice as many keys as the cache can hold. Missing keys are put into the cache.
+ * <p>
+ * The <code>implementation</code> parameter selects the engine under test: <code>lru</code> is the default engine that
+ * promotes every hit under the LRU lock, <code>buffered</code> enables buffered reads and <code>buffered_admission</code>
+ * enables both buffered reads and frequency-based admission.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class CacheBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    private static final int NUMBER_OF_KEYS = 1 << 16;
+
+    @Param({"8192"})
+    public int maximumWeight = 8192;
+
+    @Param({"0.0", "0.1"})
+    public double writeRatio = 0.1;
+
+    @Param({"lru", "buffered", "buffered_admission"})
+    public String implementation = "buffered";
+
+    private Cache<Integer, Integer> cache;
+
+    private Integer[] keys;
+
+    @Setup
+    public void setUp() {
+        // lru is the default engine that promotes entries under the LRU lock on every hit
+        cache = CacheBuilder.<Integer, Integer>builder()
+            .setMaximumWeight(maximumWeight)
+            .setBufferedReads(implementation.startsWith("buffered"))
+            .setFrequencyBasedAdmission(implementation.equals("buffered_admission"))
+            .build();
+        // a skewed distribution: small keys are much more likely than large keys
+        Random random = new Random(42);
+        keys = new Integer[NUMBER_OF_KEYS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (int) Math.floor(Math.pow(2 * maximumWeight, random.nextDouble())) - 1;
+        }
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(keys[i], keys[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private Random random = new Random();
+        private int index = new Random().nextInt(NUMBER_OF_KEYS);
+    }
+
+    private Integer access(ThreadState state) {
+        final Integer key = keys[state.index++ & (NUMBER_OF_KEYS - 1)];
+        if (writeRatio > 0 && state.random.nextDouble() < writeRatio) {
+            cache.put(key, key);
+            return key;
+        }
+        Integer value = cache.get(key);
+        if (value == null) {
+            cache.put(key, key);
+            value = key;
+        }
+        return value;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer accessWith1Thread(ThreadState state) {
+        return access(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer accessWith4Threads(ThreadState state) {
+        return access(state);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Integer accessWith16Threads(ThreadState state) {
+        return access(state);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Integer accessWith64Threads(ThreadState state) {
+        return access(state);
+    }
+}
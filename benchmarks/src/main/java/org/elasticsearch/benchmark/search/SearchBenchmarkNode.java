@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search;
+
+import com.carrotsearch.hppc.IntArrayList;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.logging.LogConfigurator;
+import org.elasticsearch.common.network.NetworkModule;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.InternalSettingsPreparer;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeValidationException;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.fetch.ShardFetchRequest;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchLocalRequest;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.transport.Netty4Plugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * A single node, started in the benchmark JVM, that holds a {@link SyntheticIndex} and lets benchmarks execute the query and
+ * fetch phases of its shard through the node's {@link SearchService}, like a data node does for a shard-level search
+ * request. This way benchmarks measure the actual search phases, with their search context, aggregators and sub phases,
+ * without the coordination of a distributed search request.
+ */
+public final class SearchBenchmarkNode implements Closeable {
+
+    public static final String INDEX = "benchmark";
+
+    private final Path home;
+
+    private final Node node;
+
+    private final SearchService searchService;
+
+    private final ShardId shardId;
+
+    private final SearchTask task = new SearchTask(0, "transport", SearchAction.NAME, "benchmark", TaskId.EMPTY_TASK_ID);
+
+    private SearchBenchmarkNode(Path home, Node node) {
+        this.home = home;
+        this.node = node;
+        this.searchService = node.injector().getInstance(SearchService.class);
+        this.shardId = new ShardId(node.client().admin().cluster().prepareState().get().getState().metaData().index(INDEX).getIndex(), 0);
+    }
+
+    /**
+     * Starts a node and creates the {@link SyntheticIndex} with the given additional index settings on it.
+     */
+    public static SearchBenchmarkNode start(Settings indexSettings, int numDocs, int numSegments, int numTerms)
+        throws IOException, NodeValidationException {
+        final Path home = Files.createTempDirectory("search-benchmark");
+        final Settings settings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), home.toString())
+            .put(ClusterName.CLUSTER_NAME_SETTING.getKey(), "search-benchmark")
+            .put(NetworkModule.HTTP_ENABLED.getKey(), false)
+            .build();
+        LogConfigurator.configureWithoutConfig(settings);
+        Node node = null;
+        boolean success = false;
+        try {
+            node = new BenchmarkNode(settings).start();
+            SyntheticIndex.index(node.client(), INDEX, indexSettings, numDocs, numSegments, numTerms);
+            final SearchBenchmarkNode searchNode = new SearchBenchmarkNode(home, node);
+            success = true;
+            return searchNode;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(node);
+                IOUtils.rm(home);
+            }
+        }
+    }
+
+    /**
+     * Executes the query phase of the given search source on the shard of the {@link SyntheticIndex}, bypassing the request
+     * cache, and releases the search context that the query phase keeps open for the fetch phase if there are hits.
+     */
+    public QuerySearchResult executeQueryPhase(SearchSourceBuilder source) throws IOException {
+        final QuerySearchResult result = startQueryPhase(source);
+        searchService.freeContext(result.id());
+        return result;
+    }
+
+    /**
+     * Executes the query phase of the given search source on the shard of the {@link SyntheticIndex}, bypassing the request
+     * cache. If there are hits, the search context is kept open until {@link #executeFetchPhase(QuerySearchResult)} is called.
+     */
+    public QuerySearchResult startQueryPhase(SearchSourceBuilder source) throws IOException {
+        final ShardSearchRequest request = new ShardSearchLocalRequest(shardId, 1, SearchType.QUERY_THEN_FETCH, source,
+            Strings.EMPTY_ARRAY, false, new AliasFilter(null, Strings.EMPTY_ARRAY), 1.0f);
+        return searchService.executeQueryPhase(request, task).queryResult();
+    }
+
+    /**
+     * Executes the fetch phase of all the hits of the given result of {@link #startQueryPhase(SearchSourceBuilder)}, which
+     * releases its search context.
+     */
+    public FetchSearchResult executeFetchPhase(QuerySearchResult queryResult) {
+        final IntArrayList docIds = new IntArrayList();
+        for (ScoreDoc scoreDoc : queryResult.topDocs().scoreDocs) {
+            docIds.add(scoreDoc.doc);
+        }
+        return searchService.executeFetchPhase(new ShardFetchRequest(queryResult.id(), docIds, null), task);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            node.close();
+        } finally {
+            IOUtils.rm(home);
+        }
+    }
+
+    /**
+     * A node with the transport on the classpath, since benchmarks do not load modules from the node's home.
+     */
+    private static class BenchmarkNode extends Node {
+        BenchmarkNode(Settings settings) {
+            super(InternalSettingsPreparer.prepareEnvironment(settings, null), Collections.singletonList(Netty4Plugin.class));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.search.SearchPhaseController;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.InternalTDigestPercentiles;
+import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestState;
+import org.elasticsearch.search.fetch.FetchSearchResultProvider;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the reduce of the query phase results of a search on the coordinating node by {@link SearchPhaseController}:
+ * merging the top hits of all shards and reducing their aggregations.
+ * <p>
+ * Every shard returns <code>size</code> hits and a <code>terms</code> aggregation with <code>numBuckets</code> buckets
+ * that each have a <code>percentiles</code> sub-aggregation. Shards share most of their terms, like when a high
+ * cardinality field is aggregated over an index whose documents are randomly routed.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class SearchPhaseReduceBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"5", "100"})
+    public int numShards = 5;
+
+    @Param({"10", "1000"})
+    public int numBuckets = 10;
+
+    @Param({"10"})
+    public int size = 10;
+
+    private SearchPhaseController controller;
+
+    private AtomicArray<QuerySearchResult> queryResults;
+
+    private AtomicArray<FetchSearchResultProvider> fetchResults;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        controller = new SearchPhaseController(Settings.EMPTY, BigArrays.NON_RECYCLING_INSTANCE, null);
+        queryResults = new AtomicArray<>(numShards);
+        // hits are not fetched, only the query phase results are reduced
+        fetchResults = new AtomicArray<>(0);
+        final Index index = new Index("index", "_na_");
+        for (int shard = 0; shard < numShards; shard++) {
+            QuerySearchResult result = new QuerySearchResult(shard, new SearchShardTarget("node", index, shard));
+            ScoreDoc[] scoreDocs = new ScoreDoc[size];
+            float score = 10 * random.nextFloat();
+            for (int i = 0; i < size; i++) {
+                scoreDocs[i] = new ScoreDoc(random.nextInt(1000000), score, shard);
+                score *= random.nextFloat();
+            }
+            result.topDocs(new TopDocs(1000000, scoreDocs, scoreDocs.length == 0 ? Float.NaN : scoreDocs[0].score), null);
+            result.from(0);
+            result.size(size);
+            result.aggregations(new InternalAggregations(Collections.singletonList(terms(random))));
+            queryResults.set(shard, result);
+        }
+    }
+
+    private InternalAggregation terms(Random random) {
+        List<StringTerms.Bucket> buckets = new ArrayList<>(numBuckets);
+        // the terms of a shard are shifted by up to 10% of the number of buckets, so shards share at least 90% of their terms
+        final int offset = random.nextInt(numBuckets / 10 + 1);
+        long docCount = 1000000;
+        for (int i = 0; i < numBuckets; i++) {
+            TDigestState state = new TDigestState(100);
+            for (int j = 0; j < 100; j++) {
+                state.add(random.nextDouble() * 1000);
+            }
+            InternalAggregation percentiles = new InternalTDigestPercentiles("percentiles", new double[] {50, 99}, state, false,
+                DocValueFormat.RAW, Collections.emptyList(), Collections.emptyMap());
+            docCount -= random.nextInt((int) (docCount / numBuckets) + 1);
+            buckets.add(new StringTerms.Bucket(new BytesRef("term_" + (i + offset)), docCount,
+                new InternalAggregations(Collections.singletonList(percentiles)), false, 0, DocValueFormat.RAW));
+        }
+        return new StringTerms("terms", Terms.Order.count(false), numBuckets, 1, Collections.emptyList(), Collections.emptyMap(),
+            DocValueFormat.RAW, numBuckets, false, 0, buckets, 0);
+    }
+
+    @Benchmark
+    public InternalSearchResponse reduce() throws IOException {
+        final ScoreDoc[] sortedDocs = controller.sortDocs(false, queryResults);
+        return controller.merge(false, sortedDocs, queryResults, fetchResults);
+    }
+}
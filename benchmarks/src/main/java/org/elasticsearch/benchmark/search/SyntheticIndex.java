@@ -0,0 +1,148 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.IndexSettings;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Builds indices of synthetic documents for the search benchmarks, either as in-memory Lucene indices or as an index of a
+ * {@link SearchBenchmarkNode}.
+ * <p>
+ * Every document has a <code>keyword</code> field, indexed and with doc values, whose value is one of
+ * <code>numTerms</code> terms drawn from a skewed distribution, and a <code>number</code> field with numeric doc values
+ * that are uniformly distributed between 0 and {@link #MAX_NUMBER}. Documents are split into <code>numSegments</code>
+ * segments of roughly equal size.
+ */
+public final class SyntheticIndex {
+
+    public static final String KEYWORD_FIELD = "keyword";
+    public static final String NUMBER_FIELD = "number";
+    public static final long MAX_NUMBER = 1000000;
+
+    private static final int BULK_SIZE = 10000;
+
+    private SyntheticIndex() {
+    }
+
+    /**
+     * Returns the <code>i</code>-th term of the <code>keyword</code> field, the first terms being the most frequent ones.
+     */
+    public static String term(int i) {
+        return "term_" + i;
+    }
+
+    /**
+     * Builds a Lucene index whose segments are never merged.
+     */
+    public static DirectoryReader build(Directory directory, int numDocs, int numSegments, int numTerms) throws IOException {
+        Random random = new Random(42);
+        IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer())
+            .setMergePolicy(NoMergePolicy.INSTANCE)
+            // segments are only created on commit
+            .setRAMBufferSizeMB(512);
+        final int docsPerSegment = Math.max(1, numDocs / numSegments);
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            for (int i = 0; i < numDocs; i++) {
+                final String term = nextTerm(random, numTerms);
+                Document doc = new Document();
+                doc.add(new StringField(KEYWORD_FIELD, term, Field.Store.NO));
+                doc.add(new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef(term)));
+                doc.add(new SortedNumericDocValuesField(NUMBER_FIELD, nextNumber(random)));
+                writer.addDocument(doc);
+                if ((i + 1) % docsPerSegment == 0) {
+                    writer.commit();
+                }
+            }
+            writer.commit();
+        }
+        return DirectoryReader.open(directory);
+    }
+
+    /**
+     * Creates an index with a single shard and no replicas, with the given additional index settings, and fills it with
+     * the same documents as {@link #build(Directory, int, int, int)}. The shard is refreshed after every
+     * <code>numDocs / numSegments</code> documents and then force-merged down to <code>numSegments</code> segments.
+     */
+    public static void index(Client client, String index, Settings indexSettings, int numDocs, int numSegments,
+                             int numTerms) throws IOException {
+        client.admin().indices().prepareCreate(index)
+            .setSettings(Settings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), -1)
+                .put(indexSettings))
+            .addMapping("doc", XContentFactory.jsonBuilder().startObject().startObject("doc").startObject("properties")
+                .startObject(KEYWORD_FIELD).field("type", "keyword").endObject()
+                .startObject(NUMBER_FIELD).field("type", "long").endObject()
+                .endObject().endObject().endObject())
+            .get();
+        client.admin().cluster().prepareHealth(index).setWaitForGreenStatus().get();
+        Random random = new Random(42);
+        final int docsPerSegment = Math.max(1, numDocs / numSegments);
+        BulkRequestBuilder bulk = client.prepareBulk();
+        for (int i = 0; i < numDocs; i++) {
+            bulk.add(client.prepareIndex(index, "doc", Integer.toString(i)).setSource(XContentFactory.jsonBuilder().startObject()
+                .field(KEYWORD_FIELD, nextTerm(random, numTerms))
+                .field(NUMBER_FIELD, nextNumber(random))
+                .endObject()));
+            final boolean endOfSegment = (i + 1) % docsPerSegment == 0;
+            if (bulk.numberOfActions() == BULK_SIZE || endOfSegment || i == numDocs - 1) {
+                BulkResponse response = bulk.get();
+                if (response.hasFailures()) {
+                    throw new IllegalStateException("failed to index documents: " + response.buildFailureMessage());
+                }
+                bulk = client.prepareBulk();
+            }
+            if (endOfSegment) {
+                client.admin().indices().prepareRefresh(index).get();
+            }
+        }
+        client.admin().indices().prepareRefresh(index).get();
+        client.admin().indices().prepareForceMerge(index).setMaxNumSegments(numSegments).get();
+    }
+
+    private static String nextTerm(Random random, int numTerms) {
+        return term((int) Math.floor(Math.pow(numTerms, random.nextDouble())) - 1);
+    }
+
+    private static long nextNumber(Random random) {
+        return (long) (random.nextDouble() * MAX_NUMBER);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.benchmark.search.SearchBenchmarkNode;
+import org.elasticsearch.benchmark.search.SyntheticIndex;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.NodeValidationException;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the query phase of a shard that collects all its documents into a <code>terms</code>, <code>histogram</code>,
+ * <code>cardinality</code> or <code>percentiles</code> aggregation.
+ * <p>
+ * Each benchmark method executes a <code>size: 0</code> request with a single aggregation on the shard of a
+ * {@link SyntheticIndex} held by a {@link SearchBenchmarkNode}, so aggregators are created, collect documents and build
+ * their shard-level result exactly like they do for a search request. The <code>cardinality</code> and
+ * <code>percentiles</code> metrics are computed per term, nested under a <code>terms</code> aggregation, which makes
+ * <code>numTerms</code> the number of buckets.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class AggregationCollectionBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"1000000"})
+    public int numDocs = 1000000;
+
+    @Param({"1", "20"})
+    public int numSegments = 1;
+
+    @Param({"10", "10000"})
+    public int numTerms = 10;
+
+    private SearchBenchmarkNode node;
+
+    private SearchSourceBuilder terms;
+
+    private SearchSourceBuilder histogram;
+
+    private SearchSourceBuilder cardinality;
+
+    private SearchSourceBuilder percentiles;
+
+    @Setup
+    public void setUp() throws IOException, NodeValidationException {
+        node = SearchBenchmarkNode.start(Settings.EMPTY, numDocs, numSegments, numTerms);
+        terms = aggregation(termsPerKeyword());
+        histogram = aggregation(AggregationBuilders.histogram("histogram").field(SyntheticIndex.NUMBER_FIELD)
+            .interval(Math.max(1, SyntheticIndex.MAX_NUMBER / numTerms)));
+        cardinality = aggregation(termsPerKeyword()
+            .subAggregation(AggregationBuilders.cardinality("cardinality").field(SyntheticIndex.NUMBER_FIELD)));
+        percentiles = aggregation(termsPerKeyword()
+            .subAggregation(AggregationBuilders.percentiles("percentiles").field(SyntheticIndex.NUMBER_FIELD)));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        node.close();
+    }
+
+    @Benchmark
+    public Aggregations terms() throws IOException {
+        return execute(terms);
+    }
+
+    @Benchmark
+    public Aggregations histogram() throws IOException {
+        return execute(histogram);
+    }
+
+    @Benchmark
+    public Aggregations cardinality() throws IOException {
+        return execute(cardinality);
+    }
+
+    @Benchmark
+    public Aggregations percentiles() throws IOException {
+        return execute(percentiles);
+    }
+
+    private AggregationBuilder termsPerKeyword() {
+        return AggregationBuilders.terms("terms").field(SyntheticIndex.KEYWORD_FIELD).size(numTerms);
+    }
+
+    private static SearchSourceBuilder aggregation(AggregationBuilder aggregation) {
+        return new SearchSourceBuilder().size(0).aggregation(aggregation);
+    }
+
+    private Aggregations execute(SearchSourceBuilder source) throws IOException {
+        return node.executeQueryPhase(source).aggregations();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.fetch;
+
+import org.elasticsearch.benchmark.search.SearchBenchmarkNode;
+import org.elasticsearch.benchmark.search.SyntheticIndex;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.NodeValidationException;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.FetchSearchResult;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.sort.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fetch phase of a shard: loading the top <code>size</code> hits of a match all query sorted by a numeric field.
+ * <p>
+ * Hits are fetched by the search service of a {@link SearchBenchmarkNode}, from the shard of a {@link SyntheticIndex}.
+ * <code>fetch</code> selects what is returned for every hit: its <code>_source</code>, the doc values of its fields, or
+ * nothing but its id. The query phase that finds the hits to fetch runs before every invocation and is not measured.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class FetchPhaseBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"1000000"})
+    public int numDocs = 1000000;
+
+    @Param({"10", "100", "1000"})
+    public int size = 10;
+
+    @Param({"source", "doc_values", "none"})
+    public String fetch = "source";
+
+    private SearchBenchmarkNode node;
+
+    private SearchSourceBuilder source;
+
+    private QuerySearchResult queryResult;
+
+    @Setup
+    public void setUp() throws IOException, NodeValidationException {
+        node = SearchBenchmarkNode.start(Settings.EMPTY, numDocs, 1, 1000);
+        source = new SearchSourceBuilder().size(size).sort(SyntheticIndex.NUMBER_FIELD, SortOrder.ASC);
+        switch (fetch) {
+            case "source":
+                break;
+            case "doc_values":
+                source.fetchSource(false).docValueField(SyntheticIndex.KEYWORD_FIELD).docValueField(SyntheticIndex.NUMBER_FIELD);
+                break;
+            case "none":
+                source.fetchSource(false);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown fetch [" + fetch + "]");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void executeQueryPhase() throws IOException {
+        // fetching hits is slow enough for the overhead of an invocation-level setup not to matter
+        queryResult = node.startQueryPhase(source);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        node.close();
+    }
+
+    @Benchmark
+    public FetchSearchResult fetch() {
+        return node.executeFetchPhase(queryResult);
+    }
+}
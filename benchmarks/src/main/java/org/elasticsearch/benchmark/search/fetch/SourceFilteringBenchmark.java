@@ -0,0 +1,122 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.fetch;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+import org.elasticsearch.search.lookup.SourceLookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of source filtering in the fetch phase, from the stored <code>_source</code> of a hit to its
+ * filtered <code>_source</code>, the same way as the fetch source sub phase does it.
+ * <p>
+ * The source documents have <code>numFields</code> top-level fields, every tenth field being an object with ten
+ * sub-fields. <code>filter</code> selects the fields to return: a single top-level field, all sub-fields of an object
+ * through a wildcard, or everything but one field.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class SourceFilteringBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"10", "100"})
+    public int numFields = 10;
+
+    @Param({"single_field", "wildcard", "exclude"})
+    public String filter = "single_field";
+
+    private BytesReference source;
+
+    private FetchSourceContext fetchSourceContext;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        for (int i = 0; i < numFields; i++) {
+            if (i % 10 == 0) {
+                builder.startObject("object_" + i);
+                for (int j = 0; j < 10; j++) {
+                    builder.field("field_" + j, random.nextLong());
+                }
+                builder.endObject();
+            } else {
+                builder.field("field_" + i, randomString(random));
+            }
+        }
+        source = builder.endObject().bytes();
+        switch (filter) {
+            case "single_field":
+                fetchSourceContext = new FetchSourceContext(true, new String[] {"field_1"}, Strings.EMPTY_ARRAY);
+                break;
+            case "wildcard":
+                fetchSourceContext = new FetchSourceContext(true, new String[] {"object_0.*"}, Strings.EMPTY_ARRAY);
+                break;
+            case "exclude":
+                fetchSourceContext = new FetchSourceContext(true, Strings.EMPTY_ARRAY, new String[] {"field_1"});
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown filter [" + filter + "]");
+        }
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 32; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public BytesReference filterSource() throws IOException {
+        SourceLookup lookup = new SourceLookup();
+        lookup.setSource(source);
+        final Object value = lookup.filter(fetchSourceContext);
+        BytesStreamOutput streamOutput = new BytesStreamOutput(Math.min(1024, source.length()));
+        XContentBuilder builder = new XContentBuilder(lookup.sourceContentType().xContent(), streamOutput);
+        builder.value(value);
+        return builder.bytes();
+    }
+}
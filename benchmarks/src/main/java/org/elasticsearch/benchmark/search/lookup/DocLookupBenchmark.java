@@ -0,0 +1,156 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.lookup;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.Version;
+import org.elasticsearch.benchmark.search.SyntheticIndex;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.analysis.AnalyzerScope;
+import org.elasticsearch.index.analysis.IndexAnalyzers;
+import org.elasticsearch.index.analysis.NamedAnalyzer;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.indices.IndicesModule;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
+import org.elasticsearch.search.lookup.LeafDocLookup;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time it takes to read the value of the <code>number</code> field of every document of a
+ * {@link SyntheticIndex} through the doc lookup of scripts.
+ * <p>
+ * <code>map</code> looks the field up by name for every document, like <code>doc.get('number').value</code> in a Painless
+ * script. <code>slot</code> reads the field from a slot of the doc lookup, like <code>doc['number'].value</code>.
+ * <code>long</code> reads the first value straight from the long doc values of the field, like
+ * <code>long value = doc['number'].value</code>.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class DocLookupBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"1000000"})
+    public int numDocs = 1000000;
+
+    @Param({"1", "20"})
+    public int numSegments = 1;
+
+    @Param({"map", "slot", "long"})
+    public String access = "slot";
+
+    private Directory directory;
+
+    private DirectoryReader reader;
+
+    private SearchLookup lookup;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = new RAMDirectory();
+        reader = SyntheticIndex.build(directory, numDocs, numSegments, 10);
+
+        Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .build();
+        IndexSettings indexSettings = new IndexSettings(IndexMetaData.builder("benchmark").settings(settings).build(), Settings.EMPTY);
+        NamedAnalyzer analyzer = new NamedAnalyzer("default", AnalyzerScope.INDEX, new StandardAnalyzer());
+        IndexAnalyzers indexAnalyzers = new IndexAnalyzers(indexSettings, analyzer, analyzer, analyzer,
+            Collections.emptyMap(), Collections.emptyMap());
+        MapperService mapperService = new MapperService(indexSettings, indexAnalyzers, NamedXContentRegistry.EMPTY,
+            new SimilarityService(indexSettings, Collections.emptyMap()), new IndicesModule(Collections.emptyList()).getMapperRegistry(),
+            () -> null);
+        mapperService.merge("type", new CompressedXContent("{\"type\":{\"properties\":{\"" + SyntheticIndex.NUMBER_FIELD
+            + "\":{\"type\":\"long\"}}}}"), MapperService.MergeReason.MAPPING_UPDATE, false);
+        IndexFieldDataService fieldDataService = new IndexFieldDataService(indexSettings,
+            new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {}), new NoneCircuitBreakerService(),
+            mapperService);
+
+        lookup = new SearchLookup(mapperService, fieldDataService, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public long run() throws IOException {
+        long sum = 0;
+        for (LeafReaderContext ctx : reader.leaves()) {
+            final LeafDocLookup docLookup = lookup.getLeafSearchLookup(ctx).doc();
+            for (int doc = 0; doc < ctx.reader().maxDoc(); doc++) {
+                docLookup.setDocument(doc);
+                switch (access) {
+                    case "map":
+                        sum += ((ScriptDocValues.Longs) docLookup.get(SyntheticIndex.NUMBER_FIELD)).getValue();
+                        break;
+                    case "slot":
+                        sum += ((ScriptDocValues.Longs) docLookup.getForField(SyntheticIndex.NUMBER_FIELD, 0)).getValue();
+                        break;
+                    case "long":
+                        final SortedNumericDocValues values = docLookup.getLongValuesForField(SyntheticIndex.NUMBER_FIELD, 0);
+                        sum += values.count() == 0 ? 0L : values.valueAt(0);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown access [" + access + "]");
+                }
+            }
+        }
+        return sum;
+    }
+}
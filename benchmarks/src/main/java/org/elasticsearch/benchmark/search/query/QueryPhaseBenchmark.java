@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.query;
+
+import org.elasticsearch.benchmark.search.SearchBenchmarkNode;
+import org.elasticsearch.benchmark.search.SyntheticIndex;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.node.NodeValidationException;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.sort.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the query phase of a shard: counting the documents that match a term query and collecting the top hits of a
+ * term query by score and of a match all query sorted by a numeric field.
+ * <p>
+ * Queries are executed by the search service of a {@link SearchBenchmarkNode}, on the shard of a {@link SyntheticIndex} with
+ * <code>numSegments</code> segments whose <code>index.search.max_concurrent_slices</code> setting is set to
+ * <code>maxConcurrentSlices</code>. The request cache is bypassed so that every invocation actually executes the query.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class QueryPhaseBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"1000000"})
+    public int numDocs = 1000000;
+
+    @Param({"1", "10", "50"})
+    public int numSegments = 1;
+
+    @Param({"1", "4"})
+    public int maxConcurrentSlices = 1;
+
+    @Param({"10"})
+    public int size = 10;
+
+    private SearchBenchmarkNode node;
+
+    private SearchSourceBuilder count;
+
+    private SearchSourceBuilder topDocsByScore;
+
+    private SearchSourceBuilder topDocsBySort;
+
+    @Setup
+    public void setUp() throws IOException, NodeValidationException {
+        node = SearchBenchmarkNode.start(Settings.builder()
+            .put(IndexSettings.MAX_CONCURRENT_SEARCH_SLICES.getKey(), maxConcurrentSlices)
+            .build(), numDocs, numSegments, 1000);
+        // the most frequent term matches about 10% of the documents
+        count = new SearchSourceBuilder().size(0).query(QueryBuilders.termQuery(SyntheticIndex.KEYWORD_FIELD, SyntheticIndex.term(0)));
+        topDocsByScore = new SearchSourceBuilder().size(size)
+            .query(QueryBuilders.termQuery(SyntheticIndex.KEYWORD_FIELD, SyntheticIndex.term(0)));
+        topDocsBySort = new SearchSourceBuilder().size(size).sort(SyntheticIndex.NUMBER_FIELD, SortOrder.ASC);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        node.close();
+    }
+
+    @Benchmark
+    public QuerySearchResult count() throws IOException {
+        return node.executeQueryPhase(count);
+    }
+
+    @Benchmark
+    public QuerySearchResult topDocsByScore() throws IOException {
+        return node.executeQueryPhase(topDocsByScore);
+    }
+
+    @Benchmark
+    public QuerySearchResult topDocsBySort() throws IOException {
+        return node.executeQueryPhase(topDocsBySort);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+// lives in the same package as LiveVersionMap since it is package-private
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.index.Term;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the version lookups and updates that the engine performs for every indexed document, when
+ * millions of ids were indexed since the last refresh.
+ * <p>
+ * The map starts with <code>numIds</code> live ids. Each invocation then looks up the version of an id and sets a new
+ * version for it, ids being drawn at random among twice as many ids so that roughly half of the operations are updates.
+ * The map is refreshed every <code>numIds</code> operations.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class LiveVersionMapBenchmark {
+    // Do NOT make any field final (even if it is not annotated with @Param)! See also
+    // http://hg.openjdk.java.net/code-tools/jmh/file/tip/jmh-samples/src/main/java/org/openjdk/jmh/samples/JMHSample_10_ConstantFold.java
+
+    @Param({"1000000", "4000000"})
+    public int numIds = 1000000;
+
+    @Param({"false", "true"})
+    public boolean compact = false;
+
+    private LiveVersionMap map;
+
+    private Term[] liveUids;
+
+    private Term[] uids;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        liveUids = new Term[numIds];
+        for (int i = 0; i < liveUids.length; i++) {
+            liveUids[i] = uid(i);
+        }
+        uids = new Term[numIds];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = uid(random.nextInt(2 * numIds));
+        }
+    }
+
+    private static Term uid(int id) {
+        return new Term("_uid", "type#" + Integer.toString(id, Character.MAX_RADIX));
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpMap() {
+        map = new LiveVersionMap(compact);
+        index = 0;
+        for (Term uid : liveUids) {
+            map.putUnderLock(uid.bytes(), new VersionValue(1));
+        }
+    }
+
+    @Benchmark
+    public VersionValue index() throws IOException {
+        if (index == uids.length) {
+            map.beforeRefresh();
+            map.afterRefresh(true);
+            index = 0;
+        }
+        final Term uid = uids[index++];
+        final VersionValue current = map.getUnderLock(uid);
+        map.putUnderLock(uid.bytes(), new VersionValue(current == null ? 1 : current.version() + 1));
+        return current;
+    }
+}
@@ -29,7 +29,7 @@ import static org.elasticsearch.client.HttpAsyncResponseConsumerFactory.HeapBuff
  * consumer object. Users can implement this interface and pass their own instance to the specialized
  * performRequest methods that accept an {@link HttpAsyncResponseConsumerFactory} instance as argument.
  */
-interface HttpAsyncResponseConsumerFactory {
+public interface HttpAsyncResponseConsumerFactory {
 
     /**
      * Creates the default type of {@link HttpAsyncResponseConsumer}, based on heap buffering with a buffer limit of 100MB.
@@ -62,4 +62,32 @@ interface HttpAsyncResponseConsumerFactory {
             return new HeapBufferedAsyncResponseConsumer(bufferLimit);
         }
     }
+
+    /**
+     * Factory used to create instances of {@link StreamingAsyncResponseConsumer}, which hands over successful responses as
+     * soon as their body starts streaming and buffers at most the configured number of bytes of each body, off-heap.
+     * The consumers created by the same factory share a pool of direct buffers.
+     */
+    class StreamingResponseConsumerFactory implements HttpAsyncResponseConsumerFactory {
+
+        //default buffer limit is 1MB
+        static final int DEFAULT_BUFFER_LIMIT = 1024 * 1024;
+
+        private final int bufferLimit;
+        private final DirectBufferPool bufferPool;
+
+        public StreamingResponseConsumerFactory() {
+            this(DEFAULT_BUFFER_LIMIT);
+        }
+
+        public StreamingResponseConsumerFactory(int bufferLimitBytes) {
+            this.bufferLimit = bufferLimitBytes;
+            this.bufferPool = StreamingAsyncResponseConsumer.newBufferPool(bufferLimitBytes);
+        }
+
+        @Override
+        public HttpAsyncResponseConsumer<HttpResponse> createHttpAsyncResponseConsumer() {
+            return new StreamingAsyncResponseConsumer(bufferLimit, bufferPool);
+        }
+    }
 }
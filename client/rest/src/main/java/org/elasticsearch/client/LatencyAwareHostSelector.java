@@ -0,0 +1,179 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.client;
+
+import org.apache.http.HttpHost;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Orders the hosts that a request can be sent to so that the fastest ones are tried first.
+ * <p>
+ * For each host, an exponentially weighted moving average of the time it takes to respond is kept, together with the number
+ * of requests that are in flight. Hosts are ranked by their average response time multiplied by the number of requests
+ * they would have in flight, so that requests are spread among hosts that are equally fast instead of all going to the
+ * fastest one. Hosts that did not respond yet are ranked first so that they get measured, and hosts with the same rank keep
+ * the round-robin order they are provided in. The average of the hosts that are slower than the selected one decays
+ * every time they are not selected, so that a host that was slow once, for instance because of a garbage collection, is
+ * eventually tried again.
+ */
+final class LatencyAwareHostSelector {
+
+    // the weight of a new response time in the moving average
+    static final double ALPHA = 0.3;
+    // how fast the average of the hosts that are not selected decays
+    static final double DECAY = 0.05;
+
+    private final ConcurrentMap<HttpHost, HostStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the provided hosts, from the fastest to the slowest one.
+     */
+    List<HttpHost> sort(Collection<HttpHost> hosts) {
+        final List<HostRank> ranks = new ArrayList<>(hosts.size());
+        for (HttpHost host : hosts) {
+            HostStats hostStats = stats(host);
+            ranks.add(new HostRank(host, hostStats, hostStats.rank(), hostStats.inFlight.get()));
+        }
+        // stable, hosts with the same rank keep their order
+        Collections.sort(ranks, new Comparator<HostRank>() {
+            @Override
+            public int compare(HostRank o1, HostRank o2) {
+                int compare = Double.compare(o1.rank, o2.rank);
+                return compare != 0 ? compare : Integer.compare(o1.inFlight, o2.inFlight);
+            }
+        });
+        List<HttpHost> sortedHosts = new ArrayList<>(ranks.size());
+        for (HostRank rank : ranks) {
+            sortedHosts.add(rank.host);
+        }
+        double selectedLatency = ranks.get(0).stats.ewmaLatencyNanos;
+        if (selectedLatency >= 0) {
+            for (int i = 1; i < ranks.size(); i++) {
+                ranks.get(i).stats.decay(selectedLatency);
+            }
+        }
+        return sortedHosts;
+    }
+
+    /**
+     * Called before a request is sent to the provided host.
+     */
+    void onRequest(HttpHost host) {
+        stats(host).inFlight.incrementAndGet();
+    }
+
+    /**
+     * Called when the provided host responded to a request, after the provided time.
+     */
+    void onResponse(HttpHost host, long tookNanos) {
+        HostStats hostStats = stats.get(host);
+        // null if the host was removed in the meantime
+        if (hostStats != null) {
+            hostStats.inFlight.decrementAndGet();
+            hostStats.addLatency(tookNanos);
+        }
+    }
+
+    /**
+     * Called when a request sent to the provided host failed or was cancelled. Failing hosts are blacklisted by the
+     * {@link RestClient}, so failures don't contribute to the response time of the host.
+     */
+    void onFailure(HttpHost host) {
+        HostStats hostStats = stats.get(host);
+        if (hostStats != null) {
+            hostStats.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Forgets about the hosts that are not part of the provided ones anymore.
+     */
+    void retainHosts(Collection<HttpHost> hosts) {
+        stats.keySet().retainAll(hosts);
+    }
+
+    /**
+     * Returns the average response time of the provided host in nanoseconds, or -1 if it did not respond yet.
+     */
+    double getLatencyNanos(HttpHost host) {
+        return stats(host).ewmaLatencyNanos;
+    }
+
+    /**
+     * Returns the number of requests that are in flight to the provided host.
+     */
+    int getInFlight(HttpHost host) {
+        return stats(host).inFlight.get();
+    }
+
+    private HostStats stats(HttpHost host) {
+        HostStats hostStats = stats.get(host);
+        if (hostStats == null) {
+            hostStats = new HostStats();
+            HostStats previous = stats.putIfAbsent(host, hostStats);
+            if (previous != null) {
+                hostStats = previous;
+            }
+        }
+        return hostStats;
+    }
+
+    private static final class HostStats {
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile double ewmaLatencyNanos = -1;
+
+        synchronized void addLatency(long tookNanos) {
+            ewmaLatencyNanos = ewmaLatencyNanos < 0 ? tookNanos : ALPHA * tookNanos + (1 - ALPHA) * ewmaLatencyNanos;
+        }
+
+        synchronized void decay(double selectedLatencyNanos) {
+            if (ewmaLatencyNanos > selectedLatencyNanos) {
+                ewmaLatencyNanos = (1 - DECAY) * ewmaLatencyNanos;
+            }
+        }
+
+        double rank() {
+            double latency = ewmaLatencyNanos;
+            return latency < 0 ? 0 : latency * (inFlight.get() + 1);
+        }
+    }
+
+    private static final class HostRank {
+        final HttpHost host;
+        final HostStats stats;
+        final double rank;
+        final int inFlight;
+
+        HostRank(HttpHost host, HostStats stats, double rank, int inFlight) {
+            this.host = host;
+            this.stats = stats;
+            this.rank = rank;
+            this.inFlight = inFlight;
+        }
+    }
+}
@@ -145,7 +145,10 @@ final class RequestLogger {
         }
         responseLine += "\n#";
         HttpEntity entity = httpResponse.getEntity();
-        if (entity != null) {
+        if (entity instanceof StreamingAsyncResponseConsumer.StreamingEntity) {
+            //the body is read by the caller while it is received, buffering it would defeat streaming
+            responseLine += "\n# [streamed body]";
+        } else if (entity != null) {
             if (entity.isRepeatable() == false) {
                 entity = new BufferedHttpEntity(entity);
             }
@@ -81,6 +81,9 @@ import java.util.concurrent.atomic.AtomicReference;
  * retried after a certain amount of time (minimum 1 minute, maximum 30 minutes), depending on how many times they previously
  * failed (the more failures, the later they will be retried). In case of failures all of the alive nodes (or dead nodes that
  * deserve a retry) are retried until one responds or none of them does, in which case an {@link IOException} will be thrown.
+ * When latency aware host selection is enabled through {@link RestClientBuilder#setLatencyAwareHostSelection(boolean)}, alive
+ * hosts are tried from the one that is expected to respond the fastest to the slowest one instead, based on their recent
+ * response times and on the number of requests that are in flight to each of them.
  * <p>
  * Requests can be either synchronous or asynchronous. The asynchronous variants all end with {@code Async}.
  * <p>
@@ -99,14 +102,22 @@ public class RestClient implements Closeable {
     private volatile HostTuple<Set<HttpHost>> hostTuple;
     private final ConcurrentMap<HttpHost, DeadHostState> blacklist = new ConcurrentHashMap<>();
     private final FailureListener failureListener;
+    //null unless latency aware host selection is enabled
+    private final LatencyAwareHostSelector hostSelector;
 
     RestClient(CloseableHttpAsyncClient client, long maxRetryTimeoutMillis, Header[] defaultHeaders,
                HttpHost[] hosts, String pathPrefix, FailureListener failureListener) {
+        this(client, maxRetryTimeoutMillis, defaultHeaders, hosts, pathPrefix, failureListener, null);
+    }
+
+    RestClient(CloseableHttpAsyncClient client, long maxRetryTimeoutMillis, Header[] defaultHeaders,
+               HttpHost[] hosts, String pathPrefix, FailureListener failureListener, LatencyAwareHostSelector hostSelector) {
         this.client = client;
         this.maxRetryTimeoutMillis = maxRetryTimeoutMillis;
         this.defaultHeaders = defaultHeaders;
         this.failureListener = failureListener;
         this.pathPrefix = pathPrefix;
+        this.hostSelector = hostSelector;
         setHosts(hosts);
     }
 
@@ -134,6 +145,10 @@ public class RestClient implements Closeable {
         }
         this.hostTuple = new HostTuple<>(Collections.unmodifiableSet(httpHosts), authCache);
         this.blacklist.clear();
+        if (hostSelector != null) {
+            //hosts that are still part of the cluster, like when sniffing, keep their response times
+            hostSelector.retainHosts(httpHosts);
+        }
     }
 
     /**
@@ -336,9 +351,16 @@ public class RestClient implements Closeable {
             httpAsyncResponseConsumerFactory.createHttpAsyncResponseConsumer();
         final HttpClientContext context = HttpClientContext.create();
         context.setAuthCache(hostTuple.authCache);
-        client.execute(requestProducer, asyncResponseConsumer, context, new FutureCallback<HttpResponse>() {
+        final long attemptStartNanos = System.nanoTime();
+        if (hostSelector != null) {
+            hostSelector.onRequest(host);
+        }
+        FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
             @Override
             public void completed(HttpResponse httpResponse) {
+                if (hostSelector != null) {
+                    hostSelector.onResponse(host, System.nanoTime() - attemptStartNanos);
+                }
                 try {
                     RequestLogger.logResponse(logger, request, host, httpResponse);
                     int statusCode = httpResponse.getStatusLine().getStatusCode();
@@ -365,6 +387,9 @@ public class RestClient implements Closeable {
 
             @Override
             public void failed(Exception failure) {
+                if (hostSelector != null) {
+                    hostSelector.onFailure(host);
+                }
                 try {
                     RequestLogger.logFailedRequest(logger, request, host, failure);
                     onFailure(host);
@@ -395,9 +420,17 @@ public class RestClient implements Closeable {
 
             @Override
             public void cancelled() {
+                if (hostSelector != null) {
+                    hostSelector.onFailure(host);
+                }
                 listener.onDefinitiveFailure(new ExecutionException("request was cancelled", null));
             }
-        });
+        };
+        if (asyncResponseConsumer instanceof StreamingAsyncResponseConsumer) {
+            //successful responses are handed over as soon as their body starts streaming
+            callback = ((StreamingAsyncResponseConsumer) asyncResponseConsumer).streamingCallback(callback);
+        }
+        client.execute(requestProducer, asyncResponseConsumer, context, callback);
     }
 
     private void setHeaders(HttpRequest httpRequest, Header[] requestHeaders) {
@@ -451,7 +484,7 @@ public class RestClient implements Closeable {
             } else {
                 List<HttpHost> rotatedHosts = new ArrayList<>(filteredHosts);
                 Collections.rotate(rotatedHosts, rotatedHosts.size() - lastHostIndex.getAndIncrement());
-                nextHosts = rotatedHosts;
+                nextHosts = hostSelector == null ? rotatedHosts : hostSelector.sort(rotatedHosts);
             }
         } while(nextHosts.isEmpty());
         return new HostTuple<>(nextHosts.iterator(), hostTuple.authCache);
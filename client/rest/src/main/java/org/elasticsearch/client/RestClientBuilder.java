@@ -54,6 +54,7 @@ public final class RestClientBuilder {
     private HttpClientConfigCallback httpClientConfigCallback;
     private RequestConfigCallback requestConfigCallback;
     private String pathPrefix;
+    private boolean latencyAwareHostSelection = false;
 
     /**
      * Creates a new builder instance and sets the hosts that the client will send requests to.
@@ -172,6 +173,16 @@ public final class RestClientBuilder {
         return this;
     }
 
+    /**
+     * Sets whether requests are preferably sent to the hosts that responded the fastest recently, taking into account the
+     * number of requests that are in flight to each host, instead of sending them to the hosts in a round-robin fashion.
+     * Disabled by default.
+     */
+    public RestClientBuilder setLatencyAwareHostSelection(boolean latencyAwareHostSelection) {
+        this.latencyAwareHostSelection = latencyAwareHostSelection;
+        return this;
+    }
+
     /**
      * Creates a new {@link RestClient} based on the provided configuration.
      */
@@ -185,7 +196,9 @@ public final class RestClientBuilder {
                 return createHttpClient();
             }
         });
-        RestClient restClient = new RestClient(httpClient, maxRetryTimeout, defaultHeaders, hosts, pathPrefix, failureListener);
+        LatencyAwareHostSelector hostSelector = latencyAwareHostSelection ? new LatencyAwareHostSelector() : null;
+        RestClient restClient = new RestClient(httpClient, maxRetryTimeout, defaultHeaders, hosts, pathPrefix, failureListener,
+            hostSelector);
         httpClient.start();
         return restClient;
     }
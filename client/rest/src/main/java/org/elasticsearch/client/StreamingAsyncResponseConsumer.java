@@ -0,0 +1,344 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.client;
+
+import org.apache.http.ContentTooLongException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentBufferEntity;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SimpleInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.elasticsearch.client.HttpAsyncResponseConsumerFactory.HeapBufferedResponseConsumerFactory.DEFAULT_BUFFER_LIMIT;
+
+/**
+ * Consumer that streams the body of successful responses to the caller instead of buffering it entirely in heap.
+ * <p>
+ * When used by {@link RestClient}, successful responses are handed over as soon as their headers are received, and the
+ * content of their entity is an {@link InputStream} fed by the I/O reactor with pooled direct buffers. At most
+ * {@code bufferLimit} bytes of the body are buffered: reading from the network is suspended once the limit is reached, and
+ * resumed once the caller has read half of the buffered bytes. As a consequence the body must be read from another thread
+ * than the one that calls the {@link ResponseListener}, and the content must be closed once done with it so that its
+ * buffers are returned to the pool. Errors that happen while the body is received are thrown when reading the content.
+ * <p>
+ * Responses with an error status, which are usually small and need to be read to build a {@link ResponseException}, and
+ * all responses when the consumer is not used by {@link RestClient} are buffered in heap like
+ * {@link HeapBufferedAsyncResponseConsumer} does.
+ */
+public class StreamingAsyncResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+    // the size of the direct buffers that the body is read into
+    static final int BUFFER_SIZE = 16 * 1024;
+
+    private final int bufferLimitBytes;
+    private final DirectBufferPool bufferPool;
+    private volatile HttpResponse response;
+    private volatile FutureCallback<HttpResponse> responseCallback;
+    private volatile ContentStream stream;
+    private volatile SimpleInputBuffer buf;
+
+    /**
+     * Creates a new instance of this consumer with the provided buffer limit
+     */
+    public StreamingAsyncResponseConsumer(int bufferLimit) {
+        this(bufferLimit, newBufferPool(bufferLimit));
+    }
+
+    StreamingAsyncResponseConsumer(int bufferLimit, DirectBufferPool bufferPool) {
+        if (bufferLimit <= 0) {
+            throw new IllegalArgumentException("bufferLimit must be greater than 0");
+        }
+        this.bufferLimitBytes = bufferLimit;
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Creates a pool that can hold the buffers of two response bodies that reached the provided buffer limit.
+     */
+    static DirectBufferPool newBufferPool(int bufferLimit) {
+        return new DirectBufferPool(BUFFER_SIZE, 2 * (Math.max(0, bufferLimit) / BUFFER_SIZE + 1));
+    }
+
+    /**
+     * Get the limit of the buffer.
+     */
+    public int getBufferLimit() {
+        return bufferLimitBytes;
+    }
+
+    /**
+     * Registers the callback that successful responses are handed over to as soon as their body starts streaming. Returns
+     * the callback that the http client must notify, which only forwards the outcome of the responses that were not handed
+     * over: once the body of a response is streamed, failures are thrown when reading the body instead.
+     */
+    FutureCallback<HttpResponse> streamingCallback(final FutureCallback<HttpResponse> callback) {
+        this.responseCallback = callback;
+        return new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse result) {
+                if (stream == null) {
+                    callback.completed(result);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                if (stream == null) {
+                    callback.failed(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                if (stream == null) {
+                    callback.cancelled();
+                }
+            }
+        };
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) throws HttpException, IOException {
+        this.response = response;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+        FutureCallback<HttpResponse> callback = responseCallback;
+        if (callback != null && response.getStatusLine().getStatusCode() < 300) {
+            this.stream = new ContentStream(bufferPool, bufferLimitBytes);
+            this.response.setEntity(new StreamingEntity(entity, stream));
+            callback.completed(response);
+            return;
+        }
+        long len = entity.getContentLength();
+        if (len > DEFAULT_BUFFER_LIMIT) {
+            throw new ContentTooLongException("entity content is too long [" + len +
+                    "] for the configured buffer limit [" + DEFAULT_BUFFER_LIMIT + "]");
+        }
+        if (len < 0) {
+            len = 4096;
+        }
+        this.buf = new SimpleInputBuffer((int) len, HeapByteBufferAllocator.INSTANCE);
+        this.response.setEntity(new ContentBufferEntity(entity, this.buf));
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+        if (stream != null) {
+            stream.consumeContent(decoder, ioctrl);
+        } else {
+            buf.consumeContent(decoder);
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) throws Exception {
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        if (stream != null) {
+            // no-op if the whole body was received
+            Exception failure = getException();
+            stream.abort(failure == null ? new IOException("response was cancelled") : failure);
+        }
+        response = null;
+    }
+
+    /**
+     * The entity of a response whose content is streamed.
+     */
+    static final class StreamingEntity extends BasicHttpEntity {
+
+        StreamingEntity(HttpEntity entity, InputStream content) {
+            setContent(content);
+            setContentLength(entity.getContentLength());
+            setContentType(entity.getContentType());
+            setContentEncoding(entity.getContentEncoding());
+            setChunked(entity.isChunked());
+        }
+    }
+
+    /**
+     * The content of a streamed response body, buffered in direct buffers until it is read. Buffers are added by the I/O
+     * reactor thread and removed by the thread that reads the content.
+     */
+    private static final class ContentStream extends InputStream {
+
+        private final DirectBufferPool bufferPool;
+        private final int bufferLimit;
+        private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+        private final byte[] singleByte = new byte[1];
+        private int buffered;
+        private boolean endOfStream;
+        private boolean closed;
+        private Exception failure;
+        // the control of the connection while reading from it is suspended
+        private IOControl suspendedInput;
+
+        ContentStream(DirectBufferPool bufferPool, int bufferLimit) {
+            this.bufferPool = bufferPool;
+            this.bufferLimit = bufferLimit;
+        }
+
+        void consumeContent(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            int read;
+            do {
+                ByteBuffer buffer = bufferPool.acquire();
+                try {
+                    read = decoder.read(buffer);
+                } catch (IOException e) {
+                    bufferPool.release(buffer);
+                    throw e;
+                }
+                synchronized (this) {
+                    if (read > 0 && closed == false && failure == null) {
+                        buffer.flip();
+                        buffers.addLast(buffer);
+                        buffered += read;
+                        buffer = null;
+                        notifyAll();
+                    }
+                    if (decoder.isCompleted()) {
+                        endOfStream = true;
+                        notifyAll();
+                    } else if (buffered >= bufferLimit) {
+                        // the caller reads slower than the server writes, stop reading from the network until it catches up
+                        ioControl.suspendInput();
+                        suspendedInput = ioControl;
+                        read = 0;
+                    }
+                }
+                if (buffer != null) {
+                    // the content was discarded
+                    bufferPool.release(buffer);
+                }
+            } while (read > 0 && decoder.isCompleted() == false);
+        }
+
+        /**
+         * Fails the stream if the whole body was not received, releasing the buffered content.
+         */
+        synchronized void abort(Exception cause) {
+            if (endOfStream || failure != null) {
+                return;
+            }
+            failure = cause;
+            releaseBuffers();
+            notifyAll();
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int read = read(singleByte, 0, 1);
+            return read == -1 ? -1 : singleByte[0] & 0xFF;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (buffers.isEmpty()) {
+                ensureOpen();
+                if (endOfStream) {
+                    return -1;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for the response body");
+                }
+            }
+            ByteBuffer buffer = buffers.peekFirst();
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            buffered -= read;
+            if (buffer.hasRemaining() == false) {
+                buffers.removeFirst();
+                bufferPool.release(buffer);
+            }
+            if (suspendedInput != null && buffered <= bufferLimit / 2) {
+                suspendedInput.requestInput();
+                suspendedInput = null;
+            }
+            return read;
+        }
+
+        @Override
+        public synchronized int available() throws IOException {
+            ensureOpen();
+            return buffered;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            releaseBuffers();
+            if (suspendedInput != null) {
+                // the rest of the body is read and discarded, so that the connection can be reused
+                suspendedInput.requestInput();
+                suspendedInput = null;
+            }
+            notifyAll();
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("stream is closed");
+            }
+            if (failure != null) {
+                throw new IOException("failed to receive the response body", failure);
+            }
+        }
+
+        private void releaseBuffers() {
+            ByteBuffer buffer;
+            while ((buffer = buffers.pollFirst()) != null) {
+                bufferPool.release(buffer);
+            }
+            buffered = 0;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.client;
+
+import org.apache.http.HttpHost;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyAwareHostSelectorTests extends RestClientTestCase {
+
+    private static final HttpHost HOST_1 = new HttpHost("host1", 9200);
+    private static final HttpHost HOST_2 = new HttpHost("host2", 9200);
+    private static final HttpHost HOST_3 = new HttpHost("host3", 9200);
+
+    public void testHostsWithoutResponsesKeepTheirOrder() {
+        LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+        List<HttpHost> hosts = Arrays.asList(HOST_3, HOST_1, HOST_2);
+        assertEquals(hosts, selector.sort(hosts));
+        respond(selector, HOST_3, 10);
+        // hosts that did not respond yet are tried first
+        assertEquals(Arrays.asList(HOST_1, HOST_2, HOST_3), selector.sort(hosts));
+    }
+
+    public void testFastestHostFirst() {
+        LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+        respond(selector, HOST_1, 30);
+        respond(selector, HOST_2, 10);
+        respond(selector, HOST_3, 20);
+        assertEquals(Arrays.asList(HOST_2, HOST_3, HOST_1), selector.sort(Arrays.asList(HOST_1, HOST_2, HOST_3)));
+    }
+
+    public void testMovingAverage() {
+        LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+        assertEquals(-1, selector.getLatencyNanos(HOST_1), 0d);
+        respond(selector, HOST_1, 10);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), selector.getLatencyNanos(HOST_1), 0d);
+        respond(selector, HOST_1, 20);
+        double expected = LatencyAwareHostSelector.ALPHA * TimeUnit.MILLISECONDS.toNanos(20)
+            + (1 - LatencyAwareHostSelector.ALPHA) * TimeUnit.MILLISECONDS.toNanos(10);
+        assertEquals(expected, selector.getLatencyNanos(HOST_1), 1d);
+    }
+
+    public void testInFlightRequests() {
+        LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+        respond(selector, HOST_1, 10);
+        respond(selector, HOST_2, 15);
+        List<HttpHost> hosts = Arrays.asList(HOST_1, HOST_2);
+        assertEquals(hosts, selector.sort(hosts));
+        // requests in flight to the fastest host make the other one preferable
+        selector.onRequest(HOST_1);
+        assertEquals(1, selector.getInFlight(HOST_1));
+        assertEquals(Arrays.asList(HOST_2, HOST_1), selector.sort(hosts));
+        selector.onFailure(HOST_1);
+        assertEquals(0, selector.getInFlight(HOST_1));
+    }
+
+    public void testSlowHostIsEventuallyRetried() {
+        LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+        respond(selector, HOST_1, 10);
+        respond(selector, HOST_2, 1000);
+        List<HttpHost> hosts = Arrays.asList(HOST_1, HOST_2);
+        int sorts = 0;
+        while (selector.sort(hosts).get(0).equals(HOST_1)) {
+            sorts++;
+            assertTrue("slow host was never retried", sorts < 1000);
+            respond(selector, HOST_1, 10);
+        }
+    }
+
+    public void testRetainHosts() {
+        LatencyAwareHostSelector selector = new LatencyAwareHostSelector();
+        respond(selector, HOST_1, 10);
+        respond(selector, HOST_2, 20);
+        selector.retainHosts(Collections.singleton(HOST_2));
+        assertEquals(-1, selector.getLatencyNanos(HOST_1), 0d);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), selector.getLatencyNanos(HOST_2), 0d);
+    }
+
+    private static void respond(LatencyAwareHostSelector selector, HttpHost host, long millis) {
+        selector.onRequest(host);
+        selector.onResponse(host, TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -38,6 +38,7 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.InetAddress;
@@ -86,9 +87,33 @@ public class RestClientSingleHostIntegTests extends RestClientTestCase {
         for (int statusCode : getAllStatusCodes()) {
             httpServer.createContext(pathPrefix + "/" + statusCode, new ResponseHandler(statusCode));
         }
+        httpServer.createContext(pathPrefix + "/streaming", new StreamingHandler());
         return httpServer;
     }
 
+    //animal-sniffer doesn't like our usage of com.sun.net.httpserver.* classes
+    @IgnoreJRERequirement
+    private static class StreamingHandler implements HttpHandler {
+        //much bigger than the buffer limit of the consumers used in the tests
+        static final int LENGTH = 1024 * 1024;
+
+        @Override
+        public void handle(HttpExchange httpExchange) throws IOException {
+            httpExchange.getRequestBody().close();
+            httpExchange.sendResponseHeaders(200, LENGTH);
+            try (OutputStream out = httpExchange.getResponseBody()) {
+                byte[] buffer = new byte[4096];
+                for (int i = 0; i < LENGTH; i += buffer.length) {
+                    for (int j = 0; j < buffer.length; j++) {
+                        buffer[j] = (byte) ((i + j) % 251);
+                    }
+                    out.write(buffer, 0, Math.min(buffer.length, LENGTH - i));
+                }
+            }
+            httpExchange.close();
+        }
+    }
+
     //animal-sniffer doesn't like our usage of com.sun.net.httpserver.* classes
     @IgnoreJRERequirement
     private static class ResponseHandler implements HttpHandler {
@@ -243,6 +268,32 @@ public class RestClientSingleHostIntegTests extends RestClientTestCase {
         }
     }
 
+    /**
+     * End to end test for responses whose body is streamed, with a buffer limit much lower than the size of the body.
+     */
+    public void testStreamingResponse() throws IOException {
+        HttpAsyncResponseConsumerFactory consumerFactory =
+            new HttpAsyncResponseConsumerFactory.StreamingResponseConsumerFactory(StreamingAsyncResponseConsumer.BUFFER_SIZE);
+        int numRequests = randomIntBetween(1, 3);
+        for (int i = 0; i < numRequests; i++) {
+            Response response = restClient.performRequest("GET", "/streaming", Collections.<String, String>emptyMap(), null,
+                consumerFactory);
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            int length = 0;
+            try (InputStream content = response.getEntity().getContent()) {
+                byte[] buffer = new byte[randomIntBetween(1, 8192)];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    for (int j = 0; j < read; j++) {
+                        assertEquals((byte) (length % 251), buffer[j]);
+                        length++;
+                    }
+                }
+            }
+            assertEquals(StreamingHandler.LENGTH, length);
+        }
+    }
+
     private Response bodyTest(final String method) throws IOException {
         return bodyTest(restClient, method);
     }
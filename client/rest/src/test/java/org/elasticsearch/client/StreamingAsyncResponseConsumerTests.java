@@ -0,0 +1,257 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.client;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentBufferEntity;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class StreamingAsyncResponseConsumerTests extends RestClientTestCase {
+
+    private static final int BUFFER_LIMIT = 4 * StreamingAsyncResponseConsumer.BUFFER_SIZE;
+
+    public void testConfiguredBufferLimit() {
+        try {
+            new StreamingAsyncResponseConsumer(randomIntBetween(Integer.MIN_VALUE, 0));
+            fail("expected an exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("bufferLimit must be greater than 0", e.getMessage());
+        }
+        int bufferLimit = randomIntBetween(1, BUFFER_LIMIT);
+        assertEquals(bufferLimit, new StreamingAsyncResponseConsumer(bufferLimit).getBufferLimit());
+    }
+
+    public void testStreaming() throws Exception {
+        DirectBufferPool bufferPool = StreamingAsyncResponseConsumer.newBufferPool(BUFFER_LIMIT);
+        StreamingAsyncResponseConsumer consumer = new StreamingAsyncResponseConsumer(BUFFER_LIMIT, bufferPool);
+        RecordingCallback listener = new RecordingCallback();
+        FutureCallback<HttpResponse> clientCallback = consumer.streamingCallback(listener);
+        IOControl ioControl = mock(IOControl.class);
+
+        byte[] content = randomBytes(randomIntBetween(BUFFER_LIMIT + 1, 10 * BUFFER_LIMIT));
+        HttpResponse httpResponse = response(200, content.length);
+        consumer.responseReceived(httpResponse);
+        // the response is handed over before its body is received
+        assertSame(httpResponse, listener.result);
+        assertThat(httpResponse.getEntity(), instanceOf(StreamingAsyncResponseConsumer.StreamingEntity.class));
+        InputStream stream = httpResponse.getEntity().getContent();
+
+        BytesDecoder decoder = new BytesDecoder(content);
+        decoder.available = content.length;
+        consumer.consumeContent(decoder, ioControl);
+        // reading is suspended once the limit is reached, until half of the buffered content is read
+        verify(ioControl).suspendInput();
+        assertEquals(BUFFER_LIMIT, stream.available());
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_LIMIT / 2];
+        readFully(stream, buffer, BUFFER_LIMIT / 2 - 1);
+        received.write(buffer, 0, BUFFER_LIMIT / 2 - 1);
+        verify(ioControl, never()).requestInput();
+        readFully(stream, buffer, 1);
+        received.write(buffer, 0, 1);
+        verify(ioControl).requestInput();
+
+        while (decoder.isCompleted() == false) {
+            consumer.consumeContent(decoder, ioControl);
+            int available = stream.available();
+            readFully(stream, buffer, Math.min(available, buffer.length));
+            received.write(buffer, 0, Math.min(available, buffer.length));
+        }
+        consumer.responseCompleted(mock(HttpContext.class));
+        // the client reporting the end of the response does not notify the listener again
+        clientCallback.completed(httpResponse);
+        assertEquals(1, listener.completed);
+
+        // the buffered content can still be read once the response is completed
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            received.write(buffer, 0, read);
+        }
+        assertArrayEquals(content, received.toByteArray());
+        stream.close();
+        assertTrue(bufferPool.getPooledBuffers() > 0);
+    }
+
+    public void testFailureWhileStreaming() throws Exception {
+        StreamingAsyncResponseConsumer consumer = new StreamingAsyncResponseConsumer(BUFFER_LIMIT);
+        RecordingCallback listener = new RecordingCallback();
+        FutureCallback<HttpResponse> clientCallback = consumer.streamingCallback(listener);
+
+        byte[] content = randomBytes(BUFFER_LIMIT);
+        HttpResponse httpResponse = response(200, content.length);
+        consumer.responseReceived(httpResponse);
+        BytesDecoder decoder = new BytesDecoder(content);
+        decoder.available = randomIntBetween(1, content.length - 1);
+        consumer.consumeContent(decoder, mock(IOControl.class));
+
+        IOException failure = new IOException("connection reset");
+        consumer.failed(failure);
+        clientCallback.failed(failure);
+        assertNull(listener.failure);
+        try {
+            httpResponse.getEntity().getContent().read();
+            fail("expected an exception");
+        } catch (IOException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    public void testClosingDiscardsTheRestOfTheBody() throws Exception {
+        StreamingAsyncResponseConsumer consumer = new StreamingAsyncResponseConsumer(BUFFER_LIMIT);
+        consumer.streamingCallback(new RecordingCallback());
+        IOControl ioControl = mock(IOControl.class);
+
+        byte[] content = randomBytes(2 * BUFFER_LIMIT);
+        HttpResponse httpResponse = response(200, content.length);
+        consumer.responseReceived(httpResponse);
+        BytesDecoder decoder = new BytesDecoder(content);
+        decoder.available = content.length;
+        consumer.consumeContent(decoder, ioControl);
+        verify(ioControl).suspendInput();
+
+        httpResponse.getEntity().getContent().close();
+        verify(ioControl).requestInput();
+        consumer.consumeContent(decoder, ioControl);
+        assertTrue(decoder.isCompleted());
+        verify(ioControl, times(1)).suspendInput();
+    }
+
+    public void testErrorResponsesAreBuffered() throws Exception {
+        StreamingAsyncResponseConsumer consumer = new StreamingAsyncResponseConsumer(BUFFER_LIMIT);
+        RecordingCallback listener = new RecordingCallback();
+        FutureCallback<HttpResponse> clientCallback = consumer.streamingCallback(listener);
+
+        byte[] content = randomBytes(2 * BUFFER_LIMIT);
+        HttpResponse httpResponse = response(randomIntBetween(300, 599), content.length);
+        consumer.responseReceived(httpResponse);
+        assertNull(listener.result);
+        assertThat(httpResponse.getEntity(), instanceOf(ContentBufferEntity.class));
+
+        BytesDecoder decoder = new BytesDecoder(content);
+        decoder.available = content.length;
+        IOControl ioControl = mock(IOControl.class);
+        consumer.consumeContent(decoder, ioControl);
+        verify(ioControl, never()).suspendInput();
+        consumer.responseCompleted(mock(HttpContext.class));
+        clientCallback.completed(consumer.getResult());
+        assertThat(listener.result, sameInstance(httpResponse));
+    }
+
+    private static HttpResponse response(int statusCode, int contentLength) {
+        HttpResponse httpResponse = new BasicHttpResponse(new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), statusCode, "reason"));
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContentLength(contentLength);
+        httpResponse.setEntity(entity);
+        return httpResponse;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        getRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void readFully(InputStream stream, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = stream.read(buffer, offset, length - offset);
+            assertTrue(read > 0);
+            offset += read;
+        }
+    }
+
+    private static final class RecordingCallback implements FutureCallback<HttpResponse> {
+        HttpResponse result;
+        Exception failure;
+        int completed;
+
+        @Override
+        public void completed(HttpResponse result) {
+            this.result = result;
+            completed++;
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            this.failure = ex;
+        }
+
+        @Override
+        public void cancelled() {
+            fail("unexpected cancellation");
+        }
+    }
+
+    /**
+     * Decodes a byte array, of which only {@link #available} bytes were received so far.
+     */
+    private static final class BytesDecoder implements ContentDecoder {
+        private final ByteBuffer content;
+        int available;
+
+        BytesDecoder(byte[] content) {
+            this.content = ByteBuffer.wrap(content);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (content.hasRemaining() == false) {
+                return -1;
+            }
+            int read = Math.min(dst.remaining(), available - content.position());
+            ByteBuffer slice = content.slice();
+            slice.limit(read);
+            dst.put(slice);
+            content.position(content.position() + read);
+            return read;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return content.hasRemaining() == false;
+        }
+    }
+}
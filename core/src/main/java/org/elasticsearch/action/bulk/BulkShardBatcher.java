@@ -0,0 +1,151 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.index.shard.ShardId;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Groups the items of a bulk request into per-shard batches. A batch is executed as soon as its size reaches a threshold
+ * rather than once all items have been grouped, which bounds the size of shard-level requests and lets primaries start
+ * indexing earlier. The batches of a shard are executed one after the other so that the operations of a bulk request
+ * are applied to every shard in order.
+ * <p>
+ * Items must be added by a single thread, batches may complete on any thread.
+ */
+final class BulkShardBatcher {
+
+    interface BatchExecutor {
+        /**
+         * Executes the given batch of items on the given shard. The completion callback must be called exactly once, when
+         * the batch has completed, whether it succeeded or not.
+         */
+        void execute(ShardId shardId, List<BulkItemRequest> items, Runnable onCompletion);
+    }
+
+    private final long maxBatchSizeInBytes;
+    private final BatchExecutor executor;
+    private final Runnable onAllCompleted;
+    private final Map<ShardId, ShardBatches> batchesByShard = new HashMap<>();
+    // one for each batch that has not completed yet, plus one that is released when all items have been added
+    private final AtomicInteger pendingBatches = new AtomicInteger(1);
+    private boolean finished = false;
+
+    /**
+     * @param maxBatchSizeInBytes the size at which a batch is executed, or <code>-1</code> to execute a single batch per shard
+     * @param executor            executes the batches
+     * @param onAllCompleted      called once all batches have completed after {@link #finish()} has been called
+     */
+    BulkShardBatcher(long maxBatchSizeInBytes, BatchExecutor executor, Runnable onAllCompleted) {
+        this.maxBatchSizeInBytes = maxBatchSizeInBytes;
+        this.executor = executor;
+        this.onAllCompleted = onAllCompleted;
+    }
+
+    /**
+     * Adds an item to the current batch of the given shard, and executes this batch if it is full.
+     */
+    void add(ShardId shardId, BulkItemRequest item, long sizeInBytes) {
+        assert finished == false : "items can't be added once the batcher is finished";
+        final ShardBatches shardBatches = batchesByShard.computeIfAbsent(shardId, ShardBatches::new);
+        shardBatches.add(item, sizeInBytes);
+        if (maxBatchSizeInBytes >= 0 && shardBatches.currentSizeInBytes >= maxBatchSizeInBytes) {
+            shardBatches.flush();
+        }
+    }
+
+    /**
+     * Executes the batches that are not full yet. No items may be added afterwards.
+     */
+    void finish() {
+        assert finished == false : "batcher is already finished";
+        finished = true;
+        for (ShardBatches shardBatches : batchesByShard.values()) {
+            shardBatches.flush();
+        }
+        onBatchCompleted();
+    }
+
+    private void onBatchCompleted() {
+        if (pendingBatches.decrementAndGet() == 0) {
+            onAllCompleted.run();
+        }
+    }
+
+    private final class ShardBatches {
+        private final ShardId shardId;
+        // batches that wait for the previous batch of the shard to complete
+        private final Deque<List<BulkItemRequest>> queuedBatches = new ArrayDeque<>();
+        private boolean executing = false;
+        // only accessed by the thread that adds items
+        private List<BulkItemRequest> current = new ArrayList<>();
+        private long currentSizeInBytes = 0;
+
+        ShardBatches(ShardId shardId) {
+            this.shardId = shardId;
+        }
+
+        void add(BulkItemRequest item, long sizeInBytes) {
+            current.add(item);
+            currentSizeInBytes += sizeInBytes;
+        }
+
+        void flush() {
+            if (current.isEmpty()) {
+                return;
+            }
+            final List<BulkItemRequest> batch = current;
+            current = new ArrayList<>();
+            currentSizeInBytes = 0;
+            pendingBatches.incrementAndGet();
+            synchronized (this) {
+                if (executing) {
+                    queuedBatches.add(batch);
+                    return;
+                }
+                executing = true;
+            }
+            execute(batch);
+        }
+
+        private void execute(List<BulkItemRequest> batch) {
+            executor.execute(shardId, batch, () -> {
+                final List<BulkItemRequest> next;
+                synchronized (this) {
+                    next = queuedBatches.poll();
+                    if (next == null) {
+                        executing = false;
+                    }
+                }
+                if (next != null) {
+                    execute(next);
+                }
+                onBatchCompleted();
+            });
+        }
+    }
+}
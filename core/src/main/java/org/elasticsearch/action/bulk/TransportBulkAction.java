@@ -21,6 +21,7 @@ package org.elasticsearch.action.bulk;
 
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.SparseFixedBitSet;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.ExceptionsHelper;
@@ -48,7 +49,11 @@ import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
@@ -71,6 +76,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
@@ -81,6 +87,14 @@ import java.util.stream.Collectors;
  */
 public class TransportBulkAction extends HandledTransportAction<BulkRequest, BulkResponse> {
 
+    /**
+     * The size at which the items of a bulk request that go to the same shard are sent as a shard-level request, without
+     * waiting for the remaining items to be grouped. Batches of the same shard are executed one after the other. Set to
+     * <code>-1</code> to send a single shard-level request per shard.
+     */
+    public static final Setting<ByteSizeValue> SHARD_BATCH_SIZE_SETTING =
+        Setting.byteSizeSetting("action.bulk.shard_batch_size", new ByteSizeValue(10, ByteSizeUnit.MB), Property.NodeScope);
+
     private final AutoCreateIndex autoCreateIndex;
     private final boolean allowIdGeneration;
     private final ClusterService clusterService;
@@ -89,6 +103,7 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
     private final TransportCreateIndexAction createIndexAction;
     private final LongSupplier relativeTimeProvider;
     private final IngestActionForwarder ingestForwarder;
+    private final ByteSizeValue shardBatchSize;
 
     @Inject
     public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService,
@@ -116,6 +131,7 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
         this.createIndexAction = createIndexAction;
         this.autoCreateIndex = autoCreateIndex;
         this.allowIdGeneration = this.settings.getAsBoolean("action.bulk.action.allow_id_generation", true);
+        this.shardBatchSize = SHARD_BATCH_SIZE_SETTING.get(settings);
         this.relativeTimeProvider = relativeTimeProvider;
         this.ingestForwarder = new IngestActionForwarder(transportService);
         clusterService.addStateApplier(this.ingestForwarder);
@@ -290,69 +306,86 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
                 }
             }
 
-            // first, go over all the requests and create a ShardId -> Operations mapping
-            Map<ShardId, List<BulkItemRequest>> requestsByShard = new HashMap<>();
+            // route all the requests before sending any batch: a routing failure fails the whole bulk request, which must not
+            // happen once some batches have been sent
+            final ShardId[] shardIds = new ShardId[bulkRequest.requests.size()];
             for (int i = 0; i < bulkRequest.requests.size(); i++) {
                 DocWriteRequest request = bulkRequest.requests.get(i);
                 if (request == null) {
                     continue;
                 }
                 String concreteIndex = concreteIndices.getConcreteIndex(request.index()).getName();
-                ShardId shardId = clusterService.operationRouting().indexShards(clusterState, concreteIndex, request.id(), request.routing()).shardId();
-                List<BulkItemRequest> shardRequests = requestsByShard.computeIfAbsent(shardId, shard -> new ArrayList<>());
-                shardRequests.add(new BulkItemRequest(i, request));
+                shardIds[i] = clusterService.operationRouting().indexShards(clusterState, concreteIndex, request.id(), request.routing()).shardId();
             }
 
-            if (requestsByShard.isEmpty()) {
-                listener.onResponse(new BulkResponse(responses.toArray(new BulkItemResponse[responses.length()]), buildTookInMillis(startTimeNanos)));
-                return;
+            // then group the requests into per-shard batches, full batches are sent right away. Once a batch has been sent,
+            // failures are recorded on the items and the listener is notified once all batches have completed.
+            final String nodeId = clusterService.localNode().getId();
+            final BulkShardBatcher batcher = new BulkShardBatcher(shardBatchSize.getBytes(),
+                (shardId, requests, onCompletion) -> executeShardBatch(shardId, requests, concreteIndices, nodeId, onCompletion),
+                () -> listener.onResponse(new BulkResponse(responses.toArray(new BulkItemResponse[responses.length()]),
+                    buildTookInMillis(startTimeNanos))));
+            for (int i = 0; i < bulkRequest.requests.size(); i++) {
+                DocWriteRequest request = bulkRequest.requests.get(i);
+                if (request == null) {
+                    continue;
+                }
+                batcher.add(shardIds[i], new BulkItemRequest(i, request), BulkRequest.estimatedSizeInBytes(request));
             }
+            batcher.finish();
+        }
 
-            final AtomicInteger counter = new AtomicInteger(requestsByShard.size());
-            String nodeId = clusterService.localNode().getId();
-            for (Map.Entry<ShardId, List<BulkItemRequest>> entry : requestsByShard.entrySet()) {
-                final ShardId shardId = entry.getKey();
-                final List<BulkItemRequest> requests = entry.getValue();
-                BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, bulkRequest.getRefreshPolicy(),
-                        requests.toArray(new BulkItemRequest[requests.size()]));
-                bulkShardRequest.waitForActiveShards(bulkRequest.waitForActiveShards());
-                bulkShardRequest.timeout(bulkRequest.timeout());
-                if (task != null) {
-                    bulkShardRequest.setParentTask(nodeId, task.getId());
-                }
-                shardBulkAction.execute(bulkShardRequest, new ActionListener<BulkShardResponse>() {
-                    @Override
-                    public void onResponse(BulkShardResponse bulkShardResponse) {
-                        for (BulkItemResponse bulkItemResponse : bulkShardResponse.getResponses()) {
-                            // we may have no response if item failed
-                            if (bulkItemResponse.getResponse() != null) {
-                                bulkItemResponse.getResponse().setShardInfo(bulkShardResponse.getShardInfo());
-                            }
-                            responses.set(bulkItemResponse.getItemId(), bulkItemResponse);
-                        }
-                        if (counter.decrementAndGet() == 0) {
-                            finishHim();
-                        }
-                    }
+        private void setItemFailure(BulkItemRequest request, ConcreteIndices concreteIndices, Exception e) {
+            final String indexName = concreteIndices.getConcreteIndex(request.index()).getName();
+            DocWriteRequest docWriteRequest = request.request();
+            responses.set(request.id(), new BulkItemResponse(request.id(), docWriteRequest.opType(),
+                    new BulkItemResponse.Failure(indexName, docWriteRequest.type(), docWriteRequest.id(), e)));
+        }
 
-                    @Override
-                    public void onFailure(Exception e) {
-                        // create failures for all relevant requests
-                        for (BulkItemRequest request : requests) {
-                            final String indexName = concreteIndices.getConcreteIndex(request.index()).getName();
-                            DocWriteRequest docWriteRequest = request.request();
-                            responses.set(request.id(), new BulkItemResponse(request.id(), docWriteRequest.opType(),
-                                    new BulkItemResponse.Failure(indexName, docWriteRequest.type(), docWriteRequest.id(), e)));
-                        }
-                        if (counter.decrementAndGet() == 0) {
-                            finishHim();
+        private void executeShardBatch(ShardId shardId, List<BulkItemRequest> requests, ConcreteIndices concreteIndices,
+                                       String nodeId, Runnable onCompletion) {
+            BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, bulkRequest.getRefreshPolicy(),
+                    requests.toArray(new BulkItemRequest[requests.size()]));
+            bulkShardRequest.waitForActiveShards(bulkRequest.waitForActiveShards());
+            bulkShardRequest.timeout(bulkRequest.timeout());
+            if (task != null) {
+                bulkShardRequest.setParentTask(nodeId, task.getId());
+            }
+            final ActionListener<BulkShardResponse> shardListener = new ActionListener<BulkShardResponse>() {
+                // the batch must only complete once, even if the shard-level action throws after notifying the listener
+                private final AtomicBoolean completed = new AtomicBoolean();
+
+                @Override
+                public void onResponse(BulkShardResponse bulkShardResponse) {
+                    if (completed.compareAndSet(false, true) == false) {
+                        return;
+                    }
+                    for (BulkItemResponse bulkItemResponse : bulkShardResponse.getResponses()) {
+                        // we may have no response if item failed
+                        if (bulkItemResponse.getResponse() != null) {
+                            bulkItemResponse.getResponse().setShardInfo(bulkShardResponse.getShardInfo());
                         }
+                        responses.set(bulkItemResponse.getItemId(), bulkItemResponse);
                     }
+                    onCompletion.run();
+                }
 
-                    private void finishHim() {
-                        listener.onResponse(new BulkResponse(responses.toArray(new BulkItemResponse[responses.length()]), buildTookInMillis(startTimeNanos)));
+                @Override
+                public void onFailure(Exception e) {
+                    if (completed.compareAndSet(false, true) == false) {
+                        return;
                     }
-                });
+                    // create failures for all relevant requests
+                    for (BulkItemRequest request : requests) {
+                        setItemFailure(request, concreteIndices, e);
+                    }
+                    onCompletion.run();
+                }
+            };
+            try {
+                shardBulkAction.execute(bulkShardRequest, shardListener);
+            } catch (Exception e) {
+                shardListener.onFailure(e);
             }
         }
 
@@ -464,10 +497,11 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
     void processBulkIndexIngestRequest(Task task, BulkRequest original, ActionListener<BulkResponse> listener) {
         long ingestStartTimeInNanos = System.nanoTime();
         BulkRequestModifier bulkRequestModifier = new BulkRequestModifier(original);
-        ingestService.getPipelineExecutionService().executeBulkRequest(() -> bulkRequestModifier, (indexRequest, exception) -> {
+        ingestService.getPipelineExecutionService().executeBulkRequest(() -> bulkRequestModifier, (slot, exception) -> {
+            IndexRequest indexRequest = (IndexRequest) original.requests().get(slot);
             logger.debug((Supplier<?>) () -> new ParameterizedMessage("failed to execute pipeline [{}] for document [{}/{}/{}]",
                 indexRequest.getPipeline(), indexRequest.index(), indexRequest.type(), indexRequest.id()), exception);
-            bulkRequestModifier.markCurrentItemAsFailed(exception);
+            bulkRequestModifier.markItemAsFailed(slot, exception);
         }, (exception) -> {
             if (exception != null) {
                 logger.error("failed to execute pipeline for a bulk request", exception);
@@ -547,15 +581,20 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
             }
         }
 
-        void markCurrentItemAsFailed(Exception e) {
-            IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(currentSlot);
+        /**
+         * Marks the request at the given slot of the bulk request as failed. Failures must be marked in ascending order of
+         * their slots, since item responses get merged in that order.
+         */
+        void markItemAsFailed(int slot, Exception e) {
+            assert failedSlots.nextSetBit(slot) == DocIdSetIterator.NO_MORE_DOCS : "failures must be marked in order of their slots";
+            IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(slot);
             // We hit a error during preprocessing a request, so we:
             // 1) Remember the request item slot from the bulk, so that we're done processing all requests we know what failed
             // 2) Add a bulk item failure for this request
             // 3) Continue with the next request in the bulk.
-            failedSlots.set(currentSlot);
+            failedSlots.set(slot);
             BulkItemResponse.Failure failure = new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), e);
-            itemResponses.add(new BulkItemResponse(currentSlot, indexRequest.opType(), failure));
+            itemResponses.add(new BulkItemResponse(slot, indexRequest.opType(), failure));
         }
 
     }
@@ -31,6 +31,7 @@ import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.lucene.Lucene;
@@ -386,6 +387,17 @@ public class SearchPhaseController extends AbstractComponent {
     public InternalSearchResponse merge(boolean ignoreFrom, ScoreDoc[] sortedDocs,
                                         AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
                                         AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr) {
+        return merge(ignoreFrom, sortedDocs, queryResultsArr, fetchResultsArr, null);
+    }
+
+    /**
+     * Same as {@link #merge(boolean, ScoreDoc[], AtomicArray, AtomicArray)} but takes the aggregations of the query results from
+     * the given consumer if it is not <code>null</code>, since it already consumed and partially reduced them.
+     */
+    InternalSearchResponse merge(boolean ignoreFrom, ScoreDoc[] sortedDocs,
+                                 AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
+                                 AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr,
+                                 @Nullable QueryPhaseResultConsumer resultConsumer) {
 
         List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults = queryResultsArr.asList();
         List<? extends AtomicArray.Entry<? extends FetchSearchResultProvider>> fetchResults = fetchResultsArr.asList();
@@ -521,10 +533,15 @@ public class SearchPhaseController extends AbstractComponent {
 
         // merge Aggregation
         InternalAggregations aggregations = null;
-        if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
-            List<InternalAggregations> aggregationsList = new ArrayList<>(queryResults.size());
-            for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
-                aggregationsList.add((InternalAggregations) entry.value.queryResult().aggregations());
+        if (firstResult.hasAggs()) {
+            final List<InternalAggregations> aggregationsList;
+            if (resultConsumer != null) {
+                aggregationsList = resultConsumer.consumeAggs();
+            } else {
+                aggregationsList = new ArrayList<>(queryResults.size());
+                for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
+                    aggregationsList.add((InternalAggregations) entry.value.queryResult().aggregations());
+                }
             }
             ReduceContext reduceContext = new ReduceContext(bigArrays, scriptService);
             aggregations = InternalAggregations.reduce(aggregationsList, reduceContext);
@@ -557,6 +574,78 @@ public class SearchPhaseController extends AbstractComponent {
         return new InternalSearchResponse(searchHits, aggregations, suggest, shardResults, timedOut, terminatedEarly);
     }
 
+    /**
+     * Returns a consumer that incrementally reduces the aggregations of the query results of the given request, or
+     * <code>null</code> if the request has no aggregations or targets no more shards than its batched reduce size, in which
+     * case all aggregations are reduced at once in {@link #merge(boolean, ScoreDoc[], AtomicArray, AtomicArray)}.
+     */
+    @Nullable
+    QueryPhaseResultConsumer newResultConsumer(SearchRequest request, int numShards) {
+        final boolean hasAggs = request.source() != null && request.source().aggregations() != null;
+        if (hasAggs && numShards > request.getBatchedReduceSize()) {
+            return new QueryPhaseResultConsumer(this, request.getBatchedReduceSize());
+        }
+        return null;
+    }
+
+    /**
+     * Reduces the aggregations of the query results in batches as they arrive. Once the buffer holds <code>bufferSize</code>
+     * aggregations they are partially reduced into a single one, which bounds the number of shard aggregations that the
+     * coordinating node needs to hold in memory at the same time. Partial reduces keep all buckets and skip pipeline
+     * aggregations, see {@link ReduceContext#isFinalReduce()}. Top docs are not reduced here since they are needed per shard to
+     * fetch hits and are bounded by <code>from + size</code> anyway.
+     */
+    static final class QueryPhaseResultConsumer {
+        private final SearchPhaseController controller;
+        private final InternalAggregations[] aggsBuffer;
+        private int index;
+        private int numReducePhases = 0;
+
+        QueryPhaseResultConsumer(SearchPhaseController controller, int bufferSize) {
+            if (bufferSize < 2) {
+                throw new IllegalArgumentException("buffer size must be >= 2");
+            }
+            this.controller = controller;
+            this.aggsBuffer = new InternalAggregations[bufferSize];
+        }
+
+        /**
+         * Consumes the aggregations of the given shard result, partially reducing the buffered aggregations first if the buffer
+         * is full.
+         */
+        synchronized void consume(QuerySearchResult result) {
+            if (result.hasAggs() == false) {
+                return;
+            }
+            if (index == aggsBuffer.length) {
+                final ReduceContext reduceContext = new ReduceContext(controller.bigArrays, controller.scriptService, false);
+                final InternalAggregations reduced = InternalAggregations.reduce(Arrays.asList(aggsBuffer), reduceContext);
+                Arrays.fill(aggsBuffer, null);
+                aggsBuffer[0] = reduced;
+                index = 1;
+                numReducePhases++;
+            }
+            aggsBuffer[index++] = result.consumeAggs();
+        }
+
+        /**
+         * Returns the buffered aggregations that still need to be reduced by the final reduce, and clears the buffer.
+         */
+        synchronized List<InternalAggregations> consumeAggs() {
+            final List<InternalAggregations> aggs = new ArrayList<>(Arrays.asList(aggsBuffer).subList(0, index));
+            Arrays.fill(aggsBuffer, null);
+            index = 0;
+            return aggs;
+        }
+
+        /**
+         * Returns the number of partial reduces that have been executed so far.
+         */
+        synchronized int getNumReducePhases() {
+            return numReducePhases;
+        }
+    }
+
     /**
      * returns the number of top results to be considered across all shards
      */
@@ -25,11 +25,14 @@ import org.elasticsearch.action.IndicesRequest;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
@@ -55,6 +58,8 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 
 /**
@@ -78,10 +83,14 @@ public class SearchTransportService extends AbstractLifecycleComponent {
 
     private final TransportService transportService;
     private final RemoteClusterService remoteClusterService;
+    private final ResponseCollectorService responseCollectorService;
+    private final Map<String, Long> clientConnections = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
-    public SearchTransportService(Settings settings, ClusterSettings clusterSettings, TransportService transportService) {
+    public SearchTransportService(Settings settings, ClusterSettings clusterSettings, TransportService transportService,
+                                  @Nullable ResponseCollectorService responseCollectorService) {
         super(settings);
         this.transportService = transportService;
+        this.responseCollectorService = responseCollectorService;
         this.remoteClusterService = new RemoteClusterService(settings, transportService);
         clusterSettings.addAffixUpdateConsumer(RemoteClusterService.REMOTE_CLUSTERS_SEEDS, remoteClusterService::updateRemoteCluster,
             (namespace, value) -> {});
@@ -121,13 +130,13 @@ public class SearchTransportService extends AbstractLifecycleComponent {
     public void sendExecuteQuery(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task,
                                  final ActionListener<QuerySearchResultProvider> listener) {
         transportService.sendChildRequest(connection, QUERY_ACTION_NAME, request, task,
-            new ActionListenerResponseHandler<>(listener, QuerySearchResult::new));
+            new ActionListenerResponseHandler<>(trackQueryExecution(connection, listener), QuerySearchResult::new));
     }
 
     public void sendExecuteQuery(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final ActionListener<QuerySearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_ID_ACTION_NAME, request, task,
-            new ActionListenerResponseHandler<>(listener, QuerySearchResult::new));
+            new ActionListenerResponseHandler<>(trackQueryExecution(connection, listener), QuerySearchResult::new));
     }
 
     public void sendExecuteQuery(DiscoveryNode node, final InternalScrollSearchRequest request, SearchTask task,
@@ -139,13 +148,13 @@ public class SearchTransportService extends AbstractLifecycleComponent {
     public void sendExecuteFetch(Transport.Connection connection, final ShardSearchTransportRequest request, SearchTask task,
                                  final ActionListener<QueryFetchSearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_FETCH_ACTION_NAME, request, task,
-            new ActionListenerResponseHandler<>(listener, QueryFetchSearchResult::new));
+            new ActionListenerResponseHandler<>(trackQueryExecution(connection, listener), QueryFetchSearchResult::new));
     }
 
     public void sendExecuteFetch(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final ActionListener<QueryFetchSearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_QUERY_FETCH_ACTION_NAME, request, task,
-            new ActionListenerResponseHandler<>(listener, QueryFetchSearchResult::new));
+            new ActionListenerResponseHandler<>(trackQueryExecution(connection, listener), QueryFetchSearchResult::new));
     }
 
     public void sendExecuteFetch(DiscoveryNode node, final InternalScrollSearchRequest request, SearchTask task,
@@ -170,6 +179,26 @@ public class SearchTransportService extends AbstractLifecycleComponent {
             new ActionListenerResponseHandler<>(listener, FetchSearchResult::new));
     }
 
+    /**
+     * Counts the request as outstanding until it completes, and records the statistics of its response for adaptive
+     * replica selection.
+     */
+    private <T extends QuerySearchResultProvider> ActionListener<T> trackQueryExecution(Transport.Connection connection,
+                                                                                       ActionListener<T> listener) {
+        final String nodeId = connection.getNode().getId();
+        clientConnections.compute(nodeId, (id, conns) -> conns == null ? 1 : conns + 1);
+        return new SearchExecutionStatsCollector<>(listener, responseCollectorService, nodeId,
+            () -> clientConnections.computeIfPresent(nodeId, (id, conns) -> conns == 1 ? null : conns - 1));
+    }
+
+    /**
+     * Returns the number of search requests with a query phase that this node sent to each node and that did not
+     * complete yet.
+     */
+    public Map<String, Long> getPendingSearchRequests() {
+        return new HashMap<>(clientConnections);
+    }
+
     public RemoteClusterService getRemoteClusterService() {
         return remoteClusterService;
     }
@@ -21,6 +21,7 @@ package org.elasticsearch.cluster.routing;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -28,17 +29,22 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.elasticsearch.node.ResponseCollectorService.ComputedNodeStats;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static java.util.Collections.emptyMap;
@@ -255,6 +261,87 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, ordered by the adaptive replica selection formula. The
+     * active shards are ranked by the statistics that the collector recorded for their nodes and the number of
+     * outstanding search requests to these nodes, and initializing shards are the last to iterate through. Copies on
+     * nodes that have no statistics yet come first, so that they are measured too, and ties keep a random order.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(@Nullable ResponseCollectorService collector,
+                                                         @Nullable Map<String, Long> nodeSearchCounts) {
+        final int seed = shuffler.nextSeed();
+        if (allInitializingShards.isEmpty()) {
+            return new PlainShardIterator(shardId,
+                rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts));
+        }
+        ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        ordered.addAll(rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector, nodeSearchCounts));
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
+    private static List<ShardRouting> rankShardsAndUpdateStats(List<ShardRouting> shards, @Nullable ResponseCollectorService collector,
+                                                               @Nullable Map<String, Long> nodeSearchCounts) {
+        if (collector == null || nodeSearchCounts == null || shards.size() <= 1) {
+            return shards;
+        }
+
+        // retrieve the statistics of the nodes that hold the copies and rank them
+        final Map<String, Optional<ComputedNodeStats>> nodeStats = new HashMap<>(shards.size());
+        for (ShardRouting shard : shards) {
+            nodeStats.computeIfAbsent(shard.currentNodeId(), collector::getNodeStatistics);
+        }
+        final Map<String, Double> nodeRanks = new HashMap<>(nodeStats.size());
+        for (Map.Entry<String, Optional<ComputedNodeStats>> entry : nodeStats.entrySet()) {
+            final String nodeId = entry.getKey();
+            entry.getValue().ifPresent(stats -> nodeRanks.put(nodeId, stats.rank(nodeSearchCounts.getOrDefault(nodeId, 0L))));
+        }
+
+        // the sort is stable, so copies that rank the same keep their random order
+        final List<ShardRouting> sortedShards = new ArrayList<>(shards);
+        sortedShards.sort(new NodeRankComparator(nodeRanks));
+
+        // the request will be outstanding on the chosen node, which the ranking of the next shards of the search must reflect
+        final String minNodeId = sortedShards.get(0).currentNodeId();
+        nodeSearchCounts.compute(minNodeId, (id, conns) -> conns == null ? 1 : conns + 1);
+
+        // move the statistics of the other nodes towards the ones of the chosen node, otherwise a node that was slow
+        // once would never receive requests anymore and its statistics would never be updated
+        final ComputedNodeStats minStats = nodeStats.get(minNodeId).orElse(null);
+        if (minStats != null) {
+            for (Map.Entry<String, Optional<ComputedNodeStats>> entry : nodeStats.entrySet()) {
+                final String nodeId = entry.getKey();
+                if (nodeId.equals(minNodeId) == false && entry.getValue().isPresent()) {
+                    final ComputedNodeStats stats = entry.getValue().get();
+                    final int updatedQueue = (minStats.queueSize + stats.queueSize) / 2;
+                    final long updatedResponse = (long) (minStats.responseTime + stats.responseTime) / 2;
+                    final long updatedService = (long) (minStats.serviceTime + stats.serviceTime) / 2;
+                    collector.addNodeStatistics(nodeId, updatedQueue, updatedResponse, updatedService);
+                }
+            }
+        }
+        return sortedShards;
+    }
+
+    private static class NodeRankComparator implements Comparator<ShardRouting> {
+        private final Map<String, Double> nodeRanks;
+
+        NodeRankComparator(Map<String, Double> nodeRanks) {
+            this.nodeRanks = nodeRanks;
+        }
+
+        @Override
+        public int compare(ShardRouting s1, ShardRouting s2) {
+            final Double rank1 = nodeRanks.get(s1.currentNodeId());
+            final Double rank2 = nodeRanks.get(s2.currentNodeId());
+            if (rank1 == null || rank2 == null) {
+                // nodes without statistics come first
+                return Boolean.compare(rank1 != null, rank2 != null);
+            }
+            return Double.compare(rank1, rank2);
+        }
+    }
+
     /**
      * Returns true if no primaries are active or initializing for this shard
      */
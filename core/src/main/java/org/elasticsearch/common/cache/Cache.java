@@ -29,11 +29,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.ToLongBiFunction;
 
 /**
@@ -50,14 +53,18 @@ import java.util.function.ToLongBiFunction;
  * if they are reading a segment that a writer is writing to).
  * <p>
  * The LRU functionality is backed by a single doubly-linked list chaining the entries in order of insertion. This
- * LRU list is protected by a lock that serializes all writes to it. There are opportunities for improvements
- * here if write throughput is a concern.
- * <ol>
- * <li>LRU list mutations could be inserted into a blocking queue that a single thread is reading from
- * and applying to the LRU list.</li>
- * <li>Promotions could be deferred for entries that were "recently" promoted.</li>
- * <li>Locks on the list could be taken per node being modified instead of globally.</li>
- * </ol>
+ * LRU list is protected by a lock that serializes all writes to it, including the promotion of the entry read by every
+ * cache hit.
+ * <p>
+ * If buffered reads are enabled, cache hits do not take this lock: they record the accessed entry in one of several
+ * lock-free ring buffers, threads being spread over the buffers. The buffers are drained in batches by the thread that
+ * fills one of them if the lock is free, and by every write to the LRU list. Promotions are best effort: if a buffer is
+ * full or contended, the access is dropped rather than blocking the reader.
+ * <p>
+ * If frequency-based admission is enabled, the cache keeps an estimate of how often keys have recently been accessed.
+ * When the cache exceeds its maximum weight because of the insertion of a new entry, the new entry is only admitted if
+ * it is at least as popular as the least-recently-used entry, otherwise the new entry is evicted. This prevents entries
+ * that are only used once from flushing entries that are used often.
  * <p>
  * Evictions only occur after a mutation to the cache (meaning an entry promotion, a cache insertion, or a manual
  * invalidation) or an explicit call to {@link #refresh()}.
@@ -94,6 +101,9 @@ public class Cache<K, V> {
     private RemovalListener<K, V> removalListener = notification -> {
     };
 
+    // the estimated access frequencies of the keys, null unless frequency-based admission is enabled
+    private FrequencySketch frequencySketch = null;
+
     // use CacheBuilder to construct
     Cache() {
     }
@@ -141,6 +151,22 @@ public class Cache<K, V> {
         this.removalListener = removalListener;
     }
 
+    void setBufferedReads(boolean bufferedReads) {
+        if (bufferedReads) {
+            @SuppressWarnings("unchecked") ReadBuffer<K, V>[] buffers = new ReadBuffer[NUMBER_OF_READ_BUFFERS];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = new ReadBuffer<>();
+            }
+            this.readBuffers = buffers;
+        } else {
+            this.readBuffers = null;
+        }
+    }
+
+    void setFrequencyBasedAdmission(boolean frequencyBasedAdmission) {
+        this.frequencySketch = frequencyBasedAdmission ? new FrequencySketch() : null;
+    }
+
     /**
      * The relative time used to track time-based evictions.
      *
@@ -286,6 +312,26 @@ public class Cache<K, V> {
             return entry;
         }
 
+        /**
+         * remove an entry from the segment if the key is still mapped to the given entry
+         *
+         * @param key   the key of the entry to remove from the cache
+         * @param entry the entry that the key must be mapped to
+         */
+        void remove(K key, Entry<K, V> entry) {
+            boolean removed = false;
+            try (ReleasableLock ignored = writeLock.acquire()) {
+                CompletableFuture<Entry<K, V>> future = map.get(key);
+                if (future != null && future.isDone() && future.isCompletedExceptionally() == false && future.join() == entry) {
+                    map.remove(key);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                segmentStats.eviction();
+            }
+        }
+
         private static class SegmentStats {
             private final LongAdder hits = new LongAdder();
             private final LongAdder misses = new LongAdder();
@@ -314,6 +360,71 @@ public class Cache<K, V> {
         }
     }
 
+    /**
+     * A bounded, lossy buffer of the entries that were read from the cache and still need to be promoted.
+     * <p>
+     * Any number of threads can offer entries to the buffer without locking, but it must only be drained by a thread
+     * holding the LRU lock.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    static final class ReadBuffer<K, V> {
+        static final int SIZE = 16;
+        private static final int MASK = SIZE - 1;
+
+        private final AtomicReferenceArray<Entry<K, V>> buffer = new AtomicReferenceArray<>(SIZE);
+        // the number of entries that have been added to the buffer
+        private final AtomicLong writeCounter = new AtomicLong();
+        // the number of entries that have been drained from the buffer, only written while holding the LRU lock
+        private volatile long readCounter = 0;
+
+        /**
+         * Records the given entry, or drops it if the buffer is full or another thread is concurrently adding an entry.
+         *
+         * @param entry the entry to record
+         * @return true if the buffer has room left, false if it should be drained
+         */
+        boolean offer(Entry<K, V> entry) {
+            final long head = readCounter;
+            final long tail = writeCounter.get();
+            final long size = tail - head;
+            if (size >= SIZE) {
+                return false;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & MASK), entry);
+                return size + 1 < SIZE;
+            }
+            return true;
+        }
+
+        /**
+         * Passes the recorded entries to the given consumer in the order they were recorded.
+         */
+        void drain(Consumer<Entry<K, V>> consumer) {
+            long head = readCounter;
+            final long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                final int index = (int) (head & MASK);
+                final Entry<K, V> entry = buffer.get(index);
+                if (entry == null) {
+                    // a writer reserved this slot but did not publish its entry yet, it will be drained next time
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(entry);
+            }
+            readCounter = head;
+        }
+    }
+
+    // the number of read buffers, a power of two so that threads can be spread over buffers using a mask
+    static final int NUMBER_OF_READ_BUFFERS =
+        Math.min(64, Integer.highestOneBit(Math.max(1, 4 * Runtime.getRuntime().availableProcessors() - 1)) << 1);
+    // the buffers of the entries read from the cache that still need to be promoted, null unless reads are buffered
+    private ReadBuffer<K, V>[] readBuffers = null;
+
     Entry<K, V> head;
     Entry<K, V> tail;
 
@@ -336,11 +447,41 @@ public class Cache<K, V> {
         if (entry == null || isExpired(entry, now)) {
             return null;
         } else {
-            promote(entry, now);
+            if (readBuffers == null) {
+                promote(entry, now);
+            } else {
+                afterRead(entry, now);
+            }
             return entry.value;
         }
     }
 
+    /**
+     * Records the read of the given entry so that it is promoted by the next drain of the read buffers, and drains
+     * them if the buffer of the current thread is full and no other thread is holding the LRU lock.
+     */
+    private void afterRead(Entry<K, V> entry, long now) {
+        final ReadBuffer<K, V> buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+        if (buffer.offer(entry) == false) {
+            try (ReleasableLock locked = lruLock.tryAcquire()) {
+                if (locked != null) {
+                    drainReadBuffers();
+                    evict(null, now);
+                }
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        assert lruLock.isHeldByCurrentThread();
+
+        if (readBuffers != null) {
+            for (ReadBuffer<K, V> buffer : readBuffers) {
+                buffer.drain(this::onAccess);
+            }
+        }
+    }
+
     /**
      * If the specified key is not already associated with a value (or is mapped to null), attempts to compute its
      * value using the given mapping function and enters it into this map unless null. The load method for a given key
@@ -446,6 +587,11 @@ public class Cache<K, V> {
                 if (unlink(tuple.v2())) {
                     replaced = true;
                 }
+            } else if (tuple.v2() != null && tuple.v2().state == State.NEW) {
+                // the replaced entry was put concurrently but not linked yet, make sure it never gets linked since it
+                // is not in the segment anymore
+                tuple.v2().state = State.DELETED;
+                replaced = true;
             }
             promote(tuple.v1(), now);
         }
@@ -484,6 +630,7 @@ public class Cache<K, V> {
                 haveSegmentLock[i] = true;
             }
             try (ReleasableLock ignored = lruLock.acquire()) {
+                drainReadBuffers();
                 h = head;
                 Arrays.stream(segments).forEach(segment -> segment.map = new HashMap<>());
                 Entry<K, V> current = head;
@@ -514,7 +661,8 @@ public class Cache<K, V> {
     public void refresh() {
         long now = now();
         try (ReleasableLock ignored = lruLock.acquire()) {
-            evict(now);
+            drainReadBuffers();
+            evict(null, now);
         }
     }
 
@@ -544,6 +692,7 @@ public class Cache<K, V> {
      * @return an LRU-ordered {@link Iterable} over the keys in the cache
      */
     public Iterable<K> keys() {
+        flushReadBuffers();
         return () -> new Iterator<K>() {
             private CacheIterator iterator = new CacheIterator(head);
 
@@ -571,6 +720,7 @@ public class Cache<K, V> {
      * @return an LRU-ordered {@link Iterable} over the values in the cache
      */
     public Iterable<V> values() {
+        flushReadBuffers();
         return () -> new Iterator<V>() {
             private CacheIterator iterator = new CacheIterator(head);
 
@@ -586,6 +736,15 @@ public class Cache<K, V> {
         };
     }
 
+    // applies pending promotions so that iteration reflects the LRU order of all reads issued so far
+    private void flushReadBuffers() {
+        if (readBuffers != null) {
+            try (ReleasableLock ignored = lruLock.acquire()) {
+                drainReadBuffers();
+            }
+        }
+    }
+
     private class CacheIterator implements Iterator<Entry<K, V>> {
         private Entry<K, V> current;
         private Entry<K, V> next;
@@ -664,39 +823,68 @@ public class Cache<K, V> {
     }
 
     private boolean promote(Entry<K, V> entry, long now) {
-        boolean promoted = true;
+        boolean promoted;
         try (ReleasableLock ignored = lruLock.acquire()) {
-            switch (entry.state) {
-                case DELETED:
-                    promoted = false;
-                    break;
-                case EXISTING:
-                    relinkAtHead(entry);
-                    break;
-                case NEW:
-                    linkAtHead(entry);
-                    break;
-            }
+            // read the state before draining: a concurrent read of a new entry may link it while draining
+            final boolean inserted = entry.state == State.NEW;
+            // apply pending promotions first so that the given entry ends up being the most recently used one
+            drainReadBuffers();
+            promoted = onAccess(entry);
             if (promoted) {
-                evict(now);
+                evict(inserted ? entry : null, now);
             }
         }
         return promoted;
     }
 
-    private void evict(long now) {
+    private boolean onAccess(Entry<K, V> entry) {
+        assert lruLock.isHeldByCurrentThread();
+
+        switch (entry.state) {
+            case DELETED:
+                return false;
+            case EXISTING:
+                relinkAtHead(entry);
+                break;
+            case NEW:
+                linkAtHead(entry);
+                break;
+        }
+        if (frequencySketch != null) {
+            frequencySketch.ensureCapacity(count);
+            frequencySketch.increment(entry.key);
+        }
+        return true;
+    }
+
+    /**
+     * Evicts entries from the tail of the LRU list as long as the cache exceeds its maximum weight or the tail entry
+     * expired.
+     *
+     * @param candidate the entry that was just inserted into the cache if any, which may be evicted instead of the
+     *                  tail entry if frequency-based admission is enabled and it is less popular than the tail entry
+     * @param now       the current relative time
+     */
+    private void evict(Entry<K, V> candidate, long now) {
         assert lruLock.isHeldByCurrentThread();
 
         while (tail != null && shouldPrune(tail, now)) {
-            CacheSegment<K, V> segment = getCacheSegment(tail.key);
             Entry<K, V> entry = tail;
-            if (segment != null) {
-                segment.remove(tail.key);
+            if (candidate != null && candidate != tail && candidate.state == State.EXISTING && exceedsWeight()
+                    && admit(candidate, tail) == false) {
+                entry = candidate;
+                candidate = null;
             }
+            // the key might already be mapped to a new entry that is about to be linked
+            getCacheSegment(entry.key).remove(entry.key, entry);
             delete(entry, RemovalNotification.RemovalReason.EVICTED);
         }
     }
 
+    private boolean admit(Entry<K, V> candidate, Entry<K, V> victim) {
+        return frequencySketch == null || frequencySketch.frequency(candidate.key) >= frequencySketch.frequency(victim.key);
+    }
+
     private void delete(Entry<K, V> entry, RemovalNotification.RemovalReason removalReason) {
         assert lruLock.isHeldByCurrentThread();
 
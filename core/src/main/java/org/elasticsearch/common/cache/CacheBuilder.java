@@ -30,6 +30,8 @@ public class CacheBuilder<K, V> {
     private long expireAfterWriteNanos = -1;
     private ToLongBiFunction<K, V> weigher;
     private RemovalListener<K, V> removalListener;
+    private boolean bufferedReads = false;
+    private boolean frequencyBasedAdmission = false;
 
     public static <K, V> CacheBuilder<K, V> builder() {
         return new CacheBuilder<>();
@@ -90,6 +92,26 @@ public class CacheBuilder<K, V> {
         return this;
     }
 
+    /**
+     * Sets whether cache hits record the entries they read in lock-free buffers that are applied to the LRU list in
+     * batches, instead of taking the LRU lock to promote the entry on every hit. This reduces contention on caches that
+     * are read by many threads, at the expense of a best-effort LRU order. Defaults to <code>false</code>.
+     */
+    public CacheBuilder<K, V> setBufferedReads(boolean bufferedReads) {
+        this.bufferedReads = bufferedReads;
+        return this;
+    }
+
+    /**
+     * Sets whether an entry whose insertion makes the cache exceed its maximum weight should only be admitted if its key
+     * has recently been accessed at least as often as the key of the least-recently-used entry. This protects frequently
+     * used entries from being flushed by entries that are only used once. Defaults to <code>false</code>.
+     */
+    public CacheBuilder<K, V> setFrequencyBasedAdmission(boolean frequencyBasedAdmission) {
+        this.frequencyBasedAdmission = frequencyBasedAdmission;
+        return this;
+    }
+
     public Cache<K, V> build() {
         Cache<K, V> cache = new Cache();
         if (maximumWeight != -1) {
@@ -107,6 +129,12 @@ public class CacheBuilder<K, V> {
         if (removalListener != null) {
             cache.setRemovalListener(removalListener);
         }
+        if (bufferedReads) {
+            cache.setBufferedReads(true);
+        }
+        if (frequencyBasedAdmission) {
+            cache.setFrequencyBasedAdmission(true);
+        }
         return cache;
     }
 }
@@ -0,0 +1,139 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+/**
+ * A probabilistic estimate of how often keys have been accessed recently.
+ * <p>
+ * This is a count-min sketch of four rows of 4-bit counters, sixteen counters being packed into a single long. The
+ * estimated frequency of a key is the minimum of its four counters, which means it can only be overestimated due to
+ * hash collisions. Once the number of increments reaches ten times the number of counters per row, all counters are
+ * halved so that the sketch forgets about keys that used to be popular but are not anymore.
+ * <p>
+ * This class is not thread-safe, the cache only uses it while holding its LRU lock.
+ */
+final class FrequencySketch {
+
+    // the maximum value of a 4-bit counter
+    static final int MAX_FREQUENCY = 15;
+
+    // the maximum number of longs in the table, 16M counters per row
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 22;
+
+    private static final long[] SEEDS = new long[] {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    // mask clearing the most significant bit of each counter after they have been shifted right by one
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private long[] table = new long[0];
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    /**
+     * Grows the sketch so that it can accurately track the frequencies of the given number of entries. Growing
+     * the sketch discards the frequencies recorded so far.
+     *
+     * @param expectedEntries the number of entries that the sketch should be able to track
+     */
+    void ensureCapacity(int expectedEntries) {
+        final int tableSize = Math.min(MAXIMUM_TABLE_SIZE, ceilingPowerOfTwo(Math.max(expectedEntries, 16)));
+        if (table.length >= tableSize) {
+            return;
+        }
+        table = new long[tableSize];
+        tableMask = tableSize - 1;
+        sampleSize = 10 * tableSize;
+        size = 0;
+    }
+
+    /**
+     * Returns the estimated number of recent accesses to the given key, capped at {@link #MAX_FREQUENCY}.
+     */
+    int frequency(Object key) {
+        if (table.length == 0) {
+            return 0;
+        }
+        final int hash = spread(key.hashCode());
+        // each key uses a different group of four counters within the longs it maps to
+        final int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            final int index = indexOf(hash, i);
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access to the given key.
+     */
+    void increment(Object key) {
+        if (table.length == 0) {
+            return;
+        }
+        final int hash = spread(key.hashCode());
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        final int offset = counter << 2;
+        final long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    // protects against poor hash codes such as the ones of small integers
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return 1 << -Integer.numberOfLeadingZeros(value - 1);
+    }
+}
@@ -32,7 +32,18 @@ import java.util.Objects;
 
 public class CompressorFactory {
 
-    public static final Compressor COMPRESSOR = new DeflateCompressor();
+    public static final Compressor DEFLATE = new DeflateCompressor();
+
+    public static final Compressor LZ4 = new LZ4Compressor();
+
+    /**
+     * The default compressor. Compressed data that is persisted or that may be read by nodes that only know about
+     * DEFLATE must use this compressor.
+     */
+    public static final Compressor COMPRESSOR = DEFLATE;
+
+    // all compressors, which can be told apart by the header they write at the beginning of compressed data
+    private static final Compressor[] COMPRESSORS = new Compressor[] { DEFLATE, LZ4 };
 
     public static boolean isCompressed(BytesReference bytes) {
         return compressor(bytes) != null;
@@ -40,13 +51,15 @@ public class CompressorFactory {
 
     @Nullable
     public static Compressor compressor(BytesReference bytes) {
-            if (COMPRESSOR.isCompressed(bytes)) {
+        for (Compressor compressor : COMPRESSORS) {
+            if (compressor.isCompressed(bytes)) {
                 // bytes should be either detected as compressed or as xcontent,
                 // if we have bytes that can be either detected as compressed or
                 // as a xcontent, we have a problem
                 assert XContentFactory.xContentType(bytes) == null;
-                return COMPRESSOR;
+                return compressor;
             }
+        }
 
         XContentType contentType = XContentFactory.xContentType(bytes);
         if (contentType == null) {
@@ -59,6 +72,20 @@ public class CompressorFactory {
         return null;
     }
 
+    /**
+     * Returns the compressor for the given compression scheme, either <code>deflate</code> or <code>lz4</code>.
+     */
+    public static Compressor compressorForScheme(String scheme) {
+        switch (scheme) {
+            case "deflate":
+                return DEFLATE;
+            case "lz4":
+                return LZ4;
+            default:
+                throw new IllegalArgumentException("unknown compression scheme [" + scheme + "], must be one of [deflate, lz4]");
+        }
+    }
+
     /** true if the bytes were compressed with LZF: only used before elasticsearch 2.0 */
     private static boolean isAncient(BytesReference bytes) {
         return bytes.length() >= 3 &&
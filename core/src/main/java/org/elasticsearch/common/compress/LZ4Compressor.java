@@ -0,0 +1,227 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Decompressor;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.InputStreamDataInput;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 compression algorithm. LZ4 compresses less than DEFLATE but is
+ * much faster, which makes it a better fit for fast networks where CPU rather than bandwidth is the bottleneck.
+ * <p>
+ * Data is compressed in independent blocks of up to 64KB using Lucene's LZ4 implementation. Each block is preceded by
+ * its uncompressed length as a vInt, and the stream is terminated by a block of length 0.
+ */
+public class LZ4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams
+    // It needs to be different from other compressors and to not be specific
+    // enough so that no stream starting with these bytes could be detected as
+    // a XContent
+    private static final byte[] HEADER = new byte[] { 'L', 'Z', '4', '\0' };
+    // the maximum number of uncompressed bytes per block
+    static final int BLOCK_SIZE = 1 << 16;
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new InputStreamStreamInput(new LZ4InputStream(in));
+    }
+
+    @Override
+    public StreamOutput streamOutput(StreamOutput out) throws IOException {
+        out.writeBytes(HEADER);
+        return new OutputStreamStreamOutput(new LZ4OutputStream(out));
+    }
+
+    private static final class LZ4OutputStream extends OutputStream {
+        private final StreamOutput out;
+        private final DataOutput dataOutput;
+        private final org.apache.lucene.codecs.compressing.Compressor compressor = CompressionMode.FAST.newCompressor();
+        private final byte[] buffer = new byte[BLOCK_SIZE];
+        private int pending = 0;
+        private boolean closed = false;
+
+        LZ4OutputStream(StreamOutput out) {
+            this.out = out;
+            this.dataOutput = new OutputStreamDataOutput(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (pending == buffer.length) {
+                writeBlock();
+            }
+            buffer[pending++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (pending == buffer.length) {
+                    writeBlock();
+                }
+                final int toCopy = Math.min(len, buffer.length - pending);
+                System.arraycopy(b, off, buffer, pending, toCopy);
+                pending += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (pending > 0) {
+                out.writeVInt(pending);
+                compressor.compress(buffer, 0, pending, dataOutput);
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // compress what we have so far so that everything written up to now can be decompressed
+            writeBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed == false) {
+                closed = true;
+                try {
+                    writeBlock();
+                    // end of stream marker
+                    out.writeVInt(0);
+                } finally {
+                    out.close();
+                }
+            }
+        }
+    }
+
+    private static final class LZ4InputStream extends InputStream {
+        private final StreamInput in;
+        private final DataInput dataInput;
+        private final Decompressor decompressor = CompressionMode.FAST.newDecompressor();
+        private final BytesRef block = new BytesRef();
+        private int position = 0;
+        private boolean eos = false;
+
+        LZ4InputStream(StreamInput in) {
+            this.in = in;
+            this.dataInput = new InputStreamDataInput(in);
+        }
+
+        /**
+         * Decompresses the next block if the current one has been fully read.
+         *
+         * @return false if the end of the stream has been reached
+         */
+        private boolean fill() throws IOException {
+            while (position == block.length) {
+                if (eos) {
+                    return false;
+                }
+                final int length = in.readVInt();
+                if (length == 0) {
+                    eos = true;
+                    return false;
+                }
+                if (length < 0 || length > BLOCK_SIZE) {
+                    throw new IllegalStateException("invalid LZ4 block length [" + length + "]");
+                }
+                decompressor.decompress(dataInput, length, 0, length, block);
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (fill() == false) {
+                return -1;
+            }
+            return block.bytes[block.offset + position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (fill() == false) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, block.length - position);
+            System.arraycopy(block.bytes, block.offset + position, b, off, toCopy);
+            position += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return block.length - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -25,11 +25,15 @@ import org.apache.lucene.util.automaton.CharacterRunAutomaton;
 import org.apache.lucene.util.automaton.Operations;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.Booleans;
+import org.elasticsearch.common.CheckedBiConsumer;
 import org.elasticsearch.common.Numbers;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -164,16 +168,53 @@ public class XContentMapValues {
      */
     public static Function<Map<String, ?>, Map<String, Object>> filter(String[] includes, String[] excludes) {
         CharacterRunAutomaton matchAllAutomaton = new CharacterRunAutomaton(Automata.makeAnyString());
+        CharacterRunAutomaton include = includeAutomaton(includes, matchAllAutomaton);
+        CharacterRunAutomaton exclude = excludeAutomaton(excludes);
 
-        CharacterRunAutomaton include;
+        // NOTE: We cannot use Operations.minus because of the special case that
+        // we want all sub properties to match as soon as an object matches
+
+        return (map) -> filter(map,
+            include, 0,
+            exclude, 0,
+            matchAllAutomaton);
+    }
+
+    /**
+     * Returns a function that copies the object a parser is positioned on, or the next object if the parser has no current
+     * token, to a builder, only keeping the properties that match the {@code includes} but not the {@code excludes}. The rules
+     * are the same as {@link #filter(Map, String[], String[])}, but tokens are streamed from the parser to the builder instead
+     * of building maps: properties that are filtered out are skipped without being materialized. Unlike maps, the order of
+     * the properties is preserved.
+     */
+    public static CheckedBiConsumer<XContentParser, XContentBuilder, IOException> filterXContent(String[] includes, String[] excludes) {
+        CharacterRunAutomaton matchAllAutomaton = new CharacterRunAutomaton(Automata.makeAnyString());
+        CharacterRunAutomaton include = includeAutomaton(includes, matchAllAutomaton);
+        CharacterRunAutomaton exclude = excludeAutomaton(excludes);
+        return (parser, builder) -> {
+            XContentParser.Token token = parser.currentToken();
+            if (token == null) {
+                token = parser.nextToken();
+            }
+            if (token != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("failed to filter content, expected an object but got [{}]", token);
+            }
+            builder.startObject();
+            new XContentFilter(builder, exclude, matchAllAutomaton).filterObject(parser, include, 0, 0);
+            builder.endObject();
+        };
+    }
+
+    private static CharacterRunAutomaton includeAutomaton(String[] includes, CharacterRunAutomaton matchAllAutomaton) {
         if (includes == null || includes.length == 0) {
-            include = matchAllAutomaton;
-        } else {
-            Automaton includeA = Regex.simpleMatchToAutomaton(includes);
-            includeA = makeMatchDotsInFieldNames(includeA);
-            include = new CharacterRunAutomaton(includeA);
+            return matchAllAutomaton;
         }
+        Automaton includeA = Regex.simpleMatchToAutomaton(includes);
+        includeA = makeMatchDotsInFieldNames(includeA);
+        return new CharacterRunAutomaton(includeA);
+    }
 
+    private static CharacterRunAutomaton excludeAutomaton(String[] excludes) {
         Automaton excludeA;
         if (excludes == null || excludes.length == 0) {
             excludeA = Automata.makeEmpty();
@@ -181,15 +222,7 @@ public class XContentMapValues {
             excludeA = Regex.simpleMatchToAutomaton(excludes);
             excludeA = makeMatchDotsInFieldNames(excludeA);
         }
-        CharacterRunAutomaton exclude = new CharacterRunAutomaton(excludeA);
-
-        // NOTE: We cannot use Operations.minus because of the special case that
-        // we want all sub properties to match as soon as an object matches
-
-        return (map) -> filter(map,
-            include, 0,
-            exclude, 0,
-            matchAllAutomaton);
+        return new CharacterRunAutomaton(excludeA);
     }
 
     /** Make matches on objects also match dots in field names.
@@ -314,6 +347,153 @@ public class XContentMapValues {
         return filtered;
     }
 
+    /**
+     * Streaming counterpart of the filtering of maps and lists above. Objects and arrays are only written once they get
+     * content, since they are dropped if all their properties are filtered out.
+     */
+    private static final class XContentFilter {
+        private final XContentBuilder builder;
+        private final CharacterRunAutomaton excludeAutomaton;
+        private final CharacterRunAutomaton matchAllAutomaton;
+        /** The objects and arrays that were started but not written yet, the ones of arrays having a null name. */
+        private final List<String> pendingNames = new ArrayList<>();
+        private final List<Boolean> pendingArrays = new ArrayList<>();
+
+        XContentFilter(XContentBuilder builder, CharacterRunAutomaton excludeAutomaton, CharacterRunAutomaton matchAllAutomaton) {
+            this.builder = builder;
+            this.excludeAutomaton = excludeAutomaton;
+            this.matchAllAutomaton = matchAllAutomaton;
+        }
+
+        void filterObject(XContentParser parser, CharacterRunAutomaton includeAutomaton, int initialIncludeState,
+                int initialExcludeState) throws IOException {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                String key = parser.currentName();
+                token = parser.nextToken();
+
+                int includeState = step(includeAutomaton, key, initialIncludeState);
+                if (includeState == -1) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                int excludeState = step(excludeAutomaton, key, initialExcludeState);
+                if (excludeState != -1 && excludeAutomaton.isAccept(excludeState)) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                CharacterRunAutomaton subIncludeAutomaton = includeAutomaton;
+                int subIncludeState = includeState;
+                if (includeAutomaton.isAccept(includeState)) {
+                    if (excludeState == -1 || excludeAutomaton.step(excludeState, '.') == -1) {
+                        // the exclude has no chances to match inner properties
+                        writePending();
+                        builder.field(key);
+                        builder.copyCurrentStructure(parser);
+                        continue;
+                    } else {
+                        // the object matched, so consider that the include matches every inner property
+                        // we only care about excludes now
+                        subIncludeAutomaton = matchAllAutomaton;
+                        subIncludeState = 0;
+                    }
+                }
+
+                if (token == XContentParser.Token.START_OBJECT) {
+                    subIncludeState = subIncludeAutomaton.step(subIncludeState, '.');
+                    if (subIncludeState == -1) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    if (excludeState != -1) {
+                        excludeState = excludeAutomaton.step(excludeState, '.');
+                    }
+                    int pending = start(key, false);
+                    filterObject(parser, subIncludeAutomaton, subIncludeState, excludeState);
+                    end(pending, false, includeAutomaton.isAccept(includeState));
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    int pending = start(key, true);
+                    filterArray(parser, subIncludeAutomaton, subIncludeState, excludeState);
+                    end(pending, true, false);
+                } else if (includeAutomaton.isAccept(includeState)) {
+                    // leaf property
+                    writePending();
+                    builder.field(key);
+                    builder.copyCurrentStructure(parser);
+                }
+            }
+        }
+
+        void filterArray(XContentParser parser, CharacterRunAutomaton includeAutomaton, int initialIncludeState,
+                int initialExcludeState) throws IOException {
+            boolean isInclude = includeAutomaton.isAccept(initialIncludeState);
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                if (token == XContentParser.Token.START_OBJECT) {
+                    int includeState = includeAutomaton.step(initialIncludeState, '.');
+                    if (includeState == -1) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    int excludeState = initialExcludeState;
+                    if (excludeState != -1) {
+                        excludeState = excludeAutomaton.step(excludeState, '.');
+                    }
+                    int pending = start(null, false);
+                    filterObject(parser, includeAutomaton, includeState, excludeState);
+                    end(pending, false, false);
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    int pending = start(null, true);
+                    filterArray(parser, includeAutomaton, initialIncludeState, initialExcludeState);
+                    end(pending, true, false);
+                } else if (isInclude) {
+                    writePending();
+                    builder.copyCurrentStructure(parser);
+                }
+            }
+        }
+
+        private int start(String name, boolean array) {
+            pendingNames.add(name);
+            pendingArrays.add(array);
+            return pendingNames.size() - 1;
+        }
+
+        private void writePending() throws IOException {
+            for (int i = 0; i < pendingNames.size(); i++) {
+                if (pendingNames.get(i) != null) {
+                    builder.field(pendingNames.get(i));
+                }
+                if (pendingArrays.get(i)) {
+                    builder.startArray();
+                } else {
+                    builder.startObject();
+                }
+            }
+            pendingNames.clear();
+            pendingArrays.clear();
+        }
+
+        private void end(int pending, boolean array, boolean keepIfEmpty) throws IOException {
+            if (pendingNames.size() > pending) {
+                // nothing was written since the object or array was started
+                if (keepIfEmpty == false) {
+                    pendingNames.remove(pending);
+                    pendingArrays.remove(pending);
+                    return;
+                }
+                writePending();
+            }
+            if (array) {
+                builder.endArray();
+            } else {
+                builder.endObject();
+            }
+        }
+    }
+
     public static boolean isObject(Object node) {
         return node instanceof Map;
     }
@@ -62,6 +62,7 @@ import org.elasticsearch.index.shard.ShardPath;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.translog.SharedTranslog;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
@@ -84,6 +85,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.LongSupplier;
 
 import static java.util.Collections.emptyMap;
@@ -106,6 +108,7 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
     private final EngineFactory engineFactory;
     private final IndexWarmer warmer;
     private final Consumer<ShardId> globalCheckpointSyncer;
+    private final Function<Path, SharedTranslog> sharedTranslogs;
     private volatile Map<Integer, IndexShard> shards = emptyMap();
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private final AtomicBoolean deleted = new AtomicBoolean(false);
@@ -114,6 +117,8 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
     private final List<SearchOperationListener> searchOperationListeners;
     private volatile AsyncRefreshTask refreshTask;
     private volatile AsyncTranslogFSync fsyncTask;
+    // whether a shard of this index uses a shared translog, whose translog files must be fsynced periodically
+    private volatile boolean usesSharedTranslog = false;
     private final ThreadPool threadPool;
     private final BigArrays bigArrays;
     private final AsyncGlobalCheckpointTask globalCheckpointTask;
@@ -140,11 +145,13 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
                         MapperRegistry mapperRegistry,
                         IndicesFieldDataCache indicesFieldDataCache,
                         Consumer<ShardId> globalCheckpointSyncer,
+                        Function<Path, SharedTranslog> sharedTranslogs,
                         List<SearchOperationListener> searchOperationListeners,
                         List<IndexingOperationListener> indexingOperationListeners) throws IOException {
         super(indexSettings);
         this.indexSettings = indexSettings;
         this.globalCheckpointSyncer = globalCheckpointSyncer;
+        this.sharedTranslogs = sharedTranslogs;
         this.xContentRegistry = xContentRegistry;
         this.similarityService = similarityService;
         this.mapperService = new MapperService(indexSettings, registry.build(indexSettings), xContentRegistry, similarityService,
@@ -359,10 +366,15 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
                     searchOperationListeners);
                 // no indexing listeners - shadow  engines don't index
             } else {
+                final SharedTranslog sharedTranslog = sharedTranslogs.apply(path.resolveTranslog());
                 indexShard = new IndexShard(routing, this.indexSettings, path, store, indexCache, mapperService, similarityService,
-                    indexFieldData, engineFactory, eventListener, searcherWrapper, threadPool, bigArrays, engineWarmer,
-                    () -> globalCheckpointSyncer.accept(shardId),
+                    indexFieldData, engineFactory, eventListener, searcherWrapper, threadPool, bigArrays,
+                    sharedTranslog, engineWarmer, () -> globalCheckpointSyncer.accept(shardId),
                     searchOperationListeners, indexingOperationListeners);
+                if (sharedTranslog != null && usesSharedTranslog == false) {
+                    usesSharedTranslog = true;
+                    rescheduleFsyncTask(indexSettings.getTranslogDurability());
+                }
             }
             eventListener.indexShardStateChanged(indexShard, null, indexShard.state(), "shard created");
             eventListener.afterIndexShardCreated(indexShard);
@@ -635,7 +647,9 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
                 fsyncTask.close();
             }
         } finally {
-            fsyncTask = durability == Translog.Durability.REQUEST ? null : new AsyncTranslogFSync(this);
+            // translogs that use a shared translog are made durable by the shared translog, but their own files are fsynced on the
+            // sync interval regardless of the durability
+            fsyncTask = durability == Translog.Durability.REQUEST && usesSharedTranslog == false ? null : new AsyncTranslogFSync(this);
         }
     }
 
@@ -667,11 +681,12 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
     } // pkg private for testing
 
     private void maybeFSyncTranslogs() {
-        if (indexSettings.getTranslogDurability() == Translog.Durability.ASYNC) {
+        final boolean async = indexSettings.getTranslogDurability() == Translog.Durability.ASYNC;
+        if (async || usesSharedTranslog) {
             for (IndexShard shard : this.shards.values()) {
                 try {
                     Translog translog = shard.getTranslog();
-                    if (translog.syncNeeded()) {
+                    if ((async || translog.getConfig().getSharedTranslog() != null) && translog.syncNeeded()) {
                         translog.sync();
                     }
                 } catch (AlreadyClosedException ex) {
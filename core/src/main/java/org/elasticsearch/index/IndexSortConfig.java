@@ -0,0 +1,265 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSelector;
+import org.apache.lucene.search.SortedSetSortField;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Holds the sort of the segments of an index, that is the order in which the documents of each segment are written
+ * to disk. Merges preserve the sort, and queries whose sort is a prefix of the index sort can stop collecting the
+ * documents of a segment as soon as they have collected enough of them.
+ * <p>
+ * The index sort is defined at index creation and cannot be changed afterwards. It has the following settings:
+ *
+ * <ul>
+ * <li><code>index.sort.field</code>: the fields to sort on, which must have doc values and be of type
+ *     <code>keyword</code>, <code>date</code> or numeric.
+ * <li><code>index.sort.order</code>: <code>asc</code> or <code>desc</code> for each field. Defaults to <code>asc</code>.
+ * <li><code>index.sort.mode</code>: <code>min</code> or <code>max</code> for each field, the value of multi-valued
+ *     fields to sort on. Defaults to <code>min</code> for ascending and <code>max</code> for descending sorts.
+ * <li><code>index.sort.missing</code>: <code>_last</code> or <code>_first</code> for each field, where documents that
+ *     have no value for the field are sorted. Defaults to <code>_last</code>.
+ * </ul>
+ *
+ * If specified, there must be as many orders, modes and missing values as there are fields.
+ */
+public final class IndexSortConfig {
+
+    public static final Setting<List<String>> INDEX_SORT_FIELD_SETTING =
+        Setting.listSetting("index.sort.field", Collections.emptyList(), Function.identity(), Property.IndexScope);
+
+    public static final Setting<List<SortOrder>> INDEX_SORT_ORDER_SETTING =
+        Setting.listSetting("index.sort.order", Collections.emptyList(), IndexSortConfig::parseOrder, Property.IndexScope);
+
+    public static final Setting<List<MultiValueMode>> INDEX_SORT_MODE_SETTING =
+        Setting.listSetting("index.sort.mode", Collections.emptyList(), IndexSortConfig::parseMode, Property.IndexScope);
+
+    public static final Setting<List<String>> INDEX_SORT_MISSING_SETTING =
+        Setting.listSetting("index.sort.missing", Collections.emptyList(), IndexSortConfig::validateMissing, Property.IndexScope);
+
+    /** The prefix of the index sort settings, which cannot be updated once the index is created. */
+    public static final String INDEX_SORT_SETTING_PREFIX = "index.sort.";
+
+    private final FieldSortSpec[] sortSpecs;
+
+    public IndexSortConfig(Settings settings) {
+        List<String> fields = INDEX_SORT_FIELD_SETTING.get(settings);
+        List<SortOrder> orders = INDEX_SORT_ORDER_SETTING.get(settings);
+        List<MultiValueMode> modes = INDEX_SORT_MODE_SETTING.get(settings);
+        List<String> missingValues = INDEX_SORT_MISSING_SETTING.get(settings);
+        checkSize(INDEX_SORT_ORDER_SETTING, orders, fields);
+        checkSize(INDEX_SORT_MODE_SETTING, modes, fields);
+        checkSize(INDEX_SORT_MISSING_SETTING, missingValues, fields);
+        sortSpecs = new FieldSortSpec[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            SortOrder order = orders.isEmpty() ? SortOrder.ASC : orders.get(i);
+            MultiValueMode mode;
+            if (modes.isEmpty()) {
+                mode = order == SortOrder.DESC ? MultiValueMode.MAX : MultiValueMode.MIN;
+            } else {
+                mode = modes.get(i);
+            }
+            boolean missingFirst = missingValues.isEmpty() == false && "_first".equals(missingValues.get(i));
+            sortSpecs[i] = new FieldSortSpec(fields.get(i), order, mode, missingFirst);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the index defines a sort.
+     */
+    public boolean hasIndexSort() {
+        return sortSpecs.length > 0;
+    }
+
+    /**
+     * Returns the fields of the index sort, in order.
+     */
+    public FieldSortSpec[] getSortSpecs() {
+        return sortSpecs;
+    }
+
+    /**
+     * Builds the Lucene sort of the index, resolving the sort fields with the provided lookup, or returns
+     * <code>null</code> if the index defines no sort.
+     *
+     * @throws IllegalArgumentException if a sort field is unknown or cannot be used to sort the index
+     */
+    public Sort buildIndexSort(Function<String, MappedFieldType> fieldTypeLookup) {
+        if (hasIndexSort() == false) {
+            return null;
+        }
+        SortField[] sortFields = new SortField[sortSpecs.length];
+        for (int i = 0; i < sortSpecs.length; i++) {
+            FieldSortSpec spec = sortSpecs[i];
+            MappedFieldType fieldType = fieldTypeLookup.apply(spec.field);
+            if (fieldType == null) {
+                throw new IllegalArgumentException("unknown index sort field: [" + spec.field + "]");
+            }
+            if (fieldType.hasDocValues() == false) {
+                throw new IllegalArgumentException("docvalues not found for index sort field: [" + spec.field + "]");
+            }
+            sortFields[i] = buildSortField(fieldType, spec);
+        }
+        return new Sort(sortFields);
+    }
+
+    private static SortField buildSortField(MappedFieldType fieldType, FieldSortSpec spec) {
+        final boolean reverse = spec.order == SortOrder.DESC;
+        // like the search time sort, missing values sort last whatever the order unless asked otherwise
+        final boolean missingHigh = spec.missingFirst == reverse;
+        if (fieldType instanceof KeywordFieldMapper.KeywordFieldType) {
+            SortedSetSelector.Type selector = spec.mode == MultiValueMode.MAX ? SortedSetSelector.Type.MAX : SortedSetSelector.Type.MIN;
+            SortedSetSortField sortField = new SortedSetSortField(fieldType.name(), reverse, selector);
+            sortField.setMissingValue(missingHigh ? SortField.STRING_LAST : SortField.STRING_FIRST);
+            return sortField;
+        }
+        final SortField.Type type;
+        if (fieldType instanceof DateFieldMapper.DateFieldType) {
+            type = SortField.Type.LONG;
+        } else if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
+            type = sortFieldType(((NumberFieldMapper.NumberFieldType) fieldType).numericType());
+        } else {
+            throw new IllegalArgumentException("invalid index sort field: [" + spec.field + "] of type [" + fieldType.typeName()
+                + "], only keyword, date and numeric fields are supported");
+        }
+        SortedNumericSelector.Type selector = spec.mode == MultiValueMode.MAX ?
+            SortedNumericSelector.Type.MAX : SortedNumericSelector.Type.MIN;
+        SortedNumericSortField sortField = new SortedNumericSortField(fieldType.name(), type, reverse, selector);
+        sortField.setMissingValue(missingValue(type, missingHigh));
+        return sortField;
+    }
+
+    private static SortField.Type sortFieldType(NumericType numericType) {
+        switch (numericType) {
+            case FLOAT:
+                return SortField.Type.FLOAT;
+            case DOUBLE:
+                return SortField.Type.DOUBLE;
+            case HALF_FLOAT:
+                // half floats are indexed as sortable shorts, which sort like their values
+            case BYTE:
+            case SHORT:
+            case INT:
+                return SortField.Type.INT;
+            default:
+                return SortField.Type.LONG;
+        }
+    }
+
+    private static Object missingValue(SortField.Type type, boolean high) {
+        switch (type) {
+            case INT:
+                return high ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+            case FLOAT:
+                return high ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+            case DOUBLE:
+                return high ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+            default:
+                return high ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+    }
+
+    private static void checkSize(Setting<?> setting, List<?> values, List<String> fields) {
+        if (values.isEmpty() == false && values.size() != fields.size()) {
+            throw new IllegalArgumentException("[" + setting.getKey() + "] has [" + values.size() + "] values but ["
+                + INDEX_SORT_FIELD_SETTING.getKey() + "] has [" + fields.size() + "], they must have the same number of values");
+        }
+    }
+
+    private static SortOrder parseOrder(String value) {
+        return SortOrder.fromString(value);
+    }
+
+    private static MultiValueMode parseMode(String value) {
+        MultiValueMode mode = MultiValueMode.fromString(value);
+        if (mode != MultiValueMode.MIN && mode != MultiValueMode.MAX) {
+            throw new IllegalArgumentException("illegal index sort mode: [" + value + "], must be one of [min, max]");
+        }
+        return mode;
+    }
+
+    private static String validateMissing(String value) {
+        if ("_last".equals(value) == false && "_first".equals(value) == false) {
+            throw new IllegalArgumentException("illegal index sort missing value: [" + value + "], must be one of [_last, _first]");
+        }
+        return value;
+    }
+
+    /**
+     * The sort of one field of the index sort.
+     */
+    public static final class FieldSortSpec {
+        private final String field;
+        private final SortOrder order;
+        private final MultiValueMode mode;
+        private final boolean missingFirst;
+
+        FieldSortSpec(String field, SortOrder order, MultiValueMode mode, boolean missingFirst) {
+            this.field = field;
+            this.order = order;
+            this.mode = mode;
+            this.missingFirst = missingFirst;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public SortOrder getOrder() {
+            return order;
+        }
+
+        public MultiValueMode getMode() {
+            return mode;
+        }
+
+        /**
+         * Returns <code>true</code> if documents that have no value for the field sort first.
+         */
+        public boolean isMissingFirst() {
+            return missingFirst;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s %s mode:%s missing:%s", field, order, mode, missingFirst ? "_first" : "_last");
+        }
+    }
+}
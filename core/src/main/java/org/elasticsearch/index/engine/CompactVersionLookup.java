@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+
+/**
+ * A {@link LiveVersionMap.VersionLookup} that stores uids and their versions in a few large paged arrays rather than in a map of
+ * objects. Millions of uids are then held by a few thousand pages, which the garbage collector can deal with much more easily than
+ * with millions of map entries, uids and versions. Uids are never removed: the whole lookup is dropped once a refresh made its
+ * operations visible to searches, so that the pages are simply garbage collected and never recycled while a concurrent lookup
+ * might still be reading them.
+ * <p>
+ * The lookup is split into segments that have their own lock, so that indexing threads don't contend too much.
+ */
+final class CompactVersionLookup implements LiveVersionMap.VersionLookup {
+
+    private static final int SEGMENT_BITS = 4;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    CompactVersionLookup() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private Segment segment(int hash) {
+        // the hash tables of segments use the low bits of the mixed hash, so use high bits to pick a segment
+        return segments[BitMixer.mix32(hash) >>> (32 - SEGMENT_BITS)];
+    }
+
+    @Override
+    public VersionValue get(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return segment(hash).get(uid, hash);
+    }
+
+    @Override
+    public VersionValue put(BytesRef uid, VersionValue version) {
+        final int hash = uid.hashCode();
+        return segment(hash).put(uid, hash, version);
+    }
+
+    /**
+     * Returns the number of bytes used by the arrays of this lookup.
+     */
+    long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Segment segment : segments) {
+            ramBytesUsed += segment.ramBytesUsed;
+        }
+        return ramBytesUsed;
+    }
+
+    private static final class Segment {
+        private final BigArrays bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+        // maps uids to dense ids that are used as indices in the below arrays
+        private final BytesRefHash uids = new BytesRefHash(16, bigArrays);
+        private LongArray versions = bigArrays.newLongArray(16, false);
+        // the time of deletes, only set if the operation is a delete
+        private LongArray times = bigArrays.newLongArray(16, false);
+        private ByteArray deletes = bigArrays.newByteArray(16, false);
+        private volatile long ramBytesUsed = computeRamBytesUsed();
+
+        synchronized VersionValue get(BytesRef uid, int hash) {
+            final long id = uids.find(uid, hash);
+            return id < 0 ? null : versionValue(id);
+        }
+
+        synchronized VersionValue put(BytesRef uid, int hash, VersionValue version) {
+            long id = uids.add(uid, hash);
+            final VersionValue prev;
+            if (id < 0) {
+                id = -1 - id;
+                prev = versionValue(id);
+            } else {
+                prev = null;
+                versions = bigArrays.grow(versions, id + 1);
+                times = bigArrays.grow(times, id + 1);
+                deletes = bigArrays.grow(deletes, id + 1);
+            }
+            versions.set(id, version.version());
+            if (version.delete()) {
+                deletes.set(id, (byte) 1);
+                times.set(id, version.time());
+            } else {
+                deletes.set(id, (byte) 0);
+            }
+            if (prev == null) {
+                ramBytesUsed = computeRamBytesUsed();
+            }
+            return prev;
+        }
+
+        private VersionValue versionValue(long id) {
+            if (deletes.get(id) == 1) {
+                return new DeleteVersionValue(versions.get(id), times.get(id));
+            }
+            return new VersionValue(versions.get(id));
+        }
+
+        private long computeRamBytesUsed() {
+            return uids.ramBytesUsed() + versions.ramBytesUsed() + times.ramBytesUsed() + deletes.ramBytesUsed();
+        }
+    }
+}
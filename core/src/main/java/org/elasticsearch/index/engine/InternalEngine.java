@@ -141,7 +141,7 @@ public class InternalEngine extends Engine {
         } else {
             maxUnsafeAutoIdTimestamp.set(engineConfig.getMaxUnsafeAutoIdTimestamp());
         }
-        this.versionMap = new LiveVersionMap();
+        this.versionMap = new LiveVersionMap(engineConfig.getIndexSettings().getValue(EngineConfig.INDEX_COMPACT_VERSION_MAP_SETTING));
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -1357,6 +1357,10 @@ public class InternalEngine extends Engine {
             iwc.setRAMBufferSizeMB(engineConfig.getIndexingBufferSize().getMbFrac());
             iwc.setCodec(engineConfig.getCodec());
             iwc.setUseCompoundFile(true); // always use compound on flush - reduces # of file-handles on refresh
+            if (engineConfig.getIndexSort() != null) {
+                // segments are sorted when they are flushed, and merges of sorted segments stay sorted
+                iwc.setIndexSort(engineConfig.getIndexSort());
+            }
             return new IndexWriter(store.directory(), iwc);
         } catch (LockObtainFailedException ex) {
             logger.warn("could not lock IndexWriter", ex);
@@ -35,29 +35,50 @@ import java.util.concurrent.atomic.AtomicLong;
 /** Maps _uid value to its version information. */
 class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
+    /** The versions of the uids that were indexed or deleted since a refresh started. Callers hold the lock of the uid. */
+    interface VersionLookup {
+
+        VersionValue get(BytesRef uid);
+
+        /** Sets the version of the uid and returns its previous version, or <code>null</code> if it had none. */
+        VersionValue put(BytesRef uid, VersionValue version);
+    }
+
+    private static final class ConcurrentVersionLookup implements VersionLookup {
+        private final Map<BytesRef,VersionValue> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+
+        @Override
+        public VersionValue get(BytesRef uid) {
+            return map.get(uid);
+        }
+
+        @Override
+        public VersionValue put(BytesRef uid, VersionValue version) {
+            return map.put(uid, version);
+        }
+    }
+
     private static class Maps {
 
         // All writes (adds and deletes) go into here:
-        final Map<BytesRef,VersionValue> current;
+        final VersionLookup current;
 
         // Used while refresh is running, and to hold adds/deletes until refresh finishes.  We read from both current and old on lookup:
-        final Map<BytesRef,VersionValue> old;
+        final VersionLookup old;
 
-        public Maps(Map<BytesRef,VersionValue> current, Map<BytesRef,VersionValue> old) {
+        public Maps(VersionLookup current, VersionLookup old) {
            this.current = current;
            this.old = old;
         }
-
-        public Maps() {
-            this(ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency(),
-                 ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
-        }
     }
 
     // All deletes also go here, and delete "tombstones" are retained after refresh:
     private final Map<BytesRef,VersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
-    private volatile Maps maps = new Maps();
+    // whether current and old store versions in paged arrays rather than in maps of objects
+    private final boolean compact;
+
+    private volatile Maps maps;
 
     private ReferenceManager<?> mgr;
 
@@ -91,8 +112,31 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         BASE_BYTES_PER_CHM_ENTRY = chmEntryShallowSize + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
     }
 
+    LiveVersionMap() {
+        this(false);
+    }
+
+    /**
+     * @param compact whether to store the versions of the uids that are not yet visible to searches in a few large paged arrays
+     *                rather than in a map of objects. This is slightly slower but puts much less pressure on the garbage collector
+     *                when there are many such uids, e.g. with long refresh intervals.
+     */
+    LiveVersionMap(boolean compact) {
+        this.compact = compact;
+        this.maps = newMaps();
+    }
+
+    private VersionLookup newVersionLookup() {
+        return compact ? new CompactVersionLookup() : new ConcurrentVersionLookup();
+    }
+
+    private Maps newMaps() {
+        return new Maps(newVersionLookup(), newVersionLookup());
+    }
+
     /** Tracks bytes used by current map, i.e. what is freed on refresh. For deletes, which are also added to tombstones, we only account
-     *  for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not clear this RAM. */
+     *  for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not clear this RAM.
+     *  Compact lookups track the bytes they use themselves. */
     final AtomicLong ramBytesUsedCurrent = new AtomicLong();
 
     /** Tracks bytes used by tombstones (deletes) */
@@ -107,7 +151,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
         // In case InternalEngine closes & opens a new IndexWriter/SearcherManager, all deletes are made visible, so we clear old and
         // current here.  This is safe because caller holds writeLock here (so no concurrent adds/deletes can be happeninge):
-        maps = new Maps();
+        maps = newMaps();
 
         // So we are notified when reopen starts and finishes
         mgr.addListener(this);
@@ -119,7 +163,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         // map.  While reopen is running, any lookup will first
         // try this new map, then fallback to old, then to the
         // current searcher:
-        maps = new Maps(ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency(), maps.current);
+        maps = new Maps(newVersionLookup(), maps.current);
 
         // This is not 100% correct, since concurrent indexing ops can change these counters in between our execution of the previous
         // line and this one, but that should be minor, and the error won't accumulate over time:
@@ -134,7 +178,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         // case.  This is because we assign new maps (in beforeRefresh) slightly before Lucene actually flushes any segments for the
         // reopen, and so any concurrent indexing requests can still sneak in a few additions to that current map that are in fact reflected
         // in the previous reader.   We don't touch tombstones here: they expire on their own index.gc_deletes timeframe:
-        maps = new Maps(maps.current, ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
+        maps = new Maps(maps.current, newVersionLookup());
     }
 
     /** Returns the live version (add or delete) for this uid. */
@@ -161,21 +205,23 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
 
         final VersionValue prev = maps.current.put(uid, version);
-        if (prev != null) {
-            // Deduct RAM for the version we just replaced:
-            long prevBytes = BASE_BYTES_PER_CHM_ENTRY;
-            if (prev.delete() == false) {
-                prevBytes += prev.ramBytesUsed() + uidRAMBytesUsed;
+        if (compact == false) {
+            if (prev != null) {
+                // Deduct RAM for the version we just replaced:
+                long prevBytes = BASE_BYTES_PER_CHM_ENTRY;
+                if (prev.delete() == false) {
+                    prevBytes += prev.ramBytesUsed() + uidRAMBytesUsed;
+                }
+                ramBytesUsedCurrent.addAndGet(-prevBytes);
             }
-            ramBytesUsedCurrent.addAndGet(-prevBytes);
-        }
 
-        // Add RAM for the new version:
-        long newBytes = BASE_BYTES_PER_CHM_ENTRY;
-        if (version.delete() == false) {
-            newBytes += version.ramBytesUsed() + uidRAMBytesUsed;
+            // Add RAM for the new version:
+            long newBytes = BASE_BYTES_PER_CHM_ENTRY;
+            if (version.delete() == false) {
+                newBytes += version.ramBytesUsed() + uidRAMBytesUsed;
+            }
+            ramBytesUsedCurrent.addAndGet(newBytes);
         }
-        ramBytesUsedCurrent.addAndGet(newBytes);
 
         final VersionValue prevTombstone;
         if (version.delete()) {
@@ -187,7 +233,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
             // the accounting to current:
             ramBytesUsedTombstones.addAndGet(BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed);
 
-            if (prevTombstone == null && prev != null && prev.delete()) {
+            if (compact == false && prevTombstone == null && prev != null && prev.delete()) {
                 // If prev was a delete that had already been removed from tombstones, then current was already accounting for the
                 // BytesRef/VersionValue RAM, so we now deduct that as well:
                 ramBytesUsedCurrent.addAndGet(-(prev.ramBytesUsed() + uidRAMBytesUsed));
@@ -215,7 +261,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
             long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prev.ramBytesUsed() + uidRAMBytesUsed));
             assert v >= 0: "bytes=" + v;
         }
-        final VersionValue curVersion = maps.current.get(uid);
+        final VersionValue curVersion = compact ? null : maps.current.get(uid);
         if (curVersion != null && curVersion.delete()) {
             // We now shift accounting of the BytesRef from tombstones to current, because a refresh would clear this RAM.  This should be
             // uncommon, because with the default refresh=1s and gc_deletes=60s, deletes should be cleared from current long before we drop
@@ -236,7 +282,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     /** Called when this index is closed. */
     synchronized void clear() {
-        maps = new Maps();
+        maps = newMaps();
         tombstones.clear();
         ramBytesUsedCurrent.set(0);
 
@@ -253,12 +299,15 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     @Override
     public long ramBytesUsed() {
-        return ramBytesUsedCurrent.get() + ramBytesUsedTombstones.get();
+        return ramBytesUsedForRefresh() + ramBytesUsedTombstones.get();
     }
 
     /** Returns how much RAM would be freed up by refreshing. This is {@link #ramBytesUsed} except does not include tombstones because they
      *  don't clear on refresh. */
     long ramBytesUsedForRefresh() {
+        if (compact) {
+            return ((CompactVersionLookup) maps.current).ramBytesUsed();
+        }
         return ramBytesUsedCurrent.get();
     }
 
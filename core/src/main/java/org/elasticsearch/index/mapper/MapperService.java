@@ -398,6 +398,10 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
                 fullPathObjectMappers.put(objectMapper.fullPath(), objectMapper);
 
                 if (objectMapper.nested().isNested()) {
+                    if (indexSettings.getIndexSortConfig().hasIndexSort()) {
+                        // sorting the segments would separate nested documents from their parent
+                        throw new IllegalArgumentException("cannot have nested fields when index sort is activated");
+                    }
                     hasNested = true;
                 }
             }
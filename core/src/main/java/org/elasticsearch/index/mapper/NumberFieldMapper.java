@@ -883,6 +883,11 @@ public class NumberFieldMapper extends FieldMapper {
             return type.name;
         }
 
+        /** Returns the type of the numeric doc values of this field. */
+        public NumericType numericType() {
+            return type.numericType();
+        }
+
         @Override
         public Query termQuery(Object value, QueryShardContext context) {
             failIfNotIndexed();
@@ -55,7 +55,7 @@ public final class ShadowIndexShard extends IndexShard {
                             ThreadPool threadPool, BigArrays bigArrays, Engine.Warmer engineWarmer,
                             List<SearchOperationListener> searchOperationListeners) throws IOException {
         super(shardRouting, indexSettings, path, store, indexCache, mapperService, similarityService, indexFieldDataService, engineFactory,
-            indexEventListener, wrapper, threadPool, bigArrays, engineWarmer, () -> {
+            indexEventListener, wrapper, threadPool, bigArrays, null, engineWarmer, () -> {
             }, searchOperationListeners, Collections.emptyList());
     }
 
@@ -0,0 +1,663 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.InputStreamDataInput;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.io.Channels;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead log that is shared by the translogs of all shards of a data path. With the <tt>request</tt> durability, the
+ * operations of a write request must be fsynced before the request is acknowledged, which costs one fsync of the translog of every
+ * shard that the request wrote to. When a node holds many shards that are written to, these fsyncs limit the throughput of small writes.
+ * <p>
+ * Translogs that use a shared translog copy every operation that they write to their own file to the shared translog too, tagged
+ * with the translog it belongs to, and make operations durable by fsyncing the shared translog rather than their own file. A single
+ * fsync then covers the operations of all shards, while the translogs fsync their own files from time to time only. These files
+ * remain the ones that recoveries, snapshots and stats read from.
+ * <p>
+ * The shared translog is made of segments. Once a segment is full, a new one is started and the translogs that have operations in
+ * full segments are asked to fsync their own files, after which these segments are deleted. When the node starts, the operations of
+ * the remaining segments that are missing from the files of the translogs are copied to them before any shard is opened.
+ */
+public final class SharedTranslog implements Closeable {
+
+    static final String CODEC = "shared_translog";
+    static final int VERSION = 1;
+    static final String SEGMENT_FILE_PREFIX = "shared-translog-";
+    static final String SEGMENT_FILE_SUFFIX = ".log";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // record types
+    private static final byte REGISTER = 0;
+    private static final byte OPERATION = 1;
+
+    private final Logger logger = Loggers.getLogger(SharedTranslog.class);
+    private final Path dataPath;
+    private final Path directory;
+    private final long segmentSize;
+    private final Executor executor;
+    // only one sync should happen concurrently, lock order synchronized(syncLock) -> synchronized(this)
+    private final Object syncLock = new Object();
+    // the position up to which all segments are fsynced
+    private final AtomicLong syncedPosition = new AtomicLong();
+    // full segments that are being fsynced and closed by the thread that rolled them, guarded by this
+    private final List<Segment> fullSegments = new ArrayList<>();
+    // full segments that still hold operations that their translogs did not fsync to their own files, guarded by this
+    private final List<Segment> retainedSegments = new ArrayList<>();
+    // used to serialize the headers of records, guarded by this
+    private final BytesStreamOutput scratch = new BytesStreamOutput();
+    // guarded by this
+    private Segment current;
+    // the number of bytes of records written to all segments, guarded by this
+    private long writtenPosition;
+    private volatile boolean closed;
+    private volatile Exception tragedy;
+
+    /**
+     * Opens the shared translog of a data path. The operations of existing segments that are missing from the files of their
+     * translogs are first copied to these files, and the existing segments are deleted.
+     *
+     * @param dataPath    the data path, paths of translogs are recorded relatively to it
+     * @param directory   the directory that holds the segments
+     * @param segmentSize the size after which a new segment is started
+     * @param executor    the executor used to fsync the files of translogs that still have operations in full segments
+     */
+    public SharedTranslog(Path dataPath, Path directory, ByteSizeValue segmentSize, Executor executor) throws IOException {
+        this.dataPath = dataPath;
+        this.directory = directory;
+        this.segmentSize = segmentSize.getBytes();
+        this.executor = executor;
+        Files.createDirectories(directory);
+        final List<Path> segments = listSegments(directory);
+        recover(dataPath, segments, logger);
+        final long generation = segments.isEmpty() ? 1 : parseGeneration(segments.get(segments.size() - 1)) + 1;
+        IOUtils.rm(segments.toArray(new Path[segments.size()]));
+        current = createSegment(generation);
+    }
+
+    /**
+     * Copies the operations of the segments in the given directory that are missing from the files of their translogs to these
+     * files, and deletes the directory. This is used when a node that used a shared translog starts without it.
+     */
+    public static void recoverAndDelete(Path dataPath, Path directory) throws IOException {
+        recover(dataPath, listSegments(directory), Loggers.getLogger(SharedTranslog.class));
+        IOUtils.rm(directory);
+    }
+
+    /**
+     * Registers a translog whose files are in the given directory. Operations that are appended through the returned log are
+     * tagged with the directory and UUID of the translog.
+     *
+     * @param translogPath the directory of the files of the translog, must be within the data path of this shared translog
+     * @param translogUUID the UUID of the translog
+     * @param syncer       fsyncs the files of the translog and notifies the returned log with {@link ShardLog#markSynced}
+     */
+    ShardLog register(Path translogPath, String translogUUID, Runnable syncer) {
+        if (translogPath.startsWith(dataPath) == false) {
+            throw new IllegalArgumentException("translog [" + translogPath + "] is not within data path [" + dataPath + "]");
+        }
+        return new ShardLog(dataPath.relativize(translogPath).toString(), translogUUID, syncer);
+    }
+
+    private long append(ShardLog shardLog, long generation, long offset, BytesReference data) throws IOException {
+        final Segment fullSegment;
+        final long position;
+        synchronized (this) {
+            ensureOpen();
+            try {
+                fullSegment = current.size >= segmentSize ? rollSegment() : null;
+                appendOperation(shardLog, generation, offset, data);
+                position = writtenPosition;
+            } catch (Exception e) {
+                closeWithTragicEvent(e);
+                throw e;
+            }
+        }
+        if (fullSegment != null) {
+            // fsync outside of the synchronized block so that other translogs can keep on appending operations
+            closeFullSegment(fullSegment);
+        }
+        return position;
+    }
+
+    private void appendOperation(ShardLog shardLog, long generation, long offset, BytesReference data) throws IOException {
+        assert Thread.holdsLock(this);
+        Entry entry = current.entries.get(shardLog);
+        if (entry == null) {
+            // operations refer to their translog by an id that is specific to the segment, so that segments can be read alone
+            entry = new Entry(current.entries.size());
+            scratch.reset();
+            scratch.writeByte(REGISTER);
+            scratch.writeVInt(entry.id);
+            scratch.writeString(shardLog.translogPath);
+            scratch.writeString(shardLog.translogUUID);
+            writeRecord(scratch.bytes(), null);
+            current.entries.put(shardLog, entry);
+        }
+        scratch.reset();
+        scratch.writeByte(OPERATION);
+        scratch.writeVInt(entry.id);
+        scratch.writeVLong(generation);
+        scratch.writeVLong(offset);
+        writeRecord(scratch.bytes(), data);
+        entry.generation = generation;
+        entry.endOffset = offset + data.length();
+    }
+
+    /*
+     * A record is made of the size of its body, its body and the CRC32 checksum of its body. The body starts with the type of the
+     * record and the id of the translog it belongs to.
+     */
+    private void writeRecord(BytesReference header, BytesReference data) throws IOException {
+        assert Thread.holdsLock(this);
+        final int size = header.length() + (data == null ? 0 : data.length());
+        current.out.writeInt(size);
+        current.checksumOut.resetDigest();
+        header.writeTo(current.checksumOut);
+        if (data != null) {
+            data.writeTo(current.checksumOut);
+        }
+        current.out.writeInt((int) current.checksumOut.getChecksum());
+        final long length = Integer.BYTES + size + Integer.BYTES;
+        current.size += length;
+        writtenPosition += length;
+    }
+
+    /**
+     * Starts a new segment and returns the full one, which must then be closed with {@link #closeFullSegment(Segment)}.
+     */
+    private Segment rollSegment() throws IOException {
+        assert Thread.holdsLock(this);
+        final Segment fullSegment = current;
+        fullSegment.out.flush();
+        current = createSegment(fullSegment.generation + 1);
+        fullSegments.add(fullSegment);
+        return fullSegment;
+    }
+
+    private void closeFullSegment(Segment segment) throws IOException {
+        try {
+            segment.channel.force(false);
+            segment.channel.close();
+        } catch (Exception e) {
+            closeWithTragicEvent(e);
+            throw e;
+        }
+        synchronized (this) {
+            fullSegments.remove(segment);
+            retainedSegments.add(segment);
+            scheduleLaggingSyncs();
+            trimSegments();
+        }
+    }
+
+    private void scheduleLaggingSyncs() {
+        assert Thread.holdsLock(this);
+        // the full segments can only be deleted once the translogs that have operations in them fsynced their own files
+        final Set<ShardLog> lagging = new HashSet<>();
+        for (Segment segment : retainedSegments) {
+            for (Map.Entry<ShardLog, Entry> entry : segment.entries.entrySet()) {
+                if (entry.getKey().isSynced(entry.getValue()) == false) {
+                    lagging.add(entry.getKey());
+                }
+            }
+        }
+        for (ShardLog shardLog : lagging) {
+            shardLog.scheduleSync();
+        }
+    }
+
+    private void trimSegments() {
+        assert Thread.holdsLock(this);
+        for (Iterator<Segment> iterator = retainedSegments.iterator(); iterator.hasNext(); ) {
+            final Segment segment = iterator.next();
+            if (segment.entries.entrySet().stream().allMatch(e -> e.getKey().isSynced(e.getValue()))) {
+                logger.trace("delete shared translog segment [{}]", segment.path);
+                IOUtils.deleteFilesIgnoringExceptions(segment.path);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Fsyncs the shared translog up to at least the given position unless already synced.
+     *
+     * @return <code>true</code> if this call caused an actual sync operation
+     */
+    private boolean sync(long position) throws IOException {
+        if (syncedPosition.get() < position) {
+            synchronized (syncLock) { // only one sync should happen concurrently, others piggyback on it
+                if (syncedPosition.get() < position) {
+                    final long positionToSync;
+                    final List<FileChannel> channels = new ArrayList<>();
+                    synchronized (this) {
+                        ensureOpen();
+                        try {
+                            current.out.flush();
+                        } catch (Exception e) {
+                            closeWithTragicEvent(e);
+                            throw e;
+                        }
+                        positionToSync = writtenPosition;
+                        // full segments might not be fsynced yet by the thread that rolled them
+                        for (Segment segment : fullSegments) {
+                            channels.add(segment.channel);
+                        }
+                        channels.add(current.channel);
+                    }
+                    // fsync outside of the synchronized block so that translogs can keep on appending operations
+                    for (FileChannel channel : channels) {
+                        try {
+                            channel.force(false);
+                        } catch (Exception e) {
+                            synchronized (this) {
+                                ensureOpen();
+                                if (e instanceof ClosedChannelException == false || channel == current.channel) {
+                                    closeWithTragicEvent(e);
+                                    throw e;
+                                }
+                                // the segment was full and has been fsynced before it was closed
+                            }
+                        }
+                    }
+                    syncedPosition.accumulateAndGet(positionToSync, Math::max);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private synchronized void markSynced(ShardLog shardLog, long generation, long offset) {
+        if (generation > shardLog.syncedGeneration || (generation == shardLog.syncedGeneration && offset > shardLog.syncedOffset)) {
+            shardLog.syncedGeneration = generation;
+            shardLog.syncedOffset = offset;
+            trimSegments();
+        }
+    }
+
+    // pkg-private for testing
+    synchronized void closeWithTragicEvent(Exception exception) {
+        if (tragedy == null) {
+            tragedy = exception;
+        } else if (tragedy != exception) {
+            tragedy.addSuppressed(exception);
+        }
+        closed = true;
+        IOUtils.closeWhileHandlingException(current.channel);
+        for (Segment segment : fullSegments) {
+            IOUtils.closeWhileHandlingException(segment.channel);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new AlreadyClosedException("shared translog [" + directory + "] is already closed", tragedy);
+        }
+    }
+
+    /**
+     * Returns the number of full segments that are retained until their translogs fsync their own files.
+     */
+    synchronized int retainedSegments() {
+        return retainedSegments.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (closed == false) {
+                    closed = true;
+                    try {
+                        current.out.flush();
+                        current.channel.force(false);
+                    } finally {
+                        // full segments that are still being fsynced are closed by the thread that rolled them
+                        current.channel.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private Segment createSegment(long generation) throws IOException {
+        final Path path = directory.resolve(SEGMENT_FILE_PREFIX + generation + SEGMENT_FILE_SUFFIX);
+        final FileChannel channel =
+            FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.CREATE_NEW);
+        try {
+            final Segment segment = new Segment(generation, path, channel);
+            // This OutputStreamDataOutput is intentionally not closed because closing it will close the FileChannel
+            CodecUtil.writeHeader(new OutputStreamDataOutput(segment.out), CODEC, VERSION);
+            segment.out.flush();
+            segment.size = CodecUtil.headerLength(CODEC);
+            channel.force(true);
+            IOUtils.fsync(directory, true);
+            return segment;
+        } catch (Exception e) {
+            IOUtils.closeWhileHandlingException(channel);
+            throw e;
+        }
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        final List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_FILE_PREFIX + "*" + SEGMENT_FILE_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        segments.sort(Comparator.comparingLong(SharedTranslog::parseGeneration));
+        return segments;
+    }
+
+    private static long parseGeneration(Path segment) {
+        final String fileName = segment.getFileName().toString();
+        try {
+            return Long.parseLong(fileName.substring(SEGMENT_FILE_PREFIX.length(), fileName.length() - SEGMENT_FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("can't parse generation from shared translog segment [" + segment + "]", e);
+        }
+    }
+
+    private static void recover(Path dataPath, List<Path> segments, Logger logger) throws IOException {
+        // the operations of every translog, keyed by the path and UUID of the translog
+        final Map<Tuple<String, String>, List<Operation>> operations = new LinkedHashMap<>();
+        final List<FileChannel> channels = new ArrayList<>();
+        try {
+            for (Path segment : segments) {
+                final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ);
+                channels.add(channel);
+                readSegment(segment, channel, operations, logger);
+            }
+            for (Map.Entry<Tuple<String, String>, List<Operation>> entry : operations.entrySet()) {
+                copyMissingOperations(dataPath.resolve(entry.getKey().v1()), entry.getKey().v2(), entry.getValue(), logger);
+            }
+        } finally {
+            IOUtils.close(channels);
+        }
+    }
+
+    private static void readSegment(Path path, FileChannel channel, Map<Tuple<String, String>, List<Operation>> operations,
+                                    Logger logger) throws IOException {
+        final long length = channel.size();
+        // This stream is intentionally not closed because closing it will close the FileChannel
+        final StreamInput in =
+            new InputStreamStreamInput(new BufferedInputStream(java.nio.channels.Channels.newInputStream(channel), BUFFER_SIZE));
+        try {
+            CodecUtil.checkHeader(new InputStreamDataInput(in), CODEC, VERSION, VERSION);
+        } catch (EOFException e) {
+            // the node stopped while the segment was created, before any operation could be added to it
+            logger.debug("ignoring incomplete shared translog segment [{}]", path);
+            return;
+        } catch (CorruptIndexException e) {
+            throw new TranslogCorruptedException("shared translog segment header corrupted. path:" + path, e);
+        }
+        final Map<Integer, Tuple<String, String>> translogs = new HashMap<>();
+        final CRC32 checksum = new CRC32();
+        long position = CodecUtil.headerLength(CODEC);
+        while (position + 2 * Integer.BYTES <= length) {
+            final int size = in.readInt();
+            if (size <= 0 || position + 2 * Integer.BYTES + size > length) {
+                break;
+            }
+            final byte[] body = new byte[size];
+            in.readBytes(body, 0, size);
+            final int expectedChecksum = in.readInt();
+            checksum.reset();
+            checksum.update(body, 0, size);
+            if ((int) checksum.getValue() != expectedChecksum) {
+                break;
+            }
+            final StreamInput record = StreamInput.wrap(body);
+            final byte type = record.readByte();
+            final int id = record.readVInt();
+            if (type == REGISTER) {
+                translogs.put(id, new Tuple<>(record.readString(), record.readString()));
+            } else if (type == OPERATION) {
+                final Tuple<String, String> translog = translogs.get(id);
+                if (translog == null) {
+                    throw new TranslogCorruptedException("operation of unknown translog [" + id + "] in shared translog [" + path + "]");
+                }
+                final long generation = record.readVLong();
+                final long offset = record.readVLong();
+                final int dataLength = record.available();
+                final long dataPosition = position + Integer.BYTES + size - dataLength;
+                operations.computeIfAbsent(translog, k -> new ArrayList<>())
+                    .add(new Operation(generation, offset, channel, dataPosition, dataLength));
+            } else {
+                throw new TranslogCorruptedException("unknown record type [" + type + "] in shared translog [" + path + "]");
+            }
+            position += 2 * Integer.BYTES + size;
+        }
+        if (position < length) {
+            // the records after the last fsync might be incomplete, they were not acknowledged
+            logger.debug("ignoring the last [{}] bytes of shared translog segment [{}]", length - position, path);
+        }
+    }
+
+    private static void copyMissingOperations(Path translogPath, String translogUUID, List<Operation> operations,
+                                              Logger logger) throws IOException {
+        final Path checkpointFile = translogPath.resolve(Translog.CHECKPOINT_FILE_NAME);
+        if (Files.exists(checkpointFile) == false) {
+            logger.debug("translog [{}] doesn't exist anymore, ignoring its operations in the shared translog", translogPath);
+            return;
+        }
+        final Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+        // the translog fsynced its file when it moved to its current generation, so only operations that were added to the
+        // current generation after the last fsync might be missing
+        final List<Operation> missing = operations.stream()
+            .filter(op -> op.generation == checkpoint.generation && op.offset >= checkpoint.offset)
+            .sorted(Comparator.comparingLong(op -> op.offset))
+            .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        final Path file = translogPath.resolve(Translog.getFilename(checkpoint.generation));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the translog might have been recreated since, in which case its operations don't belong to this file
+            TranslogReader.open(channel, file, checkpoint, translogUUID);
+        } catch (TranslogCorruptedException e) {
+            logger.debug((Supplier<?>) () -> new ParameterizedMessage(
+                "ignoring the operations of translog [{}] in the shared translog", translogPath), e);
+            return;
+        }
+        long offset = checkpoint.offset;
+        int numOps = checkpoint.numOps;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // whatever was written after the last fsync might be incomplete
+            channel.truncate(offset);
+            channel.position(offset);
+            for (Operation operation : missing) {
+                if (operation.offset != offset) {
+                    // the operations that follow a gap were not fsynced to the shared translog either
+                    break;
+                }
+                Channels.writeToChannel(Channels.readFromFileChannel(operation.channel, operation.position, operation.length), channel);
+                offset += operation.length;
+                numOps++;
+            }
+            channel.force(false);
+        }
+        Checkpoint.write(FileChannel::open, checkpointFile, new Checkpoint(offset, numOps, checkpoint.generation,
+            checkpoint.globalCheckpoint), StandardOpenOption.WRITE);
+        logger.info("recovered [{}] operations of translog [{}] from the shared translog", numOps - checkpoint.numOps, translogPath);
+    }
+
+    /**
+     * The view of a single translog on the shared translog.
+     */
+    final class ShardLog implements Closeable {
+        private final String translogPath;
+        private final String translogUUID;
+        private volatile Runnable syncer;
+        // the position of the shared translog after the last operation of this translog
+        private volatile long lastPosition;
+        // the generation and offset up to which the translog fsynced its own files, guarded by SharedTranslog.this
+        private long syncedGeneration = -1;
+        private long syncedOffset = -1;
+
+        private ShardLog(String translogPath, String translogUUID, Runnable syncer) {
+            this.translogPath = translogPath;
+            this.translogUUID = translogUUID;
+            this.syncer = syncer;
+        }
+
+        /**
+         * Appends an operation that the translog wrote at the given generation and offset of its own files. Callers must hold the
+         * lock of the translog writer so that operations are appended in the order of their offsets.
+         */
+        void append(long generation, long offset, BytesReference data) throws IOException {
+            lastPosition = SharedTranslog.this.append(this, generation, offset, data);
+        }
+
+        /**
+         * Ensures that all operations appended so far are fsynced to the shared translog.
+         *
+         * @return <code>true</code> if this call caused an actual sync operation
+         */
+        boolean sync() throws IOException {
+            try {
+                return SharedTranslog.this.sync(lastPosition);
+            } catch (AlreadyClosedException e) {
+                // unlike the translog, the shared translog is only closed after all its translogs or on a tragic event
+                throw new IOException("failed to sync shared translog [" + directory + "]", e);
+            }
+        }
+
+        /**
+         * Notifies that the translog fsynced its own files up to the given generation and offset.
+         */
+        void markSynced(long generation, long offset) {
+            SharedTranslog.this.markSynced(this, generation, offset);
+        }
+
+        private boolean isSynced(Entry entry) {
+            assert Thread.holdsLock(SharedTranslog.this);
+            return syncedGeneration > entry.generation || (syncedGeneration == entry.generation && syncedOffset >= entry.endOffset);
+        }
+
+        private void scheduleSync() {
+            final Runnable syncer = this.syncer;
+            if (syncer != null) {
+                try {
+                    executor.execute(syncer);
+                } catch (EsRejectedExecutionException e) {
+                    logger.debug("failed to schedule a sync of translog [{}], the node is shutting down", translogPath);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            // segments that hold operations that were not fsynced are retained until the node restarts
+            syncer = null;
+        }
+    }
+
+    private static final class Segment {
+        final long generation;
+        final Path path;
+        final FileChannel channel;
+        final OutputStreamStreamOutput out;
+        final BufferedChecksumStreamOutput checksumOut;
+        // the translogs that added operations to this segment
+        final Map<ShardLog, Entry> entries = new HashMap<>();
+        long size;
+
+        Segment(long generation, Path path, FileChannel channel) {
+            this.generation = generation;
+            this.path = path;
+            this.channel = channel;
+            this.out = new OutputStreamStreamOutput(
+                new BufferedOutputStream(java.nio.channels.Channels.newOutputStream(channel), BUFFER_SIZE));
+            this.checksumOut = new BufferedChecksumStreamOutput(out);
+        }
+    }
+
+    private static final class Entry {
+        final int id;
+        // the generation and end offset of the last operation of the translog in the segment
+        long generation;
+        long endOffset;
+
+        Entry(int id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Operation {
+        final long generation;
+        final long offset;
+        final FileChannel channel;
+        final long position;
+        final int length;
+
+        Operation(long generation, long offset, FileChannel channel, long position, int length) {
+            this.generation = generation;
+            this.offset = offset;
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+        }
+    }
+}
@@ -127,6 +127,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final TranslogConfig config;
     private final LongSupplier globalCheckpointSupplier;
     private final String translogUUID;
+    // the view of this translog on the shared translog, if any
+    private final SharedTranslog.ShardLog sharedLog;
 
     /**
      * Creates a new Translog instance. This method will create a new transaction log unless the given {@link TranslogGeneration} is
@@ -157,6 +159,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         writeLock = new ReleasableLock(rwl.writeLock());
         this.location = config.getTranslogPath();
         Files.createDirectories(this.location);
+        final SharedTranslog sharedTranslog = config.getSharedTranslog();
+        this.sharedLog = sharedTranslog == null ? null : sharedTranslog.register(location, translogUUID, this::syncFiles);
 
         try {
             if (translogGeneration != null) {
@@ -211,6 +215,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             // close the opened translog files if we fail to create a new translog...
             IOUtils.closeWhileHandlingException(current);
             IOUtils.closeWhileHandlingException(readers);
+            IOUtils.closeWhileHandlingException(sharedLog);
             throw e;
         }
     }
@@ -308,7 +313,11 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 try {
                     current.sync();
                 } finally {
-                    closeFilesIfNoPendingViews();
+                    try {
+                        closeFilesIfNoPendingViews();
+                    } finally {
+                        IOUtils.close(sharedLog);
+                    }
                 }
             } finally {
                 logger.debug("translog closed");
@@ -392,7 +401,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 location.resolve(getFilename(fileGeneration)),
                 getChannelFactory(),
                 config.getBufferSize(),
-                globalCheckpointSupplier);
+                globalCheckpointSupplier,
+                sharedLog);
         } catch (final IOException e) {
             throw new TranslogException(shardId, "failed to create new translog file", e);
         }
@@ -518,6 +528,19 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Syncs the translog files so that a shared translog can delete the segments that hold the operations of this translog.
+     */
+    private void syncFiles() {
+        try {
+            sync();
+        } catch (AlreadyClosedException ex) {
+            // fine - the translog was synced when it was closed
+        } catch (Exception ex) {
+            logger.warn("failed to sync translog", ex);
+        }
+    }
+
     public boolean syncNeeded() {
         try (ReleasableLock lock = readLock.acquire()) {
             return current.syncNeeded();
@@ -535,7 +558,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
 
     /**
-     * Ensures that the given location has be synced / written to the underlying storage.
+     * Ensures that the given location has be synced / written to the underlying storage. If this translog uses a shared translog,
+     * the location is synced by syncing the shared translog while the translog file itself is synced lazily.
      *
      * @return Returns <code>true</code> iff this call caused an actual sync operation otherwise <code>false</code>
      */
@@ -543,6 +567,9 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         try (ReleasableLock lock = readLock.acquire()) {
             if (location.generation == current.getGeneration()) { // if we have a new one it's already synced
                 ensureOpen();
+                if (sharedLog != null) {
+                    return sharedLog.sync();
+                }
                 return current.syncUpTo(location.translogLocation + location.size);
             }
         } catch (Exception ex) {
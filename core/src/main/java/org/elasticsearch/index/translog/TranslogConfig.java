@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
@@ -40,6 +41,8 @@ public final class TranslogConfig {
     private final ShardId shardId;
     private final Path translogPath;
     private final ByteSizeValue bufferSize;
+    @Nullable
+    private final SharedTranslog sharedTranslog;
 
     /**
      * Creates a new TranslogConfig instance
@@ -49,11 +52,30 @@ public final class TranslogConfig {
      * @param bigArrays a bigArrays instance used for temporarily allocating write operations
      */
     public TranslogConfig(ShardId shardId, Path translogPath, IndexSettings indexSettings, BigArrays bigArrays) {
-        this(shardId, translogPath, indexSettings, bigArrays, DEFAULT_BUFFER_SIZE);
+        this(shardId, translogPath, indexSettings, bigArrays, null);
+    }
+
+    /**
+     * Creates a new TranslogConfig instance
+     * @param shardId the shard ID this translog belongs to
+     * @param translogPath the path to use for the transaction log files
+     * @param indexSettings the index settings used to set internal variables
+     * @param bigArrays a bigArrays instance used for temporarily allocating write operations
+     * @param sharedTranslog the shared translog of the data path of the translog, or <code>null</code> if it is not shared
+     */
+    public TranslogConfig(ShardId shardId, Path translogPath, IndexSettings indexSettings, BigArrays bigArrays,
+                          @Nullable SharedTranslog sharedTranslog) {
+        this(shardId, translogPath, indexSettings, bigArrays, DEFAULT_BUFFER_SIZE, sharedTranslog);
     }
 
     TranslogConfig(ShardId shardId, Path translogPath, IndexSettings indexSettings, BigArrays bigArrays, ByteSizeValue bufferSize) {
+        this(shardId, translogPath, indexSettings, bigArrays, bufferSize, null);
+    }
+
+    TranslogConfig(ShardId shardId, Path translogPath, IndexSettings indexSettings, BigArrays bigArrays, ByteSizeValue bufferSize,
+                   @Nullable SharedTranslog sharedTranslog) {
         this.bufferSize = bufferSize;
+        this.sharedTranslog = sharedTranslog;
         this.indexSettings = indexSettings;
         this.shardId = shardId;
         this.translogPath = translogPath;
@@ -94,4 +116,13 @@ public final class TranslogConfig {
     public ByteSizeValue getBufferSize() {
         return bufferSize;
     }
+
+    /**
+     * Returns the shared translog that operations are copied to and made durable with, or <code>null</code> if the translog is not
+     * shared
+     */
+    @Nullable
+    public SharedTranslog getSharedTranslog() {
+        return sharedTranslog;
+    }
 }
@@ -24,6 +24,7 @@ import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.OutputStreamDataOutput;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Channels;
 import org.elasticsearch.common.unit.ByteSizeValue;
@@ -61,6 +62,9 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     private volatile long totalOffset;
 
     private final LongSupplier globalCheckpointSupplier;
+    // the shared translog that operations are copied to, if any
+    @Nullable
+    private final SharedTranslog.ShardLog sharedLog;
 
     protected final AtomicBoolean closed = new AtomicBoolean(false);
     // lock order synchronized(syncLock) -> synchronized(this)
@@ -73,7 +77,8 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         final FileChannel channel,
         final Path path,
         final ByteSizeValue bufferSize,
-        final LongSupplier globalCheckpointSupplier) throws IOException {
+        final LongSupplier globalCheckpointSupplier,
+        @Nullable final SharedTranslog.ShardLog sharedLog) throws IOException {
         super(initialCheckpoint.generation, channel, path, channel.position());
         this.shardId = shardId;
         this.channelFactory = channelFactory;
@@ -81,6 +86,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         this.lastSyncedCheckpoint = initialCheckpoint;
         this.totalOffset = initialCheckpoint.offset;
         this.globalCheckpointSupplier = globalCheckpointSupplier;
+        this.sharedLog = sharedLog;
     }
 
     static int getHeaderLength(String translogUUID) {
@@ -104,7 +110,8 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         Path file,
         ChannelFactory channelFactory,
         ByteSizeValue bufferSize,
-        final LongSupplier globalCheckpointSupplier) throws IOException {
+        final LongSupplier globalCheckpointSupplier,
+        @Nullable final SharedTranslog.ShardLog sharedLog) throws IOException {
         final BytesRef ref = new BytesRef(translogUUID);
         final int headerLength = getHeaderLength(ref.length);
         final FileChannel channel = channelFactory.open(file);
@@ -117,7 +124,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
             final Checkpoint checkpoint =
                 writeCheckpoint(channelFactory, headerLength, 0, globalCheckpointSupplier.getAsLong(), file.getParent(), fileGeneration);
             final TranslogWriter writer =
-                new TranslogWriter(channelFactory, shardId, checkpoint, channel, file, bufferSize, globalCheckpointSupplier);
+                new TranslogWriter(channelFactory, shardId, checkpoint, channel, file, bufferSize, globalCheckpointSupplier, sharedLog);
             return writer;
         } catch (Exception exception) {
             // if we fail to bake the file-generation into the checkpoint we stick with the file and once we recover and that
@@ -156,6 +163,9 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         final long offset = totalOffset;
         try {
             data.writeTo(outputStream);
+            if (sharedLog != null) {
+                sharedLog.append(generation, offset, data);
+            }
         } catch (Exception ex) {
             try {
                 closeWithTragicEvent(ex);
@@ -307,6 +317,9 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                     assert lastSyncedCheckpoint.offset <= offsetToSync :
                         "illegal state: " + lastSyncedCheckpoint.offset + " <= " + offsetToSync;
                     lastSyncedCheckpoint = checkpoint; // write protected by syncLock
+                    if (sharedLog != null) {
+                        sharedLog.markSynced(checkpoint.generation, checkpoint.offset);
+                    }
                     return true;
                 }
             }
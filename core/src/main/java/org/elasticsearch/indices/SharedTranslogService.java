@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.index.translog.SharedTranslog;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the {@link SharedTranslog} of every data path of the node when translogs are shared, see
+ * {@link #SHARED_TRANSLOG_ENABLED_SETTING}.
+ */
+public class SharedTranslogService extends AbstractComponent implements Closeable {
+
+    /**
+     * Whether the translogs of the shards of a data path copy their operations to a shared translog and make them durable by
+     * fsyncing the shared translog, which makes a single fsync cover the operations of many shards.
+     */
+    public static final Setting<Boolean> SHARED_TRANSLOG_ENABLED_SETTING =
+        Setting.boolSetting("indices.translog.shared.enabled", false, Property.NodeScope);
+    /**
+     * The size after which a shared translog starts a new segment, and asks translogs to fsync their own files so that the full
+     * segment can be deleted.
+     */
+    public static final Setting<ByteSizeValue> SHARED_TRANSLOG_SEGMENT_SIZE_SETTING =
+        Setting.byteSizeSetting("indices.translog.shared.segment_size", new ByteSizeValue(64, ByteSizeUnit.MB),
+            new ByteSizeValue(1, ByteSizeUnit.MB), new ByteSizeValue(1, ByteSizeUnit.GB), Property.NodeScope);
+
+    static final String SHARED_TRANSLOG_FOLDER_NAME = "_shared_translog";
+
+    // the shared translogs keyed by the path of their data path
+    private final Map<Path, SharedTranslog> sharedTranslogs;
+
+    public SharedTranslogService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool) throws IOException {
+        super(settings);
+        if (nodeEnv.hasNodeFile() == false) {
+            sharedTranslogs = Collections.emptyMap();
+            return;
+        }
+        final boolean enabled = SHARED_TRANSLOG_ENABLED_SETTING.get(settings);
+        final ByteSizeValue segmentSize = SHARED_TRANSLOG_SEGMENT_SIZE_SETTING.get(settings);
+        final Map<Path, SharedTranslog> sharedTranslogs = new HashMap<>();
+        boolean success = false;
+        try {
+            for (NodeEnvironment.NodePath nodePath : nodeEnv.nodePaths()) {
+                final Path directory = nodePath.path.resolve(SHARED_TRANSLOG_FOLDER_NAME);
+                if (enabled) {
+                    sharedTranslogs.put(nodePath.path, new SharedTranslog(nodePath.path, directory, segmentSize, threadPool.generic()));
+                } else if (Files.exists(directory)) {
+                    // the node used a shared translog before, operations might only be in the shared translog
+                    logger.info("recovering operations from shared translog [{}]", directory);
+                    SharedTranslog.recoverAndDelete(nodePath.path, directory);
+                }
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(sharedTranslogs.values());
+            }
+        }
+        this.sharedTranslogs = Collections.unmodifiableMap(sharedTranslogs);
+    }
+
+    /**
+     * Returns the shared translog of the data path that holds the given translog directory, or <code>null</code> if translogs are
+     * not shared or if the directory is not within a data path of the node, for instance with custom data paths.
+     */
+    @Nullable
+    public SharedTranslog getSharedTranslog(Path translogPath) {
+        for (Map.Entry<Path, SharedTranslog> entry : sharedTranslogs.entrySet()) {
+            if (translogPath.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(new ArrayList<>(sharedTranslogs.values()));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Writes the chunks of a file in the order of their positions. The recovery source may have several chunks of the same file
+ * in flight, so they may be received out of order: chunks that are received before the chunks that precede them are buffered
+ * until they can be written. Chunks are never written concurrently.
+ */
+final class FileChunkWriter {
+
+    @FunctionalInterface
+    interface ChunkConsumer {
+        void accept(long position, BytesReference content, boolean lastChunk) throws IOException;
+    }
+
+    private final ChunkConsumer consumer;
+    private final PriorityQueue<FileChunk> pendingChunks = new PriorityQueue<>(Comparator.comparingLong(chunk -> chunk.position));
+    // the position of the next chunk to write
+    private long nextPosition = 0;
+
+    FileChunkWriter(ChunkConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Writes the given chunk followed by the buffered chunks that directly follow it, or buffers it if the chunks that
+     * precede it have not been written yet.
+     *
+     * @return <code>true</code> if the last chunk of the file has been written
+     */
+    boolean writeChunk(long position, BytesReference content, boolean lastChunk) throws IOException {
+        synchronized (this) {
+            assert position >= nextPosition : "chunk at [" + position + "] has already been written, next is [" + nextPosition + "]";
+            if (position != nextPosition) {
+                // the content might be backed by a network buffer that is released once the request has been handled
+                pendingChunks.add(new FileChunk(position, new BytesArray(content.toBytesRef(), true), lastChunk));
+                return false;
+            }
+        }
+        FileChunk chunk = new FileChunk(position, content, lastChunk);
+        while (true) {
+            consumer.accept(chunk.position, chunk.content, chunk.lastChunk);
+            if (chunk.lastChunk) {
+                return true;
+            }
+            synchronized (this) {
+                nextPosition = chunk.position + chunk.content.length();
+                chunk = pendingChunks.peek();
+                if (chunk == null || chunk.position != nextPosition) {
+                    return false;
+                }
+                pendingChunks.poll();
+            }
+        }
+    }
+
+    private static final class FileChunk {
+        final long position;
+        final BytesReference content;
+        final boolean lastChunk;
+
+        FileChunk(long position, BytesReference content, boolean lastChunk) {
+            this.position = position;
+            this.content = content;
+            this.lastChunk = lastChunk;
+        }
+    }
+}
@@ -32,12 +32,13 @@ import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
-import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.lease.Releasable;
-import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.CancellableThreads;
 import org.elasticsearch.index.engine.RecoveryEngineException;
@@ -50,12 +51,13 @@ import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.transport.RemoteTransportException;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
 
@@ -82,6 +84,7 @@ public class RecoverySourceHandler {
     private final Supplier<Long> currentClusterStateVersionSupplier;
     private final Function<String, Releasable> delayNewRecoveries;
     private final int chunkSizeInBytes;
+    private final int maxConcurrentFileChunks;
     private final RecoveryTargetHandler recoveryTarget;
 
     protected final RecoveryResponse response;
@@ -107,6 +110,7 @@ public class RecoverySourceHandler {
                                  final Supplier<Long> currentClusterStateVersionSupplier,
                                  Function<String, Releasable> delayNewRecoveries,
                                  final int fileChunkSizeInBytes,
+                                 final int maxConcurrentFileChunks,
                                  final Logger logger) {
         this.shard = shard;
         this.recoveryTarget = recoveryTarget;
@@ -117,6 +121,12 @@ public class RecoverySourceHandler {
         this.indexName = this.request.shardId().getIndex().getName();
         this.shardId = this.request.shardId().id();
         this.chunkSizeInBytes = fileChunkSizeInBytes;
+        if (request.targetNode().getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+        } else {
+            // older nodes expect the chunks of a file to be received in order
+            this.maxConcurrentFileChunks = 1;
+        }
         this.response = new RecoveryResponse();
     }
 
@@ -270,10 +280,7 @@ public class RecoverySourceHandler {
                 cancellableThreads.execute(() ->
                         recoveryTarget.receiveFileInfo(response.phase1FileNames, response.phase1FileSizes, response.phase1ExistingFileNames,
                                 response.phase1ExistingFileSizes, translogView.totalOperations()));
-                // How many bytes we've copied since we last called RateLimiter.pause
-                final Function<StoreFileMetaData, OutputStream> outputStreamFactories =
-                        md -> new BufferedOutputStream(new RecoveryOutputStream(md, translogView), chunkSizeInBytes);
-                sendFiles(store, phase1Files.toArray(new StoreFileMetaData[phase1Files.size()]), outputStreamFactories);
+                sendFiles(store, phase1Files.toArray(new StoreFileMetaData[phase1Files.size()]), translogView::totalOperations);
                 // Send the CLEAN_FILES request, which takes all of the files that
                 // were transferred and renames them from their temporary file
                 // names to the actual file names. It also writes checksums for
@@ -512,79 +519,78 @@ public class RecoverySourceHandler {
     }
 
 
-    final class RecoveryOutputStream extends OutputStream {
-        private final StoreFileMetaData md;
-        private final Translog.View translogView;
-        private long position = 0;
-
-        RecoveryOutputStream(StoreFileMetaData md, Translog.View translogView) {
-            this.md = md;
-            this.translogView = translogView;
-        }
-
-        @Override
-        public void write(int b) throws IOException {
-            throw new UnsupportedOperationException("we can't send single bytes over the wire");
-        }
-
-        @Override
-        public void write(byte[] b, int offset, int length) throws IOException {
-            sendNextChunk(position, new BytesArray(b, offset, length), md.length() == position + length);
-            position += length;
-            assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
-        }
-
-        private void sendNextChunk(long position, BytesArray content, boolean lastChunk) throws IOException {
-            // Actually send the file chunk to the target node, waiting for it to complete
-            cancellableThreads.executeIO(() ->
-                    recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations())
-            );
-            if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
-                throw new IndexShardClosedException(request.shardId());
-            }
-        }
-    }
-
-    void sendFiles(Store store, StoreFileMetaData[] files, Function<StoreFileMetaData, OutputStream> outputStreamFactory) throws Exception {
+    void sendFiles(Store store, StoreFileMetaData[] files, IntSupplier totalTranslogOps) throws Exception {
         store.incRef();
         try {
             ArrayUtil.timSort(files, (a, b) -> Long.compare(a.length(), b.length())); // send smallest first
-            for (int i = 0; i < files.length; i++) {
+            // we don't wait for a chunk to be acknowledged before sending the next one, up to maxConcurrentFileChunks chunks
+            // are in flight at any time. Since the chunks of a file are sent as soon as the previous file has been read, this
+            // also means that several small files are transferred concurrently.
+            final Semaphore inFlightChunks = new Semaphore(maxConcurrentFileChunks);
+            // the first file that failed to be sent, and why
+            final AtomicReference<Tuple<StoreFileMetaData, Exception>> error = new AtomicReference<>();
+            for (int i = 0; i < files.length && error.get() == null; i++) {
                 final StoreFileMetaData md = files[i];
                 try (final IndexInput indexInput = store.directory().openInput(md.name(), IOContext.READONCE)) {
-                    // it's fine that we are only having the indexInput in the try/with block. The copy methods handles
-                    // exceptions during close correctly and doesn't hide the original exception.
-                    Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
-                } catch (Exception e) {
-                    final IOException corruptIndexException;
-                    if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(e)) != null) {
-                        if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
-                            logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
-                            failEngine(corruptIndexException);
-                            throw corruptIndexException;
-                        } else { // corruption has happened on the way to replica
-                            RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
-                                    "checksums are ok", null);
-                            exception.addSuppressed(e);
-                            logger.warn(
-                                (org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
-                                    "{} Remote file corruption on node {}, recovering {}. local checksum OK",
-                                    shardId,
-                                    request.targetNode(),
-                                    md),
-                                corruptIndexException);
-                            throw exception;
+                    long position = 0;
+                    while (position < md.length() && error.get() == null) {
+                        // every chunk gets its own buffer as it is only released once the chunk has been acknowledged
+                        final byte[] buffer = new byte[Math.toIntExact(Math.min(chunkSizeInBytes, md.length() - position))];
+                        indexInput.readBytes(buffer, 0, buffer.length);
+                        final long chunkPosition = position;
+                        final boolean lastChunk = position + buffer.length == md.length();
+                        cancellableThreads.execute(inFlightChunks::acquire);
+                        final ActionListener<Void> listener = ActionListener.wrap(r -> inFlightChunks.release(), e -> {
+                            error.compareAndSet(null, Tuple.tuple(md, e));
+                            inFlightChunks.release();
+                        });
+                        cancellableThreads.execute(() -> recoveryTarget.writeFileChunk(md, chunkPosition, new BytesArray(buffer),
+                            lastChunk, totalTranslogOps.getAsInt(), listener));
+                        position += buffer.length;
+                        if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
+                            throw new IndexShardClosedException(request.shardId());
                         }
-                    } else {
-                        throw e;
                     }
+                } catch (Exception e) {
+                    error.compareAndSet(null, Tuple.tuple(md, e));
                 }
             }
+            // wait for the chunks that are still in flight
+            cancellableThreads.execute(() -> inFlightChunks.acquire(maxConcurrentFileChunks));
+            final Tuple<StoreFileMetaData, Exception> failure = error.get();
+            if (failure != null) {
+                handleErrorOnSendFiles(store, failure.v1(), failure.v2());
+            }
         } finally {
             store.decRef();
         }
     }
 
+    private void handleErrorOnSendFiles(Store store, StoreFileMetaData md, Exception e) throws Exception {
+        final IOException corruptIndexException;
+        if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(e)) != null) {
+            if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
+                logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
+                failEngine(corruptIndexException);
+                throw corruptIndexException;
+            } else { // corruption has happened on the way to replica
+                RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
+                        "checksums are ok", null);
+                exception.addSuppressed(e);
+                logger.warn(
+                    (org.apache.logging.log4j.util.Supplier<?>) () -> new ParameterizedMessage(
+                        "{} Remote file corruption on node {}, recovering {}. local checksum OK",
+                        shardId,
+                        request.targetNode(),
+                        md),
+                    corruptIndexException);
+                throw exception;
+            }
+        } else {
+            throw e;
+        }
+    }
+
     protected void failEngine(IOException cause) {
         shard.failShard("recovery", cause);
     }
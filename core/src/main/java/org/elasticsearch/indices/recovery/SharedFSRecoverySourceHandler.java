@@ -40,7 +40,7 @@ public class SharedFSRecoverySourceHandler extends RecoverySourceHandler {
     public SharedFSRecoverySourceHandler(IndexShard shard, RecoveryTargetHandler recoveryTarget, StartRecoveryRequest request,
                                          Supplier<Long> currentClusterStateVersionSupplier,
                                          Function<String, Releasable> delayNewRecoveries, Logger logger) {
-        super(shard, recoveryTarget, request, currentClusterStateVersionSupplier, delayNewRecoveries, -1, logger);
+        super(shard, recoveryTarget, request, currentClusterStateVersionSupplier, delayNewRecoveries, -1, 1, logger);
         this.shard = shard;
         this.request = request;
     }
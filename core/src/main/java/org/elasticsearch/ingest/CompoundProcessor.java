@@ -88,6 +88,15 @@ public class CompoundProcessor implements Processor {
         return "compound";
     }
 
+    @Override
+    public List<IngestStats.PatternStats> getPatternStats() {
+        List<IngestStats.PatternStats> patternStats = new ArrayList<>();
+        for (Processor processor : flattenProcessors()) {
+            patternStats.addAll(processor.getPatternStats());
+        }
+        return patternStats;
+    }
+
     @Override
     public String getTag() {
         return "CompoundProcessor-" + flattenProcessors().stream().map(Processor::getTag).collect(Collectors.joining("-"));
@@ -0,0 +1,77 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.mapper.SourceFieldMapper;
+
+/**
+ * A path to a field of an {@link IngestDocument} in dot-notation, parsed once so that it can be used to access any
+ * number of documents. Processors whose field names are not templated should create their field paths when they
+ * are created rather than passing the path as a string for every document.
+ */
+public final class FieldPath {
+
+    private static final String INGEST_KEY_PREFIX = IngestDocument.INGEST_KEY + ".";
+    private static final String SOURCE_PREFIX = SourceFieldMapper.NAME + ".";
+
+    private final String path;
+    private final boolean ingestMetadata;
+    final String[] pathElements;
+
+    /**
+     * @param path The path within the document in dot-notation
+     * @throws IllegalArgumentException if the path is null, empty or invalid.
+     */
+    public FieldPath(String path) {
+        if (Strings.isEmpty(path)) {
+            throw new IllegalArgumentException("path cannot be null nor empty");
+        }
+        String newPath;
+        if (path.startsWith(INGEST_KEY_PREFIX)) {
+            ingestMetadata = true;
+            newPath = path.substring(INGEST_KEY_PREFIX.length(), path.length());
+        } else {
+            ingestMetadata = false;
+            if (path.startsWith(SOURCE_PREFIX)) {
+                newPath = path.substring(SOURCE_PREFIX.length(), path.length());
+            } else {
+                newPath = path;
+            }
+        }
+        this.path = path;
+        this.pathElements = newPath.split("\\.");
+        if (pathElements.length == 1 && pathElements[0].isEmpty()) {
+            throw new IllegalArgumentException("path [" + path + "] is not valid");
+        }
+    }
+
+    /**
+     * Returns whether this path points to the ingest metadata rather than to the source or metadata of the document.
+     */
+    boolean isIngestMetadata() {
+        return ingestMetadata;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -19,7 +19,8 @@
 
 package org.elasticsearch.ingest;
 
-import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.mapper.IdFieldMapper;
 import org.elasticsearch.index.mapper.IndexFieldMapper;
 import org.elasticsearch.index.mapper.ParentFieldMapper;
@@ -27,6 +28,8 @@ import org.elasticsearch.index.mapper.RoutingFieldMapper;
 import org.elasticsearch.index.mapper.SourceFieldMapper;
 import org.elasticsearch.index.mapper.TypeFieldMapper;
 
+import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
@@ -35,6 +38,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Represents a single document being captured before indexing and holds the source and metadata (like id, type and index).
@@ -42,8 +46,6 @@ import java.util.Objects;
 public final class IngestDocument {
 
     public static final String INGEST_KEY = "_ingest";
-    private static final String INGEST_KEY_PREFIX = INGEST_KEY + ".";
-    private static final String SOURCE_PREFIX = SourceFieldMapper.NAME + ".";
 
     static final String TIMESTAMP = "timestamp";
 
@@ -51,8 +53,20 @@ public final class IngestDocument {
     private final Map<String, Object> ingestMetadata;
 
     public IngestDocument(String index, String type, String id, String routing, String parent, Map<String, Object> source) {
-        this.sourceAndMetadata = new HashMap<>();
-        this.sourceAndMetadata.putAll(source);
+        this(new HashMap<>(source), index, type, id, routing, parent);
+    }
+
+    /**
+     * Creates a document whose source is only parsed as far as its fields are accessed, see {@link LazySourceMap}. Its source
+     * should be written back using {@link #writeSource(XContentBuilder)}.
+     */
+    IngestDocument(String index, String type, String id, String routing, String parent, BytesReference source) {
+        this(LazySourceMap.parse(source), index, type, id, routing, parent);
+    }
+
+    private IngestDocument(Map<String, Object> sourceAndMetadata, String index, String type, String id, String routing,
+                           String parent) {
+        this.sourceAndMetadata = sourceAndMetadata;
         this.sourceAndMetadata.put(MetaData.INDEX.getFieldName(), index);
         this.sourceAndMetadata.put(MetaData.TYPE.getFieldName(), type);
         this.sourceAndMetadata.put(MetaData.ID.getFieldName(), id);
@@ -93,8 +107,20 @@ public final class IngestDocument {
      * or if the field that is found at the provided path is not of the expected type.
      */
     public <T> T getFieldValue(String path, Class<T> clazz) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        return getFieldValue(new FieldPath(path), clazz);
+    }
+
+    /**
+     * Returns the value contained in the document for the provided path
+     * @param fieldPath The path within the document
+     * @param clazz The expected class of the field value
+     * @return the value for the provided path if existing, null otherwise
+     * @throws IllegalArgumentException if the field doesn't exist or if the field that is found at the provided path is not of
+     * the expected type.
+     */
+    public <T> T getFieldValue(FieldPath fieldPath, Class<T> clazz) {
+        String path = fieldPath.toString();
+        Object context = initialContext(fieldPath);
         for (String pathElement : fieldPath.pathElements) {
             context = resolve(pathElement, path, context);
         }
@@ -112,10 +138,24 @@ public final class IngestDocument {
      * or if the field that is found at the provided path is not of the expected type.
      */
     public <T> T getFieldValue(String path, Class<T> clazz, boolean ignoreMissing) {
+        return getFieldValue(new FieldPath(path), clazz, ignoreMissing);
+    }
+
+    /**
+     * Returns the value contained in the document for the provided path
+     *
+     * @param fieldPath The path within the document
+     * @param clazz The expected class of the field value
+     * @param ignoreMissing The flag to determine whether to throw an exception when `path` is not found in the document.
+     * @return the value for the provided path if existing, null otherwise.
+     * @throws IllegalArgumentException only if ignoreMissing is false and the field doesn't exist or if the field that is found
+     * at the provided path is not of the expected type.
+     */
+    public <T> T getFieldValue(FieldPath fieldPath, Class<T> clazz, boolean ignoreMissing) {
         try {
-            return getFieldValue(path, clazz);
+            return getFieldValue(fieldPath, clazz);
         } catch (IllegalArgumentException e) {
-            if (ignoreMissing && hasField(path) != true) {
+            if (ignoreMissing && hasField(fieldPath) != true) {
                 return null;
             } else {
                 throw e;
@@ -159,7 +199,22 @@ public final class IngestDocument {
      * or if the field that is found at the provided path is not of the expected type.
      */
     public byte[] getFieldValueAsBytes(String path, boolean ignoreMissing) {
-        Object object = getFieldValue(path, Object.class, ignoreMissing);
+        return getFieldValueAsBytes(new FieldPath(path), ignoreMissing);
+    }
+
+    /**
+     * Returns the value contained in the document for the provided path as a byte array.
+     * If the path value is a string, a base64 decode operation will happen.
+     * If the path value is a byte array, it is just returned
+     * @param fieldPath The path within the document
+     * @param ignoreMissing The flag to determine whether to throw an exception when `path` is not found in the document.
+     * @return the byte array for the provided path if existing
+     * @throws IllegalArgumentException if the field doesn't exist or if the field that is found at the provided path is not of
+     * the expected type.
+     */
+    public byte[] getFieldValueAsBytes(FieldPath fieldPath, boolean ignoreMissing) {
+        String path = fieldPath.toString();
+        Object object = getFieldValue(fieldPath, Object.class, ignoreMissing);
         if (object == null) {
             return null;
         } else if (object instanceof byte[]) {
@@ -200,8 +255,27 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty or invalid.
      */
     public boolean hasField(String path, boolean failOutOfRange) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        return hasField(new FieldPath(path), failOutOfRange);
+    }
+
+    /**
+     * Checks whether the document contains a value for the provided path
+     * @param fieldPath The path within the document
+     * @return true if the document contains a value for the field, false otherwise
+     */
+    public boolean hasField(FieldPath fieldPath) {
+        return hasField(fieldPath, false);
+    }
+
+    /**
+     * Checks whether the document contains a value for the provided path
+     * @param fieldPath The path within the document
+     * @param failOutOfRange Whether to throw an IllegalArgumentException if array is accessed outside of its range
+     * @return true if the document contains a value for the field, false otherwise
+     */
+    public boolean hasField(FieldPath fieldPath, boolean failOutOfRange) {
+        String path = fieldPath.toString();
+        Object context = initialContext(fieldPath);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -277,8 +351,17 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty, invalid or if the field doesn't exist.
      */
     public void removeField(String path) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+        removeField(new FieldPath(path));
+    }
+
+    /**
+     * Removes the field identified by the provided path.
+     * @param fieldPath the path of the field to be removed
+     * @throws IllegalArgumentException if the field doesn't exist.
+     */
+    public void removeField(FieldPath fieldPath) {
+        String path = fieldPath.toString();
+        Object context = initialContext(fieldPath);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             context = resolve(fieldPath.pathElements[i], path, context);
         }
@@ -363,7 +446,20 @@ public final class IngestDocument {
      * @throws IllegalArgumentException if the path is null, empty or invalid.
      */
     public void appendFieldValue(String path, Object value) {
-        setFieldValue(path, value, true);
+        setFieldValue(new FieldPath(path), value, true);
+    }
+
+    /**
+     * Appends the provided value to the provided path in the document.
+     * Any non existing path element will be created.
+     * If the path identifies a list, the value will be appended to the existing list.
+     * If the path identifies a scalar, the scalar will be converted to a list and
+     * the provided value will be added to the newly created list.
+     * @param fieldPath The path within the document
+     * @param value The value or values to append to the existing ones
+     */
+    public void appendFieldValue(FieldPath fieldPath, Object value) {
+        setFieldValue(fieldPath, value, true);
     }
 
     /**
@@ -380,7 +476,7 @@ public final class IngestDocument {
      */
     public void appendFieldValue(TemplateService.Template fieldPathTemplate, ValueSource valueSource) {
         Map<String, Object> model = createTemplateModel();
-        appendFieldValue(fieldPathTemplate.execute(model), valueSource.copyAndResolve(model));
+        setFieldValue(new FieldPath(fieldPathTemplate.execute(model)), valueSource.copyAndResolve(model), true);
     }
 
     /**
@@ -394,7 +490,19 @@ public final class IngestDocument {
      * item identified by the provided path.
      */
     public void setFieldValue(String path, Object value) {
-        setFieldValue(path, value, false);
+        setFieldValue(new FieldPath(path), value, false);
+    }
+
+    /**
+     * Sets the provided value to the provided path in the document.
+     * Any non existing path element will be created.
+     * If the last item in the path is a list, the value will replace the existing list as a whole.
+     * @param fieldPath The path within the document
+     * @param value The value to put in for the path key
+     * @throws IllegalArgumentException if the value cannot be set to the item identified by the provided path.
+     */
+    public void setFieldValue(FieldPath fieldPath, Object value) {
+        setFieldValue(fieldPath, value, false);
     }
 
     /**
@@ -408,12 +516,12 @@ public final class IngestDocument {
      */
     public void setFieldValue(TemplateService.Template fieldPathTemplate, ValueSource valueSource) {
         Map<String, Object> model = createTemplateModel();
-        setFieldValue(fieldPathTemplate.execute(model), valueSource.copyAndResolve(model), false);
+        setFieldValue(new FieldPath(fieldPathTemplate.execute(model)), valueSource.copyAndResolve(model), false);
     }
 
-    private void setFieldValue(String path, Object value, boolean append) {
-        FieldPath fieldPath = new FieldPath(path);
-        Object context = fieldPath.initialContext;
+    private void setFieldValue(FieldPath fieldPath, Object value, boolean append) {
+        String path = fieldPath.toString();
+        Object context = initialContext(fieldPath);
         for (int i = 0; i < fieldPath.pathElements.length - 1; i++) {
             String pathElement = fieldPath.pathElements[i];
             if (context == null) {
@@ -541,12 +649,7 @@ public final class IngestDocument {
     }
 
     private Map<String, Object> createTemplateModel() {
-        Map<String, Object> model = new HashMap<>(sourceAndMetadata);
-        model.put(SourceFieldMapper.NAME, sourceAndMetadata);
-        // If there is a field in the source with the name '_ingest' it gets overwritten here,
-        // if access to that field is required then it get accessed via '_source._ingest'
-        model.put(INGEST_KEY, ingestMetadata);
-        return model;
+        return new TemplateModel(sourceAndMetadata, ingestMetadata);
     }
 
     /**
@@ -578,6 +681,18 @@ public final class IngestDocument {
         return this.sourceAndMetadata;
     }
 
+    /**
+     * Writes the source of this document as an object. Should only be called once the metadata fields have been removed
+     * from the document by {@link #extractMetadata()}.
+     */
+    void writeSource(XContentBuilder builder) throws IOException {
+        if (sourceAndMetadata instanceof LazySourceMap) {
+            ((LazySourceMap) sourceAndMetadata).toXContent(builder);
+        } else {
+            builder.map(sourceAndMetadata);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private static <K, V> Map<K, V> deepCopyMap(Map<K, V> source) {
         return (Map<K, V>) deepCopy(source);
@@ -655,32 +770,48 @@ public final class IngestDocument {
         }
     }
 
-    private class FieldPath {
+    private Object initialContext(FieldPath fieldPath) {
+        return fieldPath.isIngestMetadata() ? ingestMetadata : sourceAndMetadata;
+    }
+
+    /**
+     * The model that templates are rendered against: the source and metadata of the document, plus the source under
+     * <code>_source</code> and the ingest metadata under <code>_ingest</code>. Templates only look up the keys they use, so
+     * the model is a view rather than a copy of the document.
+     */
+    private static final class TemplateModel extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> sourceAndMetadata;
+        private final Map<String, Object> ingestMetadata;
 
-        private final String[] pathElements;
-        private final Object initialContext;
+        TemplateModel(Map<String, Object> sourceAndMetadata, Map<String, Object> ingestMetadata) {
+            this.sourceAndMetadata = sourceAndMetadata;
+            this.ingestMetadata = ingestMetadata;
+        }
 
-        private FieldPath(String path) {
-            if (Strings.isEmpty(path)) {
-                throw new IllegalArgumentException("path cannot be null nor empty");
-            }
-            String newPath;
-            if (path.startsWith(INGEST_KEY_PREFIX)) {
-                initialContext = ingestMetadata;
-                newPath = path.substring(INGEST_KEY_PREFIX.length(), path.length());
-            } else {
-                initialContext = sourceAndMetadata;
-                if (path.startsWith(SOURCE_PREFIX)) {
-                    newPath = path.substring(SOURCE_PREFIX.length(), path.length());
-                } else {
-                    newPath = path;
-                }
-            }
-            this.pathElements = newPath.split("\\.");
-            if (pathElements.length == 1 && pathElements[0].isEmpty()) {
-                throw new IllegalArgumentException("path [" + path + "] is not valid");
+        @Override
+        public Object get(Object key) {
+            // If there is a field in the source with the name '_ingest' it gets shadowed here,
+            // if access to that field is required then it get accessed via '_source._ingest'
+            if (INGEST_KEY.equals(key)) {
+                return ingestMetadata;
+            } else if (SourceFieldMapper.NAME.equals(key)) {
+                return sourceAndMetadata;
             }
+            return sourceAndMetadata.get(key);
         }
 
+        @Override
+        public boolean containsKey(Object key) {
+            return INGEST_KEY.equals(key) || SourceFieldMapper.NAME.equals(key) || sourceAndMetadata.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Map<String, Object> model = new HashMap<>(sourceAndMetadata);
+            model.put(SourceFieldMapper.NAME, sourceAndMetadata);
+            model.put(INGEST_KEY, ingestMetadata);
+            return model.entrySet();
+        }
     }
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.ingest;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -26,17 +27,25 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class IngestStats implements Writeable, ToXContent {
     private final Stats totalStats;
     private final Map<String, Stats> statsPerPipeline;
+    private final Map<String, List<PatternStats>> patternStatsPerPipeline;
 
     public IngestStats(Stats totalStats, Map<String, Stats> statsPerPipeline) {
+        this(totalStats, statsPerPipeline, Collections.emptyMap());
+    }
+
+    public IngestStats(Stats totalStats, Map<String, Stats> statsPerPipeline, Map<String, List<PatternStats>> patternStatsPerPipeline) {
         this.totalStats = totalStats;
         this.statsPerPipeline = statsPerPipeline;
+        this.patternStatsPerPipeline = patternStatsPerPipeline;
     }
 
     /**
@@ -49,6 +58,11 @@ public class IngestStats implements Writeable, ToXContent {
         for (int i = 0; i < size; i++) {
             statsPerPipeline.put(in.readString(), new Stats(in));
         }
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            this.patternStatsPerPipeline = in.readMapOfLists(StreamInput::readString, PatternStats::new);
+        } else {
+            this.patternStatsPerPipeline = Collections.emptyMap();
+        }
     }
 
     @Override
@@ -59,6 +73,9 @@ public class IngestStats implements Writeable, ToXContent {
             out.writeString(entry.getKey());
             entry.getValue().writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeMapOfLists(patternStatsPerPipeline, StreamOutput::writeString, (o, stats) -> stats.writeTo(o));
+        }
     }
 
 
@@ -76,6 +93,13 @@ public class IngestStats implements Writeable, ToXContent {
         return statsPerPipeline;
     }
 
+    /**
+     * @return The stats of the patterns that the processors of each pipeline match documents against
+     */
+    public Map<String, List<PatternStats>> getPatternStatsPerPipeline() {
+        return patternStatsPerPipeline;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("ingest");
@@ -86,6 +110,14 @@ public class IngestStats implements Writeable, ToXContent {
         for (Map.Entry<String, Stats> entry : statsPerPipeline.entrySet()) {
             builder.startObject(entry.getKey());
             entry.getValue().toXContent(builder, params);
+            List<PatternStats> patternStats = patternStatsPerPipeline.get(entry.getKey());
+            if (patternStats != null && patternStats.isEmpty() == false) {
+                builder.startArray("patterns");
+                for (PatternStats stats : patternStats) {
+                    stats.toXContent(builder, params);
+                }
+                builder.endArray();
+            }
             builder.endObject();
         }
         builder.endObject();
@@ -163,4 +195,99 @@ public class IngestStats implements Writeable, ToXContent {
             return builder;
         }
     }
+
+    /**
+     * Stats of a pattern that a processor matches documents against, like a grok expression.
+     */
+    public static class PatternStats implements Writeable, ToXContent {
+
+        private final String processorType;
+        private final String pattern;
+        private final long matchCount;
+        private final long missCount;
+        private final long skipCount;
+        private final long timeInMillis;
+
+        public PatternStats(String processorType, String pattern, long matchCount, long missCount, long skipCount, long timeInMillis) {
+            this.processorType = processorType;
+            this.pattern = pattern;
+            this.matchCount = matchCount;
+            this.missCount = missCount;
+            this.skipCount = skipCount;
+            this.timeInMillis = timeInMillis;
+        }
+
+        /**
+         * Read from a stream.
+         */
+        public PatternStats(StreamInput in) throws IOException {
+            processorType = in.readString();
+            pattern = in.readString();
+            matchCount = in.readVLong();
+            missCount = in.readVLong();
+            skipCount = in.readVLong();
+            timeInMillis = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(processorType);
+            out.writeString(pattern);
+            out.writeVLong(matchCount);
+            out.writeVLong(missCount);
+            out.writeVLong(skipCount);
+            out.writeVLong(timeInMillis);
+        }
+
+        /**
+         * @return The type of the processor that uses the pattern.
+         */
+        public String getProcessorType() {
+            return processorType;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        /**
+         * @return The number of documents that the pattern matched.
+         */
+        public long getMatchCount() {
+            return matchCount;
+        }
+
+        /**
+         * @return The number of documents that the pattern was tried on but did not match.
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * @return The number of documents that the pattern was not tried on because it could not match them.
+         */
+        public long getSkipCount() {
+            return skipCount;
+        }
+
+        /**
+         * @return The total time spent matching documents against the pattern in millis.
+         */
+        public long getTimeInMillis() {
+            return timeInMillis;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("processor", processorType);
+            builder.field("pattern", pattern);
+            builder.field("matches", matchCount);
+            builder.field("misses", missCount);
+            builder.field("skipped", skipCount);
+            builder.timeValueField("time_in_millis", "time", timeInMillis, TimeUnit.MILLISECONDS);
+            return builder.endObject();
+        }
+    }
 }
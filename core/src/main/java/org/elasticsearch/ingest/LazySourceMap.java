@@ -0,0 +1,213 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The source and metadata of an {@link IngestDocument} whose objects are only parsed into maps once they are accessed.
+ * <p>
+ * Only the root object of the source is parsed eagerly: the objects it contains are kept in their serialized form until
+ * they are retrieved from this map, and objects that were never retrieved are copied as-is when the source is written
+ * back by {@link #toXContent(XContentBuilder)}. Documents whose pipelines only access a few fields are therefore not
+ * materialized into nested maps. Any operation that needs all values, like iterating over the entries, parses all
+ * objects.
+ */
+final class LazySourceMap extends AbstractMap<String, Object> {
+
+    private final Map<String, Object> map;
+    private int unparsedObjects;
+
+    private LazySourceMap(Map<String, Object> map, int unparsedObjects) {
+        this.map = map;
+        this.unparsedObjects = unparsedObjects;
+    }
+
+    static LazySourceMap parse(BytesReference source) {
+        // EMPTY is safe here because we never call namedObject
+        try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY, source)) {
+            XContentParser.Token token = parser.nextToken();
+            if (token != XContentParser.Token.START_OBJECT) {
+                throw new ElasticsearchParseException("Failed to parse source: expecting " + XContentParser.Token.START_OBJECT +
+                    " but got " + token);
+            }
+            Map<String, Object> map = new HashMap<>();
+            int unparsedObjects = 0;
+            while ((token = parser.nextToken()) == XContentParser.Token.FIELD_NAME) {
+                String key = parser.currentName();
+                token = parser.nextToken();
+                Object value;
+                if (token == XContentParser.Token.START_OBJECT) {
+                    value = new UnparsedObject(parser);
+                    unparsedObjects++;
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    value = parser.list();
+                } else {
+                    value = readScalar(parser, token);
+                }
+                map.put(key, value);
+            }
+            return new LazySourceMap(map, unparsedObjects);
+        } catch (IOException e) {
+            throw new ElasticsearchParseException("Failed to parse source", e);
+        }
+    }
+
+    private static Object readScalar(XContentParser parser, XContentParser.Token token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.text();
+            case VALUE_NUMBER:
+                return parser.numberValue();
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.binaryValue();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Writes this map as an object, copying the objects that have not been parsed without parsing them.
+     */
+    XContentBuilder toXContent(XContentBuilder builder) throws IOException {
+        builder.startObject();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (entry.getValue() instanceof UnparsedObject) {
+                builder.rawField(entry.getKey(), ((UnparsedObject) entry.getValue()).bytes);
+            } else {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+        }
+        return builder.endObject();
+    }
+
+    private Object parsed(String key, Object value) {
+        if (value instanceof UnparsedObject) {
+            value = ((UnparsedObject) value).parse();
+            map.put(key, value);
+            unparsedObjects--;
+        }
+        return value;
+    }
+
+    private void parseAll() {
+        if (unparsedObjects > 0) {
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                if (entry.getValue() instanceof UnparsedObject) {
+                    entry.setValue(((UnparsedObject) entry.getValue()).parse());
+                }
+            }
+            unparsedObjects = 0;
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = map.get(key);
+        if (value instanceof UnparsedObject) {
+            return parsed((String) key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Object previous = map.put(key, value);
+        if (previous instanceof UnparsedObject) {
+            unparsedObjects--;
+            return ((UnparsedObject) previous).parse();
+        }
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Object previous = map.remove(key);
+        if (previous instanceof UnparsedObject) {
+            unparsedObjects--;
+            return ((UnparsedObject) previous).parse();
+        }
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+        unparsedObjects = 0;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        parseAll();
+        return map.keySet();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        parseAll();
+        return map.entrySet();
+    }
+
+    /**
+     * An object of the source in its serialized form.
+     */
+    private static final class UnparsedObject {
+
+        private final BytesReference bytes;
+
+        UnparsedObject(XContentParser parser) throws IOException {
+            XContentBuilder builder = new XContentBuilder(parser.contentType().xContent(), new BytesStreamOutput(128));
+            builder.copyCurrentStructure(parser);
+            this.bytes = builder.bytes();
+        }
+
+        Map<String, Object> parse() {
+            try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY, bytes)) {
+                return parser.map();
+            } catch (IOException e) {
+                throw new ElasticsearchParseException("Failed to parse source", e);
+            }
+        }
+    }
+}
@@ -19,41 +19,84 @@
 
 package org.elasticsearch.ingest;
 
+import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterStateApplier;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class PipelineExecutionService implements ClusterStateApplier {
 
+    /**
+     * The maximum number of bulk threads that execute the pipelines of the documents of a single bulk request.
+     */
+    public static final Setting<Integer> BULK_MAX_WORKERS_SETTING =
+        Setting.intSetting("ingest.bulk.max_workers", 1, 1, Property.NodeScope);
+
+    /**
+     * The maximum number of documents that may go through each pipeline at the same time, or <code>0</code> for no limit.
+     */
+    public static final Setting<Integer> PIPELINE_MAX_CONCURRENT_DOCUMENTS_SETTING =
+        Setting.intSetting("ingest.pipeline.max_concurrent_documents", 0, 0, Property.NodeScope);
+
+    /**
+     * Whether the objects of the source of documents are only parsed once a processor accesses them.
+     */
+    public static final Setting<Boolean> LAZY_SOURCE_PARSING_SETTING =
+        Setting.boolSetting("ingest.lazy_source_parsing", false, Property.NodeScope);
+
+    private final Logger logger = Loggers.getLogger(PipelineExecutionService.class);
     private final PipelineStore store;
     private final ThreadPool threadPool;
+    private final int bulkMaxWorkers;
+    private final int pipelineMaxConcurrentDocuments;
+    private final boolean lazySourceParsing;
 
     private final StatsHolder totalStats = new StatsHolder();
     private volatile Map<String, StatsHolder> statsHolderPerPipeline = Collections.emptyMap();
+    private final ConcurrentMap<String, DocumentThrottle> throttlePerPipeline = ConcurrentCollections.newConcurrentMap();
 
-    public PipelineExecutionService(PipelineStore store, ThreadPool threadPool) {
+    public PipelineExecutionService(Settings settings, PipelineStore store, ThreadPool threadPool) {
         this.store = store;
         this.threadPool = threadPool;
+        this.bulkMaxWorkers = BULK_MAX_WORKERS_SETTING.get(settings);
+        this.pipelineMaxConcurrentDocuments = PIPELINE_MAX_CONCURRENT_DOCUMENTS_SETTING.get(settings);
+        this.lazySourceParsing = LAZY_SOURCE_PARSING_SETTING.get(settings);
     }
 
     public void executeIndexRequest(IndexRequest request, Consumer<Exception> failureHandler, Consumer<Boolean> completionHandler) {
         Pipeline pipeline = getPipeline(request.getPipeline());
-        threadPool.executor(ThreadPool.Names.INDEX).execute(new AbstractRunnable() {
+        final AbstractRunnable document = new AbstractRunnable() {
 
             @Override
             public void onFailure(Exception e) {
@@ -65,11 +108,29 @@ public class PipelineExecutionService implements ClusterStateApplier {
                 innerExecute(request, pipeline);
                 completionHandler.accept(true);
             }
+        };
+        threadPool.executor(ThreadPool.Names.INDEX).execute(new AbstractRunnable() {
+
+            @Override
+            public void onFailure(Exception e) {
+                failureHandler.accept(e);
+            }
+
+            @Override
+            protected void doRun() throws Exception {
+                execute(pipeline, document);
+            }
         });
     }
 
+    /**
+     * Executes the pipelines of the index requests of a bulk request. The documents are split across up to
+     * {@link #BULK_MAX_WORKERS_SETTING} bulk threads, but failures are always reported in the order of the requests: the
+     * failure handler is called with the position of each failed request in <code>actionRequests</code>, in ascending order,
+     * and then the completion handler is called, all from the same thread.
+     */
     public void executeBulkRequest(Iterable<DocWriteRequest> actionRequests,
-                                   BiConsumer<IndexRequest, Exception> itemFailureHandler,
+                                   BiConsumer<Integer, Exception> itemFailureHandler,
                                    Consumer<Exception> completionHandler) {
         threadPool.executor(ThreadPool.Names.BULK).execute(new AbstractRunnable() {
 
@@ -80,35 +141,199 @@ public class PipelineExecutionService implements ClusterStateApplier {
 
             @Override
             protected void doRun() throws Exception {
+                final List<IndexRequest> requests = new ArrayList<>();
+                final List<Integer> slots = new ArrayList<>();
+                int slot = 0;
                 for (DocWriteRequest actionRequest : actionRequests) {
                     if ((actionRequest instanceof IndexRequest)) {
                         IndexRequest indexRequest = (IndexRequest) actionRequest;
                         if (Strings.hasText(indexRequest.getPipeline())) {
-                            try {
-                                innerExecute(indexRequest, getPipeline(indexRequest.getPipeline()));
-                                //this shouldn't be needed here but we do it for consistency with index api
-                                // which requires it to prevent double execution
-                                indexRequest.setPipeline(null);
-                            } catch (Exception e) {
-                                itemFailureHandler.accept(indexRequest, e);
-                            }
+                            requests.add(indexRequest);
+                            slots.add(slot);
                         }
                     }
+                    slot++;
                 }
-                completionHandler.accept(null);
+                new BulkExecution(requests, slots, itemFailureHandler, completionHandler).start();
             }
         });
     }
 
+    /**
+     * Runs the given document through the given pipeline, which may happen later on another thread if the pipeline already
+     * processes {@link #PIPELINE_MAX_CONCURRENT_DOCUMENTS_SETTING} documents. The document must not throw exceptions.
+     */
+    private void execute(Pipeline pipeline, Runnable document) {
+        if (pipelineMaxConcurrentDocuments > 0 && pipeline.getProcessors().isEmpty() == false) {
+            throttlePerPipeline.computeIfAbsent(pipeline.getId(), id -> new DocumentThrottle(pipelineMaxConcurrentDocuments))
+                .execute(document);
+        } else {
+            document.run();
+        }
+    }
+
+    /**
+     * Caps the number of documents that go through a pipeline at the same time without ever blocking a thread: documents
+     * that exceed the cap are queued, and processed by the next thread that finishes a document of the pipeline.
+     */
+    static final class DocumentThrottle {
+
+        private final Semaphore permits;
+        private final Queue<Runnable> queuedDocuments = ConcurrentCollections.newQueue();
+
+        DocumentThrottle(int maxConcurrentDocuments) {
+            this.permits = new Semaphore(maxConcurrentDocuments);
+        }
+
+        void execute(Runnable document) {
+            queuedDocuments.add(document);
+            // documents are queued before permits are checked, and permits are released before the queue is checked, so that
+            // a queued document can't be missed by both the thread that queues it and the thread that releases a permit
+            while (queuedDocuments.isEmpty() == false && permits.tryAcquire()) {
+                final Runnable next = queuedDocuments.poll();
+                try {
+                    if (next != null) {
+                        next.run();
+                    }
+                } finally {
+                    permits.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes the pipelines of the documents of a bulk request. Workers pick the next document that has not been processed
+     * yet until there are none left, and the thread that processes the last document reports the failures and completes
+     * the bulk request. This may be a thread of another request if the pipeline of the last document was throttled.
+     * Workers that only start once all documents have been picked up do nothing, so that the bulk request never waits
+     * for workers that are still queued.
+     */
+    private final class BulkExecution extends AbstractRunnable {
+
+        private final List<IndexRequest> requests;
+        private final List<Integer> slots;
+        private final Exception[] failures;
+        private final BiConsumer<Integer, Exception> itemFailureHandler;
+        private final Consumer<Exception> completionHandler;
+        private final AtomicInteger nextRequest = new AtomicInteger();
+        private final AtomicInteger pendingRequests;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        BulkExecution(List<IndexRequest> requests, List<Integer> slots, BiConsumer<Integer, Exception> itemFailureHandler,
+                      Consumer<Exception> completionHandler) {
+            this.requests = requests;
+            this.slots = slots;
+            this.failures = new Exception[requests.size()];
+            this.itemFailureHandler = itemFailureHandler;
+            this.completionHandler = completionHandler;
+            this.pendingRequests = new AtomicInteger(requests.size());
+        }
+
+        void start() {
+            if (requests.isEmpty()) {
+                complete(null);
+                return;
+            }
+            final int numWorkers = Math.min(bulkMaxWorkers, requests.size());
+            if (numWorkers > 1) {
+                final ExecutorService executor = threadPool.executor(ThreadPool.Names.BULK);
+                for (int i = 1; i < numWorkers; i++) {
+                    executor.execute(this);
+                }
+            }
+            // the calling thread always takes part, so documents get processed even if all other workers were rejected
+            run();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            complete(e);
+        }
+
+        @Override
+        public void onRejection(Exception e) {
+            // the other workers process the documents of this one
+        }
+
+        @Override
+        protected void doRun() throws Exception {
+            for (int i = nextRequest.getAndIncrement(); i < requests.size(); i = nextRequest.getAndIncrement()) {
+                final int request = i;
+                final IndexRequest indexRequest = requests.get(request);
+                final Pipeline pipeline;
+                try {
+                    pipeline = getPipeline(indexRequest.getPipeline());
+                } catch (Exception e) {
+                    onRequestCompleted(request, e);
+                    continue;
+                }
+                execute(pipeline, () -> {
+                    try {
+                        innerExecute(indexRequest, pipeline);
+                        //this shouldn't be needed here but we do it for consistency with index api
+                        // which requires it to prevent double execution
+                        indexRequest.setPipeline(null);
+                    } catch (Exception e) {
+                        onRequestCompleted(request, e);
+                        return;
+                    }
+                    onRequestCompleted(request, null);
+                });
+            }
+        }
+
+        private void onRequestCompleted(int request, @Nullable Exception failure) {
+            failures[request] = failure;
+            if (pendingRequests.decrementAndGet() == 0) {
+                try {
+                    for (int i = 0; i < failures.length; i++) {
+                        if (failures[i] != null) {
+                            itemFailureHandler.accept(slots.get(i), failures[i]);
+                        }
+                    }
+                } catch (Exception e) {
+                    complete(e);
+                    return;
+                }
+                complete(null);
+            }
+        }
+
+        /**
+         * Calls the completion handler, only once even if it throws an exception, since the thread that completes the bulk
+         * request may be processing the documents of other requests.
+         */
+        private void complete(@Nullable Exception e) {
+            if (completed.compareAndSet(false, true)) {
+                try {
+                    completionHandler.accept(e);
+                } catch (Exception inner) {
+                    logger.warn("failed to complete the execution of the pipelines of a bulk request", inner);
+                }
+            } else if (e != null) {
+                logger.warn("failed to execute the pipelines of a bulk request that already completed", e);
+            }
+        }
+    }
+
     public IngestStats stats() {
         Map<String, StatsHolder> statsHolderPerPipeline = this.statsHolderPerPipeline;
 
         Map<String, IngestStats.Stats> statsPerPipeline = new HashMap<>(statsHolderPerPipeline.size());
+        Map<String, List<IngestStats.PatternStats>> patternStatsPerPipeline = new HashMap<>();
         for (Map.Entry<String, StatsHolder> entry : statsHolderPerPipeline.entrySet()) {
             statsPerPipeline.put(entry.getKey(), entry.getValue().createStats());
+            Pipeline pipeline = store.get(entry.getKey());
+            if (pipeline != null) {
+                List<IngestStats.PatternStats> patternStats = pipeline.getCompoundProcessor().getPatternStats();
+                if (patternStats.isEmpty() == false) {
+                    patternStatsPerPipeline.put(entry.getKey(), patternStats);
+                }
+            }
         }
 
-        return new IngestStats(totalStats.createStats(), statsPerPipeline);
+        return new IngestStats(totalStats.createStats(), statsPerPipeline, patternStatsPerPipeline);
     }
 
     @Override
@@ -140,6 +365,7 @@ public class PipelineExecutionService implements ClusterStateApplier {
         if (changed) {
             statsHolderPerPipeline = Collections.unmodifiableMap(newStatsPerPipeline);
         }
+        throttlePerPipeline.keySet().retainAll(ingestMetadata.getPipelines().keySet());
     }
 
     private void innerExecute(IndexRequest indexRequest, Pipeline pipeline) throws Exception {
@@ -159,8 +385,12 @@ public class PipelineExecutionService implements ClusterStateApplier {
             String id = indexRequest.id();
             String routing = indexRequest.routing();
             String parent = indexRequest.parent();
-            Map<String, Object> sourceAsMap = indexRequest.sourceAsMap();
-            IngestDocument ingestDocument = new IngestDocument(index, type, id, routing, parent, sourceAsMap);
+            IngestDocument ingestDocument;
+            if (lazySourceParsing) {
+                ingestDocument = new IngestDocument(index, type, id, routing, parent, indexRequest.source());
+            } else {
+                ingestDocument = new IngestDocument(index, type, id, routing, parent, indexRequest.sourceAsMap());
+            }
             pipeline.execute(ingestDocument);
 
             Map<IngestDocument.MetaData, String> metadataMap = ingestDocument.extractMetadata();
@@ -171,7 +401,13 @@ public class PipelineExecutionService implements ClusterStateApplier {
             indexRequest.id(metadataMap.get(IngestDocument.MetaData.ID));
             indexRequest.routing(metadataMap.get(IngestDocument.MetaData.ROUTING));
             indexRequest.parent(metadataMap.get(IngestDocument.MetaData.PARENT));
-            indexRequest.source(ingestDocument.getSourceAndMetadata());
+            if (lazySourceParsing) {
+                XContentBuilder builder = XContentFactory.contentBuilder(indexRequest.getContentType());
+                ingestDocument.writeSource(builder);
+                indexRequest.source(builder);
+            } else {
+                indexRequest.source(ingestDocument.getSourceAndMetadata());
+            }
         } catch (Exception e) {
             totalStats.ingestFailed();
             pipelineStats.ifPresent(StatsHolder::ingestFailed);
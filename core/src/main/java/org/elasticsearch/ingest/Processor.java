@@ -24,6 +24,8 @@ import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.analysis.AnalysisRegistry;
 import org.elasticsearch.script.ScriptService;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -49,6 +51,13 @@ public interface Processor {
      */
     String getTag();
 
+    /**
+     * Gets the stats of the patterns that this processor matches documents against, if it uses any.
+     */
+    default List<IngestStats.PatternStats> getPatternStats() {
+        return Collections.emptyList();
+    }
+
     /**
      * A factory that knows how to construct a processor based on a map of maps.
      */
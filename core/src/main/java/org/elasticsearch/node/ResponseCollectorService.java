@@ -0,0 +1,235 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects statistics about the responses of the search requests this node sends to the other nodes of the cluster:
+ * the size of the search queue of the remote node and the time it took to execute the request, which the node sends
+ * back with its response, and the time it took to receive the response. They are used to rank the copies of a shard
+ * when adaptive replica selection is enabled, so that requests go to the copies that are likely to answer first.
+ */
+public final class ResponseCollectorService extends AbstractComponent implements ClusterStateListener {
+
+    /**
+     * The weight parameter used for all moving averages of parameters.
+     */
+    public static final double ALPHA = 0.3;
+
+    private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+
+    public ResponseCollectorService(Settings settings, ClusterService clusterService) {
+        super(settings);
+        clusterService.addListener(this);
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode removedNode : event.nodesDelta().removedNodes()) {
+                removeNode(removedNode.getId());
+            }
+        }
+    }
+
+    void removeNode(String nodeId) {
+        nodeIdToStats.remove(nodeId);
+    }
+
+    /**
+     * Records the statistics of a response of the given node.
+     *
+     * @param nodeId the id of the node that executed the request
+     * @param queueSize the size of the search queue of the node when it executed the request
+     * @param responseTimeNanos the time between sending the request and receiving its response
+     * @param avgServiceTimeNanos the moving average of the time the node takes to execute a request
+     */
+    public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long avgServiceTimeNanos) {
+        nodeIdToStats.compute(nodeId, (id, ns) -> {
+            if (ns == null) {
+                ExponentiallyWeightedMovingAverage queueEWMA = new ExponentiallyWeightedMovingAverage(ALPHA, queueSize);
+                ExponentiallyWeightedMovingAverage responseEWMA = new ExponentiallyWeightedMovingAverage(ALPHA, responseTimeNanos);
+                return new NodeStatistics(nodeId, queueEWMA, responseEWMA, avgServiceTimeNanos);
+            } else {
+                ns.queueSize.addValue((double) queueSize);
+                ns.responseTime.addValue((double) responseTimeNanos);
+                ns.serviceTime = avgServiceTimeNanos;
+                return ns;
+            }
+        });
+    }
+
+    public Map<String, ComputedNodeStats> getAllNodeStatistics() {
+        final int clientNum = nodeIdToStats.size();
+        // Transform the mutable object internally used for accounting into the computed version
+        Map<String, ComputedNodeStats> nodeStats = new HashMap<>(nodeIdToStats.size());
+        nodeIdToStats.forEach((k, v) -> nodeStats.put(k, new ComputedNodeStats(clientNum, v)));
+        return nodeStats;
+    }
+
+    /**
+     * Returns the statistics of the given node, or an empty optional if no response of the node was recorded yet.
+     */
+    public Optional<ComputedNodeStats> getNodeStatistics(final String nodeId) {
+        final int clientNum = nodeIdToStats.size();
+        return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> new ComputedNodeStats(clientNum, ns));
+    }
+
+    public AdaptiveSelectionStats getAdaptiveStats(Map<String, Long> clientSearchConnections) {
+        return new AdaptiveSelectionStats(clientSearchConnections, getAllNodeStatistics());
+    }
+
+    /**
+     * Struct-like class encapsulating a point-in-time snapshot of a particular
+     * node's statistics. This includes the EWMA of queue size, response time,
+     * and service time.
+     */
+    public static class ComputedNodeStats implements Writeable, ToXContent {
+        // We store timestamps with nanosecond precision, however, the
+        // formula specifies milliseconds, therefore we need to convert
+        // the values so the times don't unduely weight the formula
+        private static final double FACTOR = 1000000.0;
+        // The queue adjustment factor of the C3 formula: the paper found a cubic penalty on the queue size to work best
+        private static final int QUEUE_ADJUSTMENT_FACTOR = 3;
+
+        private final int clientNum;
+
+        public final String nodeId;
+        public final int queueSize;
+        public final double responseTime;
+        public final double serviceTime;
+
+        public ComputedNodeStats(String nodeId, int clientNum, int queueSize, double responseTime, double serviceTime) {
+            this.nodeId = nodeId;
+            this.clientNum = clientNum;
+            this.queueSize = queueSize;
+            this.responseTime = responseTime;
+            this.serviceTime = serviceTime;
+        }
+
+        ComputedNodeStats(int clientNum, NodeStatistics nodeStats) {
+            this(nodeStats.nodeId, clientNum,
+                (int) nodeStats.queueSize.getAverage(), nodeStats.responseTime.getAverage(), nodeStats.serviceTime);
+        }
+
+        ComputedNodeStats(StreamInput in) throws IOException {
+            this.nodeId = in.readString();
+            this.clientNum = in.readInt();
+            this.queueSize = in.readInt();
+            this.responseTime = in.readDouble();
+            this.serviceTime = in.readDouble();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(this.nodeId);
+            out.writeInt(this.clientNum);
+            out.writeInt(this.queueSize);
+            out.writeDouble(this.responseTime);
+            out.writeDouble(this.serviceTime);
+        }
+
+        /**
+         * Rank this copy of the data, according to the adaptive replica selection formula from the C3 paper
+         * https://www.usenix.org/system/files/conference/nsdi15/nsdi15-paper-suresh.pdf, lower is better:
+         * <pre>
+         *   rank = R - 1/mu + qHat^3/mu
+         * </pre>
+         * where R is the moving average of the response time, mu the service rate of the node, that is the inverse of
+         * the moving average of its service time, and qHat the estimated queue size of the node: one plus its moving average
+         * queue size plus the outstanding requests of this node to it times the number of clients in the system.
+         */
+        public double rank(long outstandingRequests) {
+            // the concurrency compensation is defined as the number of
+            // outstanding requests from the client to the node times the
+            // number of clients in the system
+            double concurrencyCompensation = outstandingRequests * clientNum;
+
+            // EWMA of queue size
+            double qBar = queueSize;
+            double qHatS = 1 + concurrencyCompensation + qBar;
+
+            // EWMA of response time
+            double rS = responseTime / FACTOR;
+            // EWMA of service time, the inverse of the service rate mu
+            double sBarS = serviceTime / FACTOR;
+
+            return rS - sBarS + (Math.pow(qHatS, QUEUE_ADJUSTMENT_FACTOR) * sBarS);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field("avg_queue_size", queueSize);
+            builder.timeValueField("avg_service_time_ns", "avg_service_time", (long) serviceTime, TimeUnit.NANOSECONDS);
+            builder.timeValueField("avg_response_time_ns", "avg_response_time", (long) responseTime, TimeUnit.NANOSECONDS);
+            return builder;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "ComputedNodeStats[%s](nodes: %d, queue: %d, response time: %.1f, service time: %.1f)",
+                nodeId, clientNum, queueSize, responseTime, serviceTime);
+        }
+    }
+
+    /**
+     * Class encapsulating a node's exponentially weighted queue size, response
+     * time, and service time, however, this class is private and intended only
+     * to be used for the internal accounting of {@code ResponseCollectorService}.
+     */
+    private static class NodeStatistics {
+        final String nodeId;
+        final ExponentiallyWeightedMovingAverage queueSize;
+        final ExponentiallyWeightedMovingAverage responseTime;
+        // the service time is already a moving average computed by the node that executed the requests
+        volatile double serviceTime;
+
+        NodeStatistics(String nodeId,
+                       ExponentiallyWeightedMovingAverage queueSizeEWMA,
+                       ExponentiallyWeightedMovingAverage responseTimeEWMA,
+                       double serviceTimeEWMA) {
+            this.nodeId = nodeId;
+            this.queueSize = queueSizeEWMA;
+            this.responseTime = responseTimeEWMA;
+            this.serviceTime = serviceTimeEWMA;
+        }
+    }
+}
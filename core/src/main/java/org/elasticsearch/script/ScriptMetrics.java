@@ -21,16 +21,49 @@ package org.elasticsearch.script;
 
 import org.elasticsearch.common.metrics.CounterMetric;
 
+import java.util.concurrent.TimeUnit;
+
 public class ScriptMetrics {
     final CounterMetric compilationsMetric = new CounterMetric();
     final CounterMetric cacheEvictionsMetric = new CounterMetric();
+    final CounterMetric cacheHitsMetric = new CounterMetric();
+    final CounterMetric cacheMissesMetric = new CounterMetric();
+    final CounterMetric compilationTimeMetric = new CounterMetric();
+    final CounterMetric[] compilationTimeHistogram = new CounterMetric[ScriptStats.COMPILATION_TIME_BUCKETS_IN_MILLIS.length + 1];
+
+    public ScriptMetrics() {
+        for (int i = 0; i < compilationTimeHistogram.length; i++) {
+            compilationTimeHistogram[i] = new CounterMetric();
+        }
+    }
 
     public ScriptStats stats() {
-        return new ScriptStats(compilationsMetric.count(), cacheEvictionsMetric.count());
+        long[] histogram = new long[compilationTimeHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = compilationTimeHistogram[i].count();
+        }
+        return new ScriptStats(compilationsMetric.count(), cacheEvictionsMetric.count(), cacheHitsMetric.count(),
+            cacheMissesMetric.count(), compilationTimeMetric.count(), histogram);
     }
 
-    public void onCompilation() {
+    public void onCompilation(long tookInNanos) {
         compilationsMetric.inc();
+        compilationTimeMetric.inc(tookInNanos);
+        long tookInMillis = TimeUnit.NANOSECONDS.toMillis(tookInNanos);
+        int bucket = 0;
+        while (bucket < ScriptStats.COMPILATION_TIME_BUCKETS_IN_MILLIS.length
+                && tookInMillis >= ScriptStats.COMPILATION_TIME_BUCKETS_IN_MILLIS[bucket]) {
+            bucket++;
+        }
+        compilationTimeHistogram[bucket].inc();
+    }
+
+    public void onCacheHit() {
+        cacheHitsMetric.inc();
+    }
+
+    public void onCacheMiss() {
+        cacheMissesMetric.inc();
     }
 
     public void onCacheEviction() {
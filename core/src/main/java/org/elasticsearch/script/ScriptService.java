@@ -315,6 +315,7 @@ public class ScriptService extends AbstractComponent implements Closeable, Clust
         CompiledScript compiledScript = cache.get(cacheKey);
 
         if (compiledScript != null) {
+            scriptMetrics.onCacheHit();
             return compiledScript;
         }
 
@@ -324,6 +325,8 @@ public class ScriptService extends AbstractComponent implements Closeable, Clust
             compiledScript = cache.get(cacheKey);
 
             if (compiledScript == null) {
+                scriptMetrics.onCacheMiss();
+                final long startTime = System.nanoTime();
                 try {
                     // Either an un-cached inline script or indexed script
                     // If the script type is inline the name will be the same as the code for identification in exceptions
@@ -346,8 +349,10 @@ public class ScriptService extends AbstractComponent implements Closeable, Clust
 
                 // Since the cache key is the script content itself we don't need to
                 // invalidate/check the cache if an indexed script changes.
-                scriptMetrics.onCompilation();
+                scriptMetrics.onCompilation(System.nanoTime() - startTime);
                 cache.put(cacheKey, compiledScript);
+            } else {
+                scriptMetrics.onCacheHit();
             }
 
             return compiledScript;
@@ -595,10 +600,11 @@ public class ScriptService extends AbstractComponent implements Closeable, Clust
                             String name = scriptNameExt.v1();
                             CacheKey cacheKey = new CacheKey(engineService, name, null, Collections.emptyMap());
                             // pass the actual file name to the compiler (for script engines that care about this)
+                            final long startTime = System.nanoTime();
                             Object executable = engineService.compile(file.getFileName().toString(), script, Collections.emptyMap());
                             CompiledScript compiledScript = new CompiledScript(ScriptType.FILE, name, engineService.getType(), executable);
                             staticCache.put(cacheKey, compiledScript);
-                            scriptMetrics.onCompilation();
+                            scriptMetrics.onCompilation(System.nanoTime() - startTime);
                         }
                     } else {
                         logger.warn("skipping compile of script file [{}] as all scripted operations are disabled for file scripts", file.toAbsolutePath());
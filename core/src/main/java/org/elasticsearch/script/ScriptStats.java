@@ -19,32 +19,80 @@
 
 package org.elasticsearch.script;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class ScriptStats implements Writeable, ToXContent {
+
+    /**
+     * The upper bounds, in milliseconds, of the buckets of the compilation time histogram. The histogram has one more
+     * bucket for compilations that took longer than the last bound.
+     */
+    public static final long[] COMPILATION_TIME_BUCKETS_IN_MILLIS = new long[] {1, 10, 100, 1000, 10000};
+
     private final long compilations;
     private final long cacheEvictions;
+    private final long cacheHits;
+    private final long cacheMisses;
+    private final long compilationTimeInNanos;
+    private final long[] compilationTimeHistogram;
 
     public ScriptStats(long compilations, long cacheEvictions) {
+        this(compilations, cacheEvictions, 0, 0, 0, new long[COMPILATION_TIME_BUCKETS_IN_MILLIS.length + 1]);
+    }
+
+    public ScriptStats(long compilations, long cacheEvictions, long cacheHits, long cacheMisses, long compilationTimeInNanos,
+                       long[] compilationTimeHistogram) {
+        if (compilationTimeHistogram.length != COMPILATION_TIME_BUCKETS_IN_MILLIS.length + 1) {
+            throw new IllegalArgumentException("expected [" + (COMPILATION_TIME_BUCKETS_IN_MILLIS.length + 1)
+                + "] compilation time buckets but got [" + compilationTimeHistogram.length + "]");
+        }
         this.compilations = compilations;
         this.cacheEvictions = cacheEvictions;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.compilationTimeInNanos = compilationTimeInNanos;
+        this.compilationTimeHistogram = compilationTimeHistogram;
     }
 
     public ScriptStats(StreamInput in) throws IOException {
         compilations = in.readVLong();
         cacheEvictions = in.readVLong();
+        compilationTimeHistogram = new long[COMPILATION_TIME_BUCKETS_IN_MILLIS.length + 1];
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            cacheHits = in.readVLong();
+            cacheMisses = in.readVLong();
+            compilationTimeInNanos = in.readVLong();
+            for (int i = 0; i < compilationTimeHistogram.length; i++) {
+                compilationTimeHistogram[i] = in.readVLong();
+            }
+        } else {
+            cacheHits = 0;
+            cacheMisses = 0;
+            compilationTimeInNanos = 0;
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(compilations);
         out.writeVLong(cacheEvictions);
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeVLong(cacheHits);
+            out.writeVLong(cacheMisses);
+            out.writeVLong(compilationTimeInNanos);
+            for (long count : compilationTimeHistogram) {
+                out.writeVLong(count);
+            }
+        }
     }
 
     public long getCompilations() {
@@ -55,11 +103,58 @@ public class ScriptStats implements Writeable, ToXContent {
         return cacheEvictions;
     }
 
+    /**
+     * The number of times a compiled inline or stored script was found in the script cache.
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * The number of times an inline or stored script had to be compiled because it was not in the script cache.
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * The ratio of script cache lookups that found a compiled script, or 0 if the cache has not been used yet.
+     */
+    public double getCacheHitRatio() {
+        long lookups = cacheHits + cacheMisses;
+        return lookups == 0 ? 0 : (double) cacheHits / lookups;
+    }
+
+    public TimeValue getCompilationTime() {
+        return new TimeValue(compilationTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The number of compilations per bucket of compilation time, see {@link #COMPILATION_TIME_BUCKETS_IN_MILLIS}.
+     */
+    public long[] getCompilationTimeHistogram() {
+        return compilationTimeHistogram;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.SCRIPT_STATS);
         builder.field(Fields.COMPILATIONS, getCompilations());
         builder.field(Fields.CACHE_EVICTIONS, getCacheEvictions());
+        builder.field(Fields.CACHE_HITS, getCacheHits());
+        builder.field(Fields.CACHE_MISSES, getCacheMisses());
+        builder.field(Fields.CACHE_HIT_RATIO, getCacheHitRatio());
+        builder.timeValueField(Fields.COMPILATION_TIME_IN_MILLIS, Fields.COMPILATION_TIME, getCompilationTime());
+        builder.startArray(Fields.COMPILATION_TIME_HISTOGRAM);
+        for (int i = 0; i < compilationTimeHistogram.length; i++) {
+            builder.startObject();
+            if (i < COMPILATION_TIME_BUCKETS_IN_MILLIS.length) {
+                builder.field(Fields.LT_IN_MILLIS, COMPILATION_TIME_BUCKETS_IN_MILLIS[i]);
+            }
+            builder.field(Fields.COUNT, compilationTimeHistogram[i]);
+            builder.endObject();
+        }
+        builder.endArray();
         builder.endObject();
         return builder;
     }
@@ -68,5 +163,13 @@ public class ScriptStats implements Writeable, ToXContent {
         static final String SCRIPT_STATS = "script";
         static final String COMPILATIONS = "compilations";
         static final String CACHE_EVICTIONS = "cache_evictions";
+        static final String CACHE_HITS = "cache_hits";
+        static final String CACHE_MISSES = "cache_misses";
+        static final String CACHE_HIT_RATIO = "cache_hit_ratio";
+        static final String COMPILATION_TIME = "compilation_time";
+        static final String COMPILATION_TIME_IN_MILLIS = "compilation_time_in_millis";
+        static final String COMPILATION_TIME_HISTOGRAM = "compilation_time_histogram";
+        static final String LT_IN_MILLIS = "lt_in_millis";
+        static final String COUNT = "count";
     }
 }
@@ -27,6 +27,7 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.lucene.Lucene;
@@ -48,6 +49,7 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService.AllocatedIndices.IndexRemovalReason;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.script.ScriptContext;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.script.SearchScript;
@@ -94,6 +96,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.unit.TimeValue.timeValueMillis;
@@ -135,6 +139,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private final FetchPhase fetchPhase;
 
+    private final ExponentiallyWeightedMovingAverage queryPhaseServiceTime =
+        new ExponentiallyWeightedMovingAverage(ResponseCollectorService.ALPHA, 0);
+
     private final long defaultKeepAlive;
 
     private volatile TimeValue defaultSearchTimeout;
@@ -265,8 +272,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             } else {
                 contextProcessedSuccessfully(context);
             }
-            operationListener.onQueryPhase(context, System.nanoTime() - time);
-
+            final long took = System.nanoTime() - time;
+            operationListener.onQueryPhase(context, took);
+            recordQueryPhaseStats(context.queryResult(), took);
             return context.queryResult();
         } catch (Exception e) {
             // execution exception can happen while loading the cache, strip it
@@ -326,7 +334,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             } else {
                 contextProcessedSuccessfully(context);
             }
-            operationListener.onQueryPhase(context, System.nanoTime() - time);
+            final long took = System.nanoTime() - time;
+            operationListener.onQueryPhase(context, took);
+            recordQueryPhaseStats(context.queryResult(), took);
             return context.queryResult();
         } catch (Exception e) {
             operationListener.onFailedQueryPhase(context);
@@ -338,6 +348,20 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
     }
 
+    /**
+     * Records the time it took to execute the query phase of a request, and sends the moving average of this time and
+     * the size of the search queue back with the result so that the coordinating node can rank the copies of the shards
+     * when adaptive replica selection is enabled.
+     */
+    private void recordQueryPhaseStats(QuerySearchResult result, long tookInNanos) {
+        queryPhaseServiceTime.addValue(tookInNanos);
+        result.serviceTimeEWMA((long) queryPhaseServiceTime.getAverage());
+        final ExecutorService executor = threadPool.executor(Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            result.nodeQueueSize(((ThreadPoolExecutor) executor).getQueue().size());
+        }
+    }
+
     private boolean fetchPhaseShouldFreeContext(SearchContext context) {
         if (context.scrollContext() == null) {
             // simple search, no scroll
@@ -365,6 +389,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             }
             long time2 = System.nanoTime();
             operationListener.onQueryPhase(context, time2 - time);
+            recordQueryPhaseStats(context.queryResult(), time2 - time);
             operationListener.onPreFetchPhase(context);
             try {
                 shortcutDocIdsToLoad(context);
@@ -407,6 +432,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             }
             long time2 = System.nanoTime();
             operationListener.onQueryPhase(context, time2 - time);
+            recordQueryPhaseStats(context.queryResult(), time2 - time);
             operationListener.onPreFetchPhase(context);
             try {
                 shortcutDocIdsToLoad(context);
@@ -579,6 +605,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             engineSearcher, indexService, indexShard, bigArrays, threadPool.estimatedTimeInMillisCounter(), timeout, fetchPhase);
         boolean success = false;
         try {
+            searchContext.searcher().setSliceExecutor(threadPool.executor(Names.SEARCH_SLICE),
+                indexService.getIndexSettings().getMaxConcurrentSearchSlices());
             // we clone the query shard context here just for rewriting otherwise we
             // might end up with incorrect state since we are using now() or script services
             // during rewrite and normalized / evaluate templates etc.
@@ -695,6 +723,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             }
         }
         context.trackScores(source.trackScores());
+        if (source.trackTotalHits() == false && context.scrollContext() != null) {
+            throw new SearchContextException(context, "disabling [track_total_hits] is not allowed in a scroll context");
+        }
+        context.trackTotalHits(source.trackTotalHits());
         if (source.minScore() != null) {
             context.minimumScore(source.minScore());
         }
@@ -737,7 +769,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             context.fetchSourceContext(source.fetchSource());
         }
         if (source.docValueFields() != null) {
-            context.docValueFieldsContext(new DocValueFieldsContext(source.docValueFields()));
+            context.docValueFieldsContext(new DocValueFieldsContext(source.docValueFields(), source.docValueFieldFormats()));
         }
         if (source.highlighter() != null) {
             HighlightBuilder highlightBuilder = source.highlighter();
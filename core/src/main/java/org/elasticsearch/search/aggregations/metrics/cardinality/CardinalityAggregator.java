@@ -43,15 +43,17 @@ import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.profile.aggregation.DebugInfoProvider;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * An aggregator that computes approximate counts of unique values.
  */
-public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue {
+public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue implements DebugInfoProvider {
 
     private final int precision;
     private final ValuesSource valuesSource;
@@ -152,6 +154,14 @@ public class CardinalityAggregator extends NumericMetricsAggregator.SingleValue
         return new InternalCardinality(name, null, pipelineAggregators(), metaData());
     }
 
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        if (counts != null) {
+            add.accept("sparse_buckets", counts.sparseBuckets());
+            add.accept("dense_buckets", counts.denseBuckets());
+        }
+    }
+
     @Override
     protected void doClose() {
         Releasables.close(counts, collector);
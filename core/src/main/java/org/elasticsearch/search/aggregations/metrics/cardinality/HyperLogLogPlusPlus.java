@@ -19,21 +19,20 @@
 
 package org.elasticsearch.search.aggregations.metrics.cardinality;
 
-import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
-import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * Hyperloglog++ counter, implemented based on pseudo code from
@@ -44,7 +43,13 @@ import java.nio.ByteOrder;
  * This implementation is different from the original implementation in that it
  * uses a hash table instead of a sorted list for linear counting. Although this
  * requires more space and makes hyperloglog (which is less accurate) used sooner,
- * this is also considerably faster.
+ * this is also considerably faster. Hash tables start small and grow with the
+ * number of distinct values of the bucket, and the hyperloglog registers of a
+ * bucket are only allocated when it switches to hyperloglog, so that buckets
+ * with few distinct values remain cheap.
+ *
+ * This class is not thread-safe: the buckets of an aggregator are collected by
+ * a single thread, so concurrent updates are not supported.
  *
  * Trying to understand what this class does without having read the paper is
  * considered adventurous.
@@ -150,9 +155,17 @@ public final class HyperLogLogPlusPlus implements Releasable {
         10, 20, 40, 80, 220, 400, 900, 1800, 3100, 6500, 11500, 20000, 50000, 120000, 350000
     };
 
+    // the smallest hash table that a bucket that uses linear counting may have
+    private static final int MIN_HASH_TABLE_CAPACITY = 4;
+
     private final BigArrays bigArrays;
     private final OpenBitSet algorithm;
+    // for every bucket, the start of its hash table in the hash set if it uses linear counting, or the start of its
+    // registers in runLens if it uses hyperloglog
+    private LongArray offsets;
+    // registers of the buckets that use hyperloglog, allocated on upgrade
     private ByteArray runLens;
+    private long denseBuckets;
     private final Hashset hashSet;
     private final int p, m;
     private final double alphaMM;
@@ -168,8 +181,17 @@ public final class HyperLogLogPlusPlus implements Releasable {
         m = 1 << p;
         this.bigArrays = bigArrays;
         algorithm = new OpenBitSet();
-        runLens = bigArrays.newByteArray(initialBucketCount << p);
-        hashSet = new Hashset(initialBucketCount);
+        boolean success = false;
+        try {
+            offsets = bigArrays.newLongArray(initialBucketCount);
+            runLens = bigArrays.newByteArray(0);
+            hashSet = new Hashset(initialBucketCount);
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(offsets, runLens);
+            }
+        }
         final double alpha;
         switch (p) {
         case 4:
@@ -190,11 +212,33 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     public long maxBucket() {
-        return runLens.size() >>> p;
+        return offsets.size();
+    }
+
+    /**
+     * Return the number of buckets that switched from linear counting to hyperloglog.
+     */
+    public long denseBuckets() {
+        return denseBuckets;
+    }
+
+    /**
+     * Return the number of buckets that still use linear counting and contain at least one hash.
+     */
+    public long sparseBuckets() {
+        long sparseBuckets = 0;
+        for (long bucket = 0; bucket < hashSet.sizes.size(); ++bucket) {
+            // the size of buckets that switched to hyperloglog is reset to 0
+            if (hashSet.sizes.get(bucket) > 0) {
+                ++sparseBuckets;
+            }
+        }
+        return sparseBuckets;
     }
 
     private void ensureCapacity(long numBuckets) {
-        runLens = bigArrays.grow(runLens, numBuckets << p);
+        offsets = bigArrays.grow(offsets, numBuckets);
+        hashSet.ensureCapacity(numBuckets);
     }
 
     public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
@@ -203,8 +247,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
         }
         ensureCapacity(thisBucket + 1);
         if (other.algorithm.get(otherBucket) == LINEAR_COUNTING) {
-            final IntArray values = other.hashSet.values(otherBucket);
-            try {
+            // merge hashes one by one so that merging sparse buckets never allocates registers. The hashes are copied first since
+            // other might be this instance, whose hash tables move as hashes are added to thisBucket.
+            try (IntArray values = other.hashSet.values(otherBucket)) {
                 for (long i = 0; i < values.size(); ++i) {
                     final int encoded = values.get(i);
                     if (algorithm.get(thisBucket) == LINEAR_COUNTING) {
@@ -213,15 +258,13 @@ public final class HyperLogLogPlusPlus implements Releasable {
                         collectHllEncoded(thisBucket, encoded);
                     }
                 }
-            } finally {
-                Releasables.close(values);
             }
         } else {
             if (algorithm.get(thisBucket) != HYPERLOGLOG) {
                 upgradeToHll(thisBucket);
             }
-            final long thisStart = thisBucket << p;
-            final long otherStart = otherBucket << p;
+            final long thisStart = offsets.get(thisBucket);
+            final long otherStart = other.offsets.get(otherBucket);
             for (int i = 0; i < m; ++i) {
                 runLens.set(thisStart + i, (byte) Math.max(runLens.get(thisStart + i), other.runLens.get(otherStart + i)));
             }
@@ -262,7 +305,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectHll(long bucket, long index, int runLen) {
-        final long bucketIndex = (bucket << p) + index;
+        final long bucketIndex = offsets.get(bucket) + index;
         runLens.set(bucketIndex, (byte) Math.max(runLen, runLens.get(bucketIndex)));
     }
 
@@ -283,7 +326,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private long cardinalityHll(long bucket) {
         double inverseSum = 0;
         int zeros = 0;
-        for (long i = bucket << p, end = i + m; i < end; ++i) {
+        for (long i = offsets.get(bucket), end = i + m; i < end; ++i) {
             final int runLen = runLens.get(i);
             inverseSum += 1. / (1L << runLen);
             if (runLen == 0) {
@@ -306,18 +349,27 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     void upgradeToHll(long bucket) {
+        assert algorithm.get(bucket) == LINEAR_COUNTING;
         ensureCapacity(bucket + 1);
-        final IntArray values = hashSet.values(bucket);
-        try {
-            runLens.fill(bucket << p, (bucket << p) + m, (byte) 0);
-            for (long i = 0; i < values.size(); ++i) {
-                final int encoded = values.get(i);
-                collectHllEncoded(bucket, encoded);
+        final long start = denseBuckets << p;
+        runLens = bigArrays.grow(runLens, start + m);
+        runLens.fill(start, start + m, (byte) 0);
+        denseBuckets++;
+        final int size = hashSet.size(bucket);
+        final long hashesStart = offsets.get(bucket);
+        offsets.set(bucket, start);
+        if (size > 0) {
+            final int capacity = hashSet.capacity(size);
+            for (long i = hashesStart, end = hashesStart + capacity; i < end; ++i) {
+                final int encoded = hashSet.hashes.get(i);
+                if (encoded != 0) {
+                    collectHllEncoded(bucket, encoded);
+                }
             }
-            algorithm.set(bucket);
-        } finally {
-            Releasables.close(values);
+            hashSet.release(hashesStart, capacity);
+            hashSet.sizes.set(bucket, 0);
         }
+        algorithm.set(bucket);
     }
 
     static long linearCounting(long m, long v) {
@@ -417,54 +469,103 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     @Override
     public void close() {
-        Releasables.close(runLens, hashSet.sizes);
+        Releasables.close(offsets, runLens, hashSet.hashes, hashSet.sizes);
     }
 
     /**
-     * We are actually using HyperLogLog's runLens array but interpreting it as a hash set
-     * for linear counting.
+     * Hash tables for linear counting. Every bucket gets its own open-addressing hash table, whose capacity is a power
+     * of two that only depends on the number of hashes it contains. Tables are allocated in a shared array and grown
+     * as hashes are added, so that buckets with few distinct values only use a few bytes. Tables that are released
+     * when a bucket grows or switches to hyperloglog are recycled for other buckets.
      */
     private class Hashset {
 
-        private final int capacity;
+        private final int maxCapacity;
         private final int threshold;
-        private final int mask;
         private IntArray sizes;
-        private final BytesRef readSpare;
-        private final ByteBuffer writeSpare;
+        private IntArray hashes;
+        private long used;
+        // heads of the linked lists of released tables, per capacity, or -1 if there is none
+        private final long[] freeTables;
+
+        Hashset(long initialBucketCount) {
+            maxCapacity = m / 4; // because ints take 4 bytes
+            threshold = (int) (maxCapacity * MAX_LOAD_FACTOR);
+            freeTables = new long[Integer.numberOfTrailingZeros(maxCapacity / MIN_HASH_TABLE_CAPACITY) + 1];
+            Arrays.fill(freeTables, -1);
+            boolean success = false;
+            try {
+                sizes = bigArrays.newIntArray(initialBucketCount);
+                hashes = bigArrays.newIntArray(initialBucketCount * MIN_HASH_TABLE_CAPACITY);
+                success = true;
+            } finally {
+                if (success == false) {
+                    Releasables.close(sizes);
+                }
+            }
+        }
+
+        void ensureCapacity(long numBuckets) {
+            sizes = bigArrays.grow(sizes, numBuckets);
+        }
+
+        /**
+         * Return the capacity of the hash table of a bucket that contains <code>size</code> hashes.
+         */
+        int capacity(int size) {
+            int capacity = MIN_HASH_TABLE_CAPACITY;
+            while (capacity < maxCapacity && size > capacity * MAX_LOAD_FACTOR) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
 
-        public Hashset(long initialBucketCount) {
-            capacity = m / 4; // because ints take 4 bytes
-            threshold = (int) (capacity * MAX_LOAD_FACTOR);
-            mask = capacity - 1;
-            sizes = bigArrays.newIntArray(initialBucketCount);
-            readSpare = new BytesRef();
-            writeSpare = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        private long allocate(int capacity) {
+            final int freeList = Integer.numberOfTrailingZeros(capacity / MIN_HASH_TABLE_CAPACITY);
+            final long start = freeTables[freeList];
+            if (start >= 0) {
+                // released tables are cleared and store the start of the next released table in their first slot
+                freeTables[freeList] = decodeStart(hashes.get(start));
+                hashes.set(start, 0);
+                return start;
+            }
+            hashes = bigArrays.grow(hashes, used + capacity);
+            hashes.fill(used, used + capacity, 0);
+            final long newStart = used;
+            used += capacity;
+            return newStart;
         }
 
-        private long index (long bucket, int index) {
-            return (bucket << p) + (index << 2);
+        void release(long start, int capacity) {
+            final int freeList = Integer.numberOfTrailingZeros(capacity / MIN_HASH_TABLE_CAPACITY);
+            hashes.fill(start, start + capacity, 0);
+            hashes.set(start, encodeStart(freeTables[freeList]));
+            freeTables[freeList] = start;
         }
 
-        private int get(long bucket, int index) {
-            runLens.get(index(bucket, index), 4, readSpare);
-            return ByteUtils.readIntLE(readSpare.bytes, readSpare.offset);
+        // tables start at multiples of the minimum capacity, which allows addressing more than 2^31 slots with an int
+        private int encodeStart(long start) {
+            assert start < 0 || start % MIN_HASH_TABLE_CAPACITY == 0;
+            return start < 0 ? -1 : (int) (start / MIN_HASH_TABLE_CAPACITY);
         }
 
-        private void set(long bucket, int index, int value) {
-            writeSpare.putInt(0, value);
-            runLens.set(index(bucket, index), writeSpare.array(), 0, 4);
+        private long decodeStart(int encoded) {
+            return encoded < 0 ? -1 : (long) encoded * MIN_HASH_TABLE_CAPACITY;
         }
 
         private int recomputedSize(long bucket) {
-            int size = 0;
-            for (int i = 0; i <= mask; ++i) {
-                final int v = get(bucket, i);
-                if (v != 0) {
-                    ++size;
+            final int size = sizes.get(bucket);
+            if (size == 0) {
+                return 0;
+            }
+            final long start = offsets.get(bucket);
+            int recomputed = 0;
+            for (long i = start, end = start + capacity(size); i < end; ++i) {
+                if (hashes.get(i) != 0) {
+                    ++recomputed;
                 }
             }
-            return size;
+            return recomputed;
         }
 
         public int size(long bucket) {
@@ -481,30 +582,65 @@ public final class HyperLogLogPlusPlus implements Releasable {
          * Return <tt>-1</tt> if the value was already in the set or the new set size if it was added.
          */
         public int add(long bucket, int k) {
-            sizes = bigArrays.grow(sizes, bucket + 1);
             assert k != 0;
+            final int size = sizes.get(bucket);
+            long start;
+            int capacity;
+            if (size == 0) {
+                capacity = capacity(0);
+                start = allocate(capacity);
+                offsets.set(bucket, start);
+            } else {
+                capacity = capacity(size);
+                start = offsets.get(bucket);
+            }
+            if (insert(start, capacity, k) == false) {
+                // k is already in the set
+                return -1;
+            }
+            final int newSize = sizes.increment(bucket, 1);
+            final int newCapacity = capacity(newSize);
+            if (newCapacity != capacity) {
+                final long newStart = allocate(newCapacity);
+                for (long i = start, end = start + capacity; i < end; ++i) {
+                    final int v = hashes.get(i);
+                    if (v != 0) {
+                        insert(newStart, newCapacity, v);
+                    }
+                }
+                release(start, capacity);
+                offsets.set(bucket, newStart);
+            }
+            return newSize;
+        }
+
+        private boolean insert(long start, int capacity, int k) {
+            final int mask = capacity - 1;
             for (int i = (k & mask); ; i = (i + 1) & mask) {
-                final int v = get(bucket, i);
+                final int v = hashes.get(start + i);
                 if (v == 0) {
                     // means unused, take it!
-                    set(bucket, i, k);
-                    return sizes.increment(bucket, 1);
+                    hashes.set(start + i, k);
+                    return true;
                 } else if (v == k) {
-                    // k is already in the set
-                    return -1;
+                    return false;
                 }
             }
         }
 
-        public IntArray values(final long bucket) {
+        /**
+         * Return a copy of the hashes of the given bucket, which must be released by the caller.
+         */
+        IntArray values(long bucket) {
             final int size = size(bucket);
-            final IntArray values = bigArrays.newIntArray(size);
+            final IntArray values = bigArrays.newIntArray(size, false);
             if (size == 0) {
                 return values;
             }
-            int i = 0;
-            for (int j = 0; j < capacity; ++j) {
-                final int k = get(bucket, j);
+            long i = 0;
+            final long start = offsets.get(bucket);
+            for (long j = start, end = start + capacity(size); j < end; ++j) {
+                final int k = hashes.get(j);
                 if (k != 0) {
                     values.set(i++, k);
                 }
@@ -513,21 +649,43 @@ public final class HyperLogLogPlusPlus implements Releasable {
             return values;
         }
 
+        /**
+         * Return the hashes of the given bucket as unsigned values, in ascending order.
+         */
+        long[] sortedValues(long bucket) {
+            try (IntArray values = values(bucket)) {
+                final long[] sorted = new long[Math.toIntExact(values.size())];
+                for (int i = 0; i < sorted.length; ++i) {
+                    sorted[i] = Integer.toUnsignedLong(values.get(i));
+                }
+                Arrays.sort(sorted);
+                return sorted;
+            }
+        }
+
     }
 
     public void writeTo(long bucket, StreamOutput out) throws IOException {
         out.writeVInt(p);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             out.writeBoolean(LINEAR_COUNTING);
-            try (IntArray hashes = hashSet.values(bucket)) {
-                out.writeVLong(hashes.size());
-                for (long i = 0; i < hashes.size(); ++i) {
-                    out.writeInt(hashes.get(i));
+            final long[] hashes = hashSet.sortedValues(bucket);
+            out.writeVLong(hashes.length);
+            if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                // sorted hashes are written as deltas, which take much less space than 4 bytes per hash
+                long previous = 0;
+                for (long hash : hashes) {
+                    out.writeVLong(hash - previous);
+                    previous = hash;
+                }
+            } else {
+                for (long hash : hashes) {
+                    out.writeInt((int) hash);
                 }
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
+            for (long i = offsets.get(bucket), end = i + m; i < end; ++i) {
                 out.writeByte(runLens.get(i));
             }
         }
@@ -536,18 +694,28 @@ public final class HyperLogLogPlusPlus implements Releasable {
     public static HyperLogLogPlusPlus readFrom(StreamInput in, BigArrays bigArrays) throws IOException {
         final int precision = in.readVInt();
         HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
+        counts.ensureCapacity(1);
         final boolean algorithm = in.readBoolean();
         if (algorithm == LINEAR_COUNTING) {
             counts.algorithm.clear(0);
             final long size = in.readVLong();
-            for (long i = 0; i < size; ++i) {
-                final int encoded = in.readInt();
-                counts.hashSet.add(0, encoded);
+            if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+                long hash = 0;
+                for (long i = 0; i < size; ++i) {
+                    hash += in.readVLong();
+                    counts.collectLcEncoded(0, (int) hash);
+                }
+            } else {
+                for (long i = 0; i < size; ++i) {
+                    final int encoded = in.readInt();
+                    counts.collectLcEncoded(0, encoded);
+                }
             }
         } else {
-            counts.algorithm.set(0);
+            counts.upgradeToHll(0);
+            final long start = counts.offsets.get(0);
             for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
+                counts.runLens.set(start + i, in.readByte());
             }
         }
         return counts;
@@ -78,11 +78,18 @@ public class InternalScriptedMetric extends InternalMetricsAggregation implement
         List<Object> aggregationObjects = new ArrayList<>();
         for (InternalAggregation aggregation : aggregations) {
             InternalScriptedMetric mapReduceAggregation = (InternalScriptedMetric) aggregation;
-            aggregationObjects.add(mapReduceAggregation.aggregation());
+            if (mapReduceAggregation.aggregation() instanceof PartiallyReducedAggregations) {
+                aggregationObjects.addAll((PartiallyReducedAggregations) mapReduceAggregation.aggregation());
+            } else {
+                aggregationObjects.add(mapReduceAggregation.aggregation());
+            }
         }
         InternalScriptedMetric firstAggregation = ((InternalScriptedMetric) aggregations.get(0));
         Object aggregation;
-        if (firstAggregation.reduceScript != null) {
+        if (reduceContext.isFinalReduce() == false) {
+            // the reduce script expects the results of all shards, so partial reduces only collect them
+            aggregation = new PartiallyReducedAggregations(aggregationObjects);
+        } else if (firstAggregation.reduceScript != null) {
             Map<String, Object> vars = new HashMap<>();
             vars.put("_aggs", aggregationObjects);
             if (firstAggregation.reduceScript.getParams() != null) {
@@ -116,4 +123,13 @@ public class InternalScriptedMetric extends InternalMetricsAggregation implement
         return builder.field("value", aggregation);
     }
 
+    /**
+     * The shard results collected by a partial reduce. Partial reduces only happen on the coordinating node, so this is never
+     * serialized.
+     */
+    private static final class PartiallyReducedAggregations extends ArrayList<Object> {
+        PartiallyReducedAggregations(List<Object> aggregations) {
+            super(aggregations);
+        }
+    }
 }
@@ -44,6 +44,7 @@ import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.PipelineAggregationBuilder;
 import org.elasticsearch.search.fetch.StoredFieldsContext;
+import org.elasticsearch.search.fetch.subphase.DocValueFieldsContext;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.internal.SearchContext;
@@ -59,7 +60,9 @@ import org.elasticsearch.search.suggest.SuggestBuilder;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -86,11 +89,14 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
     public static final ParseField FIELDS_FIELD = new ParseField("fields");
     public static final ParseField STORED_FIELDS_FIELD = new ParseField("stored_fields");
     public static final ParseField DOCVALUE_FIELDS_FIELD = new ParseField("docvalue_fields", "fielddata_fields");
+    public static final ParseField DOCVALUE_FIELD_FIELD = new ParseField("field");
+    public static final ParseField DOCVALUE_FORMAT_FIELD = new ParseField("format");
     public static final ParseField SCRIPT_FIELDS_FIELD = new ParseField("script_fields");
     public static final ParseField SCRIPT_FIELD = new ParseField("script");
     public static final ParseField IGNORE_FAILURE_FIELD = new ParseField("ignore_failure");
     public static final ParseField SORT_FIELD = new ParseField("sort");
     public static final ParseField TRACK_SCORES_FIELD = new ParseField("track_scores");
+    public static final ParseField TRACK_TOTAL_HITS_FIELD = new ParseField("track_total_hits");
     public static final ParseField INDICES_BOOST_FIELD = new ParseField("indices_boost");
     public static final ParseField AGGREGATIONS_FIELD = new ParseField("aggregations");
     public static final ParseField AGGS_FIELD = new ParseField("aggs");
@@ -141,6 +147,8 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
 
     private boolean trackScores = false;
 
+    private boolean trackTotalHits = true;
+
     private SearchAfterBuilder searchAfterBuilder;
 
     private SliceBuilder sliceBuilder;
@@ -152,6 +160,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
 
     private StoredFieldsContext storedFieldsContext;
     private List<String> docValueFields;
+    private Map<String, String> docValueFieldFormats;
     private List<ScriptField> scriptFields;
     private FetchSourceContext fetchSourceContext;
 
@@ -223,6 +232,10 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         if (in.getVersion().onOrAfter(Version.V_5_3_0_UNRELEASED)) {
             collapse = in.readOptionalWriteable(CollapseBuilder::new);
         }
+        if (in.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            trackTotalHits = in.readBoolean();
+            docValueFieldFormats = (Map<String, String>) in.readGenericValue();
+        }
     }
 
     @Override
@@ -274,6 +287,10 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         if (out.getVersion().onOrAfter(Version.V_5_3_0_UNRELEASED)) {
             out.writeOptionalWriteable(collapse);
         }
+        if (out.getVersion().onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            out.writeBoolean(trackTotalHits);
+            out.writeGenericValue(docValueFieldFormats);
+        }
     }
 
     /**
@@ -485,6 +502,23 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         return trackScores;
     }
 
+    /**
+     * Controls whether the total number of hits is computed exactly. When disabled, queries sorted by a prefix of the
+     * index sort stop collecting each segment once enough documents were collected, and the total number of hits is
+     * only a lower bound. Defaults to <tt>true</tt>.
+     */
+    public SearchSourceBuilder trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    /**
+     * Indicates whether the total number of hits is computed exactly for this request.
+     */
+    public boolean trackTotalHits() {
+        return trackTotalHits;
+    }
+
 
     /**
      * The sort values that indicates which docs this request should "search after".
@@ -771,6 +805,30 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         return this;
     }
 
+    /**
+     * Adds a field to load from the docvalue and return as part of the
+     * search request, formatted with the given format. The format
+     * {@link DocValueFieldsContext#USE_FIELD_MAPPING} formats the values
+     * like the field would format them, for instance with the format of
+     * its mapping for dates.
+     */
+    public SearchSourceBuilder docValueField(String name, String format) {
+        docValueField(name);
+        if (docValueFieldFormats == null) {
+            docValueFieldFormats = new HashMap<>();
+        }
+        docValueFieldFormats.put(name, Objects.requireNonNull(format, "format must not be null"));
+        return this;
+    }
+
+    /**
+     * Gets the formats of the docvalue fields, by field name. Fields that
+     * have no format return the raw values of their doc values.
+     */
+    public Map<String, String> docValueFieldFormats() {
+        return docValueFieldFormats;
+    }
+
     /**
      * Adds a script field under the given name with the provided script.
      *
@@ -903,6 +961,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         rewrittenBuilder.extBuilders = extBuilders;
         rewrittenBuilder.fetchSourceContext = fetchSourceContext;
         rewrittenBuilder.docValueFields = docValueFields;
+        rewrittenBuilder.docValueFieldFormats = docValueFieldFormats;
         rewrittenBuilder.storedFieldsContext = storedFieldsContext;
         rewrittenBuilder.from = from;
         rewrittenBuilder.highlightBuilder = highlightBuilder;
@@ -922,6 +981,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         rewrittenBuilder.terminateAfter = terminateAfter;
         rewrittenBuilder.timeout = timeout;
         rewrittenBuilder.trackScores = trackScores;
+        rewrittenBuilder.trackTotalHits = trackTotalHits;
         rewrittenBuilder.version = version;
         rewrittenBuilder.collapse = collapse;
         return rewrittenBuilder;
@@ -960,6 +1020,8 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                     explain = parser.booleanValue();
                 } else if (TRACK_SCORES_FIELD.match(currentFieldName)) {
                     trackScores = parser.booleanValue();
+                } else if (TRACK_TOTAL_HITS_FIELD.match(currentFieldName)) {
+                    trackTotalHits = parser.booleanValue();
                 } else if (_SOURCE_FIELD.match(currentFieldName)) {
                     fetchSourceContext = FetchSourceContext.fromXContent(context.parser());
                 } else if (STORED_FIELDS_FIELD.match(currentFieldName)) {
@@ -1043,12 +1105,16 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                     storedFieldsContext = StoredFieldsContext.fromXContent(STORED_FIELDS_FIELD.getPreferredName(), context);
                 } else if (DOCVALUE_FIELDS_FIELD.match(currentFieldName)) {
                     docValueFields = new ArrayList<>();
+                    docValueFieldFormats = null;
                     while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
                         if (token == XContentParser.Token.VALUE_STRING) {
                             docValueFields.add(parser.text());
+                        } else if (token == XContentParser.Token.START_OBJECT) {
+                            parseDocValueField(parser, currentFieldName);
                         } else {
                             throw new ParsingException(parser.getTokenLocation(), "Expected [" + XContentParser.Token.VALUE_STRING +
-                                "] in [" + currentFieldName + "] but found [" + token + "]", parser.getTokenLocation());
+                                "] or [" + XContentParser.Token.START_OBJECT + "] in [" + currentFieldName + "] but found [" + token + "]",
+                                parser.getTokenLocation());
                         }
                     }
                 } else if (INDICES_BOOST_FIELD.match(currentFieldName)) {
@@ -1092,6 +1158,43 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         }
     }
 
+    /**
+     * Parses a docvalue field of the form <code>{"field": "name", "format": "format"}</code>, the parser being positioned on the start
+     * of the object.
+     */
+    private void parseDocValueField(XContentParser parser, String arrayName) throws IOException {
+        String field = null;
+        String format = null;
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.VALUE_STRING) {
+                if (DOCVALUE_FIELD_FIELD.match(currentFieldName)) {
+                    field = parser.text();
+                } else if (DOCVALUE_FORMAT_FIELD.match(currentFieldName)) {
+                    format = parser.text();
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(), "Unknown key for a " + token + " in [" + arrayName + "]: ["
+                        + currentFieldName + "].", parser.getTokenLocation());
+                }
+            } else {
+                throw new ParsingException(parser.getTokenLocation(), "Unknown key for a " + token + " in [" + arrayName + "]: ["
+                    + currentFieldName + "].", parser.getTokenLocation());
+            }
+        }
+        if (field == null) {
+            throw new ParsingException(parser.getTokenLocation(), "[" + DOCVALUE_FIELD_FIELD.getPreferredName() + "] is required in ["
+                + arrayName + "]", parser.getTokenLocation());
+        }
+        if (format == null) {
+            docValueField(field);
+        } else {
+            docValueField(field, format);
+        }
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject();
@@ -1151,7 +1254,15 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         if (docValueFields != null) {
             builder.startArray(DOCVALUE_FIELDS_FIELD.getPreferredName());
             for (String fieldDataField : docValueFields) {
-                builder.value(fieldDataField);
+                String format = docValueFieldFormats == null ? null : docValueFieldFormats.get(fieldDataField);
+                if (format == null) {
+                    builder.value(fieldDataField);
+                } else {
+                    builder.startObject();
+                    builder.field(DOCVALUE_FIELD_FIELD.getPreferredName(), fieldDataField);
+                    builder.field(DOCVALUE_FORMAT_FIELD.getPreferredName(), format);
+                    builder.endObject();
+                }
             }
             builder.endArray();
         }
@@ -1176,6 +1287,10 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
             builder.field(TRACK_SCORES_FIELD.getPreferredName(), true);
         }
 
+        if (trackTotalHits == false) {
+            builder.field(TRACK_TOTAL_HITS_FIELD.getPreferredName(), false);
+        }
+
         if (searchAfterBuilder != null) {
             builder.array(SEARCH_AFTER.getPreferredName(), searchAfterBuilder.getSortValues());
         }
@@ -1433,7 +1548,7 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
         return Objects.hash(aggregations, explain, fetchSourceContext, docValueFields, storedFieldsContext, from, highlightBuilder,
                 indexBoosts, minScore, postQueryBuilder, queryBuilder, rescoreBuilders, scriptFields, size,
                 sorts, searchAfterBuilder, sliceBuilder, stats, suggestBuilder, terminateAfter, timeout, trackScores, version,
-                profile, extBuilders, collapse);
+                profile, extBuilders, collapse, trackTotalHits, docValueFieldFormats);
     }
 
     @Override
@@ -1470,6 +1585,8 @@ public final class SearchSourceBuilder extends ToXContentToBytes implements Writ
                 && Objects.equals(version, other.version)
                 && Objects.equals(profile, other.profile)
                 && Objects.equals(extBuilders, other.extBuilders)
-                && Objects.equals(collapse, other.collapse);
+                && Objects.equals(collapse, other.collapse)
+                && Objects.equals(trackTotalHits, other.trackTotalHits)
+                && Objects.equals(docValueFieldFormats, other.docValueFieldFormats);
     }
 }
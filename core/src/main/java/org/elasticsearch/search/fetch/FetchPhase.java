@@ -19,6 +19,10 @@
 
 package org.elasticsearch.search.fetch;
 
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -27,8 +31,10 @@ import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.BitSet;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.lucene.index.ElasticsearchLeafReader;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.text.Text;
@@ -55,6 +61,7 @@ import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -70,6 +77,11 @@ import static org.elasticsearch.common.xcontent.XContentFactory.contentBuilder;
  */
 public class FetchPhase implements SearchPhase {
 
+    /**
+     * The minimum number of consecutive doc ids to load from a segment to read its stored fields sequentially.
+     */
+    static final int SEQUENTIAL_DOCS_THRESHOLD = 10;
+
     private final FetchSubPhase[] fetchSubPhases;
 
     public FetchPhase(List<FetchSubPhase> fetchSubPhases) {
@@ -134,30 +146,46 @@ public class FetchPhase implements SearchPhase {
             }
         }
 
+        // load the documents in doc id order, so that each segment is visited once and its stored fields are read
+        // sequentially, and put the hits back in the order of the doc ids to load
+        DocIdToIndex[] docs = new DocIdToIndex[context.docIdsToLoadSize()];
+        for (int index = 0; index < context.docIdsToLoadSize(); index++) {
+            docs[index] = new DocIdToIndex(context.docIdsToLoad()[context.docIdsToLoadFrom() + index], index);
+        }
+        Arrays.sort(docs);
+
         InternalSearchHit[] hits = new InternalSearchHit[context.docIdsToLoadSize()];
         FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
-        for (int index = 0; index < context.docIdsToLoadSize(); index++) {
+        List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+        int currentReaderIndex = -1;
+        StoredFieldsReader storedFieldsReader = null;
+        for (int index = 0; index < docs.length; index++) {
             if(context.isCancelled()) {
                 throw new TaskCancelledException("cancelled");
             }
-            int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
-            int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-            LeafReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
+            int docId = docs[index].docId;
+            int readerIndex = ReaderUtil.subIndex(docId, leaves);
+            LeafReaderContext subReaderContext = leaves.get(readerIndex);
+            if (currentReaderIndex != readerIndex) {
+                currentReaderIndex = readerIndex;
+                storedFieldsReader = sequentialStoredFieldsReader(subReaderContext, docs, index);
+            }
             int subDocId = docId - subReaderContext.docBase;
 
             final InternalSearchHit searchHit;
             try {
                 int rootDocId = findRootDocumentIfNested(context, subReaderContext, subDocId);
                 if (rootDocId != -1) {
-                    searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId, fieldNames, fieldNamePatterns, subReaderContext);
+                    searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId, fieldNames, fieldNamePatterns, subReaderContext,
+                        storedFieldsReader);
                 } else {
-                    searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId, subReaderContext);
+                    searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId, subReaderContext, storedFieldsReader);
                 }
             } catch (IOException e) {
                 throw ExceptionsHelper.convertToElastic(e);
             }
 
-            hits[index] = searchHit;
+            hits[docs[index].index] = searchHit;
             hitContext.reset(searchHit, subReaderContext, subDocId, context.searcher());
             for (FetchSubPhase fetchSubPhase : fetchSubPhases) {
                 fetchSubPhase.hitExecute(context, hitContext);
@@ -171,6 +199,33 @@ public class FetchPhase implements SearchPhase {
         context.fetchResult().hits(new InternalSearchHits(hits, context.queryResult().topDocs().totalHits, context.queryResult().topDocs().getMaxScore()));
     }
 
+    /**
+     * Returns a stored fields reader that is optimized to read the documents of the given segment in order, or
+     * <code>null</code> if the documents should be read through the segment reader. The optimized reader decompresses
+     * whole blocks of documents at once, so it is only used when the documents to load from the segment, which start at
+     * <code>index</code> in the sorted doc ids, are a range of consecutive doc ids.
+     */
+    private static StoredFieldsReader sequentialStoredFieldsReader(LeafReaderContext context, DocIdToIndex[] docs, int index) {
+        final int maxDocId = context.docBase + context.reader().maxDoc();
+        int end = index;
+        while (end < docs.length && docs[end].docId < maxDocId) {
+            end++;
+        }
+        final int numDocs = end - index;
+        if (numDocs < SEQUENTIAL_DOCS_THRESHOLD || docs[end - 1].docId - docs[index].docId + 1 != numDocs) {
+            return null;
+        }
+        LeafReader reader = context.reader();
+        // elasticsearch readers only carry the shard id, other wrappers may filter the stored fields
+        while (reader instanceof ElasticsearchLeafReader) {
+            reader = ((FilterLeafReader) reader).getDelegate();
+        }
+        if (reader instanceof CodecReader) {
+            return ((CodecReader) reader).getFieldsReader().getMergeInstance();
+        }
+        return null;
+    }
+
     private int findRootDocumentIfNested(SearchContext context, LeafReaderContext subReaderContext, int subDocId) throws IOException {
         if (context.mapperService().hasNested()) {
             BitSet bits = context.bitsetFilterCache().getBitSetProducer(Queries.newNonNestedFilter()).getBitSet(subReaderContext);
@@ -181,11 +236,12 @@ public class FetchPhase implements SearchPhase {
         return -1;
     }
 
-    private InternalSearchHit createSearchHit(SearchContext context, FieldsVisitor fieldsVisitor, int docId, int subDocId, LeafReaderContext subReaderContext) {
+    private InternalSearchHit createSearchHit(SearchContext context, FieldsVisitor fieldsVisitor, int docId, int subDocId,
+                                              LeafReaderContext subReaderContext, @Nullable StoredFieldsReader storedFieldsReader) {
         if (fieldsVisitor == null) {
             return new InternalSearchHit(docId);
         }
-        loadStoredFields(context, subReaderContext, fieldsVisitor, subDocId);
+        loadStoredFields(context, subReaderContext, storedFieldsReader, fieldsVisitor, subDocId);
         fieldsVisitor.postProcess(context.mapperService());
 
         Map<String, SearchHitField> searchFields = null;
@@ -213,15 +269,17 @@ public class FetchPhase implements SearchPhase {
         return searchHit;
     }
 
-    private InternalSearchHit createNestedSearchHit(SearchContext context, int nestedTopDocId, int nestedSubDocId, int rootSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext) throws IOException {
+    private InternalSearchHit createNestedSearchHit(SearchContext context, int nestedTopDocId, int nestedSubDocId, int rootSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext,
+                                                    @Nullable StoredFieldsReader storedFieldsReader) throws IOException {
         // Also if highlighting is requested on nested documents we need to fetch the _source from the root document,
         // otherwise highlighting will attempt to fetch the _source from the nested doc, which will fail,
         // because the entire _source is only stored with the root document.
         final FieldsVisitor rootFieldsVisitor = new FieldsVisitor(context.sourceRequested() || context.highlight() != null);
-        loadStoredFields(context, subReaderContext, rootFieldsVisitor, rootSubDocId);
+        loadStoredFields(context, subReaderContext, storedFieldsReader, rootFieldsVisitor, rootSubDocId);
         rootFieldsVisitor.postProcess(context.mapperService());
 
-        Map<String, SearchHitField> searchFields = getSearchFields(context, nestedSubDocId, fieldNames, fieldNamePatterns, subReaderContext);
+        Map<String, SearchHitField> searchFields = getSearchFields(context, nestedSubDocId, fieldNames, fieldNamePatterns, subReaderContext,
+            storedFieldsReader);
         DocumentMapper documentMapper = context.mapperService().documentMapper(rootFieldsVisitor.uid().type());
         SourceLookup sourceLookup = context.lookup().source();
         sourceLookup.setSegmentAndDocument(subReaderContext, nestedSubDocId);
@@ -274,13 +332,14 @@ public class FetchPhase implements SearchPhase {
         return new InternalSearchHit(nestedTopDocId, rootFieldsVisitor.uid().id(), documentMapper.typeText(), nestedIdentity, searchFields);
     }
 
-    private Map<String, SearchHitField> getSearchFields(SearchContext context, int nestedSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext) {
+    private Map<String, SearchHitField> getSearchFields(SearchContext context, int nestedSubDocId, Set<String> fieldNames, List<String> fieldNamePatterns, LeafReaderContext subReaderContext,
+                                                        @Nullable StoredFieldsReader storedFieldsReader) {
         Map<String, SearchHitField> searchFields = null;
         if (context.hasStoredFields() && !context.storedFieldsContext().fieldNames().isEmpty()) {
             FieldsVisitor nestedFieldsVisitor = new CustomFieldsVisitor(fieldNames == null ? Collections.emptySet() : fieldNames,
                 fieldNamePatterns == null ? Collections.emptyList() : fieldNamePatterns, false);
             if (nestedFieldsVisitor != null) {
-                loadStoredFields(context, subReaderContext, nestedFieldsVisitor, nestedSubDocId);
+                loadStoredFields(context, subReaderContext, storedFieldsReader, nestedFieldsVisitor, nestedSubDocId);
                 nestedFieldsVisitor.postProcess(context.mapperService());
                 if (!nestedFieldsVisitor.fields().isEmpty()) {
                     searchFields = new HashMap<>(nestedFieldsVisitor.fields().size());
@@ -343,12 +402,35 @@ public class FetchPhase implements SearchPhase {
         return nestedIdentity;
     }
 
-    private void loadStoredFields(SearchContext searchContext, LeafReaderContext readerContext, FieldsVisitor fieldVisitor, int docId) {
+    private void loadStoredFields(SearchContext searchContext, LeafReaderContext readerContext, @Nullable StoredFieldsReader storedFieldsReader,
+                                  FieldsVisitor fieldVisitor, int docId) {
         fieldVisitor.reset();
         try {
-            readerContext.reader().document(docId, fieldVisitor);
+            if (storedFieldsReader != null) {
+                storedFieldsReader.visitDocument(docId, fieldVisitor);
+            } else {
+                readerContext.reader().document(docId, fieldVisitor);
+            }
         } catch (IOException e) {
             throw new FetchPhaseExecutionException(searchContext, "Failed to fetch doc id [" + docId + "]", e);
         }
     }
+
+    /**
+     * A doc id to load and the index of its hit in the response.
+     */
+    private static final class DocIdToIndex implements Comparable<DocIdToIndex> {
+        final int docId;
+        final int index;
+
+        DocIdToIndex(int docId, int index) {
+            this.docId = docId;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(DocIdToIndex o) {
+            return Integer.compare(docId, o.docId);
+        }
+    }
 }
@@ -16,19 +16,35 @@
  * specific language governing permissions and limitations
  * under the License.
  */
+
 package org.elasticsearch.search.fetch.subphase;
 
+import org.elasticsearch.common.Nullable;
+
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * All the required context to pull a field from the doc values.
  */
 public class DocValueFieldsContext {
 
+    /**
+     * The format that formats the values of a field like the field does, for instance with the format of its mapping for dates.
+     */
+    public static final String USE_FIELD_MAPPING = "use_field_mapping";
+
     private final List<String> fields;
+    private final Map<String, String> formats;
 
     public DocValueFieldsContext(List<String> fields) {
+        this(fields, null);
+    }
+
+    public DocValueFieldsContext(List<String> fields, @Nullable Map<String, String> formats) {
         this.fields = fields;
+        this.formats = formats == null ? Collections.emptyMap() : formats;
     }
 
     /**
@@ -37,4 +53,12 @@ public class DocValueFieldsContext {
     public List<String> fields() {
         return this.fields;
     }
+
+    /**
+     * Returns the format of the given field, or <code>null</code> if its raw values should be returned.
+     */
+    @Nullable
+    public String format(String field) {
+        return formats.get(field);
+    }
 }
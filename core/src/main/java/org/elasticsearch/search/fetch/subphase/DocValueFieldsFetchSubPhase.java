@@ -16,11 +16,21 @@
  * specific language governing permissions and limitations
  * under the License.
  */
+
 package org.elasticsearch.search.fetch.subphase;
 
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.AtomicNumericFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.fetch.FetchSubPhase;
 import org.elasticsearch.search.internal.InternalSearchHitField;
@@ -29,14 +39,23 @@ import org.elasticsearch.search.internal.SearchContext;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Query sub phase which pulls data from doc values
  *
  * Specifying {@code "docvalue_fields": ["field1", "field2"]}
+ *
+ * The values of a field are formatted with the {@link DocValueFormat} of the field if a format is
+ * given, for instance with {@code "docvalue_fields": [{"field": "date", "format": "use_field_mapping"}]}.
+ * Together with {@code "stored_fields": "_none_"} and {@code "_source": false}, this builds hits
+ * from doc values only, without reading stored fields or parsing the source of the documents.
  */
 public final class DocValueFieldsFetchSubPhase implements FetchSubPhase {
 
+    private static final String CACHE_KEY = "docvalue-fields";
+
     @Override
     public void hitExecute(SearchContext context, HitContext hitContext) {
         if (context.collapse() != null) {
@@ -51,6 +70,13 @@ public final class DocValueFieldsFetchSubPhase implements FetchSubPhase {
         if (context.docValueFieldsContext() == null) {
             return;
         }
+        // the loaded doc values are reused across hits, hits of the same segment being fetched one after the other
+        @SuppressWarnings("unchecked")
+        Map<String, FieldValues> fieldValues = (Map<String, FieldValues>) hitContext.cache().get(CACHE_KEY);
+        if (fieldValues == null) {
+            fieldValues = new HashMap<>();
+            hitContext.cache().put(CACHE_KEY, fieldValues);
+        }
         for (String field : context.docValueFieldsContext().fields()) {
             if (hitContext.hit().fieldsOrNull() == null) {
                 hitContext.hit().fields(new HashMap<>(2));
@@ -60,12 +86,79 @@ public final class DocValueFieldsFetchSubPhase implements FetchSubPhase {
                 hitField = new InternalSearchHitField(field, new ArrayList<>(2));
                 hitContext.hit().fields().put(field, hitField);
             }
-            MappedFieldType fieldType = context.mapperService().fullName(field);
-            if (fieldType != null) {
-                AtomicFieldData data = context.fieldData().getForField(fieldType).load(hitContext.readerContext());
-                ScriptDocValues values = data.getScriptValues();
-                values.setNextDocId(hitContext.docId());
-                hitField.values().addAll(values.getValues());
+            FieldValues values = fieldValues.get(field);
+            if (values == null) {
+                MappedFieldType fieldType = context.mapperService().fullName(field);
+                if (fieldType == null) {
+                    continue;
+                }
+                String format = context.docValueFieldsContext().format(field);
+                values = new FieldValues(context.fieldData().getForField(fieldType), format == null ? null :
+                    fieldType.docValueFormat(DocValueFieldsContext.USE_FIELD_MAPPING.equals(format) ? null : format, null));
+                fieldValues.put(field, values);
+            }
+            values.addValues(hitContext.readerContext(), hitContext.docId(), hitField.values());
+        }
+    }
+
+    /**
+     * The doc values of a field on the current segment.
+     */
+    private static final class FieldValues {
+        private final IndexFieldData<?> fieldData;
+        private final DocValueFormat format;
+        private LeafReaderContext context;
+        private ScriptDocValues<?> scriptValues;
+        private SortedNumericDocValues longValues;
+        private SortedNumericDoubleValues doubleValues;
+        private SortedBinaryDocValues binaryValues;
+
+        FieldValues(IndexFieldData<?> fieldData, DocValueFormat format) {
+            this.fieldData = fieldData;
+            this.format = format;
+        }
+
+        void addValues(LeafReaderContext context, int docId, List<Object> values) {
+            if (this.context != context) {
+                load(context);
+            }
+            if (format == null) {
+                scriptValues.setNextDocId(docId);
+                for (Object value : scriptValues.getValues()) {
+                    // the bytes of binary fields are reused by the doc values of the segment for the next hit
+                    values.add(value instanceof BytesRef ? BytesRef.deepCopyOf((BytesRef) value) : value);
+                }
+            } else if (longValues != null) {
+                longValues.setDocument(docId);
+                for (int i = 0; i < longValues.count(); i++) {
+                    values.add(format.format(longValues.valueAt(i)));
+                }
+            } else if (doubleValues != null) {
+                doubleValues.setDocument(docId);
+                for (int i = 0; i < doubleValues.count(); i++) {
+                    values.add(format.format(doubleValues.valueAt(i)));
+                }
+            } else {
+                binaryValues.setDocument(docId);
+                for (int i = 0; i < binaryValues.count(); i++) {
+                    values.add(format.format(binaryValues.valueAt(i)));
+                }
+            }
+        }
+
+        private void load(LeafReaderContext context) {
+            this.context = context;
+            AtomicFieldData data = fieldData.load(context);
+            if (format == null) {
+                scriptValues = data.getScriptValues();
+            } else if (fieldData instanceof IndexNumericFieldData) {
+                if (((IndexNumericFieldData) fieldData).getNumericType().isFloatingPoint()) {
+                    doubleValues = ((AtomicNumericFieldData) data).getDoubleValues();
+                } else {
+                    longValues = ((AtomicNumericFieldData) data).getLongValues();
+                }
+            } else {
+                binaryValues = data.getBytesValues();
             }
         }
     }
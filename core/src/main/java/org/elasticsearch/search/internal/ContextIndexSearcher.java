@@ -20,9 +20,12 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -30,7 +33,10 @@ import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.query.ProfileWeight;
@@ -39,6 +45,13 @@ import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.profile.query.QueryTimingType;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -57,6 +70,11 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     // TODO revisit moving the profiler to inheritance or wrapping model in the future
     private QueryProfiler profiler;
 
+    /** The executor used to search slices of the shard concurrently, or <tt>null</tt> if the shard is searched by a single thread. */
+    private Executor sliceExecutor;
+
+    private int maxSlices = 1;
+
     public ContextIndexSearcher(Engine.Searcher searcher,
             QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
         super(searcher.reader());
@@ -79,6 +97,122 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.aggregatedDfs = aggregatedDfs;
     }
 
+    /**
+     * Allows {@link #searchConcurrently(Query, CollectorManager)} to split the segments of this searcher into up to <code>maxSlices</code>
+     * slices that are searched concurrently on the given executor.
+     */
+    public void setSliceExecutor(Executor executor, int maxSlices) {
+        if (maxSlices < 1) {
+            throw new IllegalArgumentException("maxSlices must be >= 1, got " + maxSlices);
+        }
+        this.sliceExecutor = executor;
+        this.maxSlices = maxSlices;
+    }
+
+    /**
+     * Returns <tt>true</tt> if {@link #searchConcurrently(Query, CollectorManager)} would search more than one slice of this searcher
+     * concurrently. Profiled searches are never concurrent since the profiler is not thread-safe.
+     */
+    public boolean isConcurrent() {
+        return sliceExecutor != null && maxSlices > 1 && leafContexts.size() > 1 && profiler == null;
+    }
+
+    /**
+     * Searches the given query with one collector per slice of segments. The calling thread searches the first slice and
+     * then runs every slice that has not been picked up by the executor yet, which means that a busy or rejecting executor
+     * makes the search degrade to sequential execution instead of blocking. This is only used by the query phase of
+     * requests that opted in to concurrent search, other searches on this searcher always run on the calling thread.
+     */
+    public <C extends Collector, T> T searchConcurrently(Query query, CollectorManager<C, T> collectorManager) throws IOException {
+        if (isConcurrent() == false) {
+            final C collector = collectorManager.newCollector();
+            search(query, collector);
+            return collectorManager.reduce(Collections.singletonList(collector));
+        }
+        final List<List<LeafReaderContext>> slices = computeSlices(leafContexts, maxSlices);
+        final List<C> collectors = new ArrayList<>(slices.size());
+        boolean needsScores = false;
+        for (int i = 0; i < slices.size(); i++) {
+            final C collector = collectorManager.newCollector();
+            collectors.add(collector);
+            needsScores |= collector.needsScores();
+        }
+        final Weight weight = createNormalizedWeight(query, needsScores);
+        final AtomicBoolean failed = new AtomicBoolean();
+        final List<FutureTask<Void>> tasks = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            final List<LeafReaderContext> leaves = slices.get(i);
+            final C collector = collectors.get(i);
+            tasks.add(new FutureTask<>(() -> {
+                // do not search slices that have not been started yet if the search failed anyway
+                if (failed.get() == false) {
+                    try {
+                        search(leaves, weight, collector);
+                    } catch (Exception e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                sliceExecutor.execute(tasks.get(i));
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread will search this slice itself
+            }
+        }
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            // no-op if the task has already been started by the executor
+            task.run();
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            }
+        }
+        // all slices are done at this point so the collectors can be safely reused by the caller, eg. to get partial results
+        IOUtils.reThrow(failure);
+        return collectorManager.reduce(collectors);
+    }
+
+    /**
+     * Splits the given leaves into at most <code>maxSlices</code> slices of contiguous leaves that have roughly the same
+     * number of documents. Slices are contiguous so that merging their hits tie-breaks on doc ids like a sequential search.
+     */
+    static List<List<LeafReaderContext>> computeSlices(List<LeafReaderContext> leaves, int maxSlices) {
+        long totalDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            totalDocs += leaf.reader().maxDoc();
+        }
+        final long docsPerSlice = Math.max(1, (totalDocs + maxSlices - 1) / maxSlices);
+        final List<List<LeafReaderContext>> slices = new ArrayList<>(maxSlices);
+        List<LeafReaderContext> slice = new ArrayList<>();
+        long sliceDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            slice.add(leaf);
+            sliceDocs += leaf.reader().maxDoc();
+            if (sliceDocs >= docsPerSlice && slices.size() < maxSlices - 1) {
+                slices.add(slice);
+                slice = new ArrayList<>();
+                sliceDocs = 0;
+            }
+        }
+        if (slice.isEmpty() == false) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
     @Override
     public Query rewrite(Query original) throws IOException {
         if (profiler != null) {
@@ -19,9 +19,11 @@
 package org.elasticsearch.search.lookup;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
 
@@ -37,6 +39,12 @@ public class LeafDocLookup implements Map {
 
     private final Map<String, ScriptDocValues> localCacheFieldData = new HashMap<>(4);
 
+    /**
+     * The doc values of the fields accessed through {@link #getForField(String, int)}, by slot.
+     */
+    private String[] slotFieldNames = new String[0];
+    private ScriptDocValues<?>[] slotValues = new ScriptDocValues<?>[0];
+
     private final MapperService mapperService;
     private final IndexFieldDataService fieldDataService;
 
@@ -69,7 +77,15 @@ public class LeafDocLookup implements Map {
     @Override
     public Object get(Object key) {
         // assume its a string...
-        String fieldName = key.toString();
+        return getForField(key.toString());
+    }
+
+    /**
+     * Returns the doc values of the provided field, positioned on the current document.
+     *
+     * @throws IllegalArgumentException if the field is not mapped
+     */
+    public ScriptDocValues<?> getForField(String fieldName) {
         ScriptDocValues scriptValues = localCacheFieldData.get(fieldName);
         if (scriptValues == null) {
             final MappedFieldType fieldType = mapperService.fullName(fieldName);
@@ -90,6 +106,62 @@ public class LeafDocLookup implements Map {
         return scriptValues;
     }
 
+    /**
+     * Returns the doc values of the provided field, positioned on the current document, like {@link #getForField(String)}.
+     * Callers that know up-front which fields they access, like compiled scripts, can assign each field a slot so that the
+     * doc values are retrieved from an array rather than looked up by name on every access. A slot that was used for
+     * another field is reassigned to the provided field.
+     *
+     * @throws IllegalArgumentException if the field is not mapped
+     */
+    public ScriptDocValues<?> getForField(String fieldName, int slot) {
+        if (slot < slotFieldNames.length && fieldName.equals(slotFieldNames[slot])) {
+            ScriptDocValues<?> scriptValues = slotValues[slot];
+            scriptValues.setNextDocId(docId);
+            return scriptValues;
+        }
+        ScriptDocValues<?> scriptValues = getForField(fieldName);
+        if (slot >= slotFieldNames.length) {
+            slotFieldNames = Arrays.copyOf(slotFieldNames, slot + 1);
+            slotValues = Arrays.copyOf(slotValues, slot + 1);
+        }
+        slotFieldNames[slot] = fieldName;
+        slotValues[slot] = scriptValues;
+        return scriptValues;
+    }
+
+    /**
+     * Returns the long doc values of the provided field, positioned on the current document, or {@code null} if the field
+     * does not have long doc values. This lets callers that know they read a single long, like scripts that store
+     * {@code doc['field'].value} in a {@code long}, read it from the doc values without boxing it. The doc values are
+     * kept by slot, like {@link #getForField(String, int)}.
+     *
+     * @throws IllegalArgumentException if the field is not mapped
+     */
+    @Nullable
+    public SortedNumericDocValues getLongValuesForField(String fieldName, int slot) {
+        final ScriptDocValues<?> scriptValues = getForField(fieldName, slot);
+        if (scriptValues instanceof ScriptDocValues.Longs) {
+            return ((ScriptDocValues.Longs) scriptValues).getInternalValues();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the double doc values of the provided field, positioned on the current document, or {@code null} if the field
+     * does not have double doc values, see {@link #getLongValuesForField(String, int)}.
+     *
+     * @throws IllegalArgumentException if the field is not mapped
+     */
+    @Nullable
+    public SortedNumericDoubleValues getDoubleValuesForField(String fieldName, int slot) {
+        final ScriptDocValues<?> scriptValues = getForField(fieldName, slot);
+        if (scriptValues instanceof ScriptDocValues.Doubles) {
+            return ((ScriptDocValues.Doubles) scriptValues).getInternalValues();
+        }
+        return null;
+    }
+
     @Override
     public boolean containsKey(Object key) {
         // assume its a string...
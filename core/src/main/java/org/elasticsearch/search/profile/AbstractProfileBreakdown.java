@@ -92,6 +92,11 @@ public abstract class AbstractProfileBreakdown<T extends Enum<T>> {
         return Collections.unmodifiableMap(map);
     }
 
+    /** Extra information about how the profiled element was executed, empty unless a breakdown collects some. */
+    public Map<String, Object> toDebugMap() {
+        return Collections.emptyMap();
+    }
+
     /**
      * Add <code>other</code>'s timings into this breakdown
      * @param other Another Breakdown to merge with this one
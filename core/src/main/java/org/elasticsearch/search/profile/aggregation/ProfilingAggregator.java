@@ -98,6 +98,9 @@ public class ProfilingAggregator extends Aggregator {
     @Override
     public void postCollection() throws IOException {
         delegate.postCollection();
+        if (delegate instanceof DebugInfoProvider) {
+            ((DebugInfoProvider) delegate).collectDebugInfo(profileBreakdown::addDebugInfo);
+        }
     }
 
 }
@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+
+import java.io.IOException;
+
+/**
+ * Collector that stops collecting a segment once it collected the given number of documents, if the segment is sorted.
+ * The sort of the query must be a prefix of the sort of the index: the documents of a sorted segment are then collected
+ * in sort order, so documents that come after the first <code>numDocsToCollect</code> cannot be competitive. The number
+ * of collected documents is only a lower bound of the number of matches when collection terminated early.
+ */
+public class IndexSortEarlyTerminatingCollector extends FilterCollector {
+    private final int numDocsToCollect;
+    private boolean terminatedEarly;
+
+    /**
+     * Constructor
+     * @param in wrapped collector, which must sort by a prefix of the index sort
+     * @param numDocsToCollect the number of documents to collect on each sorted segment
+     */
+    public IndexSortEarlyTerminatingCollector(Collector in, int numDocsToCollect) {
+        super(in);
+        if (numDocsToCollect <= 0) {
+            throw new IllegalArgumentException("numDocsToCollect must always be > 0, got " + numDocsToCollect);
+        }
+        this.numDocsToCollect = numDocsToCollect;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        final LeafCollector leafCollector = super.getLeafCollector(context);
+        if (context.reader().getIndexSort() == null) {
+            // segments of indices that are not sorted
+            return leafCollector;
+        }
+        return new FilterLeafCollector(leafCollector) {
+            private int numCollected;
+
+            @Override
+            public void collect(int doc) throws IOException {
+                super.collect(doc);
+                if (++numCollected >= numDocsToCollect) {
+                    terminatedEarly = true;
+                    throw new CollectionTerminatedException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns <code>true</code> if the collection of at least one segment terminated early.
+     */
+    public boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+}
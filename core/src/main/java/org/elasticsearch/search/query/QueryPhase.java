@@ -25,6 +25,7 @@ import org.apache.lucene.queries.MinDocQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
@@ -38,6 +39,7 @@ import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
@@ -47,11 +49,14 @@ import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSortConfig;
 import org.elasticsearch.search.collapse.CollapseContext;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.MultiValueMode;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.ProfileShardResult;
@@ -60,14 +65,20 @@ import org.elasticsearch.search.profile.query.CollectorResult;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
 import org.elasticsearch.search.rescore.RescorePhase;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
+import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.search.suggest.SuggestPhase;
 
+import java.io.IOException;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.function.Function;
 
 /**
  * Query phase of a search request, used to run the query and get back from each shard information about the matching documents
@@ -155,10 +166,16 @@ public class QueryPhase implements SearchPhase {
 
             Collector collector;
             Callable<TopDocs> topDocsCallable;
+            IndexSortEarlyTerminatingCollector earlyTerminatingCollector = null;
             DocValueFormat[] sortValueFormats = new DocValueFormat[0];
 
             assert query == searcher.rewrite(query); // already rewritten
 
+            if (searcher instanceof ContextIndexSearcher && ((ContextIndexSearcher) searcher).isConcurrent()
+                    && canSearchConcurrently(searchContext, query)) {
+                return executeConcurrently(searchContext, (ContextIndexSearcher) searcher, query);
+            }
+
             if (searchContext.size() == 0) { // no matter what the value of from is
                 final TotalHitCountCollector totalHitCountCollector = new TotalHitCountCollector();
                 collector = totalHitCountCollector;
@@ -235,6 +252,12 @@ public class QueryPhase implements SearchPhase {
                     }
                 }
                 collector = topDocsCollector;
+                if (canEarlyTerminate(searchContext)) {
+                    // the segments are sorted by the sort of the query, no other document of a segment can be competitive
+                    // once numDocs documents of the segment are collected
+                    earlyTerminatingCollector = new IndexSortEarlyTerminatingCollector(collector, numDocs);
+                    collector = earlyTerminatingCollector;
+                }
                 if (doProfile) {
                     collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_TOP_HITS, Collections.emptyList());
                 }
@@ -410,6 +433,9 @@ public class QueryPhase implements SearchPhase {
             } finally {
                 searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
             }
+            if (earlyTerminatingCollector != null && earlyTerminatingCollector.terminatedEarly()) {
+                queryResult.terminatedEarly(true);
+            }
             if (terminateAfterSet && queryResult.terminatedEarly() == null) {
                 queryResult.terminatedEarly(false);
             }
@@ -428,4 +454,236 @@ public class QueryPhase implements SearchPhase {
             throw new QueryPhaseExecutionException(searchContext, "Failed to execute main query", e);
         }
     }
+
+    /**
+     * Whether the collection of each sorted segment can stop once enough documents were collected. This is the case when the
+     * sort of the request is a prefix of the sort of the index and the total number of hits does not need to be exact.
+     */
+    static boolean canEarlyTerminate(SearchContext searchContext) {
+        if (searchContext.trackTotalHits()
+                || searchContext.sort() == null
+                || searchContext.size() == 0
+                || searchContext.scrollContext() != null
+                || searchContext.searchAfter() != null
+                || searchContext.collapse() != null
+                || searchContext.request() == null
+                || searchContext.request().source() == null) {
+            return false;
+        }
+        IndexSortConfig indexSortConfig = searchContext.mapperService().getIndexSettings().getIndexSortConfig();
+        return isIndexSortPrefix(indexSortConfig, searchContext.request().source().sorts());
+    }
+
+    /**
+     * Returns whether the given sorts are a prefix of the index sort, so that sorted segments return documents in the order of
+     * the sorts.
+     */
+    static boolean isIndexSortPrefix(IndexSortConfig indexSortConfig, List<SortBuilder<?>> sorts) {
+        final IndexSortConfig.FieldSortSpec[] sortSpecs = indexSortConfig.getSortSpecs();
+        if (sorts == null || sorts.isEmpty() || sorts.size() > sortSpecs.length) {
+            return false;
+        }
+        for (int i = 0; i < sorts.size(); i++) {
+            if (sorts.get(i) instanceof FieldSortBuilder == false) {
+                return false;
+            }
+            final FieldSortBuilder sort = (FieldSortBuilder) sorts.get(i);
+            final IndexSortConfig.FieldSortSpec sortSpec = sortSpecs[i];
+            if (sort.getFieldName().equals(sortSpec.getField()) == false
+                    || sort.order() != sortSpec.getOrder()
+                    || sort.getNestedPath() != null
+                    || sort.getNestedFilter() != null) {
+                return false;
+            }
+            final MultiValueMode mode;
+            if (sort.sortMode() == null) {
+                mode = sort.order() == SortOrder.DESC ? MultiValueMode.MAX : MultiValueMode.MIN;
+            } else {
+                mode = MultiValueMode.fromString(sort.sortMode().toString());
+            }
+            final Object missing = sort.missing() == null ? "_last" : sort.missing();
+            if (mode != sortSpec.getMode() || missing.equals(sortSpec.isMissingFirst() ? "_first" : "_last") == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the query phase of the given request may search slices of the shard concurrently. Aggregations and other query
+     * collectors, profiling, scrolls, field collapsing and terminate_after need a single collector that sees all the matches of
+     * the shard so they are always executed sequentially. So are counts that can be computed without collecting any document,
+     * and queries that can stop collecting sorted segments early.
+     * <p>
+     * Collecting aggregations with one aggregator tree per slice and reducing the trees on the shard is not supported:
+     * aggregators share the {@link SearchContext}, its lookup and its big arrays, none of which are thread-safe, so requests
+     * with aggregations only parallelize across shards, like before.
+     */
+    static boolean canSearchConcurrently(SearchContext searchContext, Query query) {
+        if (searchContext.getProfilers() != null
+                || searchContext.queryCollectors().isEmpty() == false
+                || searchContext.scrollContext() != null
+                || searchContext.collapse() != null
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || canEarlyTerminate(searchContext)) {
+            return false;
+        }
+        if (searchContext.size() == 0 && searchContext.parsedPostFilter() == null && searchContext.minimumScore() == null) {
+            while (query instanceof ConstantScoreQuery) {
+                query = ((ConstantScoreQuery) query).getQuery();
+            }
+            return query.getClass() != MatchAllDocsQuery.class && query.getClass() != TermQuery.class;
+        }
+        return true;
+    }
+
+    /**
+     * Executes the query with one top docs collector per slice of the shard, and merges the top docs of all slices.
+     * @return whether the rescoring phase should be executed
+     */
+    private static boolean executeConcurrently(SearchContext searchContext, ContextIndexSearcher searcher, Query query) throws Exception {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        boolean rescore = false;
+        DocValueFormat[] sortValueFormats = new DocValueFormat[0];
+        final CollectorManager<? extends Collector, TopDocs> topDocsManager;
+        if (searchContext.size() == 0) {
+            topDocsManager = new CollectorManager<TotalHitCountCollector, TopDocs>() {
+                @Override
+                public TotalHitCountCollector newCollector() {
+                    return new TotalHitCountCollector();
+                }
+
+                @Override
+                public TopDocs reduce(Collection<TotalHitCountCollector> collectors) {
+                    int totalHits = 0;
+                    for (TotalHitCountCollector collector : collectors) {
+                        totalHits += collector.getTotalHits();
+                    }
+                    return new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, 0);
+                }
+            };
+        } else {
+            final int totalNumDocs = searcher.getIndexReader().numDocs();
+            // top collectors don't like a size of 0
+            int numDocs = Math.max(1, Math.min(searchContext.from() + searchContext.size(), totalNumDocs));
+            final FieldDoc after = searchContext.searchAfter();
+            if (searchContext.sort() != null) {
+                final Sort sort = searchContext.sort().sort;
+                final boolean trackScores = searchContext.trackScores();
+                final int topN = numDocs;
+                topDocsManager = new CollectorManager<TopFieldCollector, TopDocs>() {
+                    @Override
+                    public TopFieldCollector newCollector() throws IOException {
+                        return TopFieldCollector.create(sort, topN, after, true, trackScores, trackScores);
+                    }
+
+                    @Override
+                    public TopDocs reduce(Collection<TopFieldCollector> collectors) throws IOException {
+                        final TopFieldDocs[] topDocs = new TopFieldDocs[collectors.size()];
+                        int i = 0;
+                        for (TopFieldCollector collector : collectors) {
+                            topDocs[i++] = (TopFieldDocs) collector.topDocs();
+                        }
+                        return TopDocs.merge(sort, topN, topDocs);
+                    }
+                };
+                sortValueFormats = searchContext.sort().formats;
+            } else {
+                rescore = !searchContext.rescore().isEmpty();
+                for (RescoreSearchContext rescoreContext : searchContext.rescore()) {
+                    numDocs = Math.max(rescoreContext.window(), numDocs);
+                }
+                final int topN = numDocs;
+                topDocsManager = new CollectorManager<TopScoreDocCollector, TopDocs>() {
+                    @Override
+                    public TopScoreDocCollector newCollector() {
+                        return TopScoreDocCollector.create(topN, after);
+                    }
+
+                    @Override
+                    public TopDocs reduce(Collection<TopScoreDocCollector> collectors) throws IOException {
+                        final TopDocs[] topDocs = new TopDocs[collectors.size()];
+                        int i = 0;
+                        for (TopScoreDocCollector collector : collectors) {
+                            topDocs[i++] = collector.topDocs();
+                        }
+                        return TopDocs.merge(topN, topDocs);
+                    }
+                };
+            }
+        }
+
+        // wrap the collector of every slice the same way as the main collector of a sequential search
+        final Weight postFilterWeight = searchContext.parsedPostFilter() == null ? null
+            : searcher.createNormalizedWeight(searchContext.parsedPostFilter().query(), false);
+        final boolean timeoutSet = searchContext.timeout() != null && !searchContext.timeout().equals(SearchService.NO_TIMEOUT);
+        final SliceCollectorManager<?> collectorManager = SliceCollectorManager.wrap(topDocsManager, collector -> {
+            if (postFilterWeight != null) {
+                collector = new FilteredCollector(collector, postFilterWeight);
+            }
+            if (searchContext.minimumScore() != null) {
+                collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+            }
+            if (timeoutSet) {
+                collector = Lucene.wrapTimeLimitingCollector(collector, searchContext.timeEstimateCounter(),
+                    searchContext.timeout().millis());
+            }
+            return new CancellableCollector(searchContext.getTask()::isCancelled, searchContext.lowLevelCancellation(), collector);
+        });
+
+        TopDocs topDocs;
+        try {
+            topDocs = searcher.searchConcurrently(query, collectorManager);
+        } catch (TimeLimitingCollector.TimeExceededException e) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            queryResult.searchTimedOut(true);
+            // all slices are done when the search returns, so we can still reduce what has been collected
+            topDocs = collectorManager.reduceCollected();
+        } finally {
+            searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+        // merging sets the shard index to the index of the slice, but this is a single shard
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            scoreDoc.shardIndex = -1;
+        }
+        queryResult.topDocs(topDocs, sortValueFormats);
+        return rescore;
+    }
+
+    /**
+     * A {@link CollectorManager} that wraps the top docs collector of every slice, and keeps track of the top docs collectors
+     * so that partial results can be reduced if the search fails, eg. when it times out.
+     */
+    static final class SliceCollectorManager<C extends Collector> implements CollectorManager<Collector, TopDocs> {
+
+        private final CollectorManager<C, TopDocs> topDocsManager;
+        private final Function<Collector, Collector> wrapper;
+        private final List<C> topDocsCollectors = new ArrayList<>();
+
+        private SliceCollectorManager(CollectorManager<C, TopDocs> topDocsManager, Function<Collector, Collector> wrapper) {
+            this.topDocsManager = topDocsManager;
+            this.wrapper = wrapper;
+        }
+
+        static <C extends Collector> SliceCollectorManager<C> wrap(CollectorManager<C, TopDocs> topDocsManager,
+                                                                    Function<Collector, Collector> wrapper) {
+            return new SliceCollectorManager<>(topDocsManager, wrapper);
+        }
+
+        @Override
+        public Collector newCollector() throws IOException {
+            final C collector = topDocsManager.newCollector();
+            topDocsCollectors.add(collector);
+            return wrapper.apply(collector);
+        }
+
+        @Override
+        public TopDocs reduce(Collection<Collector> collectors) throws IOException {
+            return reduceCollected();
+        }
+
+        TopDocs reduceCollected() throws IOException {
+            return topDocsManager.reduce(topDocsCollectors);
+        }
+    }
 }
@@ -24,6 +24,8 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.component.LifecycleComponent;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.transport.BoundTransportAddress;
@@ -39,6 +41,24 @@ public interface Transport extends LifecycleComponent {
 
     Setting<Boolean> TRANSPORT_TCP_COMPRESS = Setting.boolSetting("transport.tcp.compress", false, Property.NodeScope);
 
+    /**
+     * The compression scheme to use for compressed messages, either <code>deflate</code> or <code>lz4</code>. Nodes
+     * that do not support LZ4 are always sent DEFLATE-compressed messages.
+     */
+    Setting<Compressor> TRANSPORT_TCP_COMPRESSION_SCHEME = new Setting<>("transport.tcp.compression_scheme", "deflate",
+        CompressorFactory::compressorForScheme, Property.NodeScope);
+
+    /**
+     * Returns the compressor to use for data sent to a node of the given version, given the configured compressor.
+     * Nodes before 6.0.0 only know how to decompress DEFLATE.
+     */
+    static Compressor compressor(Compressor configured, Version version) {
+        if (version.onOrAfter(Version.V_6_0_0_alpha1_UNRELEASED)) {
+            return configured;
+        }
+        return CompressorFactory.DEFLATE;
+    }
+
     void transportServiceAdapter(TransportServiceAdapter service);
 
     /**
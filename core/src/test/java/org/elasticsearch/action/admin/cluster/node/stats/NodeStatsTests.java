@@ -32,6 +32,8 @@ import org.elasticsearch.monitor.fs.FsInfo;
 import org.elasticsearch.monitor.jvm.JvmStats;
 import org.elasticsearch.monitor.os.OsStats;
 import org.elasticsearch.monitor.process.ProcessStats;
+import org.elasticsearch.node.AdaptiveSelectionStats;
+import org.elasticsearch.node.ResponseCollectorService.ComputedNodeStats;
 import org.elasticsearch.script.ScriptStats;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.VersionUtils;
@@ -238,6 +240,11 @@ public class NodeStatsTests extends ESTestCase {
                 } else {
                     assertEquals(scriptStats.getCacheEvictions(), deserializedNodeStats.getScriptStats().getCacheEvictions());
                     assertEquals(scriptStats.getCompilations(), deserializedNodeStats.getScriptStats().getCompilations());
+                    assertEquals(scriptStats.getCacheHits(), deserializedNodeStats.getScriptStats().getCacheHits());
+                    assertEquals(scriptStats.getCacheMisses(), deserializedNodeStats.getScriptStats().getCacheMisses());
+                    assertEquals(scriptStats.getCompilationTime(), deserializedNodeStats.getScriptStats().getCompilationTime());
+                    assertArrayEquals(scriptStats.getCompilationTimeHistogram(),
+                            deserializedNodeStats.getScriptStats().getCompilationTimeHistogram());
                 }
                 DiscoveryStats discoveryStats = nodeStats.getDiscoveryStats();
                 DiscoveryStats deserializedDiscoveryStats = deserializedNodeStats.getDiscoveryStats();
@@ -273,6 +280,23 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(stats.getIngestCount(), deserializedStats.getIngestCount());
                     }
                 }
+                AdaptiveSelectionStats adaptiveStats = nodeStats.getAdaptiveSelectionStats();
+                AdaptiveSelectionStats deserializedAdaptiveStats = deserializedNodeStats.getAdaptiveSelectionStats();
+                if (adaptiveStats == null) {
+                    assertNull(deserializedAdaptiveStats);
+                } else {
+                    assertEquals(adaptiveStats.getOutgoingConnections(), deserializedAdaptiveStats.getOutgoingConnections());
+                    assertEquals(adaptiveStats.getComputedStats().size(), deserializedAdaptiveStats.getComputedStats().size());
+                    for (Map.Entry<String, ComputedNodeStats> entry : adaptiveStats.getComputedStats().entrySet()) {
+                        ComputedNodeStats stats = entry.getValue();
+                        ComputedNodeStats deserializedStats = deserializedAdaptiveStats.getComputedStats().get(entry.getKey());
+                        assertEquals(stats.nodeId, deserializedStats.nodeId);
+                        assertEquals(stats.queueSize, deserializedStats.queueSize);
+                        assertEquals(stats.responseTime, deserializedStats.responseTime, 0.0);
+                        assertEquals(stats.serviceTime, deserializedStats.serviceTime, 0.0);
+                        assertEquals(stats.rank(1), deserializedStats.rank(1), 0.0);
+                    }
+                }
             }
         }
     }
@@ -382,7 +406,15 @@ public class NodeStatsTests extends ESTestCase {
             }
             allCircuitBreakerStats = new AllCircuitBreakerStats(circuitBreakerStatsArray);
         }
-        ScriptStats scriptStats = frequently() ? new ScriptStats(randomNonNegativeLong(), randomNonNegativeLong()) : null;
+        ScriptStats scriptStats = null;
+        if (frequently()) {
+            long[] compilationTimeHistogram = new long[ScriptStats.COMPILATION_TIME_BUCKETS_IN_MILLIS.length + 1];
+            for (int i = 0; i < compilationTimeHistogram.length; i++) {
+                compilationTimeHistogram[i] = randomNonNegativeLong();
+            }
+            scriptStats = new ScriptStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+                    randomNonNegativeLong(), randomNonNegativeLong(), compilationTimeHistogram);
+        }
         DiscoveryStats discoveryStats = frequently() ? new DiscoveryStats(randomBoolean() ? new PendingClusterStateStats(randomInt(),
                 randomInt(), randomInt()) : null) : null;
         IngestStats ingestStats = null;
@@ -398,8 +430,30 @@ public class NodeStatsTests extends ESTestCase {
             }
             ingestStats = new IngestStats(totalStats, statsPerPipeline);
         }
+        AdaptiveSelectionStats adaptiveSelectionStats = null;
+        if (frequently()) {
+            int numNodes = randomIntBetween(0, 10);
+            Map<String, Long> nodeConnections = new HashMap<>();
+            Map<String, ComputedNodeStats> nodeStats = new HashMap<>();
+            for (int i = 0; i < numNodes; i++) {
+                String nodeId = randomAsciiOfLengthBetween(3, 10);
+                // add outgoing connection info
+                if (frequently()) {
+                    nodeConnections.put(nodeId, randomLongBetween(0, 100));
+                }
+                // add node calculations
+                if (frequently()) {
+                    ComputedNodeStats stats = new ComputedNodeStats(nodeId,
+                        randomIntBetween(1, 10), randomIntBetween(0, 2000),
+                        randomDoubleBetween(1.0, 10000000.0, true),
+                        randomDoubleBetween(1.0, 10000000.0, true));
+                    nodeStats.put(nodeId, stats);
+                }
+            }
+            adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats);
+        }
         //TODO NodeIndicesStats are not tested here, way too complicated to create, also they need to be migrated to Writeable yet
         return new NodeStats(node, randomNonNegativeLong(), null, osStats, processStats, jvmStats, threadPoolStats, fsInfo,
-                transportStats, httpStats, allCircuitBreakerStats, scriptStats, discoveryStats, ingestStats);
+                transportStats, httpStats, allCircuitBreakerStats, scriptStats, discoveryStats, ingestStats, adaptiveSelectionStats);
     }
 }
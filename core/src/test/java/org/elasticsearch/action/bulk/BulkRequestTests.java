@@ -130,6 +130,18 @@ public class BulkRequestTests extends ESTestCase {
         assertThat(bulkRequest.requests().get(2), instanceOf(DeleteRequest.class));
     }
 
+    public void testEstimatedSizeOfItems() throws Exception {
+        BulkRequest bulkRequest = new BulkRequest();
+        String bulkAction = copyToStringFromClasspath("/org/elasticsearch/action/bulk/simple-bulk4.json");
+        bulkRequest.add(bulkAction.getBytes(StandardCharsets.UTF_8), 0, bulkAction.length(), null, null);
+        bulkRequest.add(new DeleteRequest("test", "test", "id"));
+        long sizeInBytes = 0;
+        for (DocWriteRequest request : bulkRequest.requests()) {
+            sizeInBytes += BulkRequest.estimatedSizeInBytes(request);
+        }
+        assertEquals(bulkRequest.estimatedSizeInBytes(), sizeInBytes);
+    }
+
     public void testSimpleBulk6() throws Exception {
         String bulkAction = copyToStringFromClasspath("/org/elasticsearch/action/bulk/simple-bulk6.json");
         BulkRequest bulkRequest = new BulkRequest();
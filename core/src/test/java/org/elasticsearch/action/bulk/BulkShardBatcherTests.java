@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BulkShardBatcherTests extends ESTestCase {
+
+    public void testNoItems() {
+        final AtomicInteger completions = new AtomicInteger();
+        final BulkShardBatcher batcher = new BulkShardBatcher(randomBoolean() ? -1 : randomIntBetween(0, 100),
+            (shardId, items, onCompletion) -> fail("no batch expected"), completions::incrementAndGet);
+        batcher.finish();
+        assertEquals(1, completions.get());
+    }
+
+    public void testSingleBatchPerShardByDefault() {
+        final ShardId[] shards = randomShards();
+        final Map<ShardId, Integer> batchesPerShard = new HashMap<>();
+        final List<Runnable> pendingCompletions = new ArrayList<>();
+        final AtomicInteger completions = new AtomicInteger();
+        final BulkShardBatcher batcher = new BulkShardBatcher(-1, (shardId, items, onCompletion) -> {
+            batchesPerShard.merge(shardId, 1, Integer::sum);
+            pendingCompletions.add(onCompletion);
+        }, completions::incrementAndGet);
+        final int numItems = randomIntBetween(1, 100);
+        final Set<ShardId> usedShards = new HashSet<>();
+        for (int i = 0; i < numItems; i++) {
+            final ShardId shardId = randomFrom(shards);
+            usedShards.add(shardId);
+            batcher.add(shardId, newItem(i), randomIntBetween(0, 1000));
+        }
+        assertTrue("batches must not be sent before the batcher is finished", pendingCompletions.isEmpty());
+        batcher.finish();
+        assertEquals(usedShards, batchesPerShard.keySet());
+        for (int batches : batchesPerShard.values()) {
+            assertEquals(1, batches);
+        }
+        for (Runnable completion : pendingCompletions) {
+            assertEquals(0, completions.get());
+            completion.run();
+        }
+        assertEquals(1, completions.get());
+    }
+
+    public void testBatchesAreBoundedAndSequentialPerShard() {
+        final ShardId[] shards = randomShards();
+        final long maxBatchSize = randomIntBetween(1, 5000);
+        final Map<ShardId, List<Integer>> expectedItems = new HashMap<>();
+        final Map<ShardId, List<Integer>> executedItems = new HashMap<>();
+        final Set<ShardId> executingShards = new HashSet<>();
+        final List<Runnable> pendingCompletions = new ArrayList<>();
+        final AtomicInteger completions = new AtomicInteger();
+        final Map<Integer, Long> itemSizes = new HashMap<>();
+        final BulkShardBatcher batcher = new BulkShardBatcher(maxBatchSize, (shardId, items, onCompletion) -> {
+            assertTrue("batches of the same shard must be executed sequentially", executingShards.add(shardId));
+            long batchSize = 0;
+            for (int i = 0; i < items.size(); i++) {
+                final BulkItemRequest item = items.get(i);
+                executedItems.computeIfAbsent(shardId, s -> new ArrayList<>()).add(item.id());
+                if (i < items.size() - 1) {
+                    batchSize += itemSizes.get(item.id());
+                }
+            }
+            assertTrue("batch is larger than needed", batchSize < maxBatchSize);
+            pendingCompletions.add(() -> {
+                assertTrue(executingShards.remove(shardId));
+                onCompletion.run();
+            });
+        }, completions::incrementAndGet);
+
+        final int numItems = randomIntBetween(1, 200);
+        for (int i = 0; i < numItems; i++) {
+            final ShardId shardId = randomFrom(shards);
+            final long size = randomIntBetween(0, 1000);
+            itemSizes.put(i, size);
+            expectedItems.computeIfAbsent(shardId, s -> new ArrayList<>()).add(i);
+            batcher.add(shardId, newItem(i), size);
+            if (pendingCompletions.isEmpty() == false && randomBoolean()) {
+                // batches may complete while items are still being added
+                pendingCompletions.remove(randomIntBetween(0, pendingCompletions.size() - 1)).run();
+            }
+        }
+        batcher.finish();
+        while (pendingCompletions.isEmpty() == false) {
+            assertEquals(0, completions.get());
+            pendingCompletions.remove(randomIntBetween(0, pendingCompletions.size() - 1)).run();
+        }
+        assertEquals(1, completions.get());
+        assertEquals(expectedItems, executedItems);
+    }
+
+    private static ShardId[] randomShards() {
+        final ShardId[] shards = new ShardId[randomIntBetween(1, 5)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardId("index", "_na_", i);
+        }
+        return shards;
+    }
+
+    private static BulkItemRequest newItem(int id) {
+        return new BulkItemRequest(id, new DeleteRequest("index", "type", Integer.toString(id)));
+    }
+}
@@ -26,7 +26,13 @@ import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResultProvider;
 import org.elasticsearch.search.internal.InternalSearchHit;
@@ -231,4 +237,47 @@ public class SearchPhaseControllerTests extends ESTestCase {
         }
         return fetchResults;
     }
+
+    public void testConsumer() {
+        int bufferSize = randomIntBetween(2, 3);
+        SearchRequest request = new SearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")));
+        request.setBatchedReduceSize(bufferSize);
+        SearchPhaseController.QueryPhaseResultConsumer consumer = searchPhaseController.newResultConsumer(request, 3);
+        assertNotNull(consumer);
+        for (int i = 0; i < 3; i++) {
+            QuerySearchResult result = new QuerySearchResult(i, new SearchShardTarget("node", new Index("a", "b"), i));
+            InternalAggregations aggs = new InternalAggregations(Collections.singletonList(new InternalMax("test", (double) i + 1,
+                DocValueFormat.RAW, Collections.emptyList(), Collections.emptyMap())));
+            result.aggregations(aggs);
+            consumer.consume(result);
+            assertNull(result.aggregations());
+            assertTrue(result.hasAggs());
+        }
+        assertEquals(bufferSize == 2 ? 1 : 0, consumer.getNumReducePhases());
+        List<InternalAggregations> aggs = consumer.consumeAggs();
+        assertEquals(bufferSize == 2 ? 2 : 3, aggs.size());
+        InternalAggregations reduced = InternalAggregations.reduce(aggs,
+            new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null));
+        InternalMax max = (InternalMax) reduced.asList().get(0);
+        assertEquals(3.0D, max.getValue(), 0.0D);
+    }
+
+    public void testNewResultConsumer() {
+        SearchRequest request = new SearchRequest();
+        int bufferSize = randomIntBetween(2, 10);
+        request.setBatchedReduceSize(bufferSize);
+        // no aggregations
+        assertNull(searchPhaseController.newResultConsumer(request, bufferSize + 1));
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.max("test")));
+        // not enough shards to justify partial reduces
+        assertNull(searchPhaseController.newResultConsumer(request, randomIntBetween(1, bufferSize)));
+        assertNotNull(searchPhaseController.newResultConsumer(request, bufferSize + randomIntBetween(1, 10)));
+    }
+
+    public void testConsumerBufferSize() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new SearchPhaseController.QueryPhaseResultConsumer(searchPhaseController, randomIntBetween(-1, 1)));
+        assertEquals("buffer size must be >= 2", e.getMessage());
+    }
 }
@@ -21,12 +21,15 @@ package org.elasticsearch.cluster.routing;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.support.replication.ClusterStateCreationUtils;
+import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.test.ClusterServiceUtils;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
@@ -44,6 +47,7 @@ import java.util.TreeMap;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.object.HasToString.hasToString;
 
 public class OperationRoutingTests extends ESTestCase{
@@ -427,4 +431,74 @@ public class OperationRoutingTests extends ESTestCase{
         }
     }
 
+    public void testAdaptiveReplicaSelection() throws Exception {
+        final int numIndices = 1;
+        final int numShards = 1;
+        final int numReplicas = 2;
+        final String[] indexNames = new String[numIndices];
+        for (int i = 0; i < numIndices; i++) {
+            indexNames[i] = "test" + i;
+        }
+        TestThreadPool threadPool = null;
+        ClusterService clusterService = null;
+        try {
+            threadPool = new TestThreadPool("testAdaptiveReplicaSelection");
+            clusterService = ClusterServiceUtils.createClusterService(threadPool);
+            ClusterServiceUtils.setState(clusterService, ClusterStateCreationUtils.state(indexNames[0], true,
+                ShardRoutingState.STARTED, ShardRoutingState.STARTED, ShardRoutingState.STARTED));
+            final ClusterState state = clusterService.state();
+            final ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            final OperationRouting opRouting = new OperationRouting(Settings.builder()
+                .put(OperationRouting.USE_ADAPTIVE_REPLICA_SELECTION_SETTING.getKey(), true).build(),
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+            final Map<String, Long> outstandingRequests = new HashMap<>();
+
+            // without statistics all the copies are returned
+            GroupShardsIterator groupIterator = opRouting.searchShards(state, indexNames, null, null, collector, outstandingRequests);
+            assertThat(groupIterator.size(), equalTo(numIndices * numShards));
+            ShardIterator shardIterator = groupIterator.iterator().next();
+            assertThat(shardIterator.size(), equalTo(numReplicas + 1));
+            final List<String> nodeIds = new ArrayList<>();
+            ShardRouting shard;
+            while ((shard = shardIterator.nextOrNull()) != null) {
+                nodeIds.add(shard.currentNodeId());
+            }
+            outstandingRequests.clear();
+
+            // the first node is much faster than the other ones
+            final String fastNode = nodeIds.get(0);
+            collector.addNodeStatistics(fastNode, 1, TimeValue.timeValueMillis(50).nanos(), TimeValue.timeValueMillis(40).nanos());
+            for (String nodeId : nodeIds.subList(1, nodeIds.size())) {
+                collector.addNodeStatistics(nodeId, 5, TimeValue.timeValueMillis(100).nanos(), TimeValue.timeValueMillis(80).nanos());
+            }
+            final int slowQueueSize = collector.getNodeStatistics(nodeIds.get(1)).get().queueSize;
+
+            groupIterator = opRouting.searchShards(state, indexNames, null, null, collector, outstandingRequests);
+            shardIterator = groupIterator.iterator().next();
+            assertThat(shardIterator.size(), equalTo(numReplicas + 1));
+            assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo(fastNode));
+            // the chosen node has one more outstanding request
+            assertThat(outstandingRequests.get(fastNode), equalTo(1L));
+            // and the statistics of the other nodes move towards the ones of the chosen node
+            assertThat(collector.getNodeStatistics(nodeIds.get(1)).get().queueSize, lessThan(slowQueueSize));
+
+            // a node that has no statistics yet comes first so that it is measured too
+            final ResponseCollectorService partialCollector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            for (String nodeId : nodeIds.subList(0, nodeIds.size() - 1)) {
+                partialCollector.addNodeStatistics(nodeId, 1, TimeValue.timeValueMillis(50).nanos(), TimeValue.timeValueMillis(40).nanos());
+            }
+            groupIterator = opRouting.searchShards(state, indexNames, null, null, partialCollector, outstandingRequests);
+            assertThat(groupIterator.iterator().next().nextOrNull().currentNodeId(), equalTo(nodeIds.get(nodeIds.size() - 1)));
+
+            // copies are returned in random order when adaptive replica selection is disabled
+            opRouting.setUseAdaptiveReplicaSelection(false);
+            outstandingRequests.clear();
+            groupIterator = opRouting.searchShards(state, indexNames, null, null, collector, outstandingRequests);
+            assertThat(groupIterator.iterator().next().size(), equalTo(numReplicas + 1));
+            assertTrue(outstandingRequests.isEmpty());
+        } finally {
+            IOUtils.close(clusterService);
+            terminate(threadPool);
+        }
+    }
 }
@@ -779,4 +779,105 @@ public class CacheTests extends ESTestCase {
         cache.refresh();
         assertEquals(500, cache.count());
     }
+
+    // fill the cache with entries that are accessed a few times, then insert entries that are only used once and check
+    // that they do not flush the frequently used entries
+    public void testFrequencyBasedAdmission() {
+        // sizes that do not make the frequency sketch grow, and thus forget about frequencies, on the first rejection
+        int maximumWeight = randomFrom(10, 20, 50, 100);
+        List<Integer> evictedKeys = new ArrayList<>();
+        Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(maximumWeight)
+                        .setBufferedReads(randomBoolean())
+                        .setFrequencyBasedAdmission(true)
+                        .removalListener(notification -> evictedKeys.add(notification.getKey()))
+                        .build();
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int j = 0; j < 10; j++) {
+            for (int i = 0; i < maximumWeight; i++) {
+                assertNotNull(cache.get(i));
+            }
+        }
+        for (int i = maximumWeight; i < 2 * maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+            // the new entry is rejected since it is less popular than the least-recently-used entry
+            assertEquals(Integer.valueOf(i), evictedKeys.get(evictedKeys.size() - 1));
+            assertNull(cache.get(i));
+        }
+        assertEquals(maximumWeight, cache.count());
+        assertEquals(maximumWeight, cache.stats().getEvictions());
+        for (int i = 0; i < maximumWeight; i++) {
+            assertNotNull(cache.get(i));
+        }
+    }
+
+    // without frequency-based admission, new entries always replace the least-recently-used entries
+    public void testNoFrequencyBasedAdmission() {
+        int maximumWeight = randomIntBetween(10, 100);
+        Cache<Integer, String> cache = CacheBuilder.<Integer, String>builder().setMaximumWeight(maximumWeight).build();
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+            assertNotNull(cache.get(i));
+            assertNotNull(cache.get(i));
+        }
+        for (int i = maximumWeight; i < 2 * maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int i = 0; i < maximumWeight; i++) {
+            assertNull(cache.get(i));
+            assertNotNull(cache.get(maximumWeight + i));
+        }
+    }
+
+    // hit the cache from many threads so that the read buffers fill up and are drained concurrently, then check that the
+    // cache is consistent
+    public void testConcurrentReads() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        final int maximumWeight = randomIntBetween(10, 500);
+        final Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(maximumWeight)
+                        .setBufferedReads(true)
+                        .setFrequencyBasedAdmission(randomBoolean())
+                        .build();
+
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(2 * maximumWeight);
+                        if (cache.get(key) == null) {
+                            cache.put(key, Integer.toString(key));
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        cache.refresh();
+        assertEquals(maximumWeight, cache.count());
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : cache.keys()) {
+            keys.add(key);
+        }
+        assertEquals(maximumWeight, keys.size());
+        for (Integer key : keys) {
+            assertEquals(Integer.toString(key), cache.get(key));
+        }
+    }
 }
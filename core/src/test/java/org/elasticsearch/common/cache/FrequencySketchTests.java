@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+
+public class FrequencySketchTests extends ESTestCase {
+
+    public void testEmpty() {
+        FrequencySketch sketch = new FrequencySketch();
+        assertEquals(0, sketch.frequency(randomInt()));
+        sketch.increment(randomInt());
+        assertEquals(0, sketch.frequency(randomInt()));
+    }
+
+    public void testIncrement() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(randomIntBetween(1, 1000));
+        Integer key = randomInt();
+        int increments = randomIntBetween(1, 2 * FrequencySketch.MAX_FREQUENCY);
+        for (int i = 0; i < increments; i++) {
+            sketch.increment(key);
+        }
+        // count-min sketches never underestimate frequencies
+        assertEquals(Math.min(increments, FrequencySketch.MAX_FREQUENCY), sketch.frequency(key));
+    }
+
+    public void testAging() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16);
+        Integer hot = -1;
+        for (int i = 0; i < FrequencySketch.MAX_FREQUENCY; i++) {
+            sketch.increment(hot);
+        }
+        assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(hot));
+        // enough increments of other keys to trigger at least one reset
+        for (int i = 0; i < 20 * 16; i++) {
+            sketch.increment(i);
+        }
+        assertTrue(sketch.frequency(hot) < FrequencySketch.MAX_FREQUENCY);
+    }
+
+    public void testEnsureCapacityResets() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16);
+        sketch.increment(1);
+        assertEquals(1, sketch.frequency(1));
+        sketch.ensureCapacity(16);
+        assertEquals(1, sketch.frequency(1));
+        sketch.ensureCapacity(1024);
+        assertEquals(0, sketch.frequency(1));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * Test streaming compression with LZ4
+ */
+public class LZ4CompressTests extends DeflateCompressTests {
+
+    @Override
+    protected Compressor newCompressor() {
+        return new LZ4Compressor();
+    }
+
+    public void testDetection() throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        String value = randomRealisticUnicodeOfLengthBetween(0, 2 * LZ4Compressor.BLOCK_SIZE);
+        try (StreamOutput out = CompressorFactory.LZ4.streamOutput(bStream)) {
+            out.writeString(value);
+        }
+        BytesReference bytes = bStream.bytes();
+        assertTrue(CompressorFactory.isCompressed(bytes));
+        assertSame(CompressorFactory.LZ4, CompressorFactory.compressor(bytes));
+        try (StreamInput in = CompressorFactory.compressor(bytes).streamInput(bytes.streamInput())) {
+            assertEquals(value, in.readString());
+            assertEquals(-1, in.read());
+        }
+        assertEquals(value, CompressorFactory.uncompress(bytes).streamInput().readString());
+    }
+
+    public void testFlush() throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        int numValues = randomIntBetween(1, 10);
+        try (StreamOutput out = CompressorFactory.LZ4.streamOutput(bStream)) {
+            for (int i = 0; i < numValues; i++) {
+                out.writeVInt(i);
+                if (randomBoolean()) {
+                    out.flush();
+                }
+            }
+        }
+        try (StreamInput in = CompressorFactory.LZ4.streamInput(bStream.bytes().streamInput())) {
+            for (int i = 0; i < numValues; i++) {
+                assertEquals(i, in.readVInt());
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    public void testCompressorForScheme() {
+        assertSame(CompressorFactory.DEFLATE, CompressorFactory.compressorForScheme("deflate"));
+        assertSame(CompressorFactory.LZ4, CompressorFactory.compressorForScheme("lz4"));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> CompressorFactory.compressorForScheme("lzf"));
+        assertEquals("unknown compression scheme [lzf], must be one of [deflate, lz4]", e.getMessage());
+    }
+}
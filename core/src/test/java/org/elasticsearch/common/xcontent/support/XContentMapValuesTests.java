@@ -19,6 +19,8 @@
 
 package org.elasticsearch.common.xcontent.support;
 
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.CheckedBiConsumer;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -599,4 +601,79 @@ public class XContentMapValuesTests extends ESTestCase {
         expected.put("photosCount", 2);
         assertEquals(expected, filtered);
     }
+
+    public void testFilterXContent() throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject()
+                .field("field", "value")
+                .field("photosCount", 2)
+                .array("photos", "foo", "bar")
+                .nullField("null_field")
+                .startObject("obj1")
+                    .field("f1", "v1")
+                    .startObject("obj2")
+                        .field("f2", 2)
+                        .startObject("obj3").endObject()
+                    .endObject()
+                .endObject()
+                .startArray("nested")
+                    .startObject().field("a", 1).field("b", 2).endObject()
+                    .startObject().field("a", 3).startArray("c").value(1).startArray().value(2).endArray().endArray().endObject()
+                    .startObject().endObject()
+                    .value("leaf")
+                .endArray()
+                .field("dotted.field", "dotted")
+                .startObject("empty").endObject()
+                .endObject();
+        Map<String, Object> source = XContentHelper.convertToMap(builder.bytes(), true).v2();
+
+        String[][] filters = new String[][] {
+            {}, {},
+            {"field"}, {},
+            {"obj1"}, {},
+            {"obj1"}, {"obj1.obj2.f2"},
+            {}, {"*.obj2"},
+            {"*.obj2"}, {"*.obj3"},
+            {"nested.a"}, {},
+            {"nested"}, {"nested.b"},
+            {"nested.c"}, {},
+            {"photos*"}, {"photos"},
+            {"dotted"}, {},
+            {"obj1.*", "empty"}, {"obj1.f1"},
+            {"*"}, {"null_field", "nested.*"},
+            {"unknown"}, {},
+        };
+        for (int i = 0; i < filters.length; i += 2) {
+            String[] includes = filters[i];
+            String[] excludes = filters[i + 1];
+            XContentBuilder filtered = XContentFactory.jsonBuilder();
+            try (XContentParser parser = createParser(builder)) {
+                XContentMapValues.filterXContent(includes, excludes).accept(parser, filtered);
+                assertNull(parser.nextToken());
+            }
+            assertEquals("includes " + Arrays.toString(includes) + " excludes " + Arrays.toString(excludes),
+                    XContentMapValues.filter(source, includes, excludes), XContentHelper.convertToMap(filtered.bytes(), true).v2());
+        }
+    }
+
+    public void testFilterXContentPreservesOrder() throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject()
+                .field("c", 1)
+                .field("b", 2)
+                .field("a", 3)
+                .field("d", 4)
+                .endObject();
+        XContentBuilder filtered = XContentFactory.jsonBuilder();
+        try (XContentParser parser = createParser(builder)) {
+            XContentMapValues.filterXContent(Strings.EMPTY_ARRAY, new String[] {"b"}).accept(parser, filtered);
+        }
+        assertEquals("{\"c\":1,\"a\":3,\"d\":4}", filtered.string());
+    }
+
+    public void testFilterXContentRequiresAnObject() throws IOException {
+        try (XContentParser parser = createParser(JsonXContent.jsonXContent, "[1, 2]")) {
+            CheckedBiConsumer<XContentParser, XContentBuilder, IOException> filter =
+                XContentMapValues.filterXContent(Strings.EMPTY_ARRAY, Strings.EMPTY_ARRAY);
+            expectThrows(ElasticsearchParseException.class, () -> filter.accept(parser, XContentFactory.jsonBuilder()));
+        }
+    }
 }
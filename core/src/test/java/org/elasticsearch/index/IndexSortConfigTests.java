@@ -0,0 +1,136 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSelector;
+import org.apache.lucene.search.SortedSetSortField;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class IndexSortConfigTests extends ESTestCase {
+
+    private static Map<String, MappedFieldType> fieldTypes() {
+        Map<String, MappedFieldType> fieldTypes = new HashMap<>();
+        MappedFieldType keyword = new KeywordFieldMapper.KeywordFieldType();
+        keyword.setName("host");
+        keyword.setHasDocValues(true);
+        fieldTypes.put("host", keyword);
+        MappedFieldType rank = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
+        rank.setName("rank");
+        fieldTypes.put("rank", rank);
+        MappedFieldType count = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.INTEGER);
+        count.setName("count");
+        count.setHasDocValues(false);
+        fieldTypes.put("count", count);
+        return fieldTypes;
+    }
+
+    public void testNoIndexSort() {
+        IndexSortConfig config = new IndexSortConfig(Settings.EMPTY);
+        assertFalse(config.hasIndexSort());
+        assertNull(config.buildIndexSort(fieldTypes()::get));
+    }
+
+    public void testDefaults() {
+        IndexSortConfig config = new IndexSortConfig(Settings.builder().put("index.sort.field", "rank").build());
+        assertTrue(config.hasIndexSort());
+        IndexSortConfig.FieldSortSpec[] sortSpecs = config.getSortSpecs();
+        assertThat(sortSpecs.length, equalTo(1));
+        assertThat(sortSpecs[0].getField(), equalTo("rank"));
+        assertThat(sortSpecs[0].getOrder(), equalTo(SortOrder.ASC));
+        assertThat(sortSpecs[0].getMode(), equalTo(MultiValueMode.MIN));
+        assertFalse(sortSpecs[0].isMissingFirst());
+
+        SortedNumericSortField sortField = (SortedNumericSortField) config.buildIndexSort(fieldTypes()::get).getSort()[0];
+        assertThat(sortField.getNumericType(), equalTo(SortField.Type.DOUBLE));
+        assertThat(sortField.getSelector(), equalTo(SortedNumericSelector.Type.MIN));
+        assertFalse(sortField.getReverse());
+        assertThat(sortField.getMissingValue(), equalTo(Double.POSITIVE_INFINITY));
+    }
+
+    public void testBuildIndexSort() {
+        IndexSortConfig config = new IndexSortConfig(Settings.builder()
+            .putArray("index.sort.field", "host", "rank")
+            .putArray("index.sort.order", "desc", "desc")
+            .putArray("index.sort.mode", "min", "max")
+            .putArray("index.sort.missing", "_last", "_first")
+            .build());
+        Sort sort = config.buildIndexSort(fieldTypes()::get);
+        assertThat(sort.getSort().length, equalTo(2));
+
+        SortedSetSortField host = (SortedSetSortField) sort.getSort()[0];
+        assertThat(host.getField(), equalTo("host"));
+        assertTrue(host.getReverse());
+        assertThat(host.getSelector(), equalTo(SortedSetSelector.Type.MIN));
+        // missing values sort last, that is first in reverse order
+        assertThat(host.getMissingValue(), equalTo(SortField.STRING_FIRST));
+
+        SortedNumericSortField rank = (SortedNumericSortField) sort.getSort()[1];
+        assertThat(rank.getField(), equalTo("rank"));
+        assertTrue(rank.getReverse());
+        assertThat(rank.getSelector(), equalTo(SortedNumericSelector.Type.MAX));
+        assertThat(rank.getMissingValue(), equalTo(Double.POSITIVE_INFINITY));
+    }
+
+    public void testInvalidSettings() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new IndexSortConfig(Settings.builder()
+            .putArray("index.sort.field", "host", "rank")
+            .put("index.sort.order", "desc")
+            .build()));
+        assertThat(e.getMessage(), containsString("[index.sort.order] has [1] values but [index.sort.field] has [2]"));
+
+        e = expectThrows(IllegalArgumentException.class, () -> new IndexSortConfig(Settings.builder()
+            .put("index.sort.field", "rank")
+            .put("index.sort.mode", "avg")
+            .build()));
+        assertThat(e.getMessage(), containsString("illegal index sort mode: [avg]"));
+
+        e = expectThrows(IllegalArgumentException.class, () -> new IndexSortConfig(Settings.builder()
+            .put("index.sort.field", "rank")
+            .put("index.sort.missing", "0")
+            .build()));
+        assertThat(e.getMessage(), containsString("illegal index sort missing value: [0]"));
+    }
+
+    public void testInvalidFields() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new IndexSortConfig(Settings.builder().put("index.sort.field", "unknown").build()).buildIndexSort(fieldTypes()::get));
+        assertThat(e.getMessage(), equalTo("unknown index sort field: [unknown]"));
+
+        e = expectThrows(IllegalArgumentException.class,
+            () -> new IndexSortConfig(Settings.builder().put("index.sort.field", "count").build()).buildIndexSort(fieldTypes()::get));
+        assertThat(e.getMessage(), equalTo("docvalues not found for index sort field: [count]"));
+    }
+}
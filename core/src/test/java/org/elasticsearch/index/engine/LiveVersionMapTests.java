@@ -19,12 +19,17 @@
 
 package org.elasticsearch.index.engine;
 
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
 import org.elasticsearch.bootstrap.JavaVersion;
 import org.elasticsearch.test.ESTestCase;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class LiveVersionMapTests extends ESTestCase {
 
     public void testRamBytesUsed() throws Exception {
@@ -57,4 +62,88 @@ public class LiveVersionMapTests extends ESTestCase {
         assertEquals(actualRamBytesUsed, estimatedRamBytesUsed, actualRamBytesUsed / 4);
     }
 
+    public void testCompactMatchesConcurrent() throws Exception {
+        LiveVersionMap concurrent = new LiveVersionMap(false);
+        LiveVersionMap compact = new LiveVersionMap(true);
+        final int numIds = randomIntBetween(10, 1000);
+        final int numOps = scaledRandomIntBetween(100, 10000);
+        for (int i = 0; i < numOps; ++i) {
+            final BytesRef uid = new BytesRef("id" + randomInt(numIds));
+            final Term term = new Term("_uid", uid);
+            assertVersionValueEquals(concurrent.getUnderLock(term), compact.getUnderLock(term));
+            final VersionValue version;
+            if (randomBoolean()) {
+                version = new DeleteVersionValue(randomNonNegativeLong(), randomNonNegativeLong());
+            } else {
+                version = new VersionValue(randomNonNegativeLong());
+            }
+            concurrent.putUnderLock(uid, version);
+            compact.putUnderLock(uid, version);
+            assertVersionValueEquals(version, compact.getUnderLock(term));
+            if (rarely()) {
+                concurrent.beforeRefresh();
+                compact.beforeRefresh();
+                if (randomBoolean()) {
+                    concurrent.afterRefresh(true);
+                    compact.afterRefresh(true);
+                }
+            }
+            if (rarely()) {
+                concurrent.removeTombstoneUnderLock(uid);
+                compact.removeTombstoneUnderLock(uid);
+            }
+        }
+        for (int i = 0; i <= numIds; ++i) {
+            final Term term = new Term("_uid", "id" + i);
+            assertVersionValueEquals(concurrent.getUnderLock(term), compact.getUnderLock(term));
+        }
+    }
+
+    public void testCompactRefresh() throws Exception {
+        LiveVersionMap map = new LiveVersionMap(true);
+        Map<BytesRef, VersionValue> versions = new HashMap<>();
+        final int numIds = scaledRandomIntBetween(100, 10000);
+        for (int i = 0; i < numIds; ++i) {
+            BytesRef uid = new BytesRef("id" + i);
+            VersionValue version = new VersionValue(randomNonNegativeLong());
+            map.putUnderLock(uid, version);
+            versions.put(uid, version);
+        }
+        final long ramBytesUsed = map.ramBytesUsedForRefresh();
+
+        // while the refresh is running, versions are still available from the old map
+        map.beforeRefresh();
+        assertTrue(map.ramBytesUsedForRefresh() < ramBytesUsed);
+        BytesRef updated = new BytesRef("id" + randomInt(numIds - 1));
+        VersionValue updatedVersion = new VersionValue(randomNonNegativeLong());
+        map.putUnderLock(updated, updatedVersion);
+        versions.put(updated, updatedVersion);
+        for (Map.Entry<BytesRef, VersionValue> entry : versions.entrySet()) {
+            assertVersionValueEquals(entry.getValue(), map.getUnderLock(new Term("_uid", entry.getKey())));
+        }
+
+        // once the refresh is done, only the versions that were set during the refresh are retained
+        map.afterRefresh(true);
+        for (Map.Entry<BytesRef, VersionValue> entry : versions.entrySet()) {
+            VersionValue version = map.getUnderLock(new Term("_uid", entry.getKey()));
+            if (entry.getKey().equals(updated)) {
+                assertVersionValueEquals(updatedVersion, version);
+            } else {
+                assertNull(version);
+            }
+        }
+    }
+
+    private static void assertVersionValueEquals(VersionValue expected, VersionValue actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.delete(), actual.delete());
+        assertEquals(expected.version(), actual.version());
+        if (expected.delete()) {
+            assertEquals(expected.time(), actual.time());
+        }
+    }
 }
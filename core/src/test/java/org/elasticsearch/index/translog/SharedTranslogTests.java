@@ -0,0 +1,277 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.seqno.SequenceNumbersService;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.IndexSettingsModule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.greaterThan;
+
+public class SharedTranslogTests extends ESTestCase {
+
+    private final ShardId shardId = new ShardId("index", "_na_", 1);
+
+    private TranslogConfig getTranslogConfig(Path path, SharedTranslog sharedTranslog) {
+        Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .build();
+        return new TranslogConfig(shardId, path, IndexSettingsModule.newIndexSettings(shardId.getIndex(), settings),
+            BigArrays.NON_RECYCLING_INSTANCE, sharedTranslog);
+    }
+
+    private Translog create(Path path, SharedTranslog sharedTranslog) throws IOException {
+        return new Translog(getTranslogConfig(path, sharedTranslog), null, () -> SequenceNumbersService.UNASSIGNED_SEQ_NO);
+    }
+
+    public void testRecoverOperationsSyncedToSharedTranslog() throws IOException {
+        final Path dataPath = createTempDir();
+        final SharedTranslog sharedTranslog =
+            new SharedTranslog(dataPath, dataPath.resolve("shared"), new ByteSizeValue(1, ByteSizeUnit.MB), r -> {});
+        final int numTranslogs = randomIntBetween(1, 3);
+        final List<Translog> translogs = new ArrayList<>();
+        final List<List<Translog.Operation>> operations = new ArrayList<>();
+        final Path crashPath;
+        try {
+            for (int i = 0; i < numTranslogs; i++) {
+                translogs.add(create(dataPath.resolve("shard" + i), sharedTranslog));
+                operations.add(new ArrayList<>());
+            }
+            final int numOps = scaledRandomIntBetween(10, 1000);
+            for (int i = 0; i < numOps; i++) {
+                final int shard = randomInt(numTranslogs - 1);
+                final Translog.Operation op = new Translog.Index("test", Integer.toString(i), randomByteArrayOfLength(randomInt(128)));
+                final Translog.Location location = translogs.get(shard).add(op);
+                operations.get(shard).add(op);
+                if (rarely()) {
+                    translogs.get(shard).ensureSynced(location);
+                }
+            }
+            for (Translog translog : translogs) {
+                translog.ensureSynced(translog.getLastWriteLocation());
+            }
+            // copy what is on disk, as if the node crashed before the translogs fsynced their own files
+            crashPath = createTempDir();
+            copy(dataPath, crashPath);
+        } finally {
+            IOUtils.close(translogs);
+            sharedTranslog.close();
+        }
+
+        assertRecoveredOperations(crashPath, translogs, operations);
+    }
+
+    public void testRecoverIgnoresWritesAfterLastSync() throws IOException {
+        final Path dataPath = createTempDir();
+        final Path directory = dataPath.resolve("shared");
+        final SharedTranslog sharedTranslog = new SharedTranslog(dataPath, directory, new ByteSizeValue(1, ByteSizeUnit.KB), r -> {});
+        final List<Translog> translogs = new ArrayList<>();
+        final List<List<Translog.Operation>> operations = new ArrayList<>();
+        final Path crashPath;
+        try {
+            translogs.add(create(dataPath.resolve("shard0"), sharedTranslog));
+            operations.add(new ArrayList<>());
+            final Translog translog = translogs.get(0);
+            final int numOps = randomIntBetween(10, 100);
+            for (int i = 0; i < numOps; i++) {
+                final Translog.Operation op = new Translog.Index("test", Integer.toString(i), randomByteArrayOfLength(randomInt(128)));
+                translog.ensureSynced(translog.add(op));
+                operations.get(0).add(op);
+            }
+            crashPath = createTempDir();
+            copy(dataPath, crashPath);
+        } finally {
+            IOUtils.close(translogs);
+            sharedTranslog.close();
+        }
+
+        // as if the node crashed while writing operations that were not fsynced yet
+        try (Stream<Path> segments = Files.list(crashPath.resolve("shared"))) {
+            final Path lastSegment = segments.max((a, b) -> Long.compare(generation(a), generation(b))).get();
+            appendGarbage(lastSegment);
+        }
+        appendGarbage(crashPath.resolve("shard0").resolve(Translog.getFilename(1)));
+        assertRecoveredOperations(crashPath, translogs, operations);
+    }
+
+    public void testConcurrentAppends() throws Exception {
+        final Path dataPath = createTempDir();
+        final List<Runnable> syncs = Collections.synchronizedList(new ArrayList<>());
+        // small segments so that they are rolled while operations are appended concurrently
+        final SharedTranslog sharedTranslog =
+            new SharedTranslog(dataPath, dataPath.resolve("shared"), new ByteSizeValue(1, ByteSizeUnit.KB), syncs::add);
+        final int numTranslogs = randomIntBetween(2, 5);
+        final int numOps = scaledRandomIntBetween(50, 500);
+        final List<Translog> translogs = new ArrayList<>();
+        final List<List<Translog.Operation>> operations = new ArrayList<>();
+        final Path crashPath;
+        try {
+            for (int i = 0; i < numTranslogs; i++) {
+                translogs.add(create(dataPath.resolve("shard" + i), sharedTranslog));
+                operations.add(new ArrayList<>());
+            }
+            final CyclicBarrier barrier = new CyclicBarrier(numTranslogs);
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            final Thread[] threads = new Thread[numTranslogs];
+            for (int t = 0; t < numTranslogs; t++) {
+                final Translog translog = translogs.get(t);
+                final List<Translog.Operation> ops = operations.get(t);
+                threads[t] = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        for (int i = 0; i < numOps; i++) {
+                            final Translog.Operation op = new Translog.Index("test", Integer.toString(i), new byte[i % 128]);
+                            translog.ensureSynced(translog.add(op));
+                            ops.add(op);
+                        }
+                    } catch (Exception e) {
+                        failure.set(e);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull(failure.get());
+            assertThat(sharedTranslog.retainedSegments(), greaterThan(0));
+            assertFalse(syncs.isEmpty());
+            crashPath = createTempDir();
+            copy(dataPath, crashPath);
+        } finally {
+            IOUtils.close(translogs);
+            sharedTranslog.close();
+        }
+
+        assertRecoveredOperations(crashPath, translogs, operations);
+    }
+
+    public void testTragicEvent() throws IOException {
+        final Path dataPath = createTempDir();
+        try (SharedTranslog sharedTranslog =
+                 new SharedTranslog(dataPath, dataPath.resolve("shared"), new ByteSizeValue(1, ByteSizeUnit.MB), r -> {});
+             Translog translog = create(dataPath.resolve("shard0"), sharedTranslog);
+             Translog other = create(dataPath.resolve("shard1"), sharedTranslog)) {
+            translog.ensureSynced(translog.add(new Translog.Index("test", "1", new byte[]{1})));
+            final Translog.Location location = other.add(new Translog.Index("test", "1", new byte[]{1}));
+
+            final IOException tragedy = new IOException("simulated");
+            sharedTranslog.closeWithTragicEvent(tragedy);
+
+            // translogs that can't copy operations to the shared translog fail
+            AlreadyClosedException e = expectThrows(AlreadyClosedException.class,
+                () -> translog.add(new Translog.Index("test", "2", new byte[]{2})));
+            assertSame(tragedy, e.getCause());
+            assertFalse(translog.isOpen());
+            assertNotNull(translog.getTragicException());
+
+            // and operations can't be acknowledged anymore
+            IOException syncFailure = expectThrows(IOException.class, () -> other.ensureSynced(location));
+            assertSame(tragedy, syncFailure.getCause().getCause());
+        }
+    }
+
+    private void assertRecoveredOperations(Path crashPath, List<Translog> translogs, List<List<Translog.Operation>> operations)
+            throws IOException {
+        SharedTranslog.recoverAndDelete(crashPath, crashPath.resolve("shared"));
+        assertFalse(Files.exists(crashPath.resolve("shared")));
+        for (int i = 0; i < translogs.size(); i++) {
+            final Translog.TranslogGeneration generation = new Translog.TranslogGeneration(translogs.get(i).getTranslogUUID(), 1);
+            try (Translog translog = new Translog(getTranslogConfig(crashPath.resolve("shard" + i), null), generation,
+                () -> SequenceNumbersService.UNASSIGNED_SEQ_NO)) {
+                final Translog.Snapshot snapshot = translog.newSnapshot();
+                assertEquals(operations.get(i).size(), snapshot.totalOperations());
+                for (Translog.Operation expected : operations.get(i)) {
+                    assertEquals(expected, snapshot.next());
+                }
+                assertNull(snapshot.next());
+            }
+        }
+    }
+
+    private static long generation(Path segment) {
+        final String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(SharedTranslog.SEGMENT_FILE_PREFIX.length(),
+            fileName.length() - SharedTranslog.SEGMENT_FILE_SUFFIX.length()));
+    }
+
+    private void appendGarbage(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(randomByteArrayOfLength(randomIntBetween(1, 64))));
+        }
+    }
+
+    public void testFullSegmentsAreDeletedOnceTranslogsAreSynced() throws IOException {
+        final Path dataPath = createTempDir();
+        final Path directory = dataPath.resolve("shared");
+        final List<Runnable> syncs = new ArrayList<>();
+        try (SharedTranslog sharedTranslog = new SharedTranslog(dataPath, directory, new ByteSizeValue(1, ByteSizeUnit.KB), syncs::add);
+             Translog translog = create(dataPath.resolve("shard"), sharedTranslog)) {
+            final int numOps = randomIntBetween(100, 200);
+            for (int i = 0; i < numOps; i++) {
+                translog.ensureSynced(translog.add(new Translog.Index("test", Integer.toString(i), new byte[64])));
+            }
+            assertThat(sharedTranslog.retainedSegments(), greaterThan(0));
+            assertFalse(syncs.isEmpty());
+            for (Runnable sync : syncs) {
+                sync.run();
+            }
+            assertEquals(0, sharedTranslog.retainedSegments());
+            try (Stream<Path> segments = Files.list(directory)) {
+                assertEquals(1, segments.count());
+            }
+        }
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                final Path copy = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(copy);
+                } else {
+                    Files.copy(path, copy);
+                }
+            }
+        }
+    }
+}
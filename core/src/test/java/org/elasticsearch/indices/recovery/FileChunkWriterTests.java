@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FileChunkWriterTests extends ESTestCase {
+
+    public void testWriteChunksInOrder() throws Exception {
+        final byte[] file = randomByteArrayOfLength(randomIntBetween(1, 10000));
+        final int chunkSize = randomIntBetween(1, 1000);
+        final List<Object[]> chunks = new ArrayList<>();
+        for (int position = 0; position < file.length; position += chunkSize) {
+            final int length = Math.min(chunkSize, file.length - position);
+            chunks.add(new Object[] { (long) position, new BytesArray(file, position, length), position + length == file.length });
+        }
+        Collections.shuffle(chunks, random());
+
+        final BytesStreamOutput out = new BytesStreamOutput();
+        final AtomicBoolean writing = new AtomicBoolean();
+        final FileChunkWriter writer = new FileChunkWriter((position, content, lastChunk) -> {
+            assertTrue("chunks must not be written concurrently", writing.compareAndSet(false, true));
+            assertEquals(out.size(), position);
+            assertEquals(position + content.length() == file.length, lastChunk);
+            content.writeTo(out);
+            writing.set(false);
+        });
+
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final AtomicInteger completions = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Thread[] threads = new Thread[randomIntBetween(1, 4)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    latch.await();
+                    for (int chunk = nextChunk.getAndIncrement(); chunk < chunks.size(); chunk = nextChunk.getAndIncrement()) {
+                        final Object[] c = chunks.get(chunk);
+                        if (writer.writeChunk((long) c[0], (BytesReference) c[1], (boolean) c[2])) {
+                            completions.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            threads[i].start();
+        }
+        latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, completions.get());
+        assertEquals(new BytesArray(file), out.bytes());
+    }
+}
@@ -37,6 +37,13 @@ public class RecoverySettingsDynamicUpdateTests extends ESTestCase {
         assertEquals(null, recoverySettings.rateLimiter());
     }
 
+    public void testMaxConcurrentFileChunks() {
+        int maxConcurrentFileChunks = between(1, 8);
+        clusterSettings.applySettings(Settings.builder().put(
+                RecoverySettings.INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING.getKey(), maxConcurrentFileChunks).build());
+        assertEquals(maxConcurrentFileChunks, recoverySettings.getMaxConcurrentFileChunks());
+    }
+
     public void testRetryDelayStateSync() {
         long duration = between(1, 1000);
         TimeUnit timeUnit = randomFrom(TimeUnit.MILLISECONDS, TimeUnit.SECONDS, TimeUnit.MINUTES, TimeUnit.HOURS);
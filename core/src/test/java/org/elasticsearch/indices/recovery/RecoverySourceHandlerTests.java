@@ -30,16 +30,20 @@ import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.store.BaseDirectoryWrapper;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.lease.Releasable;
-import org.elasticsearch.common.lucene.store.IndexOutputOutputStream;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardRelocatedException;
@@ -54,11 +58,15 @@ import org.elasticsearch.test.DummyShardLock;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.IndexSettingsModule;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -84,8 +92,12 @@ public class RecoverySourceHandlerTests extends ESTestCase {
                 new DiscoveryNode("b", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT),
             null, randomBoolean(), randomLong());
         Store store = newStore(createTempDir());
-        RecoverySourceHandler handler = new RecoverySourceHandler(null, null, request, () -> 0L, e -> () -> {},
-            recoverySettings.getChunkSize().bytesAsInt(), logger);
+        Store targetStore = newStore(createTempDir());
+        ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        // small chunks so that files are sent in several chunks that may be written out of order by the target
+        RecoverySourceHandler handler = new RecoverySourceHandler(mock(IndexShard.class),
+            new StoreWritingTargetHandler(targetStore, executor), request, () -> 0L, e -> () -> {},
+            randomIntBetween(128, 4096), randomIntBetween(1, 8), logger);
         Directory dir = store.directory();
         RandomIndexWriter writer = new RandomIndexWriter(random(), dir, newIndexWriterConfig());
         int numDocs = randomIntBetween(10, 100);
@@ -103,20 +115,8 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         for (StoreFileMetaData md : metadata) {
             metas.add(md);
         }
-        Store targetStore = newStore(createTempDir());
-        handler.sendFiles(store, metas.toArray(new StoreFileMetaData[0]), (md) -> {
-            try {
-                return new IndexOutputOutputStream(targetStore.createVerifyingOutput(md.name(), md, IOContext.DEFAULT)) {
-                    @Override
-                    public void close() throws IOException {
-                        super.close();
-                        targetStore.directory().sync(Collections.singleton(md.name())); // sync otherwise MDW will mess with it
-                    }
-                };
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        handler.sendFiles(store, metas.toArray(new StoreFileMetaData[0]), () -> 0);
+        terminate(executor);
         Store.MetadataSnapshot targetStoreMetadata = targetStore.getMetadata(null);
         Store.RecoveryDiff recoveryDiff = targetStoreMetadata.recoveryDiff(metadata);
         assertEquals(metas.size(), recoveryDiff.identical.size());
@@ -137,9 +137,12 @@ public class RecoverySourceHandlerTests extends ESTestCase {
             null, randomBoolean(), randomLong());
         Path tempDir = createTempDir();
         Store store = newStore(tempDir, false);
+        Store targetStore = newStore(createTempDir(), false);
+        ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        StoreWritingTargetHandler targetHandler = new StoreWritingTargetHandler(targetStore, executor);
         AtomicBoolean failedEngine = new AtomicBoolean(false);
-        RecoverySourceHandler handler = new RecoverySourceHandler(null, null, request, () -> 0L, e -> () -> {},
-            recoverySettings.getChunkSize().bytesAsInt(), logger) {
+        RecoverySourceHandler handler = new RecoverySourceHandler(mock(IndexShard.class), targetHandler, request, () -> 0L, e -> () -> {},
+            recoverySettings.getChunkSize().bytesAsInt(), randomIntBetween(1, 8), logger) {
             @Override
             protected void failEngine(IOException cause) {
                 assertFalse(failedEngine.get());
@@ -167,27 +170,15 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         CorruptionUtils.corruptFile(random(), FileSystemUtils.files(tempDir, (p) ->
                 (p.getFileName().toString().equals("write.lock") ||
                         p.getFileName().toString().startsWith("extra")) == false));
-        Store targetStore = newStore(createTempDir(), false);
         try {
-            handler.sendFiles(store, metas.toArray(new StoreFileMetaData[0]), (md) -> {
-                try {
-                    return new IndexOutputOutputStream(targetStore.createVerifyingOutput(md.name(), md, IOContext.DEFAULT)) {
-                        @Override
-                        public void close() throws IOException {
-                            super.close();
-                            store.directory().sync(Collections.singleton(md.name())); // sync otherwise MDW will mess with it
-                        }
-                    };
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
+            handler.sendFiles(store, metas.toArray(new StoreFileMetaData[0]), () -> 0);
             fail("corrupted index");
         } catch (IOException ex) {
             assertNotNull(ExceptionsHelper.unwrapCorruption(ex));
         }
+        terminate(executor);
         assertTrue(failedEngine.get());
-        IOUtils.close(store, targetStore);
+        IOUtils.close(targetHandler, store, targetStore);
     }
 
 
@@ -202,8 +193,20 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         Path tempDir = createTempDir();
         Store store = newStore(tempDir, false);
         AtomicBoolean failedEngine = new AtomicBoolean(false);
-        RecoverySourceHandler handler = new RecoverySourceHandler(null, null, request, () -> 0L, e -> () -> {},
-            recoverySettings.getChunkSize().bytesAsInt(), logger) {
+        final boolean throwCorruptedIndexException = randomBoolean();
+        RecoveryTargetHandler targetHandler = new TestRecoveryTargetHandler() {
+            @Override
+            public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk,
+                                       int totalTranslogOps) throws IOException {
+                if (throwCorruptedIndexException) {
+                    throw new RuntimeException(new CorruptIndexException("foo", "bar"));
+                } else {
+                    throw new RuntimeException("boom");
+                }
+            }
+        };
+        RecoverySourceHandler handler = new RecoverySourceHandler(mock(IndexShard.class), targetHandler, request, () -> 0L,
+            e -> () -> {}, recoverySettings.getChunkSize().bytesAsInt(), randomIntBetween(1, 8), logger) {
             @Override
             protected void failEngine(IOException cause) {
                 assertFalse(failedEngine.get());
@@ -227,16 +230,8 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         for (StoreFileMetaData md : metadata) {
             metas.add(md);
         }
-        final boolean throwCorruptedIndexException = randomBoolean();
-        Store targetStore = newStore(createTempDir(), false);
         try {
-            handler.sendFiles(store, metas.toArray(new StoreFileMetaData[0]), (md) -> {
-                if (throwCorruptedIndexException) {
-                    throw new RuntimeException(new CorruptIndexException("foo", "bar"));
-                } else {
-                    throw new RuntimeException("boom");
-                }
-            });
+            handler.sendFiles(store, metas.toArray(new StoreFileMetaData[0]), () -> 0);
             fail("exception index");
         } catch (RuntimeException ex) {
             assertNull(ExceptionsHelper.unwrapCorruption(ex));
@@ -249,7 +244,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
             fail("not expected here");
         }
         assertFalse(failedEngine.get());
-        IOUtils.close(store, targetStore);
+        IOUtils.close(store);
     }
 
     public void testThrowExceptionOnPrimaryRelocatedBeforePhase1Completed() throws IOException {
@@ -265,7 +260,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         AtomicBoolean phase1Called = new AtomicBoolean();
         AtomicBoolean phase2Called = new AtomicBoolean();
         RecoverySourceHandler handler = new RecoverySourceHandler(shard, null, request, () -> 0L, e -> () -> {},
-            recoverySettings.getChunkSize().bytesAsInt(), logger) {
+            recoverySettings.getChunkSize().bytesAsInt(), recoverySettings.getMaxConcurrentFileChunks(), logger) {
 
             @Override
             public void phase1(final IndexCommit snapshot, final Translog.View translogView) {
@@ -325,7 +320,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         };
 
         RecoverySourceHandler handler = new RecoverySourceHandler(shard, targetHandler, request, currentClusterStateVersionSupplier,
-            delayNewRecoveries, recoverySettings.getChunkSize().bytesAsInt(), logger) {
+            delayNewRecoveries, recoverySettings.getChunkSize().bytesAsInt(), recoverySettings.getMaxConcurrentFileChunks(), logger) {
 
             @Override
             public void phase1(final IndexCommit snapshot, final Translog.View translogView) {
@@ -345,6 +340,95 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         assertFalse(recoveriesDelayed.get());
     }
 
+    /**
+     * Writes the chunks it receives to a store on another thread, so that chunks of the same file may be received out of order
+     * like on a real recovery target.
+     */
+    private static class StoreWritingTargetHandler extends TestRecoveryTargetHandler implements Closeable {
+        private final Store targetStore;
+        private final ExecutorService executor;
+        private final Map<String, FileChunkWriter> writers = ConcurrentCollections.newConcurrentMap();
+        private final Map<String, IndexOutput> outputs = ConcurrentCollections.newConcurrentMap();
+
+        StoreWritingTargetHandler(Store targetStore, ExecutorService executor) {
+            this.targetStore = targetStore;
+            this.executor = executor;
+        }
+
+        @Override
+        public void writeFileChunk(StoreFileMetaData md, long position, BytesReference content, boolean lastChunk,
+                                   int totalTranslogOps) throws IOException {
+            final FileChunkWriter writer = writers.computeIfAbsent(md.name(), name -> new FileChunkWriter((chunkPosition, chunkContent,
+                                                                                                         lastChunkOfFile) -> {
+                if (chunkPosition == 0) {
+                    outputs.put(md.name(), targetStore.createVerifyingOutput(md.name(), md, IOContext.DEFAULT));
+                }
+                final IndexOutput output = outputs.get(md.name());
+                final BytesRef bytes = chunkContent.toBytesRef();
+                output.writeBytes(bytes.bytes, bytes.offset, bytes.length);
+                if (lastChunkOfFile) {
+                    outputs.remove(md.name());
+                    try {
+                        Store.verify(output);
+                    } finally {
+                        output.close();
+                    }
+                    targetStore.directory().sync(Collections.singleton(md.name())); // sync otherwise MDW will mess with it
+                }
+            }));
+            writer.writeChunk(position, content, lastChunk);
+        }
+
+        @Override
+        public void writeFileChunk(StoreFileMetaData md, long position, BytesReference content, boolean lastChunk,
+                                   int totalTranslogOps, ActionListener<Void> listener) {
+            executor.execute(() -> super.writeFileChunk(md, position, content, lastChunk, totalTranslogOps, listener));
+        }
+
+        @Override
+        public void close() throws IOException {
+            // files whose last chunk was not sent because of a failure
+            IOUtils.close(outputs.values());
+        }
+    }
+
+    private static class TestRecoveryTargetHandler implements RecoveryTargetHandler {
+        @Override
+        public void prepareForTranslogOperations(int totalTranslogOps, long maxUnsafeAutoIdTimestamp) throws IOException {
+        }
+
+        @Override
+        public void finalizeRecovery(long globalCheckpoint) {
+        }
+
+        @Override
+        public void ensureClusterStateVersion(long clusterStateVersion) {
+        }
+
+        @Override
+        public void indexTranslogOperations(List<Translog.Operation> operations, int totalTranslogOps) {
+        }
+
+        @Override
+        public void receiveFileInfo(List<String> phase1FileNames, List<Long> phase1FileSizes, List<String> phase1ExistingFileNames,
+                                    List<Long> phase1ExistingFileSizes, int totalTranslogOps) {
+        }
+
+        @Override
+        public void cleanFiles(int totalTranslogOps, Store.MetadataSnapshot sourceMetaData) throws IOException {
+        }
+
+        @Override
+        public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk,
+                                   int totalTranslogOps) throws IOException {
+        }
+
+        @Override
+        public String getTargetAllocationId() {
+            return null;
+        }
+    }
+
     private Store newStore(Path path) throws IOException {
         return newStore(path, true);
     }
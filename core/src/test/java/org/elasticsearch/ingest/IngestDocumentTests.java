@@ -88,6 +88,25 @@ public class IngestDocumentTests extends ESTestCase {
         assertThat(ingestDocument.getFieldValue("_source._ingest.timestamp", Date.class), equalTo(BOGUS_TIMESTAMP));
     }
 
+    public void testFieldPathCanBeReused() {
+        FieldPath fieldPath = new FieldPath("fizz.buzz");
+        assertThat(ingestDocument.getFieldValue(fieldPath, String.class), equalTo("hello world"));
+        ingestDocument.setFieldValue(fieldPath, "bye");
+        assertThat(ingestDocument.getFieldValue(fieldPath, String.class), equalTo("bye"));
+        assertTrue(ingestDocument.hasField(fieldPath));
+
+        IngestDocument other = new IngestDocument("index", "type", "id", null, null, Collections.singletonMap("fizz",
+            Collections.singletonMap("buzz", "value")));
+        assertThat(other.getFieldValue(fieldPath, String.class), equalTo("value"));
+
+        FieldPath ingestFieldPath = new FieldPath("_ingest.timestamp");
+        assertThat(ingestDocument.getFieldValue(ingestFieldPath, Date.class),
+            equalTo(ingestDocument.getIngestMetadata().get("timestamp")));
+        ingestDocument.removeField(fieldPath);
+        assertFalse(ingestDocument.hasField(fieldPath));
+        assertNull(ingestDocument.getFieldValue(fieldPath, String.class, true));
+    }
+
     public void testGetSourceObject() {
         try {
             ingestDocument.getFieldValue("_source", Object.class);
@@ -19,12 +19,14 @@
 
 package org.elasticsearch.ingest;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class IngestStatsTests extends ESTestCase {
@@ -59,6 +61,31 @@ public class IngestStatsTests extends ESTestCase {
         assertEquals(leftStats.getIngestCurrent(), rightStats.getIngestCurrent());
     }
 
+    public void testSerializationWithPatternStats() throws IOException {
+        IngestStats.Stats total = new IngestStats.Stats(5, 10, 20, 30);
+        IngestStats.PatternStats patternStats = new IngestStats.PatternStats("grok", "%{WORD:word}", 1, 2, 3, 4);
+        IngestStats ingestStats = new IngestStats(total, Collections.singletonMap("foo", total),
+            Collections.singletonMap("foo", Collections.singletonList(patternStats)));
+        IngestStats serialize = serialize(ingestStats);
+        List<IngestStats.PatternStats> right = serialize.getPatternStatsPerPipeline().get("foo");
+        assertEquals(1, right.size());
+        assertEquals("grok", right.get(0).getProcessorType());
+        assertEquals("%{WORD:word}", right.get(0).getPattern());
+        assertEquals(1, right.get(0).getMatchCount());
+        assertEquals(2, right.get(0).getMissCount());
+        assertEquals(3, right.get(0).getSkipCount());
+        assertEquals(4, right.get(0).getTimeInMillis());
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(Version.V_5_3_0_UNRELEASED);
+        ingestStats.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(Version.V_5_3_0_UNRELEASED);
+        IngestStats bwc = new IngestStats(in);
+        assertEquals(1, bwc.getStatsPerPipeline().size());
+        assertTrue(bwc.getPatternStatsPerPipeline().isEmpty());
+    }
+
     private IngestStats serialize(IngestStats stats) throws IOException {
         BytesStreamOutput out = new BytesStreamOutput();
         stats.writeTo(out);
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class LazySourceMapTests extends ESTestCase {
+
+    private static BytesReference randomSource(XContentType xContentType) throws IOException {
+        XContentBuilder builder = XContentFactory.contentBuilder(xContentType);
+        builder.startObject();
+        builder.field("number", 42);
+        builder.field("string", "value");
+        builder.nullField("null");
+        builder.startObject("object");
+        {
+            builder.field("field", "value");
+            builder.startObject("inner").field("flag", true).endObject();
+            builder.array("array", 1, 2, 3);
+        }
+        builder.endObject();
+        builder.startArray("objects");
+        {
+            builder.startObject().field("field", 1).endObject();
+            builder.startObject().field("field", 2).endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder.bytes();
+    }
+
+    private static Map<String, Object> writeSource(IngestDocument ingestDocument, XContentType xContentType) throws IOException {
+        ingestDocument.extractMetadata();
+        XContentBuilder builder = XContentFactory.contentBuilder(xContentType);
+        ingestDocument.writeSource(builder);
+        return XContentHelper.convertToMap(builder.bytes(), false).v2();
+    }
+
+    public void testUnmodifiedSourceIsWrittenAsIs() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        BytesReference source = randomSource(xContentType);
+        IngestDocument ingestDocument = new IngestDocument("index", "type", "id", null, null, source);
+        assertThat(ingestDocument.getFieldValue("number", Integer.class), equalTo(42));
+        assertThat(ingestDocument.getFieldValue("_id", String.class), equalTo("id"));
+        assertThat(writeSource(ingestDocument, randomFrom(XContentType.values())),
+            equalTo(XContentHelper.convertToMap(source, false).v2()));
+    }
+
+    public void testModificationsAreWritten() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        BytesReference source = randomSource(xContentType);
+        IngestDocument lazy = new IngestDocument("index", "type", "id", null, null, source);
+        IngestDocument eager = new IngestDocument("index", "type", "id", null, null, XContentHelper.convertToMap(source, false).v2());
+        for (IngestDocument ingestDocument : Arrays.asList(lazy, eager)) {
+            ingestDocument.setFieldValue("object.inner.flag", false);
+            ingestDocument.appendFieldValue("object.array", 4);
+            ingestDocument.removeField("string");
+            ingestDocument.setFieldValue("new.field", "value");
+            assertThat(ingestDocument.getFieldValue("objects.1.field", Integer.class), equalTo(2));
+        }
+        // equality needs all objects to be parsed
+        assertEquals(eager.getSourceAndMetadata(), lazy.getSourceAndMetadata());
+        assertThat(writeSource(lazy, xContentType), equalTo(writeSource(eager, xContentType)));
+    }
+
+    public void testRenderTemplate() throws IOException {
+        BytesReference source = randomSource(XContentType.JSON);
+        IngestDocument ingestDocument = new IngestDocument("index", "type", "id", null, null, source);
+        TemplateService.Template template = new TemplateService.Template() {
+            @Override
+            public String execute(Map<String, Object> model) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> object = (Map<String, Object>) model.get("object");
+                return model.get("_index") + "-" + object.get("field");
+            }
+
+            @Override
+            public String getKey() {
+                return "index-value";
+            }
+        };
+        assertThat(ingestDocument.renderTemplate(template), equalTo("index-value"));
+        assertThat(writeSource(ingestDocument, XContentType.JSON), equalTo(XContentHelper.convertToMap(source, false).v2()));
+    }
+}
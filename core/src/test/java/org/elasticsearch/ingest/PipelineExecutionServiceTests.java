@@ -26,7 +26,9 @@ import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.hamcrest.CustomTypeSafeMatcher;
@@ -34,19 +36,27 @@ import org.junit.Before;
 import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
@@ -70,7 +80,7 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         ThreadPool threadPool = mock(ThreadPool.class);
         final ExecutorService executorService = EsExecutors.newDirectExecutorService();
         when(threadPool.executor(anyString())).thenReturn(executorService);
-        executionService = new PipelineExecutionService(store, threadPool);
+        executionService = new PipelineExecutionService(Settings.EMPTY, store, threadPool);
     }
 
     public void testExecuteIndexPipelineDoesNotExist() {
@@ -100,18 +110,12 @@ public class PipelineExecutionServiceTests extends ESTestCase {
                 new IndexRequest("_index", "_type", "_id").source(Collections.emptyMap()).setPipeline("does_not_exist");
         bulkRequest.add(indexRequest2);
         @SuppressWarnings("unchecked")
-        BiConsumer<IndexRequest, Exception> failureHandler = mock(BiConsumer.class);
+        BiConsumer<Integer, Exception> failureHandler = mock(BiConsumer.class);
         @SuppressWarnings("unchecked")
         Consumer<Exception> completionHandler = mock(Consumer.class);
         executionService.executeBulkRequest(bulkRequest.requests(), failureHandler, completionHandler);
         verify(failureHandler, times(1)).accept(
-            argThat(new CustomTypeSafeMatcher<IndexRequest>("failure handler was not called with the expected arguments") {
-                @Override
-                protected boolean matchesSafely(IndexRequest item) {
-                    return item == indexRequest2;
-                }
-
-            }),
+            eq(1),
             argThat(new CustomTypeSafeMatcher<IllegalArgumentException>("failure handler was not called with the expected arguments") {
                 @Override
                 protected boolean matchesSafely(IllegalArgumentException iae) {
@@ -287,12 +291,12 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         when(store.get(pipelineId)).thenReturn(new Pipeline(pipelineId, null, version, processor));
 
         @SuppressWarnings("unchecked")
-        BiConsumer<IndexRequest, Exception> requestItemErrorHandler = mock(BiConsumer.class);
+        BiConsumer<Integer, Exception> requestItemErrorHandler = mock(BiConsumer.class);
         @SuppressWarnings("unchecked")
         Consumer<Exception> completionHandler = mock(Consumer.class);
         executionService.executeBulkRequest(bulkRequest.requests(), requestItemErrorHandler, completionHandler);
 
-        verify(requestItemErrorHandler, times(numIndexRequests)).accept(any(IndexRequest.class), eq(error));
+        verify(requestItemErrorHandler, times(numIndexRequests)).accept(anyInt(), eq(error));
         verify(completionHandler, times(1)).accept(null);
     }
 
@@ -310,7 +314,7 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         when(store.get(pipelineId)).thenReturn(new Pipeline(pipelineId, null, version, new CompoundProcessor()));
 
         @SuppressWarnings("unchecked")
-        BiConsumer<IndexRequest, Exception> requestItemErrorHandler = mock(BiConsumer.class);
+        BiConsumer<Integer, Exception> requestItemErrorHandler = mock(BiConsumer.class);
         @SuppressWarnings("unchecked")
         Consumer<Exception> completionHandler = mock(Consumer.class);
         executionService.executeBulkRequest(bulkRequest.requests(), requestItemErrorHandler, completionHandler);
@@ -319,6 +323,125 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         verify(completionHandler, times(1)).accept(null);
     }
 
+    public void testBulkRequestExecutionWithSeveralWorkers() throws Exception {
+        final int numWorkers = randomIntBetween(2, 8);
+        final int maxConcurrentDocuments = randomIntBetween(1, numWorkers);
+        Settings settings = Settings.builder()
+            .put(PipelineExecutionService.BULK_MAX_WORKERS_SETTING.getKey(), numWorkers)
+            .put(PipelineExecutionService.PIPELINE_MAX_CONCURRENT_DOCUMENTS_SETTING.getKey(), maxConcurrentDocuments)
+            .build();
+        ThreadPool threadPool = mock(ThreadPool.class);
+        final ExecutorService executorService = EsExecutors.newFixed("bulk", numWorkers, -1,
+            EsExecutors.daemonThreadFactory("bulk"), new ThreadContext(Settings.EMPTY));
+        when(threadPool.executor(anyString())).thenReturn(executorService);
+        try {
+            PipelineExecutionService executionService = new PipelineExecutionService(settings, store, threadPool);
+            String pipelineId = "_id";
+            AtomicInteger concurrentDocuments = new AtomicInteger();
+            AtomicInteger maxObservedConcurrentDocuments = new AtomicInteger();
+            Processor processor = new TestProcessor(ingestDocument -> {
+                maxObservedConcurrentDocuments.accumulateAndGet(concurrentDocuments.incrementAndGet(), Math::max);
+                try {
+                    if (ingestDocument.getFieldValue("fail", Boolean.class)) {
+                        throw new IllegalStateException(ingestDocument.getSourceAndMetadata().get("_id").toString());
+                    }
+                } finally {
+                    concurrentDocuments.decrementAndGet();
+                }
+            });
+            when(store.get(pipelineId)).thenReturn(new Pipeline(pipelineId, null, version, new CompoundProcessor(processor)));
+
+            BulkRequest bulkRequest = new BulkRequest();
+            List<Integer> expectedFailedSlots = new ArrayList<>();
+            int numRequests = scaledRandomIntBetween(8, 256);
+            for (int i = 0; i < numRequests; i++) {
+                if (randomBoolean()) {
+                    bulkRequest.add(new DeleteRequest("_index", "_type", Integer.toString(i)));
+                } else {
+                    boolean fail = randomBoolean();
+                    if (fail) {
+                        expectedFailedSlots.add(i);
+                    }
+                    bulkRequest.add(new IndexRequest("_index", "_type", Integer.toString(i)).setPipeline(pipelineId)
+                        .source("fail", fail));
+                }
+            }
+
+            List<Integer> failedSlots = new ArrayList<>();
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<Exception> completionException = new AtomicReference<>();
+            executionService.executeBulkRequest(bulkRequest.requests(), (slot, e) -> {
+                assertThat(e.getCause().getMessage(), equalTo(Integer.toString(slot)));
+                failedSlots.add(slot);
+            }, e -> {
+                completionException.set(e);
+                latch.countDown();
+            });
+            latch.await();
+
+            assertNull(completionException.get());
+            assertThat(failedSlots, equalTo(expectedFailedSlots));
+            assertThat(maxObservedConcurrentDocuments.get(), lessThanOrEqualTo(maxConcurrentDocuments));
+        } finally {
+            terminate(executorService);
+        }
+    }
+
+    public void testBulkRequestCompletionHandlerIsCalledOnce() throws Exception {
+        BulkRequest bulkRequest = new BulkRequest();
+        String pipelineId = "_id";
+        bulkRequest.add(new IndexRequest("_index", "_type", "_id").setPipeline(pipelineId).source("field1", "value1"));
+        when(store.get(pipelineId)).thenReturn(new Pipeline(pipelineId, null, version, new CompoundProcessor()));
+
+        @SuppressWarnings("unchecked")
+        BiConsumer<Integer, Exception> requestItemErrorHandler = mock(BiConsumer.class);
+        @SuppressWarnings("unchecked")
+        Consumer<Exception> completionHandler = mock(Consumer.class);
+        doThrow(new RuntimeException()).when(completionHandler).accept(null);
+        executionService.executeBulkRequest(bulkRequest.requests(), requestItemErrorHandler, completionHandler);
+
+        verify(completionHandler, times(1)).accept(any());
+    }
+
+    public void testDocumentThrottleNeverBlocks() {
+        PipelineExecutionService.DocumentThrottle throttle = new PipelineExecutionService.DocumentThrottle(1);
+        List<Integer> documents = new ArrayList<>();
+        // the second document exceeds the cap, it is processed by the thread that holds the permit once it is done with the first
+        throttle.execute(() -> {
+            throttle.execute(() -> documents.add(2));
+            documents.add(1);
+        });
+        assertThat(documents, equalTo(Arrays.asList(1, 2)));
+    }
+
+    public void testDocumentThrottleRunsAllDocuments() throws Exception {
+        final int maxConcurrentDocuments = randomIntBetween(1, 4);
+        final PipelineExecutionService.DocumentThrottle throttle = new PipelineExecutionService.DocumentThrottle(maxConcurrentDocuments);
+        final AtomicInteger concurrentDocuments = new AtomicInteger();
+        final AtomicInteger maxObservedConcurrentDocuments = new AtomicInteger();
+        final AtomicInteger processedDocuments = new AtomicInteger();
+        final int numThreads = randomIntBetween(2, 8);
+        final int numDocuments = scaledRandomIntBetween(100, 1000);
+        final Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < numDocuments; i++) {
+                    throttle.execute(() -> {
+                        maxObservedConcurrentDocuments.accumulateAndGet(concurrentDocuments.incrementAndGet(), Math::max);
+                        processedDocuments.incrementAndGet();
+                        concurrentDocuments.decrementAndGet();
+                    });
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(processedDocuments.get(), equalTo(numThreads * numDocuments));
+        assertThat(maxObservedConcurrentDocuments.get(), lessThanOrEqualTo(maxConcurrentDocuments));
+    }
+
     public void testStats() throws Exception {
         IngestStats ingestStats = executionService.stats();
         assertThat(ingestStats.getStatsPerPipeline().size(), equalTo(0));
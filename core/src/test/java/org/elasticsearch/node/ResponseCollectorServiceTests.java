@@ -0,0 +1,150 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ClusterServiceUtils;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ResponseCollectorServiceTests extends ESTestCase {
+
+    private ClusterService clusterService;
+    private ResponseCollectorService collector;
+    private ThreadPool threadpool;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        threadpool = new TestThreadPool("response_collector_tests");
+        clusterService = ClusterServiceUtils.createClusterService(threadpool);
+        collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        IOUtils.close(clusterService);
+        terminate(threadpool);
+    }
+
+    public void testNodeStats() throws Exception {
+        collector.addNodeStatistics("node1", 1, 100, 10);
+        Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = collector.getAllNodeStatistics();
+        assertTrue(nodeStats.containsKey("node1"));
+        assertThat(nodeStats.get("node1").queueSize, equalTo(1));
+        assertThat(nodeStats.get("node1").responseTime, equalTo(100.0));
+        assertThat(nodeStats.get("node1").serviceTime, equalTo(10.0));
+    }
+
+    /*
+     * Test that concurrently adding values and removing nodes does not cause exceptions
+     */
+    public void testConcurrentAddingAndRemoving() throws Exception {
+        String[] nodes = new String[] {"a", "b", "c", "d"};
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        Runnable f = () -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                fail("should not be interrupted");
+            }
+            for (int i = 0; i < randomIntBetween(100, 200); i++) {
+                if (randomBoolean()) {
+                    collector.removeNode(randomFrom(nodes));
+                }
+                collector.addNodeStatistics(randomFrom(nodes), randomIntBetween(1, 100), randomIntBetween(1, 100),
+                    randomIntBetween(1, 100));
+            }
+        };
+
+        Thread t1 = new Thread(f);
+        Thread t2 = new Thread(f);
+        Thread t3 = new Thread(f);
+        Thread t4 = new Thread(f);
+
+        t1.start();
+        t2.start();
+        t3.start();
+        t4.start();
+        latch.countDown();
+        t1.join();
+        t2.join();
+        t3.join();
+        t4.join();
+
+        final Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = collector.getAllNodeStatistics();
+        logger.info("--> got stats: {}", nodeStats);
+        for (String nodeId : nodes) {
+            if (nodeStats.containsKey(nodeId)) {
+                assertThat(nodeStats.get(nodeId).queueSize, greaterThan(0));
+                assertThat(nodeStats.get(nodeId).responseTime, greaterThan(0.0));
+                assertThat(nodeStats.get(nodeId).serviceTime, greaterThan(0.0));
+            }
+        }
+    }
+
+    public void testNodeRemoval() throws Exception {
+        collector.addNodeStatistics("node1", randomIntBetween(1, 100), randomIntBetween(1, 100), randomIntBetween(1, 100));
+        collector.addNodeStatistics("node2", randomIntBetween(1, 100), randomIntBetween(1, 100), randomIntBetween(1, 100));
+
+        ClusterState previousState = ClusterState.builder(new ClusterName("cluster")).nodes(DiscoveryNodes.builder()
+            .add(new DiscoveryNode("node1", buildNewFakeTransportAddress(), Version.CURRENT))
+            .add(new DiscoveryNode("node2", buildNewFakeTransportAddress(), Version.CURRENT)))
+            .build();
+        ClusterState newState = ClusterState.builder(previousState).nodes(DiscoveryNodes.builder(previousState.nodes())
+            .remove("node2")).build();
+        ClusterChangedEvent event = new ClusterChangedEvent("test", newState, previousState);
+
+        collector.clusterChanged(event);
+        final Map<String, ResponseCollectorService.ComputedNodeStats> nodeStats = collector.getAllNodeStatistics();
+        assertTrue(nodeStats.containsKey("node1"));
+        assertFalse(nodeStats.containsKey("node2"));
+    }
+
+    public void testRank() {
+        // a node with a small queue and fast responses ranks better
+        collector.addNodeStatistics("fast", 1, 50_000_000, 40_000_000);
+        collector.addNodeStatistics("slow", 10, 200_000_000, 80_000_000);
+        final ResponseCollectorService.ComputedNodeStats fast = collector.getNodeStatistics("fast").get();
+        final ResponseCollectorService.ComputedNodeStats slow = collector.getNodeStatistics("slow").get();
+        assertThat(slow.rank(0), greaterThan(fast.rank(0)));
+        // outstanding requests penalize a node
+        assertThat(fast.rank(5), greaterThan(fast.rank(0)));
+        assertFalse(collector.getNodeStatistics("unknown").isPresent());
+    }
+}
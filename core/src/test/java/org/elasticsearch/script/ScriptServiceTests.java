@@ -49,6 +49,7 @@ import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.sameInstance;
 
@@ -378,6 +379,24 @@ public class ScriptServiceTests extends ESTestCase {
         scriptService.executable(new Script(ScriptType.INLINE, "test", "1+1", Collections.emptyMap()), randomFrom(scriptContexts));
         scriptService.executable(new Script(ScriptType.INLINE, "test", "1+1", Collections.emptyMap()), randomFrom(scriptContexts));
         assertEquals(1L, scriptService.stats().getCompilations());
+        assertEquals(1L, scriptService.stats().getCacheHits());
+        assertEquals(1L, scriptService.stats().getCacheMisses());
+        assertEquals(0.5d, scriptService.stats().getCacheHitRatio(), 0d);
+    }
+
+    public void testCompilationTimeInCompilationStats() throws IOException {
+        buildScriptService(Settings.EMPTY);
+        int numberOfCompilations = randomIntBetween(1, 16);
+        for (int i = 0; i < numberOfCompilations; i++) {
+            scriptService.compile(new Script(ScriptType.INLINE, "test", i + " + " + i, Collections.emptyMap()), randomFrom(scriptContexts),
+                    Collections.emptyMap());
+        }
+        ScriptStats stats = scriptService.stats();
+        assertEquals(numberOfCompilations, stats.getCacheMisses());
+        assertEquals(0L, stats.getCacheHits());
+        assertEquals(0d, stats.getCacheHitRatio(), 0d);
+        assertThat(stats.getCompilationTime().nanos(), greaterThanOrEqualTo(0L));
+        assertEquals(numberOfCompilations, Arrays.stream(stats.getCompilationTimeHistogram()).sum());
     }
 
     public void testFileScriptCountedInCompilationStats() throws IOException {
@@ -78,6 +78,10 @@ public class SearchRequestTests extends AbstractSearchTestCase {
 
         e = expectThrows(NullPointerException.class, () -> searchRequest.scroll((TimeValue)null));
         assertEquals("keepAlive must not be null", e.getMessage());
+
+        IllegalArgumentException iae = expectThrows(IllegalArgumentException.class,
+                () -> searchRequest.setBatchedReduceSize(randomIntBetween(Integer.MIN_VALUE, 1)));
+        assertEquals("batchedReduceSize must be >= 2", iae.getMessage());
     }
 
     public void testEqualsAndHashcode() throws IOException {
@@ -98,6 +102,8 @@ public class SearchRequestTests extends AbstractSearchTestCase {
                 .scroll(randomValueOtherThan(searchRequest.scroll(), () -> new Scroll(new TimeValue(randomNonNegativeLong() % 100000)))));
         mutators.add(() -> mutation.searchType(randomValueOtherThan(searchRequest.searchType(), () -> randomFrom(SearchType.values()))));
         mutators.add(() -> mutation.source(randomValueOtherThan(searchRequest.source(), this::createSearchSourceBuilder)));
+        mutators.add(() -> mutation.setBatchedReduceSize(randomValueOtherThan(searchRequest.getBatchedReduceSize(),
+                () -> randomIntBetween(2, 1024))));
         randomFrom(mutators).run();
         return mutation;
     }
@@ -112,6 +118,7 @@ public class SearchRequestTests extends AbstractSearchTestCase {
         result.routing(searchRequest.routing());
         result.requestCache(searchRequest.requestCache());
         result.scroll(searchRequest.scroll());
+        result.setBatchedReduceSize(searchRequest.getBatchedReduceSize());
         if (searchRequest.source() != null) {
             result.source(searchRequest.source());
         }
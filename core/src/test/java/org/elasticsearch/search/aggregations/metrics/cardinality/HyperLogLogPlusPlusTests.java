@@ -21,8 +21,14 @@ package org.elasticsearch.search.aggregations.metrics.cardinality;
 
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
 
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MAX_PRECISION;
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MIN_PRECISION;
@@ -117,6 +123,73 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         assertEquals(1, counts.cardinality(0));
     }
 
+    public void testRegistersAreOnlyAllocatedForHighCardinalityBuckets() {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 0);
+        final HyperLogLogPlusPlus single = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 0);
+        final int numBuckets = randomIntBetween(1, 1000);
+        // few distinct values per bucket
+        for (long bucket = 0; bucket < numBuckets; ++bucket) {
+            counts.collect(bucket, BitMixer.mix64(bucket));
+            counts.collect(bucket, BitMixer.mix64(bucket + 1));
+            single.collect(0, BitMixer.mix64(bucket));
+            single.collect(0, BitMixer.mix64(bucket + 1));
+        }
+        assertEquals(0, counts.denseBuckets());
+        assertEquals(numBuckets, counts.sparseBuckets());
+        final HyperLogLogPlusPlus merged = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 0);
+        for (long bucket = 0; bucket < numBuckets; ++bucket) {
+            merged.merge(0, counts, bucket);
+        }
+        assertEquals(single.cardinality(0), merged.cardinality(0));
+        // many distinct values in a single bucket
+        final long bucket = randomIntBetween(0, numBuckets - 1);
+        for (int i = 0; i < 1 << p; ++i) {
+            counts.collect(bucket, BitMixer.mix64(randomLong()));
+        }
+        assertEquals(1, counts.denseBuckets());
+        assertEquals(numBuckets - 1, counts.sparseBuckets());
+    }
+
+    public void testMergeBucketsOfSameInstance() {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 0);
+        final HyperLogLogPlusPlus expected = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 0);
+        final int numBuckets = randomIntBetween(2, 20);
+        for (long bucket = 0; bucket < numBuckets; ++bucket) {
+            // enough values for the hash tables to grow and move while they are merged, and sometimes to switch to hyperloglog
+            final int numValues = randomIntBetween(1, 1 << (p - 1));
+            for (int i = 0; i < numValues; ++i) {
+                final long hash = BitMixer.mix64(randomLong());
+                counts.collect(bucket, hash);
+                expected.collect(0, hash);
+            }
+        }
+        for (long bucket = 1; bucket < numBuckets; ++bucket) {
+            counts.merge(0, counts, bucket);
+        }
+        assertEquals(expected.cardinality(0), counts.cardinality(0));
+    }
+
+    public void testSerialization() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 0);
+        final int numValues = randomFrom(0, randomIntBetween(1, 100), randomIntBetween(1, 100000));
+        for (int i = 0; i < numValues; ++i) {
+            counts.collect(0, BitMixer.mix64(randomInt(numValues)));
+        }
+        final Version version = VersionUtils.randomVersion(random());
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            counts.writeTo(0, out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                final HyperLogLogPlusPlus read = HyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE);
+                assertEquals(counts.cardinality(0), read.cardinality(0));
+            }
+        }
+    }
+
     public void testPrecisionFromThreshold() {
         assertEquals(4, HyperLogLogPlusPlus.precisionFromThreshold(0));
         assertEquals(6, HyperLogLogPlusPlus.precisionFromThreshold(10));
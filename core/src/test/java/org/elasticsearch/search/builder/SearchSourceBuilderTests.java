@@ -45,6 +45,8 @@ import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.EqualsHashCodeTestUtils;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.containsString;
@@ -272,6 +274,27 @@ public class SearchSourceBuilderTests extends AbstractSearchTestCase {
         }
     }
 
+    public void testParseDocValueFields() throws IOException {
+        {
+            String restContent = "{ \"docvalue_fields\": [\"foo\", {\"field\": \"bar\", \"format\": \"use_field_mapping\"}, " +
+                "{\"field\": \"baz\"}]}";
+            try (XContentParser parser = createParser(JsonXContent.jsonXContent, restContent)) {
+                SearchSourceBuilder searchSourceBuilder = SearchSourceBuilder.fromXContent(createParseContext(parser));
+                assertThat(searchSourceBuilder.docValueFields(), equalTo(Arrays.asList("foo", "bar", "baz")));
+                assertThat(searchSourceBuilder.docValueFieldFormats(), equalTo(Collections.singletonMap("bar", "use_field_mapping")));
+            }
+        }
+
+        {
+            String restContent = "{ \"docvalue_fields\": [{\"format\": \"use_field_mapping\"}]}";
+            try (XContentParser parser = createParser(JsonXContent.jsonXContent, restContent)) {
+                ParsingException e = expectThrows(ParsingException.class, () -> SearchSourceBuilder.fromXContent(
+                    createParseContext(parser)));
+                assertEquals("[field] is required in [docvalue_fields]", e.getMessage());
+            }
+        }
+    }
+
     public void testToXContent() throws  IOException {
         //verify that only what is set gets printed out through toXContent
         XContentType xContentType = randomFrom(XContentType.values());
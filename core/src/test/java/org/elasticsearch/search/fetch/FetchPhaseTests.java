@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.fetch;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class FetchPhaseTests extends ESSingleNodeTestCase {
+
+    /**
+     * Hits are loaded in doc id order, check that they are returned in the order of the sort anyway, with the
+     * stored fields of the right documents.
+     */
+    public void testHitOrderIsPreserved() throws Exception {
+        createIndex("test", Settings.builder().put("index.number_of_shards", 1).build(), "type",
+            "rank", "type=integer", "body", "type=keyword,store=true");
+        final int numDocs = randomIntBetween(FetchPhase.SEQUENTIAL_DOCS_THRESHOLD * 2, 100);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("rank", i, "body", "doc " + i).get();
+            if (rarely()) {
+                client().admin().indices().prepareRefresh("test").get();
+            }
+        }
+        client().admin().indices().prepareRefresh("test").get();
+        if (randomBoolean()) {
+            client().admin().indices().prepareForceMerge("test").setMaxNumSegments(1).get();
+        }
+
+        // all the documents, which are consecutive doc ids within each segment
+        SearchResponse response = client().prepareSearch("test").setSize(numDocs).addSort("rank", SortOrder.DESC)
+            .addStoredField("body").setFetchSource(true).get();
+        assertThat(response.getHits().getHits().length, equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            assertHit(response.getHits().getAt(i), numDocs - 1 - i);
+        }
+
+        // every other document
+        response = client().prepareSearch("test").setSize(numDocs)
+            .setQuery(QueryBuilders.termsQuery("rank", evenRanks(numDocs))).addSort("rank", SortOrder.DESC)
+            .addStoredField("body").setFetchSource(true).get();
+        int expectedRank = numDocs % 2 == 0 ? numDocs - 2 : numDocs - 1;
+        for (SearchHit hit : response.getHits().getHits()) {
+            assertHit(hit, expectedRank);
+            expectedRank -= 2;
+        }
+        assertThat(expectedRank, equalTo(-2));
+    }
+
+    private static Object[] evenRanks(int numDocs) {
+        Object[] ranks = new Object[(numDocs + 1) / 2];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = i * 2;
+        }
+        return ranks;
+    }
+
+    private static void assertHit(SearchHit hit, int rank) {
+        assertThat(hit.getId(), equalTo(Integer.toString(rank)));
+        assertThat(hit.getSource().get("rank"), equalTo(rank));
+        assertThat(hit.field("body").getValue(), equalTo("doc " + rank));
+    }
+}
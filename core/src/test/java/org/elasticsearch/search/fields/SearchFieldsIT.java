@@ -19,6 +19,8 @@
 
 package org.elasticsearch.search.fields;
 
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
@@ -39,12 +41,15 @@ import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.StoredFieldsContext;
+import org.elasticsearch.search.fetch.subphase.DocValueFieldsContext;
 import org.elasticsearch.search.lookup.FieldLookup;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
@@ -826,6 +831,69 @@ public class SearchFieldsIT extends ESIntegTestCase {
         assertThat(searchResponse.getHits().getAt(0).fields().get("ip_field").value(), equalTo("::1"));
     }
 
+    public void testFormattedDocValueFields() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("type", "keyword_field", "type=keyword", "long_field", "type=long",
+            "double_field", "type=double", "date_field", "type=date", "boolean_field", "type=boolean", "ip_field", "type=ip"));
+        client().prepareIndex("test", "type", "1").setSource(jsonBuilder().startObject()
+                .field("keyword_field", "foo")
+                .field("long_field", 4L)
+                .field("double_field", 6.5d)
+                .field("date_field", "2012-03-22")
+                .field("boolean_field", true)
+                .field("ip_field", "::1")
+                .endObject()).setRefreshPolicy(IMMEDIATE).get();
+
+        // the hits are built from doc values only, without stored fields or _source
+        SearchResponse searchResponse = client().prepareSearch("test").setQuery(matchAllQuery())
+                .storedFields(StoredFieldsContext._NONE_)
+                .setFetchSource(false)
+                .addDocValueField("keyword_field", DocValueFieldsContext.USE_FIELD_MAPPING)
+                .addDocValueField("long_field", "#.00")
+                .addDocValueField("double_field", DocValueFieldsContext.USE_FIELD_MAPPING)
+                .addDocValueField("date_field", "yyyy/MM/dd")
+                .addDocValueField("boolean_field", DocValueFieldsContext.USE_FIELD_MAPPING)
+                .addDocValueField("ip_field", DocValueFieldsContext.USE_FIELD_MAPPING)
+                .get();
+        assertHitCount(searchResponse, 1L);
+        SearchHit hit = searchResponse.getHits().getAt(0);
+        assertNull(hit.getId());
+        assertNull(hit.getSourceRef());
+        assertThat(hit.fields().get("keyword_field").values(), equalTo(Collections.singletonList("foo")));
+        assertThat(hit.fields().get("long_field").values(), equalTo(Collections.singletonList("4.00")));
+        assertThat(hit.fields().get("double_field").values(), equalTo(Collections.singletonList("6.5")));
+        assertThat(hit.fields().get("date_field").values(), equalTo(Collections.singletonList("2012/03/22")));
+        assertThat(hit.fields().get("boolean_field").values(), equalTo(Collections.singletonList("true")));
+        assertThat(hit.fields().get("ip_field").values(), equalTo(Collections.singletonList("::1")));
+
+        // the date format of the mapping is used by default
+        searchResponse = client().prepareSearch("test").setQuery(matchAllQuery())
+                .addDocValueField("date_field", DocValueFieldsContext.USE_FIELD_MAPPING)
+                .get();
+        assertThat(searchResponse.getHits().getAt(0).fields().get("date_field").value(), equalTo("2012-03-22T00:00:00.000Z"));
+    }
+
+    public void testBinaryDocValueFieldsOfSeveralHits() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder().put("index.number_of_shards", 1))
+            .addMapping("type", "binary_field", "type=binary,doc_values=true"));
+        int numDocs = randomIntBetween(2, 20);
+        BulkRequestBuilder bulk = client().prepareBulk().setRefreshPolicy(IMMEDIATE);
+        for (int i = 0; i < numDocs; i++) {
+            bulk.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                .field("binary_field", Base64.getEncoder().encodeToString(("value " + i).getBytes(StandardCharsets.UTF_8)))
+                .endObject()));
+        }
+        assertNoFailures(bulk.get());
+
+        // hits of the same segment share the doc values of the field
+        SearchResponse searchResponse = client().prepareSearch("test").setQuery(matchAllQuery()).setSize(numDocs)
+            .addDocValueField("binary_field")
+            .get();
+        assertHitCount(searchResponse, numDocs);
+        for (SearchHit hit : searchResponse.getHits()) {
+            assertThat(hit.fields().get("binary_field").value(), equalTo(new BytesRef("value " + hit.getId())));
+        }
+    }
+
     public void testScriptFields() throws Exception {
         assertAcked(prepareCreate("index").addMapping("type",
                 "s", "type=keyword",
@@ -0,0 +1,236 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ContextIndexSearcherTests extends ESTestCase {
+
+    public void testComputeSlices() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numSegments = randomIntBetween(1, 10);
+        for (int i = 0; i < numSegments; ++i) {
+            final int numDocs = randomIntBetween(1, 20);
+            for (int j = 0; j < numDocs; ++j) {
+                w.addDocument(new Document());
+            }
+            w.commit();
+        }
+        final IndexReader reader = w.getReader();
+        final List<LeafReaderContext> leaves = reader.leaves();
+        final int maxSlices = randomIntBetween(1, 12);
+        final List<List<LeafReaderContext>> slices = ContextIndexSearcher.computeSlices(leaves, maxSlices);
+        assertTrue(slices.size() >= 1);
+        assertTrue(slices.size() <= maxSlices);
+        // slices are contiguous and cover all leaves
+        int ord = 0;
+        for (List<LeafReaderContext> slice : slices) {
+            assertFalse(slice.isEmpty());
+            for (LeafReaderContext leaf : slice) {
+                assertSame(leaves.get(ord++), leaf);
+            }
+        }
+        assertEquals(leaves.size(), ord);
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testConcurrentSearchMatchesSequentialSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 500);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            if (randomBoolean()) {
+                doc.add(new StringField("foo", "bar", Store.NO));
+            }
+            doc.add(new NumericDocValuesField("rank", randomIntBetween(0, 10)));
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        final IndexReader reader = w.getReader();
+        final IndexSearcher sequential = new IndexSearcher(reader);
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        try {
+            final ContextIndexSearcher searcher = new ContextIndexSearcher(new Engine.Searcher("test", sequential),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+            searcher.setSliceExecutor(executor, randomIntBetween(2, 8));
+            final Query[] queries = new Query[] { new MatchAllDocsQuery(), new TermQuery(new Term("foo", "bar")) };
+            final Sort sort = new Sort(new SortField("rank", SortField.Type.INT));
+            for (Query query : queries) {
+                final int size = randomIntBetween(1, 50);
+                assertEquals(sequential.count(query), (int) searcher.searchConcurrently(query, countManager()));
+                assertTopDocsEquals(sequential.search(query, size), searcher.searchConcurrently(query, topDocsManager(size)));
+                assertTopDocsEquals(sequential.search(query, size, sort), searcher.searchConcurrently(query, topDocsManager(size, sort)));
+            }
+        } finally {
+            terminate(executor);
+        }
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testRejectedSlicesAreSearchedByCallingThread() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numSegments = randomIntBetween(2, 5);
+        for (int i = 0; i < numSegments; ++i) {
+            w.addDocument(new Document());
+            w.commit();
+        }
+        final IndexReader reader = w.getReader();
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(new Engine.Searcher("test", new IndexSearcher(reader)),
+            IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+        searcher.setSliceExecutor(r -> {
+            throw new EsRejectedExecutionException("rejected");
+        }, numSegments);
+        assertTrue(searcher.isConcurrent());
+        assertEquals(reader.numDocs(), (int) searcher.searchConcurrently(new MatchAllDocsQuery(), countManager()));
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testOnlySearchConcurrentlyUsesTheSliceExecutor() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numSegments = randomIntBetween(2, 5);
+        for (int i = 0; i < numSegments; ++i) {
+            w.addDocument(new Document());
+            w.commit();
+        }
+        final IndexReader reader = w.getReader();
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(new Engine.Searcher("test", new IndexSearcher(reader)),
+            IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+        searcher.setSliceExecutor(r -> {
+            throw new AssertionError("searches that did not opt in to concurrency must not use the slice executor");
+        }, numSegments);
+        assertTrue(searcher.isConcurrent());
+        assertEquals(reader.numDocs(), searcher.count(new MatchAllDocsQuery()));
+        assertEquals(reader.numDocs(), searcher.search(new MatchAllDocsQuery(), 10).totalHits);
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    private static CollectorManager<TotalHitCountCollector, Integer> countManager() {
+        return new CollectorManager<TotalHitCountCollector, Integer>() {
+            @Override
+            public TotalHitCountCollector newCollector() {
+                return new TotalHitCountCollector();
+            }
+
+            @Override
+            public Integer reduce(Collection<TotalHitCountCollector> collectors) {
+                int totalHits = 0;
+                for (TotalHitCountCollector collector : collectors) {
+                    totalHits += collector.getTotalHits();
+                }
+                return totalHits;
+            }
+        };
+    }
+
+    private static CollectorManager<TopScoreDocCollector, TopDocs> topDocsManager(int size) {
+        return new CollectorManager<TopScoreDocCollector, TopDocs>() {
+            @Override
+            public TopScoreDocCollector newCollector() {
+                return TopScoreDocCollector.create(size);
+            }
+
+            @Override
+            public TopDocs reduce(Collection<TopScoreDocCollector> collectors) throws IOException {
+                final List<TopDocs> topDocs = new ArrayList<>();
+                for (TopScoreDocCollector collector : collectors) {
+                    topDocs.add(collector.topDocs());
+                }
+                return TopDocs.merge(size, topDocs.toArray(new TopDocs[0]));
+            }
+        };
+    }
+
+    private static CollectorManager<TopFieldCollector, TopDocs> topDocsManager(int size, Sort sort) {
+        return new CollectorManager<TopFieldCollector, TopDocs>() {
+            @Override
+            public TopFieldCollector newCollector() throws IOException {
+                return TopFieldCollector.create(sort, size, true, false, false);
+            }
+
+            @Override
+            public TopDocs reduce(Collection<TopFieldCollector> collectors) throws IOException {
+                final List<TopFieldDocs> topDocs = new ArrayList<>();
+                for (TopFieldCollector collector : collectors) {
+                    topDocs.add((TopFieldDocs) collector.topDocs());
+                }
+                return TopDocs.merge(sort, size, topDocs.toArray(new TopFieldDocs[0]));
+            }
+        };
+    }
+
+    private static void assertTopDocsEquals(TopDocs expected, TopDocs actual) {
+        assertEquals(expected.totalHits, actual.totalHits);
+        assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+        for (int i = 0; i < expected.scoreDocs.length; ++i) {
+            assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+            assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+        }
+    }
+}
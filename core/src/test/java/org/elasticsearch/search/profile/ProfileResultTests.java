@@ -53,12 +53,17 @@ public class ProfileResultTests extends ESTestCase {
             }
             timings.put(randomAsciiOfLengthBetween(5, 10), time); // don't overflow Long.MAX_VALUE;
         }
+        int debugSize = randomIntBetween(0, 2);
+        Map<String, Object> debug = new HashMap<>(debugSize);
+        for (int i = 0; i < debugSize; i++) {
+            debug.put(randomAsciiOfLengthBetween(5, 10), randomAsciiOfLengthBetween(5, 10));
+        }
         int childrenSize = depth > 0 ? randomIntBetween(0, 1) : 0;
         List<ProfileResult> children = new ArrayList<>(childrenSize);
         for (int i = 0; i < childrenSize; i++) {
             children.add(createTestItem(depth - 1));
         }
-        return new ProfileResult(type, description, timings, children);
+        return new ProfileResult(type, description, timings, debug, children);
     }
 
     public void testFromXContent() throws IOException {
@@ -77,6 +82,24 @@ public class ProfileResultTests extends ESTestCase {
         assertToXContentEquivalent(originalBytes, toXContent(parsed, xContentType, humanReadable), xContentType);
     }
 
+    public void testDebugToXContent() throws IOException {
+        ProfileResult result = new ProfileResult("someType", "some description", Collections.singletonMap("key1", 100L),
+                Collections.singletonMap("dense_buckets", 3L), Collections.emptyList());
+        XContentBuilder builder = XContentFactory.jsonBuilder().prettyPrint();
+        result.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        assertEquals("{\n" +
+                "  \"type\" : \"someType\",\n" +
+                "  \"description\" : \"some description\",\n" +
+                "  \"time_in_nanos\" : 100,\n" +
+                "  \"breakdown\" : {\n" +
+                "    \"key1\" : 100\n" +
+                "  },\n" +
+                "  \"debug\" : {\n" +
+                "    \"dense_buckets\" : 3\n" +
+                "  }\n" +
+          "}", builder.string());
+    }
+
     public void testToXContent() throws IOException {
         List<ProfileResult> children = new ArrayList<>();
         children.add(new ProfileResult("child1", "desc1", Collections.singletonMap("key1", 100L), Collections.emptyList()));
@@ -21,6 +21,7 @@ package org.elasticsearch.search.query;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -37,18 +38,37 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSortConfig;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.ScoreSortBuilder;
+import org.elasticsearch.search.sort.SortMode;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.TestSearchContext;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
 public class QueryPhaseTests extends ESTestCase {
 
     private void countTestCase(Query query, IndexReader reader, boolean shouldCollect) throws Exception {
@@ -169,4 +189,123 @@ public class QueryPhaseTests extends ESTestCase {
         assertTrue(collected.get());
     }
 
+    public void testConcurrentCount() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            if (randomBoolean()) {
+                doc.add(new StringField("foo", "bar", Store.NO));
+            }
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        final IndexReader reader = w.getReader();
+        final Query query = new BooleanQuery.Builder()
+            .add(new MatchAllDocsQuery(), Occur.SHOULD)
+            .add(new TermQuery(new Term("foo", "bar")), Occur.MUST)
+            .build();
+        TestSearchContext context = new TestSearchContext(null);
+        context.parsedQuery(new ParsedQuery(query));
+        context.setSize(0);
+        context.setTask(new SearchTask(123L, "", "", "", null));
+        assertTrue(QueryPhase.canSearchConcurrently(context, query));
+        assertFalse(QueryPhase.canSearchConcurrently(context, new MatchAllDocsQuery()));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 4));
+        try {
+            ContextIndexSearcher contextSearcher = new ContextIndexSearcher(new Engine.Searcher("test", new IndexSearcher(reader)),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+            contextSearcher.setSliceExecutor(executor, randomIntBetween(2, 8));
+            final boolean rescore = QueryPhase.execute(context, contextSearcher);
+            assertFalse(rescore);
+            assertEquals(new IndexSearcher(reader).count(query), context.queryResult().topDocs().totalHits);
+        } finally {
+            terminate(executor);
+        }
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testIndexSortEarlyTermination() throws Exception {
+        final Sort sort = new Sort(new SortedNumericSortField("rank", SortField.Type.LONG));
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setIndexSort(sort);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("rank", randomIntBetween(0, 1000)));
+            if (randomBoolean()) {
+                doc.add(new StringField("foo", "bar", Store.NO));
+            }
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        final IndexReader reader = w.getReader();
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        final Query query = randomBoolean() ? new MatchAllDocsQuery() : new TermQuery(new Term("foo", "bar"));
+        final int size = randomIntBetween(1, 20);
+
+        TopFieldCollector expected = TopFieldCollector.create(sort, size, null, true, false, false);
+        searcher.search(query, expected);
+        TopFieldCollector topDocsCollector = TopFieldCollector.create(sort, size, null, true, false, false);
+        IndexSortEarlyTerminatingCollector collector = new IndexSortEarlyTerminatingCollector(topDocsCollector, size);
+        searcher.search(query, collector);
+
+        TopDocs expectedTopDocs = expected.topDocs();
+        TopDocs topDocs = topDocsCollector.topDocs();
+        assertEquals(expectedTopDocs.scoreDocs.length, topDocs.scoreDocs.length);
+        for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+            assertEquals(expectedTopDocs.scoreDocs[i].doc, topDocs.scoreDocs[i].doc);
+        }
+        // each segment stops after size documents, so the total hit count is a lower bound
+        int expectedTotalHits = 0;
+        boolean expectedTerminatedEarly = false;
+        for (LeafReaderContext leaf : reader.leaves()) {
+            final int leafCount = new IndexSearcher(leaf.reader()).count(query);
+            expectedTotalHits += Math.min(leafCount, size);
+            expectedTerminatedEarly |= leafCount >= size;
+        }
+        assertEquals(expectedTotalHits, topDocs.totalHits);
+        assertEquals(expectedTerminatedEarly, collector.terminatedEarly());
+        assertThat(topDocs.totalHits, lessThanOrEqualTo(expectedTopDocs.totalHits));
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testIsIndexSortPrefix() {
+        IndexSortConfig indexSortConfig = new IndexSortConfig(Settings.builder()
+            .putArray("index.sort.field", "timestamp", "host")
+            .putArray("index.sort.order", "desc", "asc")
+            .build());
+        assertTrue(QueryPhase.isIndexSortPrefix(indexSortConfig,
+            Collections.singletonList(new FieldSortBuilder("timestamp").order(SortOrder.DESC))));
+        assertTrue(QueryPhase.isIndexSortPrefix(indexSortConfig,
+            Arrays.asList(new FieldSortBuilder("timestamp").order(SortOrder.DESC).sortMode(SortMode.MAX).missing("_last"),
+                new FieldSortBuilder("host"))));
+
+        assertFalse(QueryPhase.isIndexSortPrefix(indexSortConfig, Collections.emptyList()));
+        assertFalse(QueryPhase.isIndexSortPrefix(indexSortConfig, Collections.singletonList(new FieldSortBuilder("timestamp"))));
+        assertFalse(QueryPhase.isIndexSortPrefix(indexSortConfig, Collections.singletonList(new FieldSortBuilder("host"))));
+        assertFalse(QueryPhase.isIndexSortPrefix(indexSortConfig,
+            Collections.singletonList(new FieldSortBuilder("timestamp").order(SortOrder.DESC).sortMode(SortMode.MIN))));
+        assertFalse(QueryPhase.isIndexSortPrefix(indexSortConfig,
+            Collections.singletonList(new FieldSortBuilder("timestamp").order(SortOrder.DESC).missing("_first"))));
+        assertFalse(QueryPhase.isIndexSortPrefix(indexSortConfig,
+            Collections.singletonList(new ScoreSortBuilder())));
+        assertFalse(QueryPhase.isIndexSortPrefix(indexSortConfig,
+            Arrays.asList(new FieldSortBuilder("timestamp").order(SortOrder.DESC), new FieldSortBuilder("host"),
+                new FieldSortBuilder("_doc"))));
+        assertFalse(QueryPhase.isIndexSortPrefix(new IndexSortConfig(Settings.EMPTY),
+            Collections.singletonList(new FieldSortBuilder("timestamp").order(SortOrder.DESC))));
+    }
 }
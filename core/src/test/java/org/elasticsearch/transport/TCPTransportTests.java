@@ -22,6 +22,7 @@ package org.elasticsearch.transport;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -146,11 +147,16 @@ public class TCPTransportTests extends ESTestCase {
 
     public void testCompressRequest() throws IOException {
         final boolean compressed = randomBoolean();
+        final String compressionScheme = randomFrom("deflate", "lz4");
         final AtomicBoolean called = new AtomicBoolean(false);
         Req request = new Req(randomRealisticUnicodeOfLengthBetween(10, 100));
         ThreadPool threadPool = new TestThreadPool(TCPTransportTests.class.getName());
         try {
-            TcpTransport transport = new TcpTransport("test", Settings.builder().put("transport.tcp.compress", compressed).build(),
+            Settings settings = Settings.builder()
+                .put("transport.tcp.compress", compressed)
+                .put("transport.tcp.compression_scheme", compressionScheme)
+                .build();
+            TcpTransport transport = new TcpTransport("test", settings,
                 threadPool, new BigArrays(Settings.EMPTY, null), null, null, null) {
                 @Override
                 protected InetSocketAddress getLocalAddress(Object o) {
@@ -181,8 +187,10 @@ public class TCPTransportTests extends ESTestCase {
                     called.compareAndSet(false, true);
                     if (compressed) {
                         final int bytesConsumed = TcpHeader.HEADER_SIZE;
-                        streamIn = CompressorFactory.compressor(reference.slice(bytesConsumed, reference.length() - bytesConsumed))
-                            .streamInput(streamIn);
+                        Compressor compressor = CompressorFactory.compressor(
+                            reference.slice(bytesConsumed, reference.length() - bytesConsumed));
+                        assertSame(CompressorFactory.compressorForScheme(compressionScheme), compressor);
+                        streamIn = compressor.streamInput(streamIn);
                     }
                     threadPool.getThreadContext().readHeaders(streamIn);
                     assertEquals("foobar", streamIn.readString());
@@ -221,6 +229,12 @@ public class TCPTransportTests extends ESTestCase {
         }
     }
 
+    public void testCompressorForVersion() {
+        Compressor configured = randomFrom(CompressorFactory.DEFLATE, CompressorFactory.LZ4);
+        assertSame(configured, Transport.compressor(configured, Version.CURRENT));
+        assertSame(CompressorFactory.DEFLATE, Transport.compressor(configured, Version.V_5_0_0));
+    }
+
     private static final class Req extends TransportRequest {
         public String value;
 
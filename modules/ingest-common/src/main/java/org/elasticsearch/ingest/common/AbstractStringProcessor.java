@@ -21,6 +21,7 @@ package org.elasticsearch.ingest.common;
 
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
+import org.elasticsearch.ingest.FieldPath;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 
@@ -32,11 +33,13 @@ import java.util.Map;
  */
 abstract class AbstractStringProcessor extends AbstractProcessor {
     private final String field;
+    private final FieldPath fieldPath;
     private final boolean ignoreMissing;
 
     AbstractStringProcessor(String tag, String field, boolean ignoreMissing) {
         super(tag);
         this.field = field;
+        this.fieldPath = new FieldPath(field);
         this.ignoreMissing = ignoreMissing;
     }
 
@@ -50,7 +53,7 @@ abstract class AbstractStringProcessor extends AbstractProcessor {
 
     @Override
     public final void execute(IngestDocument document) {
-        String val = document.getFieldValue(field, String.class, ignoreMissing);
+        String val = document.getFieldValue(fieldPath, String.class, ignoreMissing);
 
         if (val == null && ignoreMissing) {
             return;
@@ -58,7 +61,7 @@ abstract class AbstractStringProcessor extends AbstractProcessor {
             throw new IllegalArgumentException("field [" + field + "] is null, cannot process it.");
         }
 
-        document.setFieldValue(field, process(val));
+        document.setFieldValue(fieldPath, process(val));
     }
 
     protected abstract String process(String value);
@@ -22,6 +22,7 @@ package org.elasticsearch.ingest.common;
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
 import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.IngestStats;
 import org.elasticsearch.ingest.Processor;
 
 import java.util.ArrayList;
@@ -78,6 +79,11 @@ public final class ForEachProcessor extends AbstractProcessor {
         return field;
     }
 
+    @Override
+    public List<IngestStats.PatternStats> getPatternStats() {
+        return processor.getPatternStats();
+    }
+
     Processor getProcessor() {
         return processor;
     }
@@ -76,6 +76,13 @@ final class Grok {
     }
 
 
+    /**
+     * Returns the regex that the grok pattern expands to.
+     */
+    String getExpression() {
+        return expression;
+    }
+
     public String groupMatch(String name, Region region, String pattern) {
         try {
             int number = GROK_PATTERN_REGEX.nameToBackrefNumber(name.getBytes(StandardCharsets.UTF_8), 0,
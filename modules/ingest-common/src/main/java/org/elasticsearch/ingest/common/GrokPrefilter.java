@@ -0,0 +1,401 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Selects the grok expressions that may match a text before running any regular expression.
+ * <p>
+ * For each expanded expression, the literal strings that every match must contain are extracted from its regex. All
+ * literals are then searched for in a single pass over the text with an Aho-Corasick automaton, and only expressions
+ * whose literals were all found are candidates. Expressions from which no literal can be safely extracted, for instance
+ * because of alternations or inline options, are always candidates.
+ */
+final class GrokPrefilter {
+
+    // shorter literals, like the spaces that separate most grok patterns, are found in nearly every text
+    static final int MIN_LITERAL_LENGTH = 2;
+
+    private final int[][] literalsPerExpression;
+    private final Node root;
+    private final int numLiterals;
+
+    GrokPrefilter(List<String> regexes) {
+        Map<String, Integer> literalIds = new LinkedHashMap<>();
+        literalsPerExpression = new int[regexes.size()][];
+        for (int i = 0; i < regexes.size(); i++) {
+            List<String> literals = requiredLiterals(regexes.get(i));
+            literalsPerExpression[i] = literals.stream()
+                .mapToInt(literal -> literalIds.computeIfAbsent(literal, l -> literalIds.size()))
+                .distinct()
+                .toArray();
+        }
+        numLiterals = literalIds.size();
+        root = buildAutomaton(literalIds);
+    }
+
+    /**
+     * Returns which of the expressions may match the provided text.
+     */
+    boolean[] candidates(String text) {
+        final boolean[] candidates = new boolean[literalsPerExpression.length];
+        final boolean[] found = new boolean[numLiterals];
+        if (numLiterals > 0) {
+            Node node = root;
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                Node next;
+                while ((next = node.children.get(c)) == null && node != root) {
+                    node = node.fail;
+                }
+                node = next == null ? root : next;
+                for (int literal : node.outputs) {
+                    found[literal] = true;
+                }
+            }
+        }
+        for (int i = 0; i < literalsPerExpression.length; i++) {
+            boolean candidate = true;
+            for (int literal : literalsPerExpression[i]) {
+                if (found[literal] == false) {
+                    candidate = false;
+                    break;
+                }
+            }
+            candidates[i] = candidate;
+        }
+        return candidates;
+    }
+
+    private static Node buildAutomaton(Map<String, Integer> literalIds) {
+        Node root = new Node();
+        for (Map.Entry<String, Integer> entry : literalIds.entrySet()) {
+            Node node = root;
+            for (char c : entry.getKey().toCharArray()) {
+                node = node.children.computeIfAbsent(c, k -> new Node());
+            }
+            node.addOutput(entry.getValue());
+        }
+        // breadth-first, so that the failure link of a node is complete before it is used by its children
+        Queue<Node> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (Node child : root.children.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (queue.isEmpty() == false) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                char c = entry.getKey();
+                Node child = entry.getValue();
+                Node fail = node.fail;
+                while (fail != root && fail.children.containsKey(c) == false) {
+                    fail = fail.fail;
+                }
+                Node target = fail.children.get(c);
+                child.fail = target == null || target == child ? root : target;
+                for (int output : child.fail.outputs) {
+                    child.addOutput(output);
+                }
+                queue.add(child);
+            }
+        }
+        return root;
+    }
+
+    private static final class Node {
+        final Map<Character, Node> children = new HashMap<>();
+        Node fail;
+        int[] outputs = new int[0];
+
+        void addOutput(int output) {
+            for (int existing : outputs) {
+                if (existing == output) {
+                    return;
+                }
+            }
+            int[] newOutputs = new int[outputs.length + 1];
+            System.arraycopy(outputs, 0, newOutputs, 0, outputs.length);
+            newOutputs[outputs.length] = output;
+            outputs = newOutputs;
+        }
+    }
+
+    /**
+     * Returns literal strings that any text matching the provided regex must contain. The extraction is conservative:
+     * literals are only taken from parts of the regex that are neither optional nor part of an alternation, and nothing
+     * is extracted from regexes that change matching options inline.
+     */
+    static List<String> requiredLiterals(String regex) {
+        LiteralExtractor extractor = new LiteralExtractor(regex);
+        try {
+            List<String> literals = extractor.alternation();
+            if (extractor.unsafe || extractor.pos != regex.length()) {
+                return Collections.emptyList();
+            }
+            literals.removeIf(literal -> literal.length() < MIN_LITERAL_LENGTH);
+            return literals;
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            // malformed regexes fail to compile anyway
+            return Collections.emptyList();
+        }
+    }
+
+    private static final class LiteralExtractor {
+
+        private final String regex;
+        private int pos;
+        private boolean unsafe;
+
+        LiteralExtractor(String regex) {
+            this.regex = regex;
+        }
+
+        List<String> alternation() {
+            List<String> literals = sequence();
+            boolean alternatives = false;
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                alternatives = true;
+                sequence();
+            }
+            return alternatives ? new ArrayList<>() : literals;
+        }
+
+        private List<String> sequence() {
+            List<String> literals = new ArrayList<>();
+            StringBuilder run = new StringBuilder();
+            while (pos < regex.length() && unsafe == false) {
+                char c = regex.charAt(pos);
+                if (c == '|' || c == ')') {
+                    break;
+                }
+                if (c == '(') {
+                    flush(run, literals);
+                    pos++;
+                    boolean lookaround = false;
+                    if (regex.charAt(pos) == '?') {
+                        char kind = regex.charAt(pos + 1);
+                        if (kind == ':' || kind == '>') {
+                            pos += 2;
+                        } else if (kind == '=' || kind == '!') {
+                            lookaround = true;
+                            pos += 2;
+                        } else if (kind == '<' && (regex.charAt(pos + 2) == '=' || regex.charAt(pos + 2) == '!')) {
+                            lookaround = true;
+                            pos += 3;
+                        } else if (kind == '<') {
+                            pos = indexAfter('>');
+                        } else {
+                            // inline options, comments or conditionals
+                            unsafe = true;
+                            break;
+                        }
+                    }
+                    List<String> inner = alternation();
+                    if (regex.charAt(pos) != ')') {
+                        unsafe = true;
+                        break;
+                    }
+                    pos++;
+                    if (quantifier() != 0 && lookaround == false) {
+                        literals.addAll(inner);
+                    }
+                } else if (c == '[') {
+                    flush(run, literals);
+                    skipClass();
+                    quantifier();
+                } else if (c == '\\') {
+                    char escaped = regex.charAt(pos + 1);
+                    if (Character.isLetterOrDigit(escaped)) {
+                        flush(run, literals);
+                        if (escaped == 'Q') {
+                            unsafe = true;
+                            break;
+                        }
+                        if (escaped == 'C' || escaped == 'M') {
+                            // control and meta characters like \C-x or \M-\C-x
+                            unsafe = true;
+                            break;
+                        }
+                        pos += 2;
+                        skipEscapeArguments(escaped);
+                        quantifier();
+                    } else {
+                        pos += 2;
+                        literal(escaped, run, literals);
+                    }
+                } else if (c == '.' || c == '^' || c == '$') {
+                    flush(run, literals);
+                    pos++;
+                    quantifier();
+                } else if (c == '*' || c == '+' || c == '?') {
+                    // a quantifier that does not follow an atom, be safe
+                    unsafe = true;
+                    break;
+                } else {
+                    pos++;
+                    literal(c, run, literals);
+                }
+            }
+            flush(run, literals);
+            return literals;
+        }
+
+        private void literal(char c, StringBuilder run, List<String> literals) {
+            int min = quantifier();
+            if (min == 0) {
+                flush(run, literals);
+            } else if (min == -1) {
+                run.append(c);
+            } else {
+                // the character is required but may be repeated, so the run cannot continue after it
+                run.append(c);
+                flush(run, literals);
+            }
+        }
+
+        /**
+         * Consumes the quantifier at the current position if there is one.
+         *
+         * @return the minimum number of repetitions of the quantifier, or -1 if there is no quantifier
+         */
+        private int quantifier() {
+            if (pos >= regex.length()) {
+                return -1;
+            }
+            int min;
+            char c = regex.charAt(pos);
+            if (c == '?' || c == '*') {
+                min = 0;
+                pos++;
+            } else if (c == '+') {
+                min = 1;
+                pos++;
+            } else if (c == '{') {
+                int end = regex.indexOf('}', pos);
+                String bounds = end == -1 ? "" : regex.substring(pos + 1, end);
+                if (bounds.matches("\\d*(,\\d*)?") == false || bounds.isEmpty() || bounds.equals(",")) {
+                    // not a valid interval, the brace is a literal
+                    return -1;
+                }
+                String lower = bounds.split(",", -1)[0];
+                min = lower.isEmpty() ? 0 : Integer.parseInt(lower);
+                pos = end + 1;
+            } else {
+                return -1;
+            }
+            if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+                // lazy or possessive
+                pos++;
+            }
+            return min;
+        }
+
+        /**
+         * Consumes the arguments of the escape sequence whose letter or digit was just consumed, so that they are not mistaken
+         * for literals: the hexadecimal digits of <tt>x</tt> and <tt>u</tt> escapes, the octal digits of escapes that start
+         * with <tt>0</tt>, the digits of back references and octal escapes, the character of <tt>c</tt> control escapes, and
+         * the names of properties, references and code points in braces or angle brackets.
+         */
+        private void skipEscapeArguments(char escaped) {
+            final boolean brace = pos < regex.length() && regex.charAt(pos) == '{';
+            if ((escaped == 'p' || escaped == 'P' || escaped == 'x' || escaped == 'o') && brace) {
+                pos = indexAfter('}');
+            } else if ((escaped == 'k' || escaped == 'g') && pos < regex.length() && regex.charAt(pos) == '<') {
+                pos = indexAfter('>');
+            } else if (escaped == 'x') {
+                skipDigits(16, 2);
+            } else if (escaped == 'u') {
+                skipDigits(16, 4);
+            } else if (escaped == '0') {
+                skipDigits(8, 3);
+            } else if (escaped >= '1' && escaped <= '9') {
+                // either a back reference or an octal escape, digits that follow belong to it in both cases
+                skipDigits(10, Integer.MAX_VALUE);
+            } else if (escaped == 'c') {
+                if (regex.charAt(pos) == '\\') {
+                    // the control character of an escaped character
+                    unsafe = true;
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private void skipDigits(int radix, int maxDigits) {
+            for (int i = 0; i < maxDigits && pos < regex.length() && Character.digit(regex.charAt(pos), radix) != -1; i++) {
+                pos++;
+            }
+        }
+
+        private int indexAfter(char c) {
+            int index = regex.indexOf(c, pos);
+            if (index == -1) {
+                throw new IndexOutOfBoundsException("missing [" + c + "]");
+            }
+            return index + 1;
+        }
+
+        private void skipClass() {
+            int depth = 0;
+            pos++;
+            if (regex.charAt(pos) == '^') {
+                pos++;
+            }
+            if (regex.charAt(pos) == ']') {
+                // a leading closing bracket is a literal
+                pos++;
+            }
+            while (true) {
+                char c = regex.charAt(pos);
+                if (c == '\\') {
+                    pos += 2;
+                } else if (c == '[') {
+                    depth++;
+                    pos++;
+                } else if (c == ']') {
+                    pos++;
+                    if (depth == 0) {
+                        return;
+                    }
+                    depth--;
+                } else {
+                    pos++;
+                }
+            }
+        }
+
+        private static void flush(StringBuilder run, List<String> literals) {
+            if (run.length() > 0) {
+                literals.add(run.toString());
+                run.setLength(0);
+            }
+        }
+    }
+}
@@ -19,15 +19,19 @@
 
 package org.elasticsearch.ingest.common;
 
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
+import org.elasticsearch.ingest.FieldPath;
 import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.IngestStats;
 import org.elasticsearch.ingest.Processor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.ingest.ConfigurationUtils.newConfigurationException;
 
@@ -37,24 +41,55 @@ public final class GrokProcessor extends AbstractProcessor {
     private static final String PATTERN_MATCH_KEY = "_ingest._grok_match_index";
 
     private final String matchField;
+    private final FieldPath matchFieldPath;
     private final List<String> matchPatterns;
     private final Grok grok;
+    private final List<Grok> groks;
+    private final GrokPrefilter prefilter;
+    private final PatternMetrics[] metrics;
     private final boolean traceMatch;
     private final boolean ignoreMissing;
 
     public GrokProcessor(String tag, Map<String, String> patternBank, List<String> matchPatterns, String matchField,
                          boolean traceMatch, boolean ignoreMissing) {
+        this(tag, patternBank, matchPatterns, matchField, traceMatch, ignoreMissing, false);
+    }
+
+    /**
+     * @param prefilter whether to compile each pattern on its own and only try the patterns whose literal parts are all
+     *                  contained in the field value, in order, rather than matching a single alternation of all patterns
+     */
+    public GrokProcessor(String tag, Map<String, String> patternBank, List<String> matchPatterns, String matchField,
+                         boolean traceMatch, boolean ignoreMissing, boolean prefilter) {
         super(tag);
         this.matchField = matchField;
+        this.matchFieldPath = new FieldPath(matchField);
         this.matchPatterns = matchPatterns;
-        this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch));
+        if (prefilter) {
+            this.grok = null;
+            this.groks = new ArrayList<>(matchPatterns.size());
+            List<String> expressions = new ArrayList<>(matchPatterns.size());
+            this.metrics = new PatternMetrics[matchPatterns.size()];
+            for (int i = 0; i < matchPatterns.size(); i++) {
+                Grok patternGrok = new Grok(patternBank, matchPatterns.get(i));
+                groks.add(patternGrok);
+                expressions.add(patternGrok.getExpression());
+                metrics[i] = new PatternMetrics(matchPatterns.get(i));
+            }
+            this.prefilter = new GrokPrefilter(expressions);
+        } else {
+            this.grok = new Grok(patternBank, combinePatterns(matchPatterns, traceMatch));
+            this.groks = null;
+            this.prefilter = null;
+            this.metrics = new PatternMetrics[] { new PatternMetrics(combinePatterns(matchPatterns, false)) };
+        }
         this.traceMatch = traceMatch;
         this.ignoreMissing = ignoreMissing;
     }
 
     @Override
     public void execute(IngestDocument ingestDocument) throws Exception {
-        String fieldValue = ingestDocument.getFieldValue(matchField, String.class, ignoreMissing);
+        String fieldValue = ingestDocument.getFieldValue(matchFieldPath, String.class, ignoreMissing);
 
         if (fieldValue == null && ignoreMissing) {
             return;
@@ -62,7 +97,14 @@ public final class GrokProcessor extends AbstractProcessor {
             throw new IllegalArgumentException("field [" + matchField + "] is null, cannot process it.");
         }
 
+        if (prefilter != null) {
+            executeWithPrefilter(ingestDocument, fieldValue);
+            return;
+        }
+
+        long startTimeInNanos = System.nanoTime();
         Map<String, Object> matches = grok.captures(fieldValue);
+        metrics[0].record(matches != null, startTimeInNanos);
         if (matches == null) {
             throw new IllegalArgumentException("Provided Grok expressions do not match field value: [" + fieldValue + "]");
         }
@@ -83,15 +125,53 @@ public final class GrokProcessor extends AbstractProcessor {
         }
     }
 
+    private void executeWithPrefilter(IngestDocument ingestDocument, String fieldValue) {
+        boolean[] candidates = prefilter.candidates(fieldValue);
+        for (int i = 0; i < groks.size(); i++) {
+            if (candidates[i] == false) {
+                metrics[i].skips.inc();
+                continue;
+            }
+            long startTimeInNanos = System.nanoTime();
+            Map<String, Object> matches = groks.get(i).captures(fieldValue);
+            metrics[i].record(matches != null, startTimeInNanos);
+            if (matches != null) {
+                matches.entrySet().stream()
+                    .forEach((e) -> ingestDocument.setFieldValue(e.getKey(), e.getValue()));
+                if (traceMatch) {
+                    ingestDocument.setFieldValue(PATTERN_MATCH_KEY, Integer.toString(i));
+                }
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Provided Grok expressions do not match field value: [" + fieldValue + "]");
+    }
+
     @Override
     public String getType() {
         return TYPE;
     }
 
+    @Override
+    public List<IngestStats.PatternStats> getPatternStats() {
+        List<IngestStats.PatternStats> patternStats = new ArrayList<>(metrics.length);
+        for (PatternMetrics patternMetrics : metrics) {
+            patternStats.add(patternMetrics.createStats());
+        }
+        return patternStats;
+    }
+
+    /**
+     * Returns the grok expression that combines all patterns, or <code>null</code> if the patterns are prefiltered.
+     */
     Grok getGrok() {
         return grok;
     }
 
+    boolean isPrefilter() {
+        return prefilter != null;
+    }
+
     boolean isIgnoreMissing() {
         return ignoreMissing;
     }
@@ -129,6 +209,33 @@ public final class GrokProcessor extends AbstractProcessor {
         return combinedPattern;
     }
 
+    private static final class PatternMetrics {
+
+        private final String pattern;
+        private final CounterMetric matches = new CounterMetric();
+        private final CounterMetric misses = new CounterMetric();
+        private final CounterMetric skips = new CounterMetric();
+        private final CounterMetric timeInNanos = new CounterMetric();
+
+        PatternMetrics(String pattern) {
+            this.pattern = pattern;
+        }
+
+        void record(boolean matched, long startTimeInNanos) {
+            timeInNanos.inc(System.nanoTime() - startTimeInNanos);
+            if (matched) {
+                matches.inc();
+            } else {
+                misses.inc();
+            }
+        }
+
+        IngestStats.PatternStats createStats() {
+            return new IngestStats.PatternStats(TYPE, pattern, matches.count(), misses.count(), skips.count(),
+                TimeUnit.NANOSECONDS.toMillis(timeInNanos.count()));
+        }
+    }
+
     public static final class Factory implements Processor.Factory {
 
         private final Map<String, String> builtinPatterns;
@@ -144,6 +251,7 @@ public final class GrokProcessor extends AbstractProcessor {
             List<String> matchPatterns = ConfigurationUtils.readList(TYPE, processorTag, config, "patterns");
             boolean traceMatch = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config, "trace_match", false);
             boolean ignoreMissing = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config, "ignore_missing", false);
+            boolean prefilter = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config, "prefilter", false);
 
             if (matchPatterns.isEmpty()) {
                 throw newConfigurationException(TYPE, processorTag, "patterns", "List of patterns must not be empty");
@@ -155,7 +263,7 @@ public final class GrokProcessor extends AbstractProcessor {
             }
 
             try {
-                return new GrokProcessor(processorTag, patternBank, matchPatterns, matchField, traceMatch, ignoreMissing);
+                return new GrokProcessor(processorTag, patternBank, matchPatterns, matchField, traceMatch, ignoreMissing, prefilter);
             } catch (Exception e) {
                 throw newConfigurationException(TYPE, processorTag, "patterns",
                     "Invalid regex pattern found in: " + matchPatterns + ". " + e.getMessage());
@@ -20,6 +20,7 @@
 package org.elasticsearch.ingest.common;
 
 import org.elasticsearch.ingest.AbstractProcessor;
+import org.elasticsearch.ingest.FieldPath;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 
@@ -39,12 +40,14 @@ public final class GsubProcessor extends AbstractProcessor {
     public static final String TYPE = "gsub";
 
     private final String field;
+    private final FieldPath fieldPath;
     private final Pattern pattern;
     private final String replacement;
 
     GsubProcessor(String tag, String field, Pattern pattern, String replacement) {
         super(tag);
         this.field = field;
+        this.fieldPath = new FieldPath(field);
         this.pattern = pattern;
         this.replacement = replacement;
     }
@@ -64,13 +67,13 @@ public final class GsubProcessor extends AbstractProcessor {
 
     @Override
     public void execute(IngestDocument document) {
-        String oldVal = document.getFieldValue(field, String.class);
+        String oldVal = document.getFieldValue(fieldPath, String.class);
         if (oldVal == null) {
             throw new IllegalArgumentException("field [" + field + "] is null, cannot match pattern.");
         }
         Matcher matcher = pattern.matcher(oldVal);
         String newVal = matcher.replaceAll(replacement);
-        document.setFieldValue(field, newVal);
+        document.setFieldValue(fieldPath, newVal);
     }
 
     @Override
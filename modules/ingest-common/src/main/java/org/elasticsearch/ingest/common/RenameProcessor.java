@@ -21,6 +21,7 @@ package org.elasticsearch.ingest.common;
 
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
+import org.elasticsearch.ingest.FieldPath;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 
@@ -34,13 +35,17 @@ public final class RenameProcessor extends AbstractProcessor {
     public static final String TYPE = "rename";
 
     private final String field;
+    private final FieldPath fieldPath;
     private final String targetField;
+    private final FieldPath targetFieldPath;
     private final boolean ignoreMissing;
 
     RenameProcessor(String tag, String field, String targetField, boolean ignoreMissing) {
         super(tag);
         this.field = field;
+        this.fieldPath = new FieldPath(field);
         this.targetField = targetField;
+        this.targetFieldPath = new FieldPath(targetField);
         this.ignoreMissing = ignoreMissing;
     }
 
@@ -58,7 +63,7 @@ public final class RenameProcessor extends AbstractProcessor {
 
     @Override
     public void execute(IngestDocument document) {
-        if (document.hasField(field, true) == false) {
+        if (document.hasField(fieldPath, true) == false) {
             if (ignoreMissing) {
                 return;
             } else {
@@ -69,17 +74,17 @@ public final class RenameProcessor extends AbstractProcessor {
         // If we didn't do this then we would fail if we set the value in the target_field
         // and then on failure processors would not see that value we tried to rename as we already
         // removed it.
-        if (document.hasField(targetField, true)) {
+        if (document.hasField(targetFieldPath, true)) {
             throw new IllegalArgumentException("field [" + targetField + "] already exists");
         }
 
-        Object value = document.getFieldValue(field, Object.class);
-        document.removeField(field);
+        Object value = document.getFieldValue(fieldPath, Object.class);
+        document.removeField(fieldPath);
         try {
-            document.setFieldValue(targetField, value);
+            document.setFieldValue(targetFieldPath, value);
         } catch (Exception e) {
             // setting the value back to the original field shouldn't as we just fetched it from that field:
-            document.setFieldValue(field, value);
+            document.setFieldValue(fieldPath, value);
             throw e;
         }
     }
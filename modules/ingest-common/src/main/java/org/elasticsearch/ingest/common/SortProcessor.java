@@ -21,6 +21,7 @@ package org.elasticsearch.ingest.common;
 
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
+import org.elasticsearch.ingest.FieldPath;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 
@@ -68,11 +69,13 @@ public final class SortProcessor extends AbstractProcessor {
     }
 
     private final String field;
+    private final FieldPath fieldPath;
     private final SortOrder order;
 
     SortProcessor(String tag, String field, SortOrder order) {
         super(tag);
         this.field = field;
+        this.fieldPath = new FieldPath(field);
         this.order = order;
     }
 
@@ -87,7 +90,7 @@ public final class SortProcessor extends AbstractProcessor {
     @Override
     @SuppressWarnings("unchecked")
     public void execute(IngestDocument document) {
-        List<? extends Comparable> list = document.getFieldValue(field, List.class);
+        List<? extends Comparable> list = document.getFieldValue(fieldPath, List.class);
 
         if (list == null) {
             throw new IllegalArgumentException("field [" + field + "] is null, cannot sort.");
@@ -103,7 +106,7 @@ public final class SortProcessor extends AbstractProcessor {
             Collections.sort(list, Collections.reverseOrder());
         }
 
-        document.setFieldValue(field, list);
+        document.setFieldValue(fieldPath, list);
     }
 
     @Override
@@ -21,6 +21,7 @@ package org.elasticsearch.ingest.common;
 
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
+import org.elasticsearch.ingest.FieldPath;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 
@@ -39,12 +40,14 @@ public final class SplitProcessor extends AbstractProcessor {
     public static final String TYPE = "split";
 
     private final String field;
+    private final FieldPath fieldPath;
     private final String separator;
     private final boolean ignoreMissing;
 
     SplitProcessor(String tag, String field, String separator, boolean ignoreMissing) {
         super(tag);
         this.field = field;
+        this.fieldPath = new FieldPath(field);
         this.separator = separator;
         this.ignoreMissing = ignoreMissing;
     }
@@ -63,7 +66,7 @@ public final class SplitProcessor extends AbstractProcessor {
 
     @Override
     public void execute(IngestDocument document) {
-        String oldVal = document.getFieldValue(field, String.class, ignoreMissing);
+        String oldVal = document.getFieldValue(fieldPath, String.class, ignoreMissing);
 
         if (oldVal == null && ignoreMissing) {
             return;
@@ -74,7 +77,7 @@ public final class SplitProcessor extends AbstractProcessor {
         String[] strings = oldVal.split(separator);
         List<String> splitList = new ArrayList<>(strings.length);
         Collections.addAll(splitList, strings);
-        document.setFieldValue(field, splitList);
+        document.setFieldValue(fieldPath, splitList);
     }
 
     @Override
@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.common;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+public class GrokPrefilterTests extends ESTestCase {
+
+    public void testRequiredLiterals() {
+        assertThat(GrokPrefilter.requiredLiterals("ERROR \\[(?<level>\\w+)\\] user=(?<user>[a-z]+)"),
+            contains("ERROR [", "] user="));
+        assertThat(GrokPrefilter.requiredLiterals("ab?cd"), contains("cd"));
+        assertThat(GrokPrefilter.requiredLiterals("x(?:abc)+y"), contains("abc"));
+        assertThat(GrokPrefilter.requiredLiterals("x(?<name>yyy)?z"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("GET .* HTTP/\\d\\.\\d"), contains("GET ", " HTTP/"));
+        assertThat(GrokPrefilter.requiredLiterals("ab{2,3}cd"), contains("ab", "cd"));
+    }
+
+    public void testNoLiteralsAreExtractedFromUnsafeRegexes() {
+        assertThat(GrokPrefilter.requiredLiterals("abc|def"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("(?i)ERROR"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("\\QERROR\\E"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("foo(?=bar)"), contains("foo"));
+        assertThat(GrokPrefilter.requiredLiterals("(abc"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("[abc"), empty());
+    }
+
+    public void testEscapeArgumentsAreNotLiterals() {
+        assertThat(GrokPrefilter.requiredLiterals("\\x41BCD"), contains("BCD"));
+        assertThat(GrokPrefilter.requiredLiterals("\\x4BCD"), contains("CD"));
+        assertThat(GrokPrefilter.requiredLiterals("\\x{41}BCD"), contains("BCD"));
+        assertThat(GrokPrefilter.requiredLiterals("\\u0041BCD"), contains("BCD"));
+        assertThat(GrokPrefilter.requiredLiterals("\\0101BCD"), contains("BCD"));
+        assertThat(GrokPrefilter.requiredLiterals("\\01BCD"), contains("BCD"));
+        assertThat(GrokPrefilter.requiredLiterals("\\cABCD"), contains("BCD"));
+        assertThat(GrokPrefilter.requiredLiterals("(ab)\\12cd"), contains("ab", "cd"));
+        assertThat(GrokPrefilter.requiredLiterals("\\c\\ABCD"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("\\C-aBCD"), empty());
+        assertThat(GrokPrefilter.requiredLiterals("\\M-aBCD"), empty());
+
+        GrokPrefilter prefilter = new GrokPrefilter(Arrays.asList("\\x41BC", "\\x{41}BC", "\\u0041BC", "\\0101BC", "\\cABC"));
+        assertThat(prefilter.candidates("ABC\u0001BC"), equalTo(new boolean[] { true, true, true, true, true }));
+    }
+
+    public void testCandidates() {
+        GrokPrefilter prefilter = new GrokPrefilter(Arrays.asList("she.*hers", "he.*his", "abc|def", "HTTP/\\d", "x"));
+        assertThat(prefilter.candidates("ushers"), equalTo(new boolean[] { true, false, true, false, true }));
+        assertThat(prefilter.candidates("his hershey"), equalTo(new boolean[] { true, true, true, false, true }));
+        assertThat(prefilter.candidates("GET / HTTP/1.1"), equalTo(new boolean[] { false, false, true, true, true }));
+        assertThat(prefilter.candidates(""), equalTo(new boolean[] { false, false, true, false, true }));
+    }
+
+    public void testCandidatesWithoutLiterals() {
+        GrokPrefilter prefilter = new GrokPrefilter(Collections.singletonList("\\d+"));
+        assertThat(prefilter.candidates(randomAsciiOfLength(8)), equalTo(new boolean[] { true }));
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.ingest.common;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.test.ESTestCase;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -29,6 +30,7 @@ import java.util.Map;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 public class GrokProcessorFactoryTests extends ESTestCase {
 
@@ -61,6 +63,19 @@ public class GrokProcessorFactoryTests extends ESTestCase {
         assertThat(processor.isIgnoreMissing(), is(true));
     }
 
+    public void testBuildWithPrefilter() throws Exception {
+        GrokProcessor.Factory factory = new GrokProcessor.Factory(Collections.emptyMap());
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("field", "_field");
+        config.put("patterns", Arrays.asList("(?<foo>\\w+)", "(?<bar>\\d+)"));
+        config.put("prefilter", true);
+        GrokProcessor processor = factory.create(null, randomAsciiOfLength(10), config);
+        assertThat(processor.isPrefilter(), is(true));
+        assertThat(processor.getGrok(), nullValue());
+        assertThat(processor.getMatchPatterns(), equalTo(Arrays.asList("(?<foo>\\w+)", "(?<bar>\\d+)")));
+    }
+
     public void testBuildMissingField() throws Exception {
         GrokProcessor.Factory factory = new GrokProcessor.Factory(Collections.emptyMap());
         Map<String, Object> config = new HashMap<>();
@@ -20,16 +20,19 @@
 package org.elasticsearch.ingest.common;
 
 import org.elasticsearch.ingest.IngestDocument;
+import org.elasticsearch.ingest.IngestStats;
 import org.elasticsearch.ingest.RandomDocumentPicks;
 import org.elasticsearch.test.ESTestCase;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.elasticsearch.ingest.IngestDocumentMatcher.assertIngestDocument;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 
 
 public class GrokProcessorTests extends ESTestCase {
@@ -227,4 +230,64 @@ public class GrokProcessorTests extends ESTestCase {
         assertFalse(doc.hasField("first"));
         assertThat(doc.getFieldValue("second", String.class), equalTo("3"));
     }
+
+    public void testPrefilter() throws Exception {
+        String fieldName = RandomDocumentPicks.randomFieldName(random());
+        Map<String, String> patternBank = new HashMap<>();
+        patternBank.put("NUMBER", "\\d+");
+        patternBank.put("WORD", "\\w+");
+        GrokProcessor processor = new GrokProcessor(randomAsciiOfLength(10), patternBank,
+            Arrays.asList("GET %{WORD:path} took %{NUMBER:took}", "POST %{WORD:path}", "%{WORD:word}"), fieldName, true, false, true);
+        assertThat(processor.isPrefilter(), equalTo(true));
+        assertThat(processor.getGrok(), nullValue());
+
+        IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        doc.setFieldValue(fieldName, "POST index");
+        processor.execute(doc);
+        assertThat(doc.getFieldValue("path", String.class), equalTo("index"));
+        assertThat(doc.hasField("word"), equalTo(false));
+        assertThat(doc.getFieldValue("_ingest._grok_match_index", String.class), equalTo("1"));
+
+        doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        doc.setFieldValue(fieldName, "GET index slowly");
+        processor.execute(doc);
+        assertThat(doc.hasField("path"), equalTo(false));
+        assertThat(doc.getFieldValue("word", String.class), equalTo("GET"));
+        assertThat(doc.getFieldValue("_ingest._grok_match_index", String.class), equalTo("2"));
+
+        IngestDocument noMatch = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        noMatch.setFieldValue(fieldName, "!");
+        Exception e = expectThrows(Exception.class, () -> processor.execute(noMatch));
+        assertThat(e.getMessage(), equalTo("Provided Grok expressions do not match field value: [!]"));
+
+        List<IngestStats.PatternStats> stats = processor.getPatternStats();
+        assertThat(stats.size(), equalTo(3));
+        // none of the values contained " took ", so the first pattern never had to be tried
+        assertPatternStats(stats.get(0), "GET %{WORD:path} took %{NUMBER:took}", 0, 0, 3);
+        assertPatternStats(stats.get(1), "POST %{WORD:path}", 1, 0, 2);
+        assertPatternStats(stats.get(2), "%{WORD:word}", 1, 1, 0);
+    }
+
+    public void testPatternStatsWithoutPrefilter() throws Exception {
+        String fieldName = RandomDocumentPicks.randomFieldName(random());
+        GrokProcessor processor = new GrokProcessor(randomAsciiOfLength(10), Collections.singletonMap("ONE", "1"),
+            Arrays.asList("%{ONE:one}", "a%{ONE:one}"), fieldName, false, false);
+        IngestDocument doc = RandomDocumentPicks.randomIngestDocument(random(), new HashMap<>());
+        doc.setFieldValue(fieldName, "1");
+        processor.execute(doc);
+        doc.setFieldValue(fieldName, "2");
+        expectThrows(IllegalArgumentException.class, () -> processor.execute(doc));
+
+        List<IngestStats.PatternStats> stats = processor.getPatternStats();
+        assertThat(stats.size(), equalTo(1));
+        assertPatternStats(stats.get(0), "(?:%{ONE:one})|(?:a%{ONE:one})", 1, 1, 0);
+    }
+
+    private static void assertPatternStats(IngestStats.PatternStats stats, String pattern, long matches, long misses, long skips) {
+        assertThat(stats.getProcessorType(), equalTo(GrokProcessor.TYPE));
+        assertThat(stats.getPattern(), equalTo(pattern));
+        assertThat(stats.getMatchCount(), equalTo(matches));
+        assertThat(stats.getMissCount(), equalTo(misses));
+        assertThat(stats.getSkipCount(), equalTo(skips));
+    }
 }
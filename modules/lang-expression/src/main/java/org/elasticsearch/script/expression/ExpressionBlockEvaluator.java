@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.script.expression;
+
+import org.apache.lucene.expressions.Expression;
+import org.apache.lucene.search.DoubleValues;
+
+import java.io.IOException;
+
+/**
+ * Evaluates an {@link Expression} over blocks of consecutive documents of a segment.
+ * <p>
+ * The values of each variable are read for a whole block into a primitive array, one variable after the other, and the
+ * expression is then evaluated over the arrays. This keeps the doc values of a variable and the compiled expression in
+ * tight loops instead of going through the chain of values sources for every document. Values that are read ahead are
+ * wasted for documents that are not requested, so blocks are only read once documents are requested in order, and for as
+ * long as most documents of the previous block were requested.
+ */
+final class ExpressionBlockEvaluator {
+
+    static final int BLOCK_SIZE = 128;
+
+    // the number of consecutive documents that need to be requested before values are read ahead
+    static final int MIN_RUN = 8;
+
+    private final Expression expression;
+    private final DoubleValues[] sources;
+    private final double[][] values;
+    private final DoubleValues[] arguments;
+    private final double[] results = new double[BLOCK_SIZE];
+    private final int maxDoc;
+
+    private int blockStart;
+    private int blockEnd;
+    private boolean evaluated;
+    private int used;
+    private int position;
+    private int lastDoc = -1;
+    private int run;
+
+    /**
+     * @param sources the values of the variables of the expression, in the order of {@link Expression#variables}
+     */
+    ExpressionBlockEvaluator(Expression expression, DoubleValues[] sources, int maxDoc) {
+        this.expression = expression;
+        this.sources = sources;
+        this.maxDoc = maxDoc;
+        values = new double[sources.length][BLOCK_SIZE];
+        arguments = new DoubleValues[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            arguments[i] = new BlockValues(values[i]);
+        }
+    }
+
+    /**
+     * Positions the evaluator on the provided document.
+     *
+     * @return whether the value of the document comes from a block, {@code false} means that the caller must evaluate
+     *         the expression for this document itself
+     */
+    boolean advance(int doc) throws IOException {
+        if (doc >= blockStart && doc < blockEnd) {
+            position = doc - blockStart;
+            used++;
+            lastDoc = doc;
+            return true;
+        }
+        if (blockEnd > blockStart) {
+            // leaving a block: keep reading ahead if most of its documents were requested
+            run = used * 2 >= blockEnd - blockStart ? MIN_RUN : 0;
+            blockStart = blockEnd = 0;
+        } else {
+            run = doc == lastDoc + 1 ? run + 1 : 0;
+        }
+        lastDoc = doc;
+        if (run < MIN_RUN) {
+            return false;
+        }
+        read(doc);
+        position = 0;
+        used = 1;
+        return true;
+    }
+
+    /**
+     * Returns the value of the expression for the current document, evaluating it for the whole block on first access.
+     */
+    double value() {
+        if (evaluated == false) {
+            final int current = position;
+            final int length = blockEnd - blockStart;
+            for (position = 0; position < length; position++) {
+                results[position] = expression.evaluate(arguments);
+            }
+            position = current;
+            evaluated = true;
+        }
+        return results[position];
+    }
+
+    private void read(int doc) throws IOException {
+        final int length = Math.min(BLOCK_SIZE, maxDoc - doc);
+        for (int i = 0; i < sources.length; i++) {
+            final DoubleValues source = sources[i];
+            final double[] block = values[i];
+            for (int j = 0; j < length; j++) {
+                // like expressions evaluated per document, missing values are 0
+                block[j] = source.advanceExact(doc + j) ? source.doubleValue() : 0;
+            }
+        }
+        blockStart = doc;
+        blockEnd = doc + length;
+        evaluated = false;
+    }
+
+    /**
+     * The values of a variable for the document of the block that is being evaluated.
+     */
+    private final class BlockValues extends DoubleValues {
+
+        private final double[] block;
+
+        BlockValues(double[] block) {
+            this.block = block;
+        }
+
+        @Override
+        public double doubleValue() {
+            return block[position];
+        }
+
+        @Override
+        public boolean advanceExact(int doc) {
+            throw new UnsupportedOperationException("block values are positioned by the evaluator");
+        }
+    }
+}
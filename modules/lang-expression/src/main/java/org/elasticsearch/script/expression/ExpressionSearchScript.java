@@ -42,6 +42,7 @@ class ExpressionSearchScript implements SearchScript {
 
     final CompiledScript compiledScript;
     final SimpleBindings bindings;
+    final Expression expression;
     final DoubleValuesSource source;
     final ReplaceableConstDoubleValueSource specialValue; // _value
     final boolean needsScores;
@@ -51,7 +52,8 @@ class ExpressionSearchScript implements SearchScript {
     ExpressionSearchScript(CompiledScript c, SimpleBindings b, ReplaceableConstDoubleValueSource v, boolean needsScores) {
         compiledScript = c;
         bindings = b;
-        source = ((Expression)compiledScript.compiled()).getDoubleValuesSource(bindings);
+        expression = (Expression)compiledScript.compiled();
+        source = expression.getDoubleValuesSource(bindings);
         specialValue = v;
         this.needsScores = needsScores;
     }
@@ -62,8 +64,25 @@ class ExpressionSearchScript implements SearchScript {
     }
 
 
+    /**
+     * Returns an evaluator of the expression over blocks of documents of the provided segment, or {@code null} if the
+     * expression depends on per-document state that is only known when the document is evaluated: the score or
+     * {@code _value}.
+     */
+    private ExpressionBlockEvaluator blockEvaluator(LeafReaderContext leaf) throws IOException {
+        if (needsScores || specialValue != null) {
+            return null;
+        }
+        DoubleValues[] sources = new DoubleValues[expression.variables.length];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = bindings.getDoubleValuesSource(expression.variables[i]).getValues(leaf, null);
+        }
+        return new ExpressionBlockEvaluator(expression, sources, leaf.reader().maxDoc());
+    }
+
     @Override
     public LeafSearchScript getLeafSearchScript(final LeafReaderContext leaf) throws IOException {
+        final ExpressionBlockEvaluator blockEvaluator = blockEvaluator(leaf);
         return new LeafSearchScript() {
             // Fake the scorer until setScorer is called.
             DoubleValues values = source.getValues(leaf, new DoubleValues() {
@@ -77,8 +96,14 @@ class ExpressionSearchScript implements SearchScript {
                     return true;
                 }
             });
+            // whether the value of the current document is evaluated by the block evaluator
+            boolean inBlock;
+
             double evaluate() {
                 try {
+                    if (inBlock) {
+                        return blockEvaluator.value();
+                    }
                     return values.doubleValue();
                 } catch (Exception exception) {
                     throw new GeneralScriptException("Error evaluating " + compiledScript, exception);
@@ -98,7 +123,10 @@ class ExpressionSearchScript implements SearchScript {
             public void setDocument(int d) {
                 docid = d;
                 try {
-                    values.advanceExact(d);
+                    inBlock = blockEvaluator != null && blockEvaluator.advance(d);
+                    if (inBlock == false) {
+                        values.advanceExact(d);
+                    }
                 } catch (IOException e) {
                     throw new IllegalStateException("Can't advance to doc using " + compiledScript, e);
                 }
@@ -19,26 +19,35 @@
 
 package org.elasticsearch.script.expression;
 
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.engine.Engine.Searcher;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.script.CompiledScript;
+import org.elasticsearch.script.LeafSearchScript;
 import org.elasticsearch.script.ScriptException;
 import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.script.SearchScript;
+import org.elasticsearch.search.lookup.LeafDocLookup;
 import org.elasticsearch.search.lookup.SearchLookup;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.Collections;
 
 public class ExpressionTests extends ESSingleNodeTestCase {
+    IndexService index;
     ExpressionScriptEngineService service;
     SearchLookup lookup;
 
     @Override
     public void setUp() throws Exception {
         super.setUp();
-        IndexService index = createIndex("test", Settings.EMPTY, "type", "d", "type=double");
+        index = createIndex("test", Settings.EMPTY, "type", "d", "type=double");
         service = new ExpressionScriptEngineService(Settings.EMPTY);
         lookup = new SearchLookup(index.mapperService(), index.fieldData(), null);
     }
@@ -68,4 +77,35 @@ public class ExpressionTests extends ESSingleNodeTestCase {
         });
         assertTrue(e.getCause() instanceof ParseException);
     }
+
+    public void testBlockEvaluation() throws IOException {
+        int numDocs = randomIntBetween(1, 5) * ExpressionBlockEvaluator.BLOCK_SIZE + randomIntBetween(0, 100);
+        BulkRequestBuilder bulk = client().prepareBulk().setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        for (int i = 0; i < numDocs; i++) {
+            if (randomInt(9) == 0) {
+                bulk.add(client().prepareIndex("test", "type").setSource("other", i));
+            } else {
+                bulk.add(client().prepareIndex("test", "type").setSource("d", i * 0.5));
+            }
+        }
+        assertFalse(bulk.get().hasFailures());
+
+        SearchScript script = compile("doc['d'].value * 2 + 1");
+        try (Searcher searcher = index.getShard(0).acquireSearcher("test")) {
+            for (LeafReaderContext ctx : searcher.reader().leaves()) {
+                LeafDocLookup docLookup = lookup.doc().getLeafDocLookup(ctx);
+                // all documents in order, then a mix of consecutive and sparse documents
+                for (boolean sparse : new boolean[] {false, true}) {
+                    LeafSearchScript leafScript = script.getLeafSearchScript(ctx);
+                    for (int doc = 0; doc < ctx.reader().maxDoc(); doc += sparse && randomBoolean() ? randomIntBetween(1, 300) : 1) {
+                        docLookup.setDocument(doc);
+                        ScriptDocValues.Doubles values = (ScriptDocValues.Doubles) docLookup.get("d");
+                        double expected = values.isEmpty() ? 1 : values.getValue() * 2 + 1;
+                        leafScript.setDocument(doc);
+                        assertEquals(expected, leafScript.runAsDouble(), 0d);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,290 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.painless;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.painless.Compiler.Output;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A cache of the byte code generated for Painless scripts that is stored on disk, so that it survives node restarts.
+ * <p>
+ * Entries are addressed by a hash of everything the generated byte code depends on: the Elasticsearch version, the name
+ * and source of the script and the compiler settings. Since the byte code is defined without being verified, every entry
+ * is authenticated with an HMAC whose key is private to the node and stored outside of the cache directory: entries that
+ * were not written by the node itself are never loaded. The cache lives in the first path of the node that is locked by
+ * the {@link NodeEnvironment}, so nodes sharing a data path never share it. It holds at most {@link #MAX_ENTRIES} entries,
+ * the least recently used entries are removed first.
+ * <p>
+ * Only restarts of the node benefit from the cache: nodes do not warm each other up, because entries written by other
+ * processes cannot be trusted.
+ */
+final class CompiledScriptCache {
+
+    /**
+     * Whether the byte code of compiled scripts is cached on disk.
+     */
+    static final Setting<Boolean> ENABLED =
+        Setting.boolSetting("script.painless.compiled_cache.enabled", false, Property.NodeScope);
+
+    /**
+     * The maximum number of entries that are kept on disk.
+     */
+    static final Setting<Integer> MAX_ENTRIES =
+        Setting.intSetting("script.painless.compiled_cache.max_entries", 1000, 1, Property.NodeScope);
+
+    private static final Logger logger = Loggers.getLogger(CompiledScriptCache.class);
+
+    private static final int FORMAT_VERSION = 2;
+    private static final String ENTRY_SUFFIX = ".class";
+    private static final String CACHE_DIRECTORY = "painless_cache";
+    private static final String KEY_FILE = "painless_cache.key";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_KEY_LENGTH = 32;
+    private static final int MAC_LENGTH = 32;
+
+    private final Path directory;
+    private final SecretKeySpec macKey;
+    private final int maxEntries;
+
+    CompiledScriptCache(Path directory, Path keyFile, int maxEntries) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.macKey = new SecretKeySpec(loadOrCreateKey(keyFile), MAC_ALGORITHM);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Creates the cache of a node in its first node path, or returns {@code null} if the cache is disabled or the node has
+     * no local storage. The shared data path is never used, since other processes can write to it. Entries of other
+     * Elasticsearch versions can never be used again and are removed.
+     */
+    static CompiledScriptCache create(Settings settings, NodeEnvironment nodeEnvironment) throws IOException {
+        if (ENABLED.get(settings) == false || nodeEnvironment.hasNodeFile() == false) {
+            return null;
+        }
+        Path dataPath = nodeEnvironment.nodeDataPaths()[0];
+        Path root = dataPath.resolve(CACHE_DIRECTORY);
+        String version = Integer.toString(Version.CURRENT.id);
+        if (Files.exists(root)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+                for (Path path : stream) {
+                    if (path.getFileName().toString().equals(version) == false) {
+                        logger.debug("removing compiled script cache entries [{}] of another version", path);
+                        IOUtils.rm(path);
+                    }
+                }
+            }
+        }
+        return new CompiledScriptCache(root.resolve(version), dataPath.resolve(KEY_FILE), MAX_ENTRIES.get(settings));
+    }
+
+    /**
+     * Reads the key that authenticates the entries of the cache, or generates a new one if there is none yet.
+     */
+    private static byte[] loadOrCreateKey(Path keyFile) throws IOException {
+        if (Files.exists(keyFile)) {
+            byte[] key = Files.readAllBytes(keyFile);
+            if (key.length == MAC_KEY_LENGTH) {
+                return key;
+            }
+            logger.warn("replacing invalid compiled script cache key [{}]", keyFile);
+        }
+        byte[] key = new byte[MAC_KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        Path tmp = Files.createTempFile(keyFile.getParent(), keyFile.getFileName().toString(), ".tmp");
+        try {
+            PosixFileAttributeView attrs = Files.getFileAttributeView(tmp, PosixFileAttributeView.class);
+            if (attrs != null) {
+                // don't rely on umask: only the node may read the key
+                attrs.setPermissions(PosixFilePermissions.fromString("rw-------"));
+            }
+            Files.write(tmp, key);
+            Files.move(tmp, keyFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the key of the entry holding the byte code of the provided script.
+     */
+    static String key(String name, String source, CompilerSettings settings) {
+        MessageDigest digest = MessageDigests.sha256();
+        digest.update(Integer.toString(Version.CURRENT.id).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(source.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        String compilerSettings = settings.getMaxLoopCounter() + "," + settings.isPicky() + ","
+            + settings.getInitialCallSiteDepth() + "," + settings.areRegexesEnabled();
+        digest.update(compilerSettings.getBytes(StandardCharsets.UTF_8));
+        return MessageDigests.toHexString(digest.digest());
+    }
+
+    /**
+     * Returns the cached byte code for the provided key, or {@code null} if there is none or it cannot be read.
+     */
+    Output get(String key) {
+        Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        try {
+            byte[] bytes = Files.readAllBytes(entry);
+            int length = bytes.length - MAC_LENGTH;
+            if (length < 0 || MessageDigest.isEqual(mac(key, bytes, length), Arrays.copyOfRange(bytes, length, bytes.length)) == false) {
+                logger.warn("removing compiled script cache entry [{}] that failed authentication", entry);
+                Files.deleteIfExists(entry);
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long[] statements = new long[in.readInt()];
+            for (int i = 0; i < statements.length; i++) {
+                statements[i] = in.readLong();
+            }
+            byte[] code = new byte[in.readInt()];
+            in.readFully(code);
+            // the modification time tracks the last use of the entry for evictions
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Output(code, BitSet.valueOf(statements));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            logger.warn((Supplier<?>) () -> new ParameterizedMessage("failed to read compiled script cache entry [{}]", entry), e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the byte code for the provided key and evicts the least recently used entries if there are too many of them.
+     * Failures are logged, since the script can always be compiled again.
+     */
+    void put(String key, Output output) {
+        Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        if (Files.exists(entry)) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(FORMAT_VERSION);
+                long[] statements = output.statements.toLongArray();
+                out.writeInt(statements.length);
+                for (long word : statements) {
+                    out.writeLong(word);
+                }
+                out.writeInt(output.bytes.length);
+                out.write(output.bytes);
+            }
+            bytes.write(mac(key, bytes.toByteArray(), bytes.size()));
+            // write to a temporary file first so that entries are never read partially
+            tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+            evict();
+        } catch (IOException | RuntimeException e) {
+            logger.warn((Supplier<?>) () -> new ParameterizedMessage("failed to write compiled script cache entry [{}]", entry), e);
+        } finally {
+            if (tmp != null) {
+                final Path leftover = tmp;
+                try {
+                    Files.deleteIfExists(leftover);
+                } catch (IOException e) {
+                    logger.debug((Supplier<?>) () -> new ParameterizedMessage("failed to delete [{}]", leftover), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until there are at most {@link #maxEntries} entries left. Entries are only
+     * written when scripts are compiled, which is rate limited, so listing the directory on every write is cheap enough.
+     */
+    private void evict() throws IOException {
+        List<Tuple<Path, FileTime>> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path entry : stream) {
+                try {
+                    entries.add(Tuple.tuple(entry, Files.getLastModifiedTime(entry)));
+                } catch (NoSuchFileException e) {
+                    // removed concurrently
+                }
+            }
+        }
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        entries.sort((a, b) -> a.v2().compareTo(b.v2()));
+        for (Tuple<Path, FileTime> entry : entries.subList(0, entries.size() - maxEntries)) {
+            logger.trace("evicting compiled script cache entry [{}]", entry.v1());
+            Files.deleteIfExists(entry.v1());
+        }
+    }
+
+    private byte[] mac(String key, byte[] bytes, int length) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            mac.update(key.getBytes(StandardCharsets.UTF_8));
+            mac.update(bytes, 0, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("failed to authenticate compiled script cache entry [" + key + "]", e);
+        }
+    }
+}
@@ -84,6 +84,19 @@ final class Compiler {
         }
     }
 
+    /**
+     * The byte code generated for a Painless script along with the statement offsets needed to create instances of it.
+     */
+    static final class Output {
+        final byte[] bytes;
+        final BitSet statements;
+
+        Output(byte[] bytes, BitSet statements) {
+            this.bytes = bytes;
+            this.statements = statements;
+        }
+    }
+
     /**
      * Runs the two-pass compiler to generate a Painless script.
      * @param loader The ClassLoader used to define the script.
@@ -93,6 +106,17 @@ final class Compiler {
      * @return An {@link Executable} Painless script.
      */
     static Executable compile(Loader loader, String name, String source, CompilerSettings settings) {
+        return define(loader, name, source, generate(name, source, settings));
+    }
+
+    /**
+     * Runs the two-pass compiler to generate the byte code of a Painless script without defining it.
+     * @param name The name of the script.
+     * @param source The source code for the script.
+     * @param settings The CompilerSettings to be used during the compilation.
+     * @return The generated byte code.
+     */
+    static Output generate(String name, String source, CompilerSettings settings) {
         if (source.length() > MAXIMUM_SOURCE_LENGTH) {
             throw new IllegalArgumentException("Scripts may be no longer than " + MAXIMUM_SOURCE_LENGTH +
                 " characters.  The passed in script is " + source.length() + " characters.  Consider using a" +
@@ -104,12 +128,24 @@ final class Compiler {
         root.analyze();
         root.write();
 
+        return new Output(root.getBytes(), root.getStatements());
+    }
+
+    /**
+     * Defines a Painless script from byte code that was generated earlier.
+     * @param loader The ClassLoader used to define the script.
+     * @param name The name of the script.
+     * @param source The source code for the script.
+     * @param output The byte code generated for the script.
+     * @return An {@link Executable} Painless script.
+     */
+    static Executable define(Loader loader, String name, String source, Output output) {
         try {
-            Class<? extends Executable> clazz = loader.define(CLASS_NAME, root.getBytes());
+            Class<? extends Executable> clazz = loader.define(CLASS_NAME, output.bytes);
             java.lang.reflect.Constructor<? extends Executable> constructor =
                     clazz.getConstructor(String.class, String.class, BitSet.class);
 
-            return constructor.newInstance(name, source, root.getStatements());
+            return constructor.newInstance(name, source, output.statements);
         } catch (Exception exception) { // Catch everything to let the user know this is something caused internally.
             throw new IllegalStateException("An internal error occurred attempting to define the script [" + name + "].", exception);
         }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.painless;
+
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.lookup.LeafDocLookup;
+
+import java.util.Map;
+
+/**
+ * Runtime support for reading the doc values of a field whose name is a constant, like {@code doc['field']}. The
+ * compiler assigns each such field a slot, so that the doc values of a field are only looked up by name the first time
+ * a script accesses them within a segment. When {@code doc['field'].value} is used as a {@code long} or a
+ * {@code double}, the compiler reads the value straight from the numeric doc values of the field instead.
+ */
+public final class DocFields {
+
+    /**
+     * Returns the doc values of a field, see {@link LeafDocLookup#getForField(String, int)}.
+     * @param doc The doc lookup of the script, or any map if the variable was shadowed.
+     * @param field The name of the field.
+     * @param slot The slot that the compiler assigned to the field.
+     */
+    public static Object get(final Map<?, ?> doc, final String field, final int slot) {
+        if (doc instanceof LeafDocLookup) {
+            return ((LeafDocLookup) doc).getForField(field, slot);
+        }
+
+        return doc.get(field);
+    }
+
+    /**
+     * Returns {@code doc['field'].value} as a long, reading it from the long doc values of the field if it has some.
+     * @param doc The doc lookup of the script, or any map if the variable was shadowed.
+     * @param field The name of the field.
+     * @param slot The slot that the compiler assigned to the field.
+     */
+    public static long getLongValue(final Map<?, ?> doc, final String field, final int slot) {
+        if (doc instanceof LeafDocLookup) {
+            final SortedNumericDocValues values = ((LeafDocLookup) doc).getLongValuesForField(field, slot);
+
+            if (values != null) {
+                return values.count() == 0 ? 0L : values.valueAt(0);
+            }
+        }
+
+        return Def.DefTolongImplicit(loadValue(get(doc, field, slot)));
+    }
+
+    /**
+     * Returns {@code doc['field'].value} as a double, reading it from the numeric doc values of the field if it has some.
+     * @param doc The doc lookup of the script, or any map if the variable was shadowed.
+     * @param field The name of the field.
+     * @param slot The slot that the compiler assigned to the field.
+     */
+    public static double getDoubleValue(final Map<?, ?> doc, final String field, final int slot) {
+        if (doc instanceof LeafDocLookup) {
+            final LeafDocLookup lookup = (LeafDocLookup) doc;
+            final SortedNumericDoubleValues doubles = lookup.getDoubleValuesForField(field, slot);
+
+            if (doubles != null) {
+                return doubles.count() == 0 ? 0d : doubles.valueAt(0);
+            }
+
+            final SortedNumericDocValues longs = lookup.getLongValuesForField(field, slot);
+
+            if (longs != null) {
+                return longs.count() == 0 ? 0d : longs.valueAt(0);
+            }
+        }
+
+        return Def.DefTodoubleImplicit(loadValue(get(doc, field, slot)));
+    }
+
+    /** Loads the {@code value} of doc values that are not numeric, like a def field load would. */
+    private static Object loadValue(final Object values) {
+        try {
+            return Def.lookupGetter(values.getClass(), "value").invoke(values);
+        } catch (Throwable t) {
+            Def.rethrow(t);
+            throw new AssertionError(t);
+        }
+    }
+
+    private DocFields() {}
+}
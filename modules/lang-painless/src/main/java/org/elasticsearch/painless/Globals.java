@@ -31,6 +31,7 @@ import java.util.Map;
 public class Globals {
     private final Map<String,SFunction> syntheticMethods = new HashMap<>();
     private final Map<String,Constant> constantInitializers = new HashMap<>();
+    private final Map<String,Integer> docFieldSlots = new HashMap<>();
     private final BitSet statements;
     
     /** Create a new Globals from the set of statement boundaries */
@@ -55,6 +56,16 @@ public class Globals {
         }
     }
     
+    /** Returns the slot of a field whose doc values are accessed by a constant name, assigning one if needed */
+    public int getDocFieldSlot(String field) {
+        Integer slot = docFieldSlots.get(field);
+        if (slot == null) {
+            slot = docFieldSlots.size();
+            docFieldSlots.put(field, slot);
+        }
+        return slot;
+    }
+
     /** Returns the current synthetic methods */
     public Map<String,SFunction> getSyntheticMethods() {
         return syntheticMethods;
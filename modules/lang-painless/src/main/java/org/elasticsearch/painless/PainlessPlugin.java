@@ -20,13 +20,24 @@
 package org.elasticsearch.painless;
 
 
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.plugins.ScriptPlugin;
 import org.elasticsearch.script.ScriptEngineService;
+import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.watcher.ResourceWatcherService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -39,13 +50,31 @@ public final class PainlessPlugin extends Plugin implements ScriptPlugin {
         Definition.VOID_TYPE.hashCode();
     }
 
+    private PainlessScriptEngineService scriptEngineService;
+
     @Override
     public ScriptEngineService getScriptEngineService(Settings settings) {
-        return new PainlessScriptEngineService(settings);
+        scriptEngineService = new PainlessScriptEngineService(settings);
+        return scriptEngineService;
+    }
+
+    @Override
+    public Collection<Object> createComponents(Client client, ClusterService clusterService, ThreadPool threadPool,
+                                               ResourceWatcherService resourceWatcherService, ScriptService scriptService,
+                                               NamedXContentRegistry xContentRegistry, NodeEnvironment nodeEnvironment) {
+        // the compiled script cache lives in the data path of the node, which is only known once the node is locked
+        if (scriptEngineService != null) {
+            try {
+                scriptEngineService.createCompiledScriptCache(nodeEnvironment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to create the painless compiled script cache", e);
+            }
+        }
+        return Collections.emptyList();
     }
 
     @Override
     public List<Setting<?>> getSettings() {
-        return Arrays.asList(CompilerSettings.REGEX_ENABLED);
+        return Arrays.asList(CompilerSettings.REGEX_ENABLED, CompiledScriptCache.ENABLED, CompiledScriptCache.MAX_ENTRIES);
     }
 }
@@ -23,7 +23,9 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.SpecialPermission;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.painless.Compiler.Loader;
+import org.elasticsearch.painless.Compiler.Output;
 import org.elasticsearch.script.CompiledScript;
 import org.elasticsearch.script.ExecutableScript;
 import org.elasticsearch.script.LeafSearchScript;
@@ -75,6 +77,12 @@ public final class PainlessScriptEngineService extends AbstractComponent impleme
      */
     private final CompilerSettings defaultCompilerSettings = new CompilerSettings();
 
+    /**
+     * The on disk cache of the byte code of compiled scripts, {@code null} if it is disabled or the node environment
+     * is not known yet.
+     */
+    private volatile CompiledScriptCache compiledScriptCache;
+
     /**
      * Constructor.
      * @param settings The settings to initialize the engine with.
@@ -84,6 +92,14 @@ public final class PainlessScriptEngineService extends AbstractComponent impleme
         defaultCompilerSettings.setRegexesEnabled(CompilerSettings.REGEX_ENABLED.get(settings));
     }
 
+    /**
+     * Creates the on disk cache of the byte code of compiled scripts in the data path of the node, if it is enabled.
+     * @param nodeEnvironment The environment that locks the data path of the node.
+     */
+    void createCompiledScriptCache(NodeEnvironment nodeEnvironment) throws IOException {
+        compiledScriptCache = CompiledScriptCache.create(settings, nodeEnvironment);
+    }
+
     /**
      * Get the type name(s) for the language.
      * @return Always contains only the single name of the language.
@@ -159,12 +175,43 @@ public final class PainlessScriptEngineService extends AbstractComponent impleme
             }
         });
 
+        final String name = scriptName == null ? INLINE_NAME : scriptName;
+        final CompiledScriptCache compiledScriptCache = this.compiledScriptCache;
+
         try {
-            // Drop all permissions to actually compile the code itself.
+            if (compiledScriptCache == null) {
+                // Drop all permissions to actually compile the code itself.
+                return AccessController.doPrivileged(new PrivilegedAction<Executable>() {
+                    @Override
+                    public Executable run() {
+                        return Compiler.compile(loader, name, scriptSource, compilerSettings);
+                    }
+                }, COMPILATION_CONTEXT);
+            }
+
+            final String key = CompiledScriptCache.key(name, scriptSource, compilerSettings);
+            Output output = AccessController.doPrivileged((PrivilegedAction<Output>) () -> compiledScriptCache.get(key));
+            if (output == null) {
+                // Drop all permissions to actually compile the code itself.
+                output = AccessController.doPrivileged(new PrivilegedAction<Output>() {
+                    @Override
+                    public Output run() {
+                        return Compiler.generate(name, scriptSource, compilerSettings);
+                    }
+                }, COMPILATION_CONTEXT);
+                final Output generated = output;
+                AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
+                    compiledScriptCache.put(key, generated);
+                    return null;
+                });
+            } else {
+                logger.trace("loaded script [{}] from the compiled script cache", name);
+            }
+            final Output defined = output;
             return AccessController.doPrivileged(new PrivilegedAction<Executable>() {
                 @Override
                 public Executable run() {
-                    return Compiler.compile(loader, scriptName == null ? INLINE_NAME : scriptName, scriptSource, compilerSettings);
+                    return Compiler.define(loader, name, scriptSource, defined);
                 }
             }, COMPILATION_CONTEXT);
         // Note that it is safe to catch any of the following errors since Painless is stateless.
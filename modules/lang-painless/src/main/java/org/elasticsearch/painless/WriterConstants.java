@@ -71,6 +71,12 @@ public final class WriterConstants {
     public static final Method ITERATOR_HASNEXT = getAsmMethod(boolean.class, "hasNext");
     public static final Method ITERATOR_NEXT = getAsmMethod(Object.class, "next");
 
+    public static final Type DOC_FIELDS_TYPE = Type.getType(DocFields.class);
+    public static final Method DOC_FIELDS_GET = getAsmMethod(Object.class, "get", Map.class, String.class, int.class);
+    public static final Method DOC_FIELDS_GET_LONG_VALUE = getAsmMethod(long.class, "getLongValue", Map.class, String.class, int.class);
+    public static final Method DOC_FIELDS_GET_DOUBLE_VALUE =
+        getAsmMethod(double.class, "getDoubleValue", Map.class, String.class, int.class);
+
     public static final Type UTILITY_TYPE = Type.getType(Utility.class);
     public static final Method STRING_TO_CHAR = getAsmMethod(char.class, "StringTochar", String.class);
     public static final Method CHAR_TO_STRING = getAsmMethod(String.class, "charToString", char.class);
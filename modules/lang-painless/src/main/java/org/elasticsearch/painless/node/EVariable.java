@@ -45,6 +45,11 @@ public final class EVariable extends AStoreable {
         this.name = Objects.requireNonNull(name);
     }
 
+    /** Returns the name of the variable */
+    String getName() {
+        return name;
+    }
+
     @Override
     void extractVariables(Set<String> variables) {
         variables.add(name);
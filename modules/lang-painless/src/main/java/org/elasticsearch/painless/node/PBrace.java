@@ -64,6 +64,8 @@ public final class PBrace extends AStoreable {
             sub = new PSubBrace(location, prefix.actual, index);
         } else if (sort == Sort.DEF) {
             sub = new PSubDefArray(location, index);
+        } else if (read && !write && isDocField()) {
+            sub = new PSubDocField(location, (String) index.constant);
         } else if (Map.class.isAssignableFrom(prefix.actual.clazz)) {
             sub = new PSubMapShortcut(location, prefix.actual.struct, index);
         } else if (List.class.isAssignableFrom(prefix.actual.clazz)) {
@@ -80,6 +82,25 @@ public final class PBrace extends AStoreable {
         actual = sub.actual;
     }
 
+    /**
+     * Returns the name of the field if this reads the doc values of a field with a constant name, like {@code doc['field']},
+     * or {@code null} otherwise. Only valid once analyzed.
+     */
+    String getDocField() {
+        return sub instanceof PSubDocField ? ((PSubDocField) sub).getField() : null;
+    }
+
+    /** Returns the doc lookup that the doc values of a field with a constant name are read from */
+    AExpression getDocLookup() {
+        return prefix;
+    }
+
+    /** Returns whether this reads the doc values of a field with a constant name, like {@code doc['field']} */
+    private boolean isDocField() {
+        return prefix instanceof EVariable && Locals.DOC.equals(((EVariable) prefix).getName()) &&
+            Map.class.isAssignableFrom(prefix.actual.clazz) && index instanceof EString;
+    }
+
     @Override
     void write(MethodWriter writer, Globals globals) {
         prefix.write(writer, globals);
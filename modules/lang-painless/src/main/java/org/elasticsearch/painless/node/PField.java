@@ -67,6 +67,11 @@ public final class PField extends AStoreable {
 
         if (sort == Sort.ARRAY) {
             sub = new PSubArrayLength(location, prefix.actual.name, value);
+        } else if (sort == Sort.DEF && read && !write && !nullSafe && "value".equals(value) && isDocField()) {
+            // doc['field'].value: read the value without going through the doc values of the field if it is numeric
+            String field = ((PBrace) prefix).getDocField();
+            prefix = ((PBrace) prefix).getDocLookup();
+            sub = new PSubDocValue(location, field);
         } else if (sort == Sort.DEF) {
             sub = new PSubDefField(location, value);
         } else {
@@ -120,6 +125,11 @@ public final class PField extends AStoreable {
         actual = sub.actual;
     }
 
+    /** Returns whether the prefix reads the doc values of a field with a constant name, like {@code doc['field']} */
+    private boolean isDocField() {
+        return prefix instanceof PBrace && ((PBrace) prefix).getDocField() != null;
+    }
+
     @Override
     void write(MethodWriter writer, Globals globals) {
         prefix.write(writer, globals);
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.painless.node;
+
+import org.elasticsearch.painless.Definition;
+import org.elasticsearch.painless.Definition.Type;
+import org.elasticsearch.painless.Globals;
+import org.elasticsearch.painless.Locals;
+import org.elasticsearch.painless.Location;
+import org.elasticsearch.painless.MethodWriter;
+import org.elasticsearch.painless.WriterConstants;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Represents a read of the doc values of a field with a constant name, like {@code doc['field']}. The field is
+ * assigned a slot so that its doc values are not looked up by name on every access. (Internal only.)
+ */
+final class PSubDocField extends AStoreable {
+
+    private final String field;
+
+    PSubDocField(Location location, String field) {
+        super(location);
+
+        this.field = Objects.requireNonNull(field);
+    }
+
+    /** Returns the name of the field */
+    String getField() {
+        return field;
+    }
+
+    @Override
+    void extractVariables(Set<String> variables) {
+        throw createError(new IllegalStateException("Illegal tree structure."));
+    }
+
+    @Override
+    void analyze(Locals locals) {
+        if (!read || write) {
+            throw createError(new IllegalStateException("Illegal tree structure."));
+        }
+
+        actual = Definition.DEF_TYPE;
+    }
+
+    @Override
+    void write(MethodWriter writer, Globals globals) {
+        writer.writeDebugInfo(location);
+
+        writer.push(field);
+        writer.push(globals.getDocFieldSlot(field));
+        writer.invokeStatic(WriterConstants.DOC_FIELDS_TYPE, WriterConstants.DOC_FIELDS_GET);
+    }
+
+    @Override
+    int accessElementCount() {
+        return 1;
+    }
+
+    @Override
+    boolean isDefOptimized() {
+        return false;
+    }
+
+    @Override
+    void updateActual(Type actual) {
+        throw new IllegalArgumentException("Illegal tree structure.");
+    }
+
+    @Override
+    void setup(MethodWriter writer, Globals globals) {
+        throw new IllegalStateException("Illegal tree structure.");
+    }
+
+    @Override
+    void load(MethodWriter writer, Globals globals) {
+        throw new IllegalStateException("Illegal tree structure.");
+    }
+
+    @Override
+    void store(MethodWriter writer, Globals globals) {
+        throw new IllegalStateException("Illegal tree structure.");
+    }
+
+    @Override
+    public String toString() {
+        return singleLineToString(prefix, field);
+    }
+}
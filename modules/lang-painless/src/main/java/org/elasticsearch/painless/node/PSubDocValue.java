@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.painless.node;
+
+import org.elasticsearch.painless.Definition;
+import org.elasticsearch.painless.Definition.Sort;
+import org.elasticsearch.painless.Definition.Type;
+import org.elasticsearch.painless.DefBootstrap;
+import org.elasticsearch.painless.Globals;
+import org.elasticsearch.painless.Locals;
+import org.elasticsearch.painless.Location;
+import org.elasticsearch.painless.MethodWriter;
+import org.elasticsearch.painless.WriterConstants;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Represents a read of the value of a field with a constant name, like {@code doc['field'].value}. Like
+ * {@link PSubDefField}, the read is def-optimized. When it is used as a {@code long} or a {@code double} the value is read
+ * straight from the numeric doc values of the field, otherwise the doc values are read like {@link PSubDocField} does and
+ * their value is loaded like a def field. (Internal only.)
+ */
+final class PSubDocValue extends AStoreable {
+
+    private final String field;
+
+    PSubDocValue(Location location, String field) {
+        super(location);
+
+        this.field = Objects.requireNonNull(field);
+    }
+
+    @Override
+    void extractVariables(Set<String> variables) {
+        throw createError(new IllegalStateException("Illegal tree structure."));
+    }
+
+    @Override
+    void analyze(Locals locals) {
+        if (!read || write) {
+            throw createError(new IllegalStateException("Illegal tree structure."));
+        }
+
+        actual = expected == null || explicit ? Definition.DEF_TYPE : expected;
+    }
+
+    @Override
+    void write(MethodWriter writer, Globals globals) {
+        writer.writeDebugInfo(location);
+
+        writer.push(field);
+        writer.push(globals.getDocFieldSlot(field));
+
+        if (actual.sort == Sort.LONG) {
+            writer.invokeStatic(WriterConstants.DOC_FIELDS_TYPE, WriterConstants.DOC_FIELDS_GET_LONG_VALUE);
+        } else if (actual.sort == Sort.DOUBLE) {
+            writer.invokeStatic(WriterConstants.DOC_FIELDS_TYPE, WriterConstants.DOC_FIELDS_GET_DOUBLE_VALUE);
+        } else {
+            writer.invokeStatic(WriterConstants.DOC_FIELDS_TYPE, WriterConstants.DOC_FIELDS_GET);
+
+            org.objectweb.asm.Type methodType =
+                org.objectweb.asm.Type.getMethodType(actual.type, Definition.DEF_TYPE.type);
+            writer.invokeDefCall("value", methodType, DefBootstrap.LOAD);
+        }
+    }
+
+    @Override
+    int accessElementCount() {
+        return 1;
+    }
+
+    @Override
+    boolean isDefOptimized() {
+        return true;
+    }
+
+    @Override
+    void updateActual(Type actual) {
+        this.actual = actual;
+    }
+
+    @Override
+    void setup(MethodWriter writer, Globals globals) {
+        throw new IllegalStateException("Illegal tree structure.");
+    }
+
+    @Override
+    void load(MethodWriter writer, Globals globals) {
+        throw new IllegalStateException("Illegal tree structure.");
+    }
+
+    @Override
+    void store(MethodWriter writer, Globals globals) {
+        throw new IllegalStateException("Illegal tree structure.");
+    }
+
+    @Override
+    public String toString() {
+        return singleLineToString(prefix, field);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.painless;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.painless.Compiler.Output;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+
+public class CompiledScriptCacheTests extends ScriptTestCase {
+
+    @Override
+    protected Settings scriptEngineSettings() {
+        return Settings.builder().put(CompiledScriptCache.ENABLED.getKey(), true).build();
+    }
+
+    public void testPutAndGet() throws IOException {
+        CompiledScriptCache cache = newCache(createTempDir(), 10);
+        String source = "int total = 0; for (int i = 0; i < 10; ++i) { total += i; } return total;";
+        String key = CompiledScriptCache.key("test", source, new CompilerSettings());
+        assertNull(cache.get(key));
+
+        Output output = Compiler.generate("test", source, new CompilerSettings());
+        cache.put(key, output);
+        Output cached = cache.get(key);
+        assertArrayEquals(output.bytes, cached.bytes);
+        assertThat(cached.statements, equalTo(output.statements));
+    }
+
+    public void testCorruptedEntryIsIgnored() throws IOException {
+        Path directory = createTempDir();
+        CompiledScriptCache cache = newCache(directory, 10);
+        String key = CompiledScriptCache.key("test", "return 1", new CompilerSettings());
+        cache.put(key, Compiler.generate("test", "return 1", new CompilerSettings()));
+
+        Path entry = entries(directory.resolve("cache")).get(0);
+        byte[] bytes = Files.readAllBytes(entry);
+        int offset = randomIntBetween(0, bytes.length - 1);
+        bytes[offset] = (byte) ~bytes[offset];
+        Files.write(entry, bytes);
+        assertNull(cache.get(key));
+        assertThat(entries(directory.resolve("cache")), empty());
+    }
+
+    public void testEntriesAreAuthenticated() throws IOException {
+        Path directory = createTempDir();
+        CompiledScriptCache cache = newCache(directory, 10);
+        String key = CompiledScriptCache.key("test", "return 1", new CompilerSettings());
+        Output output = Compiler.generate("test", "return 1", new CompilerSettings());
+        cache.put(key, output);
+
+        // the same key file is used after a restart
+        assertArrayEquals(output.bytes, newCache(directory, 10).get(key).bytes);
+
+        // entries cannot be moved to the key of another script
+        String otherKey = CompiledScriptCache.key("test", "return 2", new CompilerSettings());
+        Path cacheDirectory = directory.resolve("cache");
+        Files.copy(cacheDirectory.resolve(key + ".class"), cacheDirectory.resolve(otherKey + ".class"));
+        assertNull(cache.get(otherKey));
+
+        // entries written with another key are never loaded
+        Path otherDirectory = createTempDir();
+        CompiledScriptCache otherCache = newCache(otherDirectory, 10);
+        Files.copy(cacheDirectory.resolve(key + ".class"), otherDirectory.resolve("cache").resolve(key + ".class"));
+        assertNull(otherCache.get(key));
+    }
+
+    public void testEviction() throws IOException {
+        Path directory = createTempDir();
+        CompiledScriptCache cache = newCache(directory, 2);
+        String[] keys = new String[3];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = CompiledScriptCache.key("test", "return " + i, new CompilerSettings());
+        }
+        cache.put(keys[0], Compiler.generate("test", "return 0", new CompilerSettings()));
+        cache.put(keys[1], Compiler.generate("test", "return 1", new CompilerSettings()));
+        Path cacheDirectory = directory.resolve("cache");
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(cacheDirectory.resolve(keys[0] + ".class"), FileTime.fromMillis(now - 7200000));
+        Files.setLastModifiedTime(cacheDirectory.resolve(keys[1] + ".class"), FileTime.fromMillis(now - 3600000));
+        // using the oldest entry makes the other one the least recently used
+        assertNotNull(cache.get(keys[0]));
+
+        cache.put(keys[2], Compiler.generate("test", "return 2", new CompilerSettings()));
+        assertThat(entries(cacheDirectory), hasSize(2));
+        assertNotNull(cache.get(keys[0]));
+        assertNull(cache.get(keys[1]));
+        assertNotNull(cache.get(keys[2]));
+    }
+
+    public void testCreate() throws IOException {
+        Settings settings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
+            .putArray(Environment.PATH_DATA_SETTING.getKey(), createTempDir().toString())
+            .put(Environment.PATH_SHARED_DATA_SETTING.getKey(), createTempDir())
+            .put(NodeEnvironment.MAX_LOCAL_STORAGE_NODES_SETTING.getKey(), 2)
+            .build();
+        Environment environment = new Environment(settings);
+        try (NodeEnvironment nodeEnvironment = new NodeEnvironment(settings, environment)) {
+            assertNull(CompiledScriptCache.create(settings, nodeEnvironment));
+        }
+
+        settings = Settings.builder().put(settings).put(CompiledScriptCache.ENABLED.getKey(), true).build();
+        try (NodeEnvironment nodeEnvironment = new NodeEnvironment(settings, environment);
+             NodeEnvironment otherNodeEnvironment = new NodeEnvironment(settings, environment)) {
+            Path nodePath = nodeEnvironment.nodeDataPaths()[0];
+            Path root = nodePath.resolve("painless_cache");
+            Path otherVersion = Files.createDirectories(root.resolve(Integer.toString(Version.CURRENT.id - 1)));
+            Files.write(otherVersion.resolve("entry.class"), new byte[] {1, 2, 3});
+            Files.write(root.resolve("entry.class"), new byte[] {1, 2, 3});
+
+            CompiledScriptCache cache = CompiledScriptCache.create(settings, nodeEnvironment);
+            String key = CompiledScriptCache.key("test", "return 1", new CompilerSettings());
+            cache.put(key, Compiler.generate("test", "return 1", new CompilerSettings()));
+            // entries of other versions are removed
+            assertFalse(Files.exists(otherVersion));
+            assertFalse(Files.exists(root.resolve("entry.class")));
+            assertThat(entries(root.resolve(Integer.toString(Version.CURRENT.id))), hasSize(1));
+            assertTrue(Files.exists(nodePath.resolve("painless_cache.key")));
+
+            // nodes sharing a data path each use their own node path, and the shared data path is never used
+            CompiledScriptCache otherCache = CompiledScriptCache.create(settings, otherNodeEnvironment);
+            assertNull(otherCache.get(key));
+            assertNotNull(cache.get(key));
+            assertTrue(Files.exists(otherNodeEnvironment.nodeDataPaths()[0].resolve("painless_cache.key")));
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(environment.sharedDataFile())) {
+                assertFalse(stream.iterator().hasNext());
+            }
+        }
+    }
+
+    public void testKey() {
+        CompilerSettings settings = new CompilerSettings();
+        String key = CompiledScriptCache.key("test", "return 1", settings);
+        assertThat(CompiledScriptCache.key("test", "return 1", settings), equalTo(key));
+        assertThat(CompiledScriptCache.key("other", "return 1", settings), not(equalTo(key)));
+        assertThat(CompiledScriptCache.key("test", "return 2", settings), not(equalTo(key)));
+        CompilerSettings picky = new CompilerSettings();
+        picky.setPicky(true);
+        assertThat(CompiledScriptCache.key("test", "return 1", picky), not(equalTo(key)));
+    }
+
+    public void testCompileUsesCache() throws IOException {
+        try (NodeEnvironment nodeEnvironment = newNodeEnvironment()) {
+            scriptEngine.createCompiledScriptCache(nodeEnvironment);
+            assertEquals(45, exec("int total = 0; for (int i = 0; i < 10; ++i) { total += i; } return total;",
+                Collections.emptyMap(), Collections.emptyMap(), null, false));
+            Path directory = nodeEnvironment.nodeDataPaths()[0].resolve("painless_cache").resolve(Integer.toString(Version.CURRENT.id));
+            assertThat(entries(directory), hasSize(1));
+
+            // a new engine, like after a restart of the node, loads the script from the cache
+            scriptEngine = new PainlessScriptEngineService(scriptEngineSettings());
+            scriptEngine.createCompiledScriptCache(nodeEnvironment);
+            assertEquals(45, exec("int total = 0; for (int i = 0; i < 10; ++i) { total += i; } return total;",
+                Collections.emptyMap(), Collections.emptyMap(), null, false));
+            assertThat(entries(directory), hasSize(1));
+        }
+    }
+
+    private static CompiledScriptCache newCache(Path directory, int maxEntries) throws IOException {
+        return new CompiledScriptCache(directory.resolve("cache"), directory.resolve("cache.key"), maxEntries);
+    }
+
+    private static List<Path> entries(Path directory) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.class")) {
+            for (Path entry : stream) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.painless;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.engine.Engine.Searcher;
+import org.elasticsearch.script.CompiledScript;
+import org.elasticsearch.script.LeafSearchScript;
+import org.elasticsearch.script.ScriptException;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.script.SearchScript;
+import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests reads of the doc values of fields with a constant name, like {@code doc['field']}.
+ */
+public class DocFieldsTests extends ESSingleNodeTestCase {
+
+    public void testBytecode() {
+        String asm = Debugger.toString("return doc['d'].value + doc['l'].value + doc['d'].value");
+        assertThat(asm, containsString("INVOKESTATIC org/elasticsearch/painless/DocFields.get (Ljava/util/Map;Ljava/lang/String;I)"));
+        // variables named doc that are not the doc lookup fall back to Map#get at runtime
+        asm = Debugger.toString("def f(Map doc) { return doc['d'] } return f(['d': 1])");
+        assertThat(asm, containsString("INVOKESTATIC org/elasticsearch/painless/DocFields.get"));
+        // values that are used as a long or a double are read from the doc values without boxing
+        asm = Debugger.toString("long l = doc['l'].value; double d = doc['d'].value; return l + d");
+        assertThat(asm,
+            containsString("INVOKESTATIC org/elasticsearch/painless/DocFields.getLongValue (Ljava/util/Map;Ljava/lang/String;I)J"));
+        assertThat(asm,
+            containsString("INVOKESTATIC org/elasticsearch/painless/DocFields.getDoubleValue (Ljava/util/Map;Ljava/lang/String;I)D"));
+    }
+
+    public void testShadowedDoc() {
+        PainlessScriptEngineService service = new PainlessScriptEngineService(Settings.EMPTY);
+        Object compiled = service.compile(null, "def f(Map doc) { return doc['d'] } return f(['d': 1])", Collections.emptyMap());
+        Object result = service.executable(new CompiledScript(ScriptType.INLINE, "test", "painless", compiled), null).run();
+        assertThat(result, equalTo(1));
+    }
+
+    public void testDocValues() throws IOException {
+        IndexService index = createIndex("test", Settings.EMPTY, "type", "d", "type=double", "l", "type=long");
+        int numDocs = randomIntBetween(1, 20);
+        double expected = 0;
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("d", i * 1.5, "l", i).get();
+            expected += i * 1.5 * 2 + i;
+        }
+        client().admin().indices().prepareRefresh("test").get();
+
+        PainlessScriptEngineService service = new PainlessScriptEngineService(Settings.EMPTY);
+        SearchLookup lookup = new SearchLookup(index.mapperService(), index.fieldData(), null);
+        Object compiled = service.compile(null, "doc['d'].value + doc['l'].value + doc['d'].value", Collections.emptyMap());
+        SearchScript script = service.search(new CompiledScript(ScriptType.INLINE, "test", "painless", compiled),
+            lookup, Collections.emptyMap());
+        Object typedCompiled = service.compile(null, "double d = doc['d'].value; long l = doc['l'].value; double ld = doc['l'].value; "
+            + "return d + ld + l - doc['l'].value + doc['d'].value", Collections.emptyMap());
+        SearchScript typedScript = service.search(new CompiledScript(ScriptType.INLINE, "test", "painless", typedCompiled),
+            lookup, Collections.emptyMap());
+        Object missing = service.compile(null, "doc['missing'].value", Collections.emptyMap());
+        SearchScript missingScript = service.search(new CompiledScript(ScriptType.INLINE, "test", "painless", missing),
+            lookup, Collections.emptyMap());
+
+        double sum = 0;
+        double typedSum = 0;
+        try (Searcher searcher = index.getShard(0).acquireSearcher("test")) {
+            for (LeafReaderContext ctx : searcher.reader().leaves()) {
+                LeafSearchScript leafScript = script.getLeafSearchScript(ctx);
+                for (int doc = 0; doc < ctx.reader().maxDoc(); doc++) {
+                    leafScript.setDocument(doc);
+                    sum += leafScript.runAsDouble();
+                }
+                LeafSearchScript leafTypedScript = typedScript.getLeafSearchScript(ctx);
+                for (int doc = 0; doc < ctx.reader().maxDoc(); doc++) {
+                    leafTypedScript.setDocument(doc);
+                    typedSum += leafTypedScript.runAsDouble();
+                }
+                LeafSearchScript leafMissingScript = missingScript.getLeafSearchScript(ctx);
+                leafMissingScript.setDocument(0);
+                ScriptException e = expectThrows(ScriptException.class, leafMissingScript::run);
+                assertThat(e.getCause().getMessage(), containsString("No field found for [missing]"));
+            }
+        }
+        assertEquals(expected, sum, 0.0001);
+        assertEquals(expected, typedSum, 0.0001);
+        service.close();
+    }
+}
@@ -37,6 +37,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.lucene.Lucene;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -47,15 +48,15 @@ final class PercolateQuery extends Query implements Accountable {
 
     private final String documentType;
     private final QueryStore queryStore;
-    private final BytesReference documentSource;
+    private final List<BytesReference> documents;
     private final Query candidateMatchesQuery;
     private final Query verifiedMatchesQuery;
     private final IndexSearcher percolatorIndexSearcher;
 
-    PercolateQuery(String documentType, QueryStore queryStore, BytesReference documentSource,
+    PercolateQuery(String documentType, QueryStore queryStore, List<BytesReference> documents,
                           Query candidateMatchesQuery, IndexSearcher percolatorIndexSearcher, Query verifiedMatchesQuery) {
         this.documentType = Objects.requireNonNull(documentType);
-        this.documentSource = Objects.requireNonNull(documentSource);
+        this.documents = Objects.requireNonNull(documents);
         this.candidateMatchesQuery = Objects.requireNonNull(candidateMatchesQuery);
         this.queryStore = Objects.requireNonNull(queryStore);
         this.percolatorIndexSearcher = Objects.requireNonNull(percolatorIndexSearcher);
@@ -66,7 +67,7 @@ final class PercolateQuery extends Query implements Accountable {
     public Query rewrite(IndexReader reader) throws IOException {
         Query rewritten = candidateMatchesQuery.rewrite(reader);
         if (rewritten != candidateMatchesQuery) {
-            return new PercolateQuery(documentType, queryStore, documentSource, rewritten, percolatorIndexSearcher,
+            return new PercolateQuery(documentType, queryStore, documents, rewritten, percolatorIndexSearcher,
                     verifiedMatchesQuery);
         } else {
             return this;
@@ -184,8 +185,11 @@ final class PercolateQuery extends Query implements Accountable {
         return documentType;
     }
 
-    public BytesReference getDocumentSource() {
-        return documentSource;
+    /**
+     * @return The sources of the percolated documents, the position of a document in this list is its slot
+     */
+    public List<BytesReference> getDocuments() {
+        return documents;
     }
 
     public QueryStore getQueryStore() {
@@ -201,7 +205,7 @@ final class PercolateQuery extends Query implements Accountable {
         PercolateQuery that = (PercolateQuery) o;
 
         if (!documentType.equals(that.documentType)) return false;
-        return documentSource.equals(that.documentSource);
+        return documents.equals(that.documents);
 
     }
 
@@ -209,19 +213,30 @@ final class PercolateQuery extends Query implements Accountable {
     public int hashCode() {
         int result = classHash();
         result = 31 * result + documentType.hashCode();
-        result = 31 * result + documentSource.hashCode();
+        result = 31 * result + documents.hashCode();
         return result;
     }
 
     @Override
     public String toString(String s) {
-        return "PercolateQuery{document_type={" + documentType + "},document_source={" + documentSource.utf8ToString() +
+        StringBuilder sources = new StringBuilder();
+        for (BytesReference document : documents) {
+            if (sources.length() > 0) {
+                sources.append(',');
+            }
+            sources.append(document.utf8ToString());
+        }
+        return "PercolateQuery{document_type={" + documentType + "},document_sources={" + sources +
                 "},inner={" + candidateMatchesQuery.toString(s)  + "}}";
     }
 
     @Override
     public long ramBytesUsed() {
-        return documentSource.ramBytesUsed();
+        long ramUsed = 0;
+        for (BytesReference document : documents) {
+            ramUsed += document.ramBytesUsed();
+        }
+        return ramUsed;
     }
 
     @FunctionalInterface
@@ -19,16 +19,21 @@
 package org.elasticsearch.percolator;
 
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongRangeField;
 import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.Fields;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
@@ -37,6 +42,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.hash.MurmurHash3;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -84,9 +90,13 @@ public class PercolatorFieldMapper extends FieldMapper {
     static final String EXTRACTION_COMPLETE = "complete";
     static final String EXTRACTION_PARTIAL = "partial";
     static final String EXTRACTION_FAILED = "failed";
+    // the maximum number of fields whose range of values is intersected with the extracted ranges of percolator queries,
+    // documents with more point fields select all percolator queries that have extracted ranges as candidates
+    static final int MAX_RANGE_CLAUSES = 64;
 
     public static final String EXTRACTED_TERMS_FIELD_NAME = "extracted_terms";
     public static final String EXTRACTION_RESULT_FIELD_NAME = "extraction_result";
+    public static final String EXTRACTED_RANGES_FIELD_NAME = "extracted_ranges";
     public static final String QUERY_BUILDER_FIELD_NAME = "query_builder_field";
 
     public static class Builder extends FieldMapper.Builder<Builder, PercolatorFieldMapper> {
@@ -106,6 +116,7 @@ public class PercolatorFieldMapper extends FieldMapper {
             fieldType.queryTermsField = extractedTermsField.fieldType();
             KeywordFieldMapper extractionResultField = createExtractQueryFieldBuilder(EXTRACTION_RESULT_FIELD_NAME, context);
             fieldType.extractionResultField = extractionResultField.fieldType();
+            fieldType.rangesFieldName = context.path().pathAsText(EXTRACTED_RANGES_FIELD_NAME);
             BinaryFieldMapper queryBuilderField = createQueryBuilderFieldBuilder(context);
             fieldType.queryBuilderField = queryBuilderField.fieldType();
             context.path().remove();
@@ -147,6 +158,7 @@ public class PercolatorFieldMapper extends FieldMapper {
         MappedFieldType queryTermsField;
         MappedFieldType extractionResultField;
         MappedFieldType queryBuilderField;
+        String rangesFieldName;
 
         public FieldType() {
             setIndexOptions(IndexOptions.NONE);
@@ -159,6 +171,7 @@ public class PercolatorFieldMapper extends FieldMapper {
             queryTermsField = ref.queryTermsField;
             extractionResultField = ref.extractionResultField;
             queryBuilderField = ref.queryBuilderField;
+            rangesFieldName = ref.rangesFieldName;
         }
 
         @Override
@@ -176,21 +189,22 @@ public class PercolatorFieldMapper extends FieldMapper {
             throw new QueryShardException(context, "Percolator fields are not searchable directly, use a percolate query instead");
         }
 
-        public Query percolateQuery(String documentType, PercolateQuery.QueryStore queryStore, BytesReference documentSource,
+        public Query percolateQuery(String documentType, PercolateQuery.QueryStore queryStore, List<BytesReference> documents,
                                     IndexSearcher searcher) throws IOException {
             IndexReader indexReader = searcher.getIndexReader();
             Query candidateMatchesQuery = createCandidateQuery(indexReader);
             Query verifiedMatchesQuery;
             // We can only skip the MemoryIndex verification when percolating a single document.
-            // When the document being percolated contains a nested object field then the MemoryIndex contains multiple
-            // documents. In this case the term query that indicates whether memory index verification can be skipped
-            // can incorrectly indicate that non nested queries would match, while their nested variants would not.
+            // When the document being percolated contains a nested object field or when several documents are
+            // percolated at once then the index contains multiple documents. In this case the term query that
+            // indicates whether memory index verification can be skipped can incorrectly indicate that non nested
+            // queries would match, while their nested variants would not.
             if (indexReader.maxDoc() == 1) {
                 verifiedMatchesQuery = new TermQuery(new Term(extractionResultField.name(), EXTRACTION_COMPLETE));
             } else {
-                verifiedMatchesQuery = new MatchNoDocsQuery("nested docs, so no verified matches");
+                verifiedMatchesQuery = new MatchNoDocsQuery("multiple docs, so no verified matches");
             }
-            return new PercolateQuery(documentType, queryStore, documentSource, candidateMatchesQuery, searcher, verifiedMatchesQuery);
+            return new PercolateQuery(documentType, queryStore, documents, candidateMatchesQuery, searcher, verifiedMatchesQuery);
         }
 
         Query createCandidateQuery(IndexReader indexReader) throws IOException {
@@ -218,7 +232,36 @@ public class PercolatorFieldMapper extends FieldMapper {
                     extractedTerms.add(new Term(queryTermsField.name(), builder.toBytesRef()));
                 }
             }
-            return new TermsQuery(extractedTerms);
+            TermsQuery termsQuery = new TermsQuery(extractedTerms);
+
+            // percolator queries with extracted ranges are candidates if the range of values
+            // that the document has for one of their fields intersects with one of their ranges
+            List<Query> rangeQueries = new ArrayList<>();
+            for (FieldInfo info : reader.getFieldInfos()) {
+                if (info.getPointDimensionCount() != 1 || info.getPointNumBytes() > Long.BYTES) {
+                    continue;
+                }
+                byte[] min = PointValues.getMinPackedValue(reader, info.name);
+                byte[] max = PointValues.getMaxPackedValue(reader, info.name);
+                if (min != null && max != null) {
+                    rangeQueries.add(LongRangeField.newIntersectsQuery(rangesFieldName,
+                        encodeRangeBound(info.name, min), encodeRangeBound(info.name, max)));
+                }
+            }
+            if (rangeQueries.isEmpty()) {
+                return termsQuery;
+            }
+            if (rangeQueries.size() > Math.min(MAX_RANGE_CLAUSES, BooleanQuery.getMaxClauseCount() - 1)) {
+                // range extractions are never verified, so matching more candidates than needed is fine
+                rangeQueries = Collections.singletonList(LongRangeField.newIntersectsQuery(rangesFieldName,
+                    new long[] {Long.MIN_VALUE, Long.MIN_VALUE}, new long[] {Long.MAX_VALUE, Long.MAX_VALUE}));
+            }
+            BooleanQuery.Builder candidateQuery = new BooleanQuery.Builder();
+            candidateQuery.add(termsQuery, BooleanClause.Occur.SHOULD);
+            for (Query rangeQuery : rangeQueries) {
+                candidateQuery.add(rangeQuery, BooleanClause.Occur.SHOULD);
+            }
+            return candidateQuery.build();
         }
 
     }
@@ -287,12 +330,20 @@ public class PercolatorFieldMapper extends FieldMapper {
             context.doc().add(new Field(queryBuilderField.name(), queryBuilderAsBytes, queryBuilderField.fieldType()));
         }
 
-        Query query = toQuery(queryShardContext, mapUnmappedFieldAsString, queryBuilder);
-        processQuery(query, context);
+        // A fresh context tells whether the query depends on the current time (or on scripts): the context becomes
+        // uncachable when date math such as now-1d is resolved, in any range or term query and at any depth.
+        QueryShardContext toQueryContext = new QueryShardContext(queryShardContext);
+        Query query = toQuery(toQueryContext, mapUnmappedFieldAsString, queryBuilder);
+        processQuery(query, context, toQueryContext.isCachable());
         return null;
     }
 
-    void processQuery(Query query, ParseContext context) {
+    /**
+     * Extracts the terms and ranges of the provided query. If {@code extractRanges} is {@code false}, because the bounds
+     * of the ranges were resolved from the current time at index time, then queries that would need ranges to be extracted
+     * are marked as failed, so that they are always verified.
+     */
+    void processQuery(Query query, ParseContext context, boolean extractRanges) {
         ParseContext.Document doc = context.doc();
         FieldType pft = (FieldType) this.fieldType();
         QueryAnalyzer.Result result;
@@ -302,6 +353,10 @@ public class PercolatorFieldMapper extends FieldMapper {
             doc.add(new Field(pft.extractionResultField.name(), EXTRACTION_FAILED, extractionResultField.fieldType()));
             return;
         }
+        if (extractRanges == false && result.ranges.isEmpty() == false) {
+            doc.add(new Field(pft.extractionResultField.name(), EXTRACTION_FAILED, extractionResultField.fieldType()));
+            return;
+        }
         for (Term term : result.terms) {
             BytesRefBuilder builder = new BytesRefBuilder();
             builder.append(new BytesRef(term.field()));
@@ -309,6 +364,10 @@ public class PercolatorFieldMapper extends FieldMapper {
             builder.append(term.bytes());
             doc.add(new Field(queryTermsField.name(), builder.toBytesRef(), queryTermsField.fieldType()));
         }
+        for (QueryAnalyzer.Range range : result.ranges) {
+            doc.add(new LongRangeField(pft.rangesFieldName, encodeRangeBound(range.fieldName, range.lowerPoint),
+                encodeRangeBound(range.fieldName, range.upperPoint)));
+        }
         if (result.verified) {
             doc.add(new Field(extractionResultField.name(), EXTRACTION_COMPLETE, extractionResultField.fieldType()));
         } else {
@@ -316,6 +375,29 @@ public class PercolatorFieldMapper extends FieldMapper {
         }
     }
 
+    /**
+     * Encodes a bound of a range on a point field as a two dimensional point. The first dimension holds a hash of the
+     * field name, so that the ranges of all fields can be indexed into the same field, and the second dimension holds
+     * the bound as a long that sorts like the encoded point. Hash collisions only add candidates, which are then
+     * verified.
+     */
+    static long[] encodeRangeBound(String fieldName, byte[] packedValue) {
+        assert packedValue.length <= Long.BYTES;
+        BytesRef fieldAsBytesRef = new BytesRef(fieldName);
+        long fieldHash = MurmurHash3.hash128(fieldAsBytesRef.bytes, fieldAsBytesRef.offset, fieldAsBytesRef.length, 0,
+            new MurmurHash3.Hash128()).h1;
+        // points are encoded so that they sort like unsigned bytes
+        long value = 0;
+        for (byte b : packedValue) {
+            value = (value << 8) | (b & 0xFF);
+        }
+        if (packedValue.length == Long.BYTES) {
+            // the value is an unsigned long, flip the sign bit so that it sorts as a signed long
+            value ^= Long.MIN_VALUE;
+        }
+        return new long[] {fieldHash, value};
+    }
+
     public static Query parseQuery(QueryShardContext context, boolean mapUnmappedFieldsAsString, XContentParser parser) throws IOException {
         return parseQuery(context, mapUnmappedFieldsAsString, context.newParseContext(parser), parser);
     }
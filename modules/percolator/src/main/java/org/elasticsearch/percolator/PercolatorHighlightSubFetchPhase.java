@@ -34,6 +34,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.search.fetch.FetchSubPhase;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightPhase;
 import org.elasticsearch.search.fetch.subphase.highlight.Highlighter;
 import org.elasticsearch.search.fetch.subphase.highlight.SearchContextHighlight;
@@ -48,7 +49,9 @@ import java.util.Map;
 
 /**
  * Highlighting in the case of the percolate query is a bit different, because the PercolateQuery itself doesn't get highlighted,
- * but the source of the PercolateQuery gets highlighted by each hit containing a query.
+ * but the source of the PercolateQuery gets highlighted by each hit containing a query. When several documents are percolated,
+ * each document that the query of a hit matches is highlighted, and the names of its highlighted fields are prefixed by
+ * the slot of the document.
  */
 public final class PercolatorHighlightSubFetchPhase extends HighlightPhase {
 
@@ -78,31 +81,65 @@ public final class PercolatorHighlightSubFetchPhase extends HighlightPhase {
 
         LeafReaderContext percolatorLeafReaderContext = percolatorIndexSearcher.getIndexReader().leaves().get(0);
         FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
-        SubSearchContext subSearchContext =
-                createSubSearchContext(context, percolatorLeafReaderContext, percolateQuery.getDocumentSource());
-
-        for (InternalSearchHit hit : hits) {
-            final Query query;
-            try {
-                LeafReaderContext ctx = ctxs.get(ReaderUtil.subIndex(hit.docId(), ctxs));
-                int segmentDocId = hit.docId() - ctx.docBase;
-                query = queryStore.getQueries(ctx).apply(segmentDocId);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+        List<BytesReference> documents = percolateQuery.getDocuments();
+
+        if (documents.size() == 1) {
+            SubSearchContext subSearchContext =
+                    createSubSearchContext(context, percolatorLeafReaderContext, 0, documents.get(0));
+            for (InternalSearchHit hit : hits) {
+                Query query = getQuery(queryStore, ctxs, hit);
+                if (query != null) {
+                    highlight(percolateQuery, subSearchContext, hitContext, query, percolatorLeafReaderContext, 0);
+                    hit.highlightFields().putAll(hitContext.hit().getHighlightFields());
+                }
             }
-            if (query != null) {
-                subSearchContext.parsedQuery(new ParsedQuery(query));
-                hitContext.reset(
-                        new InternalSearchHit(0, "unknown", new Text(percolateQuery.getDocumentType()), Collections.emptyMap()),
-                        percolatorLeafReaderContext, 0, percolatorIndexSearcher
-                );
-                hitContext.cache().clear();
-                super.hitExecute(subSearchContext, hitContext);
-                hit.highlightFields().putAll(hitContext.hit().getHighlightFields());
+            return;
+        }
+
+        try {
+            int[] rootDocs = PercolatorMatchedSlotSubFetchPhase.rootDocs(percolatorIndexSearcher, documents.size());
+            for (InternalSearchHit hit : hits) {
+                Query query = getQuery(queryStore, ctxs, hit);
+                if (query == null) {
+                    continue;
+                }
+                for (int slot : PercolatorMatchedSlotSubFetchPhase.matchedSlots(percolatorIndexSearcher, query, rootDocs)) {
+                    int rootDoc = rootDocs[slot] - percolatorLeafReaderContext.docBase;
+                    SubSearchContext subSearchContext =
+                            createSubSearchContext(context, percolatorLeafReaderContext, rootDoc, documents.get(slot));
+                    highlight(percolateQuery, subSearchContext, hitContext, query, percolatorLeafReaderContext, rootDoc);
+                    for (HighlightField field : hitContext.hit().getHighlightFields().values()) {
+                        String name = slot + "_" + field.name();
+                        hit.highlightFields().put(name, new HighlightField(name, field.fragments()));
+                    }
+                }
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Query getQuery(PercolateQuery.QueryStore queryStore, List<LeafReaderContext> ctxs, InternalSearchHit hit) {
+        try {
+            LeafReaderContext ctx = ctxs.get(ReaderUtil.subIndex(hit.docId(), ctxs));
+            int segmentDocId = hit.docId() - ctx.docBase;
+            return queryStore.getQueries(ctx).apply(segmentDocId);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
+    private void highlight(PercolateQuery percolateQuery, SubSearchContext subSearchContext, FetchSubPhase.HitContext hitContext,
+                           Query query, LeafReaderContext percolatorLeafReaderContext, int docId) {
+        subSearchContext.parsedQuery(new ParsedQuery(query));
+        hitContext.reset(
+                new InternalSearchHit(0, "unknown", new Text(percolateQuery.getDocumentType()), Collections.emptyMap()),
+                percolatorLeafReaderContext, docId, percolateQuery.getPercolatorIndexSearcher()
+        );
+        hitContext.cache().clear();
+        super.hitExecute(subSearchContext, hitContext);
+    }
+
     static PercolateQuery locatePercolatorQuery(Query query) {
         if (query instanceof PercolateQuery) {
             return (PercolateQuery) query;
@@ -131,12 +168,13 @@ public final class PercolatorHighlightSubFetchPhase extends HighlightPhase {
         return null;
     }
 
-    private SubSearchContext createSubSearchContext(SearchContext context, LeafReaderContext leafReaderContext, BytesReference source) {
+    private SubSearchContext createSubSearchContext(SearchContext context, LeafReaderContext leafReaderContext, int docId,
+                                                    BytesReference source) {
         SubSearchContext subSearchContext = new SubSearchContext(context);
         subSearchContext.highlight(new SearchContextHighlight(context.highlight().fields()));
         // Enforce highlighting by source, because MemoryIndex doesn't support stored fields.
         subSearchContext.highlight().globalForceSource(true);
-        subSearchContext.lookup().source().setSegmentAndDocument(leafReaderContext, 0);
+        subSearchContext.lookup().source().setSegmentAndDocument(leafReaderContext, docId);
         subSearchContext.lookup().source().setSource(source);
         return subSearchContext;
     }
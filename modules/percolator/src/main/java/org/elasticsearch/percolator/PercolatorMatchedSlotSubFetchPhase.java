@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.percolator;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.fetch.FetchSubPhase;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHitField;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds the slots of the percolated documents that the percolator query of a hit matches to the hit, so that it is known
+ * which of the documents of a percolate query with several documents a percolator query matched.
+ */
+public final class PercolatorMatchedSlotSubFetchPhase implements FetchSubPhase {
+
+    static final String FIELD_NAME = "_percolator_document_slot";
+
+    @Override
+    public void hitsExecute(SearchContext context, InternalSearchHit[] hits) {
+        if (context.storedFieldsContext() != null && context.storedFieldsContext().fetchFields() == false) {
+            return;
+        }
+        PercolateQuery percolateQuery = PercolatorHighlightSubFetchPhase.locatePercolatorQuery(context.query());
+        if (percolateQuery == null) {
+            return;
+        }
+
+        List<LeafReaderContext> ctxs = context.searcher().getIndexReader().leaves();
+        PercolateQuery.QueryStore queryStore = percolateQuery.getQueryStore();
+        IndexSearcher percolatorIndexSearcher = percolateQuery.getPercolatorIndexSearcher();
+        try {
+            int[] rootDocs = rootDocs(percolatorIndexSearcher, percolateQuery.getDocuments().size());
+            for (InternalSearchHit hit : hits) {
+                LeafReaderContext ctx = ctxs.get(ReaderUtil.subIndex(hit.docId(), ctxs));
+                Query query = queryStore.getQueries(ctx).apply(hit.docId() - ctx.docBase);
+                if (query == null) {
+                    continue;
+                }
+                List<Object> slots = new ArrayList<>(matchedSlots(percolatorIndexSearcher, query, rootDocs));
+                if (slots.isEmpty()) {
+                    // the hit matched another clause of the search request's query
+                    continue;
+                }
+                Map<String, SearchHitField> fields = hit.fieldsOrNull();
+                if (fields == null) {
+                    fields = new HashMap<>();
+                    hit.fields(fields);
+                }
+                fields.put(FIELD_NAME, new InternalSearchHitField(FIELD_NAME, slots));
+            }
+        } catch (IOException e) {
+            throw ExceptionsHelper.convertToElastic(e);
+        }
+    }
+
+    /**
+     * Returns the ids of the root documents of the percolated documents, in the order of their slots.
+     */
+    static int[] rootDocs(IndexSearcher percolatorIndexSearcher, int numDocuments) throws IOException {
+        if (numDocuments == 1) {
+            // a memory index, or the root document is the last document of its block
+            return new int[] {percolatorIndexSearcher.getIndexReader().maxDoc() - 1};
+        }
+        // the percolator searcher of multiple documents excludes nested documents from all searches
+        TopDocs topDocs = percolatorIndexSearcher.search(new MatchAllDocsQuery(), numDocuments, Sort.INDEXORDER);
+        assert topDocs.scoreDocs.length == numDocuments;
+        int[] rootDocs = new int[topDocs.scoreDocs.length];
+        for (int i = 0; i < rootDocs.length; i++) {
+            rootDocs[i] = topDocs.scoreDocs[i].doc;
+        }
+        return rootDocs;
+    }
+
+    /**
+     * Returns the slots of the percolated documents that the provided percolator query matches.
+     */
+    static List<Integer> matchedSlots(IndexSearcher percolatorIndexSearcher, Query query, int[] rootDocs) throws IOException {
+        if (rootDocs.length == 1) {
+            return Lucene.exists(percolatorIndexSearcher, query) ? Collections.singletonList(0) : Collections.emptyList();
+        }
+        TopDocs topDocs = percolatorIndexSearcher.search(query, rootDocs.length, Sort.INDEXORDER);
+        List<Integer> slots = new ArrayList<>(topDocs.scoreDocs.length);
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            int slot = Arrays.binarySearch(rootDocs, scoreDoc.doc);
+            assert slot >= 0 : "percolator query matched a document that is not a root document";
+            slots.add(slot);
+        }
+        return slots;
+    }
+}
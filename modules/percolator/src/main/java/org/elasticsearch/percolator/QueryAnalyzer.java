@@ -30,6 +30,7 @@ import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DisjunctionMaxQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PointRangeQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SynonymQuery;
 import org.apache.lucene.search.TermQuery;
@@ -40,15 +41,18 @@ import org.apache.lucene.search.spans.SpanOrQuery;
 import org.apache.lucene.search.spans.SpanQuery;
 import org.apache.lucene.search.spans.SpanTermQuery;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
 import org.elasticsearch.common.logging.LoggerMessageFormat;
 import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -75,6 +79,7 @@ public final class QueryAnalyzer {
         map.put(DisjunctionMaxQuery.class, disjunctionMaxQuery());
         map.put(SynonymQuery.class, synonymQuery());
         map.put(FunctionScoreQuery.class, functionScoreQuery());
+        map.put(PointRangeQuery.class, pointRangeQuery());
         queryProcessors = Collections.unmodifiableMap(map);
     }
 
@@ -101,6 +106,11 @@ public final class QueryAnalyzer {
      * since that those terms are likely to be the rarest. Boolean query's must_not clauses are always ignored.
      *
      * <p>
+     * Besides terms, the boundaries of range queries on numeric and date fields are extracted as ranges. These
+     * are indexed as point ranges, so that the candidate query can also select percolator queries by the numeric
+     * values of the document being percolated.
+     *
+     * <p>
      * Sometimes the query analyzer can't always extract terms from a sub query, if that happens then
      * query analysis is stopped and an UnsupportedQueryException is thrown. So that the caller can mark
      * this query in such a way that the PercolatorQuery always verifies if this query with the MemoryIndex.
@@ -261,7 +271,7 @@ public final class QueryAnalyzer {
                 }
             }
             if (numRequiredClauses > 0) {
-                Set<Term> bestClause = null;
+                Result bestClause = null;
                 UnsupportedQueryException uqe = null;
                 for (BooleanClause clause : clauses) {
                     if (clause.isRequired() == false) {
@@ -278,10 +288,10 @@ public final class QueryAnalyzer {
                         uqe = e;
                         continue;
                     }
-                    bestClause = selectTermListWithTheLongestShortestTerm(temp.terms, bestClause);
+                    bestClause = selectBestResult(temp, bestClause);
                 }
                 if (bestClause != null) {
-                    return new Result(false, bestClause);
+                    return new Result(false, bestClause.terms, bestClause.ranges);
                 } else {
                     if (uqe != null) {
                         // we're unable to select the best clause and an exception occurred, so we bail
@@ -319,21 +329,72 @@ public final class QueryAnalyzer {
             // (if it matches with the percolator document matches with the extracted terms.
             // Min score filters out docs, which is different than the functions, which just influences the score.)
             boolean verified = functionScoreQuery.getMinScore() == null;
-            return new Result(verified, result.terms);
+            return new Result(verified, result.terms, result.ranges);
+        };
+    }
+
+    static Function<Query, Result> pointRangeQuery() {
+        return query -> {
+            PointRangeQuery pointRangeQuery = (PointRangeQuery) query;
+            int bytesPerDim = pointRangeQuery.getBytesPerDim();
+            if (pointRangeQuery.getNumDims() != 1 || bytesPerDim > Long.BYTES) {
+                // only single dimension points that fit in a long can be indexed as ranges, which excludes ip and geo fields
+                throw new UnsupportedQueryException(query);
+            }
+            byte[] lowerPoint = pointRangeQuery.getLowerPoint();
+            byte[] upperPoint = pointRangeQuery.getUpperPoint();
+            if (StringHelper.compare(bytesPerDim, lowerPoint, 0, upperPoint, 0) > 0) {
+                // the range is empty, so just like a MatchNoDocsQuery this query never matches
+                return new Result(true, Collections.emptySet());
+            }
+            // not verified: the candidate query only checks whether the range intersects
+            // with the range of values a document has for the field
+            Range range = new Range(pointRangeQuery.getField(), lowerPoint, upperPoint);
+            return new Result(false, Collections.emptySet(), Collections.singleton(range));
         };
     }
 
     static Result handleDisjunction(List<Query> disjunctions, int minimumShouldMatch, boolean otherClauses) {
         boolean verified = minimumShouldMatch <= 1 && otherClauses == false;
         Set<Term> terms = new HashSet<>();
+        Set<Range> ranges = new HashSet<>();
         for (Query disjunct : disjunctions) {
             Result subResult = analyze(disjunct);
             if (subResult.verified == false) {
                 verified = false;
             }
             terms.addAll(subResult.terms);
+            ranges.addAll(subResult.ranges);
+        }
+        return new Result(verified, terms, ranges);
+    }
+
+    /**
+     * Selects the result of the clause of a conjunction that is extracted. Terms are preferred over ranges,
+     * because a range selects every document whose values for the field intersect with it, while terms are
+     * usually rare.
+     */
+    static Result selectBestResult(Result result1, Result result2) {
+        if (result1 == null) {
+            return result2;
+        } else if (result2 == null) {
+            return result1;
+        }
+        boolean onlyTerms1 = result1.ranges.isEmpty();
+        boolean onlyTerms2 = result2.ranges.isEmpty();
+        if (onlyTerms1 && onlyTerms2) {
+            Set<Term> bestTerms = selectTermListWithTheLongestShortestTerm(result1.terms, result2.terms);
+            return bestTerms == result1.terms ? result1 : result2;
+        } else if (onlyTerms1) {
+            return result1;
+        } else if (onlyTerms2) {
+            return result2;
+        } else {
+            // both clauses contain ranges, keep the one with the fewest extractions
+            int size1 = result1.terms.size() + result1.ranges.size();
+            int size2 = result2.terms.size() + result2.ranges.size();
+            return size1 <= size2 ? result1 : result2;
         }
-        return new Result(verified, terms);
     }
 
     static Set<Term> selectTermListWithTheLongestShortestTerm(Set<Term> terms1, Set<Term> terms2) {
@@ -364,15 +425,61 @@ public final class QueryAnalyzer {
     static class Result {
 
         final Set<Term> terms;
+        final Set<Range> ranges;
         final boolean verified;
 
         Result(boolean verified, Set<Term> terms) {
+            this(verified, terms, Collections.emptySet());
+        }
+
+        Result(boolean verified, Set<Term> terms, Set<Range> ranges) {
             this.terms = terms;
+            this.ranges = ranges;
             this.verified = verified;
         }
 
     }
 
+    /**
+     * The boundaries of a range query on a single dimension point field, in the encoding of the field's points.
+     */
+    static final class Range {
+
+        final String fieldName;
+        final byte[] lowerPoint;
+        final byte[] upperPoint;
+
+        Range(String fieldName, byte[] lowerPoint, byte[] upperPoint) {
+            this.fieldName = fieldName;
+            this.lowerPoint = lowerPoint;
+            this.upperPoint = upperPoint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Range range = (Range) o;
+            return fieldName.equals(range.fieldName) &&
+                Arrays.equals(lowerPoint, range.lowerPoint) &&
+                Arrays.equals(upperPoint, range.upperPoint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fieldName, Arrays.hashCode(lowerPoint), Arrays.hashCode(upperPoint));
+        }
+
+        @Override
+        public String toString() {
+            return fieldName + ":[" + new BytesRef(lowerPoint) + " TO " + new BytesRef(upperPoint) + "]";
+        }
+    }
+
     /**
      * Exception indicating that none or some query terms couldn't extracted from a percolator query.
      */
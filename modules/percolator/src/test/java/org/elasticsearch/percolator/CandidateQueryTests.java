@@ -21,7 +21,11 @@ package org.elasticsearch.percolator;
 
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.HalfFloatPoint;
+import org.apache.lucene.document.IntPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
@@ -288,10 +292,68 @@ public class CandidateQueryTests extends ESSingleNodeTestCase {
         duelRun(queryStore, memoryIndex, shardSearcher);
     }
 
+    public void testDuelRangeQueries() throws Exception {
+        List<ParseContext.Document> documents = new ArrayList<>();
+
+        int lowerInt = randomIntBetween(-256, 256);
+        int upperInt = lowerInt + randomIntBetween(0, 32);
+        addQuery(IntPoint.newRangeQuery("int_field", lowerInt, upperInt), documents);
+
+        long lowerLong = randomIntBetween(-256, 256);
+        long upperLong = lowerLong + randomIntBetween(0, 32);
+        addQuery(LongPoint.newRangeQuery("long_field", lowerLong, upperLong), documents);
+
+        float lowerHalfFloat = randomIntBetween(-256, 256);
+        float upperHalfFloat = lowerHalfFloat + randomIntBetween(0, 32);
+        addQuery(HalfFloatPoint.newRangeQuery("half_float_field", lowerHalfFloat, upperHalfFloat), documents);
+
+        float lowerFloat = randomIntBetween(-256, 256);
+        float upperFloat = lowerFloat + randomIntBetween(0, 32);
+        addQuery(FloatPoint.newRangeQuery("float_field", lowerFloat, upperFloat), documents);
+
+        double lowerDouble = randomDoubleBetween(-256, 256, true);
+        double upperDouble = lowerDouble + randomDoubleBetween(0, 32, true);
+        addQuery(DoublePoint.newRangeQuery("double_field", lowerDouble, upperDouble), documents);
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new TermQuery(new Term("field", "value")), BooleanClause.Occur.SHOULD);
+        builder.add(IntPoint.newRangeQuery("int_field", lowerInt, upperInt), BooleanClause.Occur.SHOULD);
+        addQuery(builder.build(), documents);
+
+        builder = new BooleanQuery.Builder();
+        builder.add(new PrefixQuery(new Term("field", "val")), BooleanClause.Occur.MUST);
+        builder.add(LongPoint.newRangeQuery("long_field", lowerLong, upperLong), BooleanClause.Occur.MUST);
+        addQuery(builder.build(), documents);
+
+        indexWriter.addDocuments(documents);
+        indexWriter.close();
+        directoryReader = DirectoryReader.open(directory);
+        IndexSearcher shardSearcher = newSearcher(directoryReader);
+        // Disable query cache, because ControlQuery cannot be cached...
+        shardSearcher.setQueryCache(null);
+
+        int iters = randomIntBetween(8, 16);
+        for (int i = 0; i < iters; i++) {
+            Document document = new Document();
+            if (randomBoolean()) {
+                document.add(new StringField("field", "value", Field.Store.NO));
+            }
+            // values are either within or close to the ranges of the percolator queries
+            document.add(new IntPoint("int_field", randomIntBetween(lowerInt - 8, upperInt + 8)));
+            document.add(new LongPoint("long_field", randomIntBetween((int) lowerLong - 8, (int) upperLong + 8)));
+            document.add(new HalfFloatPoint("half_float_field", randomIntBetween((int) lowerHalfFloat - 8, (int) upperHalfFloat + 8)));
+            document.add(new FloatPoint("float_field", randomIntBetween((int) lowerFloat - 8, (int) upperFloat + 8)));
+            document.add(new DoublePoint("double_field", randomDoubleBetween(lowerDouble - 8, upperDouble + 8, true)));
+            MemoryIndex memoryIndex = MemoryIndex.fromDocument(document, new WhitespaceAnalyzer());
+            duelRun(queryStore, memoryIndex, shardSearcher);
+        }
+    }
+
     private void duelRun(PercolateQuery.QueryStore queryStore, MemoryIndex memoryIndex, IndexSearcher shardSearcher) throws IOException {
         boolean requireScore = randomBoolean();
         IndexSearcher percolateSearcher = memoryIndex.createSearcher();
-        Query percolateQuery = fieldType.percolateQuery("type", queryStore, new BytesArray("{}"), percolateSearcher);
+        Query percolateQuery = fieldType.percolateQuery("type", queryStore, Collections.singletonList(new BytesArray("{}")),
+            percolateSearcher);
         Query query = requireScore ? percolateQuery : new ConstantScoreQuery(percolateQuery);
         TopDocs topDocs = shardSearcher.search(query, 10);
 
@@ -315,7 +377,7 @@ public class CandidateQueryTests extends ESSingleNodeTestCase {
     private void addQuery(Query query, List<ParseContext.Document> docs) throws IOException {
         ParseContext.InternalParseContext parseContext = new ParseContext.InternalParseContext(Settings.EMPTY,
                 mapperService.documentMapperParser(), documentMapper, null, null);
-        fieldMapper.processQuery(query, parseContext);
+        fieldMapper.processQuery(query, parseContext, true);
         docs.add(parseContext.doc());
         queries.add(query);
     }
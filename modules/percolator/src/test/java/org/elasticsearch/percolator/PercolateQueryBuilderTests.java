@@ -48,8 +48,10 @@ import org.hamcrest.Matchers;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -58,7 +60,8 @@ import static org.hamcrest.Matchers.sameInstance;
 
 public class PercolateQueryBuilderTests extends AbstractQueryTestCase<PercolateQueryBuilder> {
 
-    private static final String[] SHUFFLE_PROTECTED_FIELDS = new String[] { PercolateQueryBuilder.DOCUMENT_FIELD.getPreferredName()};
+    private static final String[] SHUFFLE_PROTECTED_FIELDS = new String[] { PercolateQueryBuilder.DOCUMENT_FIELD.getPreferredName(),
+        PercolateQueryBuilder.DOCUMENTS_FIELD.getPreferredName()};
 
     private static String queryField;
     private static String docType;
@@ -70,6 +73,7 @@ public class PercolateQueryBuilderTests extends AbstractQueryTestCase<PercolateQ
     private String indexedDocumentPreference;
     private Long indexedDocumentVersion;
     private BytesReference documentSource;
+    private List<BytesReference> documentSources;
 
     private boolean indexedDocumentExists = true;
 
@@ -97,6 +101,7 @@ public class PercolateQueryBuilderTests extends AbstractQueryTestCase<PercolateQ
 
     private PercolateQueryBuilder doCreateTestQueryBuilder(boolean indexedDocument) {
         documentSource = randomSource();
+        documentSources = Collections.singletonList(documentSource);
         if (indexedDocument) {
             indexedDocumentIndex = randomAsciiOfLength(4);
             indexedDocumentType = randomAsciiOfLength(4);
@@ -106,8 +111,15 @@ public class PercolateQueryBuilderTests extends AbstractQueryTestCase<PercolateQ
             indexedDocumentVersion = (long) randomIntBetween(0, Integer.MAX_VALUE);
             return new PercolateQueryBuilder(queryField, docType, indexedDocumentIndex, indexedDocumentType, indexedDocumentId,
                     indexedDocumentRouting, indexedDocumentPreference, indexedDocumentVersion);
-        } else {
+        } else if (randomBoolean()) {
             return new PercolateQueryBuilder(queryField, docType, documentSource);
+        } else {
+            documentSources = new ArrayList<>();
+            int numDocuments = randomIntBetween(1, 8);
+            for (int i = 0; i < numDocuments; i++) {
+                documentSources.add(randomSource());
+            }
+            return new PercolateQueryBuilder(queryField, docType, documentSources);
         }
     }
 
@@ -146,7 +158,7 @@ public class PercolateQueryBuilderTests extends AbstractQueryTestCase<PercolateQ
         assertThat(query, Matchers.instanceOf(PercolateQuery.class));
         PercolateQuery percolateQuery = (PercolateQuery) query;
         assertThat(percolateQuery.getDocumentType(), Matchers.equalTo(queryBuilder.getDocumentType()));
-        assertThat(percolateQuery.getDocumentSource(), Matchers.equalTo(documentSource));
+        assertThat(percolateQuery.getDocuments(), Matchers.equalTo(documentSources));
     }
 
     @Override
@@ -171,7 +183,8 @@ public class PercolateQueryBuilderTests extends AbstractQueryTestCase<PercolateQ
     @Override
     protected Set<String> getObjectsHoldingArbitraryContent() {
         //document contains arbitrary content, no error expected when an object is added to it
-        return Collections.singleton(PercolateQueryBuilder.DOCUMENT_FIELD.getPreferredName());
+        return new HashSet<>(Arrays.asList(PercolateQueryBuilder.DOCUMENT_FIELD.getPreferredName(),
+            PercolateQueryBuilder.DOCUMENTS_FIELD.getPreferredName()));
     }
 
     public void testRequiredParameters() {
@@ -227,7 +240,8 @@ public class PercolateQueryBuilderTests extends AbstractQueryTestCase<PercolateQ
 
         Analyzer analyzer = new WhitespaceAnalyzer();
         ParsedDocument parsedDocument = new ParsedDocument(null, null, "_id", "_type", null, docs, null, null);
-        IndexSearcher indexSearcher = PercolateQueryBuilder.createMultiDocumentSearcher(analyzer, parsedDocument);
+        IndexSearcher indexSearcher =
+            PercolateQueryBuilder.createMultiDocumentSearcher(analyzer, Collections.singletonList(parsedDocument));
         assertThat(indexSearcher.getIndexReader().numDocs(), equalTo(numDocs));
 
         // ensure that any query get modified so that the nested docs are never included as hits:
@@ -21,6 +21,7 @@ package org.elasticsearch.percolator;
 
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
 import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.LongRangeField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.PrefixCodedTerms;
@@ -30,6 +31,7 @@ import org.apache.lucene.queries.TermsQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.search.join.ScoreMode;
@@ -83,6 +85,8 @@ import java.util.function.Function;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.getRandom;
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.disMaxQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchPhraseQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
@@ -152,7 +156,7 @@ public class PercolatorFieldMapperTests extends ESSingleNodeTestCase {
         PercolatorFieldMapper fieldMapper = (PercolatorFieldMapper) documentMapper.mappers().getMapper(fieldName);
         ParseContext.InternalParseContext parseContext = new ParseContext.InternalParseContext(Settings.EMPTY,
                 mapperService.documentMapperParser(), documentMapper, null, null);
-        fieldMapper.processQuery(bq.build(), parseContext);
+        fieldMapper.processQuery(bq.build(), parseContext, true);
         ParseContext.Document document = parseContext.doc();
 
         PercolatorFieldMapper.FieldType fieldType = (PercolatorFieldMapper.FieldType) fieldMapper.fieldType();
@@ -171,7 +175,7 @@ public class PercolatorFieldMapperTests extends ESSingleNodeTestCase {
         PercolatorFieldMapper fieldMapper = (PercolatorFieldMapper) documentMapper.mappers().getMapper(fieldName);
         ParseContext.InternalParseContext parseContext = new ParseContext.InternalParseContext(Settings.EMPTY,
                 mapperService.documentMapperParser(), documentMapper, null, null);
-        fieldMapper.processQuery(query, parseContext);
+        fieldMapper.processQuery(query, parseContext, true);
         ParseContext.Document document = parseContext.doc();
 
         PercolatorFieldMapper.FieldType fieldType = (PercolatorFieldMapper.FieldType) fieldMapper.fieldType();
@@ -186,7 +190,7 @@ public class PercolatorFieldMapperTests extends ESSingleNodeTestCase {
         PercolatorFieldMapper fieldMapper = (PercolatorFieldMapper) documentMapper.mappers().getMapper(fieldName);
         ParseContext.InternalParseContext parseContext = new ParseContext.InternalParseContext(Settings.EMPTY,
                 mapperService.documentMapperParser(), documentMapper, null, null);
-        fieldMapper.processQuery(phraseQuery, parseContext);
+        fieldMapper.processQuery(phraseQuery, parseContext, true);
         ParseContext.Document document = parseContext.doc();
 
         PercolatorFieldMapper.FieldType fieldType = (PercolatorFieldMapper.FieldType) fieldMapper.fieldType();
@@ -195,6 +199,38 @@ public class PercolatorFieldMapperTests extends ESSingleNodeTestCase {
         assertThat(document.getField(fieldType.extractionResultField.name()).stringValue(), equalTo(EXTRACTION_PARTIAL));
     }
 
+    public void testExtractRanges() throws Exception {
+        addQueryMapping();
+        BooleanQuery.Builder bq = new BooleanQuery.Builder();
+        bq.add(LongPoint.newRangeQuery("number_field", -10L, 20L), BooleanClause.Occur.SHOULD);
+        bq.add(LongPoint.newRangeQuery("date_field", 1000L, 2000L), BooleanClause.Occur.SHOULD);
+
+        DocumentMapper documentMapper = mapperService.documentMapper(typeName);
+        PercolatorFieldMapper fieldMapper = (PercolatorFieldMapper) documentMapper.mappers().getMapper(fieldName);
+        ParseContext.InternalParseContext parseContext = new ParseContext.InternalParseContext(Settings.EMPTY,
+                mapperService.documentMapperParser(), documentMapper, null, null);
+        fieldMapper.processQuery(bq.build(), parseContext, true);
+        ParseContext.Document document = parseContext.doc();
+
+        PercolatorFieldMapper.FieldType fieldType = (PercolatorFieldMapper.FieldType) fieldMapper.fieldType();
+        assertThat(document.getField(fieldType.extractionResultField.name()).stringValue(), equalTo(EXTRACTION_PARTIAL));
+        assertThat(document.getFields(fieldType.queryTermsField.name()).length, equalTo(0));
+        assertThat(document.getFields(fieldType.rangesFieldName).length, equalTo(2));
+    }
+
+    public void testEncodeRangeBound() {
+        long[] lower = PercolatorFieldMapper.encodeRangeBound("field", LongPoint.pack(-10L).bytes);
+        long[] upper = PercolatorFieldMapper.encodeRangeBound("field", LongPoint.pack(10L).bytes);
+        assertThat(lower[0], equalTo(upper[0]));
+        assertThat(lower[1], equalTo(-10L));
+        assertThat(upper[1], equalTo(10L));
+        long[] other = PercolatorFieldMapper.encodeRangeBound("other_field", LongPoint.pack(10L).bytes);
+        assertThat(other[0] == upper[0], equalTo(false));
+
+        long randomLong = randomLong();
+        assertThat(PercolatorFieldMapper.encodeRangeBound("field", LongPoint.pack(randomLong).bytes)[1], equalTo(randomLong));
+    }
+
     public void testCreateCandidateQuery() throws Exception {
         addQueryMapping();
 
@@ -207,7 +243,13 @@ public class PercolatorFieldMapperTests extends ESSingleNodeTestCase {
 
         IndexReader indexReader = memoryIndex.createSearcher().getIndexReader();
 
-        TermsQuery termsQuery = (TermsQuery) fieldType.createCandidateQuery(indexReader);
+        BooleanQuery candidateQuery = (BooleanQuery) fieldType.createCandidateQuery(indexReader);
+        assertThat(candidateQuery.clauses().size(), equalTo(2));
+        Query expectedRangeQuery = LongRangeField.newIntersectsQuery(fieldType.rangesFieldName,
+            PercolatorFieldMapper.encodeRangeBound("number_field", LongPoint.pack(10L).bytes),
+            PercolatorFieldMapper.encodeRangeBound("number_field", LongPoint.pack(10L).bytes));
+        assertThat(candidateQuery.clauses().get(1).getQuery(), equalTo(expectedRangeQuery));
+        TermsQuery termsQuery = (TermsQuery) candidateQuery.clauses().get(0).getQuery();
 
         PrefixCodedTerms terms = termsQuery.getTermData();
         assertThat(terms.size(), equalTo(15L));
@@ -229,6 +271,25 @@ public class PercolatorFieldMapperTests extends ESSingleNodeTestCase {
         assertTermIterator(termIterator, EXTRACTION_FAILED, fieldType.extractionResultField.name());
     }
 
+    public void testCreateCandidateQueryWithManyNumericFields() throws Exception {
+        addQueryMapping();
+
+        MemoryIndex memoryIndex = new MemoryIndex(false);
+        memoryIndex.addField("field1", "the quick brown fox", new WhitespaceAnalyzer());
+        int numFields = randomIntBetween(PercolatorFieldMapper.MAX_RANGE_CLAUSES + 1, BooleanQuery.getMaxClauseCount() + 16);
+        for (int i = 0; i < numFields; i++) {
+            memoryIndex.addField(new LongPoint("number_field" + i, i), new WhitespaceAnalyzer());
+        }
+        IndexReader indexReader = memoryIndex.createSearcher().getIndexReader();
+
+        BooleanQuery candidateQuery = (BooleanQuery) fieldType.createCandidateQuery(indexReader);
+        assertThat(candidateQuery.clauses().size(), equalTo(2));
+        assertThat(candidateQuery.clauses().get(0).getQuery(), instanceOf(TermsQuery.class));
+        Query expectedRangeQuery = LongRangeField.newIntersectsQuery(fieldType.rangesFieldName,
+            new long[] {Long.MIN_VALUE, Long.MIN_VALUE}, new long[] {Long.MAX_VALUE, Long.MAX_VALUE});
+        assertThat(candidateQuery.clauses().get(1).getQuery(), equalTo(expectedRangeQuery));
+    }
+
     private void assertTermIterator(PrefixCodedTerms.TermIterator termIterator, String expectedValue, String expectedField) {
         assertThat(termIterator.next().utf8ToString(), equalTo(expectedValue));
         assertThat(termIterator.field(), equalTo(expectedField));
@@ -491,6 +552,38 @@ public class PercolatorFieldMapperTests extends ESSingleNodeTestCase {
                 .endObject().bytes());
     }
 
+    public void testRangesBasedOnTheCurrentTimeAreNotExtracted() throws Exception {
+        addQueryMapping();
+        QueryBuilder[] queries = new QueryBuilder[] {
+            disMaxQuery().add(rangeQuery("date_field").from("now-1d").to("now")),
+            termQuery("date_field", "now/d"),
+            boolQuery().should(termQuery("field", "value")).should(termQuery("date_field", "now/d"))
+        };
+        for (QueryBuilder query : queries) {
+            ParsedDocument doc = mapperService.documentMapper(typeName).parse("test", typeName, "1",
+                jsonBuilder().startObject().field(fieldName, query).endObject().bytes());
+            assertThat(doc.rootDoc().getFields(fieldType.extractionResultField.name())[0].stringValue(), equalTo(EXTRACTION_FAILED));
+            assertThat(doc.rootDoc().getFields(fieldType.rangesFieldName).length, equalTo(0));
+        }
+
+        // ranges that do not depend on the current time are still extracted
+        ParsedDocument doc = mapperService.documentMapper(typeName).parse("test", typeName, "1",
+            jsonBuilder().startObject()
+                .field(fieldName, disMaxQuery().add(rangeQuery("date_field").from("2016-01-01||/d").to("2017-01-01")))
+                .endObject().bytes());
+        assertThat(doc.rootDoc().getFields(fieldType.extractionResultField.name())[0].stringValue(), equalTo(EXTRACTION_PARTIAL));
+        assertThat(doc.rootDoc().getFields(fieldType.rangesFieldName).length, equalTo(1));
+
+        // conjunctions still extract the terms of their other clauses
+        doc = mapperService.documentMapper(typeName).parse("test", typeName, "1",
+            jsonBuilder().startObject()
+                .field(fieldName, boolQuery().filter(termQuery("field", "value")).filter(termQuery("date_field", "now/d")))
+                .endObject().bytes());
+        assertThat(doc.rootDoc().getFields(fieldType.extractionResultField.name())[0].stringValue(), equalTo(EXTRACTION_PARTIAL));
+        assertThat(doc.rootDoc().getFields(fieldType.queryTermsField.name()).length, equalTo(1));
+        assertThat(doc.rootDoc().getFields(fieldType.rangesFieldName).length, equalTo(0));
+    }
+
     public void testUnsupportedQueries() {
         RangeQueryBuilder rangeQuery1 = new RangeQueryBuilder("field").from("2016-01-01||/D").to("2017-01-01||/D");
         RangeQueryBuilder rangeQuery2 = new RangeQueryBuilder("field").from("2016-01-01||/D").to("now");
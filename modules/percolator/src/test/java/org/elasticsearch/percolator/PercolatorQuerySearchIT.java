@@ -149,6 +149,41 @@ public class PercolatorQuerySearchIT extends ESSingleNodeTestCase {
         assertThat(response.getHits().getAt(2).getId(), equalTo("3"));
     }
 
+    public void testPercolateMultipleDocuments() throws Exception {
+        createIndex("test", client().admin().indices().prepareCreate("test")
+                .addMapping("type", "field1", "type=keyword", "field2", "type=keyword")
+                .addMapping("queries", "query", "type=percolator")
+        );
+
+        client().prepareIndex("test", "queries", "1")
+                .setSource(jsonBuilder().startObject().field("query", matchQuery("field1", "value")).endObject())
+                .get();
+        client().prepareIndex("test", "queries", "2")
+                .setSource(jsonBuilder().startObject().field("query", boolQuery()
+                        .must(matchQuery("field1", "value"))
+                        .must(matchQuery("field2", "value"))
+                ).endObject()).get();
+        client().prepareIndex("test", "queries", "3")
+                .setSource(jsonBuilder().startObject().field("query", matchQuery("field2", "other")).endObject())
+                .get();
+        client().admin().indices().prepareRefresh().get();
+
+        BytesReference doc1 = jsonBuilder().startObject().field("field1", "value").endObject().bytes();
+        BytesReference doc2 = jsonBuilder().startObject().field("field1", "value").field("field2", "value").endObject().bytes();
+        BytesReference doc3 = jsonBuilder().startObject().field("field2", "value").endObject().bytes();
+        SearchResponse response = client().prepareSearch()
+                .setQuery(new PercolateQueryBuilder("query", "type", Arrays.asList(doc1, doc2, doc3)))
+                .addSort("_uid", SortOrder.ASC)
+                .get();
+        assertHitCount(response, 2);
+        assertThat(response.getHits().getAt(0).getId(), equalTo("1"));
+        assertThat(response.getHits().getAt(0).field(PercolatorMatchedSlotSubFetchPhase.FIELD_NAME).getValues(),
+                equalTo(Arrays.asList(0, 1)));
+        assertThat(response.getHits().getAt(1).getId(), equalTo("2"));
+        assertThat(response.getHits().getAt(1).field(PercolatorMatchedSlotSubFetchPhase.FIELD_NAME).getValues(),
+                equalTo(Collections.singletonList(1)));
+    }
+
     public void testPercolatorRangeQueries() throws Exception {
         createIndex("test", client().admin().indices().prepareCreate("test")
                 .addMapping("type", "field1", "type=long", "field2", "type=double", "field3", "type=ip")
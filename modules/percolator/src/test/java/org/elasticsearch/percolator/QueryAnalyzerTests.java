@@ -18,6 +18,9 @@
  */
 package org.elasticsearch.percolator;
 
+import org.apache.lucene.document.InetAddressPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.BlendedTermQuery;
 import org.apache.lucene.queries.CommonTermsQuery;
@@ -41,9 +44,11 @@ import org.apache.lucene.search.spans.SpanTermQuery;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
 import org.elasticsearch.common.lucene.search.function.RandomScoreFunction;
+import org.elasticsearch.percolator.QueryAnalyzer.Range;
 import org.elasticsearch.percolator.QueryAnalyzer.Result;
 import org.elasticsearch.test.ESTestCase;
 
+import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -551,6 +556,64 @@ public class QueryAnalyzerTests extends ESTestCase {
         assertThat(result, sameInstance(expected));
     }
 
+    public void testPointRangeQuery() {
+        Result result = analyze(IntPoint.newRangeQuery("_field", 10, 20));
+        assertThat(result.verified, is(false));
+        assertThat(result.terms.isEmpty(), is(true));
+        assertThat(result.ranges.size(), equalTo(1));
+        Range range = result.ranges.iterator().next();
+        assertThat(range.fieldName, equalTo("_field"));
+        assertThat(IntPoint.decodeDimension(range.lowerPoint, 0), equalTo(10));
+        assertThat(IntPoint.decodeDimension(range.upperPoint, 0), equalTo(20));
+
+        result = analyze(LongPoint.newExactQuery("_field", 15L));
+        assertThat(result.verified, is(false));
+        range = result.ranges.iterator().next();
+        assertThat(LongPoint.decodeDimension(range.lowerPoint, 0), equalTo(15L));
+        assertThat(LongPoint.decodeDimension(range.upperPoint, 0), equalTo(15L));
+    }
+
+    public void testPointRangeQuery_emptyRange() {
+        Result result = analyze(IntPoint.newRangeQuery("_field", 20, 10));
+        assertThat(result.verified, is(true));
+        assertThat(result.terms.isEmpty(), is(true));
+        assertThat(result.ranges.isEmpty(), is(true));
+    }
+
+    public void testPointRangeQuery_unsupportedPoints() throws Exception {
+        InetAddress lower = InetAddress.getByName("192.168.0.1");
+        InetAddress upper = InetAddress.getByName("192.168.0.255");
+        expectThrows(UnsupportedQueryException.class, () -> analyze(InetAddressPoint.newRangeQuery("_field", lower, upper)));
+    }
+
+    public void testPointRangeQueryInBooleanQuery() {
+        TermQuery termQuery = new TermQuery(new Term("_field", "_term"));
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(IntPoint.newRangeQuery("_field1", 10, 20), BooleanClause.Occur.MUST);
+        builder.add(termQuery, BooleanClause.Occur.MUST);
+        Result result = analyze(builder.build());
+        assertThat(result.verified, is(false));
+        assertTermsEqual(result.terms, termQuery.getTerm());
+        assertThat(result.ranges.isEmpty(), is(true));
+
+        builder = new BooleanQuery.Builder();
+        builder.add(IntPoint.newRangeQuery("_field1", 10, 20), BooleanClause.Occur.MUST);
+        builder.add(new TermRangeQuery("_field", null, null, true, false), BooleanClause.Occur.MUST);
+        result = analyze(builder.build());
+        assertThat(result.verified, is(false));
+        assertThat(result.terms.isEmpty(), is(true));
+        assertThat(result.ranges.size(), equalTo(1));
+
+        builder = new BooleanQuery.Builder();
+        builder.add(IntPoint.newRangeQuery("_field1", 10, 20), BooleanClause.Occur.SHOULD);
+        builder.add(LongPoint.newRangeQuery("_field2", 10L, 20L), BooleanClause.Occur.SHOULD);
+        builder.add(termQuery, BooleanClause.Occur.SHOULD);
+        result = analyze(builder.build());
+        assertThat(result.verified, is(false));
+        assertTermsEqual(result.terms, termQuery.getTerm());
+        assertThat(result.ranges.size(), equalTo(2));
+    }
+
     private static void assertTermsEqual(Set<Term> actual, Term... expected) {
         assertEquals(new HashSet<>(Arrays.asList(expected)), actual);
     }
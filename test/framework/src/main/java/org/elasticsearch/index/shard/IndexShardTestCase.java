@@ -273,8 +273,8 @@ public abstract class IndexShardTestCase extends ESTestCase {
             IndexFieldDataService indexFieldDataService = new IndexFieldDataService(indexSettings, indicesFieldDataCache,
                 new NoneCircuitBreakerService(), mapperService);
             indexShard = new IndexShard(routing, indexSettings, shardPath, store, indexCache, mapperService, similarityService,
-                indexFieldDataService, null, indexEventListener, indexSearcherWrapper, threadPool, BigArrays.NON_RECYCLING_INSTANCE, warmer,
-                globalCheckpointSyncer, Collections.emptyList(), Arrays.asList(listeners));
+                indexFieldDataService, null, indexEventListener, indexSearcherWrapper, threadPool, BigArrays.NON_RECYCLING_INSTANCE, null,
+                warmer, globalCheckpointSyncer, Collections.emptyList(), Arrays.asList(listeners));
             success = true;
         } finally {
             if (success == false) {
@@ -400,7 +400,7 @@ public abstract class IndexShardTestCase extends ESTestCase {
             getMetadataSnapshotOrEmpty(replica), false, 0);
         RecoverySourceHandler recovery = new RecoverySourceHandler(primary, recoveryTarget, request, () -> 0L, e -> () -> {
         },
-            (int) ByteSizeUnit.MB.toKB(1), logger);
+            (int) ByteSizeUnit.MB.toKB(1), between(1, 8), logger);
         recovery.recoverToTarget();
         recoveryTarget.markAsDone();
         replica.updateRoutingEntry(ShardRoutingHelper.moveToStarted(replica.routingEntry()));
@@ -94,6 +94,9 @@ public class RandomSearchRequestGenerator {
         if (randomBoolean()) {
             searchRequest.requestCache(randomBoolean());
         }
+        if (randomBoolean()) {
+            searchRequest.setBatchedReduceSize(randomIntBetween(2, 1024));
+        }
         if (randomBoolean()) {
             searchRequest.routing(randomAsciiOfLengthBetween(3, 10));
         }
@@ -131,6 +134,9 @@ public class RandomSearchRequestGenerator {
         if (randomBoolean()) {
             builder.trackScores(randomBoolean());
         }
+        if (randomBoolean()) {
+            builder.trackTotalHits(randomBoolean());
+        }
         if (randomBoolean()) {
             builder.minScore(randomFloat() * 1000);
         }
@@ -160,6 +166,17 @@ public class RandomSearchRequestGenerator {
                 throw new IllegalStateException();
         }
 
+        if (randomBoolean()) {
+            int docValueFieldsSize = randomIntBetween(1, 10);
+            for (int i = 0; i < docValueFieldsSize; i++) {
+                if (randomBoolean()) {
+                    builder.docValueField(randomAsciiOfLengthBetween(5, 50));
+                } else {
+                    builder.docValueField(randomAsciiOfLengthBetween(5, 50), randomAsciiOfLengthBetween(5, 20));
+                }
+            }
+        }
+
         if (randomBoolean()) {
             int scriptFieldsSize = randomInt(25);
             for (int i = 0; i < scriptFieldsSize; i++) {